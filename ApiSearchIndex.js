@@ -0,0 +1,103 @@
+/*
+ * Answers the search box of the endpoints table from the search index that
+ * the generator writes beside the page (apiSearchIndex), instead of matching
+ * the text of every cell on each keystroke.
+ *
+ * Each word typed is looked up as a token prefix; a row matches when it has a
+ * token starting with every word. Without an index the table keeps the
+ * default DataTables search.
+ */
+(function () {
+    if ( typeof apiSearchIndex == "undefined" ) {
+        return;
+    }
+
+    var aTokens = apiSearchIndex.tokens.length > 0 ? apiSearchIndex.tokens.split(" ") : [];
+    var aPostings = apiSearchIndex.postings.split(";");
+    var aDecoded = [];
+    var iRows = apiSearchIndex.rows;
+
+    /* Rows matching the current search, one flag per row, or null when not searching */
+    var aMatches = null;
+
+    /* Decodes the delta-encoded row list of a token on first use */
+    function fnGetRows( iToken ) {
+        if ( typeof aDecoded[iToken] == "undefined" ) {
+            var aDeltas = aPostings[iToken].split(","), aRows = [], iRow = 0;
+            for ( var i=0 ; i<aDeltas.length ; i++ ) {
+                iRow += parseInt( aDeltas[i], 36 );
+                aRows.push( iRow );
+            }
+            aDecoded[iToken] = aRows;
+        }
+        return aDecoded[iToken];
+    }
+
+    /* Index of the first token not less than the prefix */
+    function fnLowerBound( sPrefix ) {
+        var iLow = 0, iHigh = aTokens.length;
+        while ( iLow < iHigh ) {
+            var iMid = (iLow + iHigh) >>> 1;
+            if ( aTokens[iMid] < sPrefix ) {
+                iLow = iMid + 1;
+            } else {
+                iHigh = iMid;
+            }
+        }
+        return iLow;
+    }
+
+    function fnSearch( sQuery ) {
+        var aWords = sQuery.toLowerCase().split(/[^a-z0-9]+/), aResult = null;
+        for ( var w=0 ; w<aWords.length ; w++ ) {
+            var sWord = aWords[w];
+            if ( sWord.length === 0 ) {
+                continue;
+            }
+            var aWordRows = new Uint8Array( iRows );
+            for ( var t=fnLowerBound( sWord ) ; t<aTokens.length && aTokens[t].indexOf( sWord ) === 0 ; t++ ) {
+                var aRows = fnGetRows( t );
+                for ( var r=0 ; r<aRows.length ; r++ ) {
+                    aWordRows[ aRows[r] ] = 1;
+                }
+            }
+            if ( aResult === null ) {
+                aResult = aWordRows;
+            } else {
+                for ( var i=0 ; i<iRows ; i++ ) {
+                    aResult[i] &= aWordRows[i];
+                }
+            }
+        }
+        return aResult;
+    }
+
+    /* Keeps the search applied when the table is sorted or redrawn */
+    $.fn.dataTableExt.afnFiltering.push( function ( oSettings, aData, iDataIndex ) {
+        return aMatches === null || aMatches[iDataIndex] === 1;
+    } );
+
+    $(document).ready( function () {
+        var oTable = $("#endpoints").dataTable();
+        var sQuery = "";
+        $("#endpoints_filter input").unbind( "keyup.DT" ).bind( "keyup.DT", function () {
+            if ( this.value == sQuery ) {
+                return;
+            }
+            sQuery = this.value;
+            aMatches = fnSearch( sQuery );
+
+            /* Narrow the rows in their current order and draw without refiltering */
+            var oSettings = oTable.fnSettings();
+            var aiMaster = oSettings.aiDisplayMaster;
+            oSettings.aiDisplay = [];
+            for ( var i=0 ; i<aiMaster.length ; i++ ) {
+                if ( aMatches === null || aMatches[ aiMaster[i] ] === 1 ) {
+                    oSettings.aiDisplay.push( aiMaster[i] );
+                }
+            }
+            oSettings._iDisplayStart = 0;
+            oTable.fnDraw( false );
+        } );
+    } );
+})();
@@ -3,9 +3,12 @@
  *    http://datatables.net/release-datatables/extras/FixedColumns/row_grouping_height.html
  */
 
+/* Row classes of the markup rows, by HTTP method */
+var methodGrades = { "GET": "gradeA", "POST": "gradeU", "PUT": "gradeC", "DELETE": "gradeX" };
+
 $(document).ready( function () {
     var tableID = "#endpoints";
-    var oTable = $(tableID).dataTable( {
+    var oOptions = {
         "sScrollY": "100%",
         "sScrollX": "100%",
         "sScrollXInner": "100%",
@@ -16,7 +19,28 @@ $(document).ready( function () {
         // pageLength: -1,
         processing: true,
         "aLengthMenu": [[10,25,50,100,250,500,-1], [10,25,50,100,250,500,"ALL"]]
-    });
+    };
+
+    /* Rows generated as JSON, either embedded in the page or in a file beside it.
+     * Only the rows being displayed are turned into DOM nodes. */
+    var sDataSource = $(tableID).attr("data-source");
+    if ( typeof apiIndexData != "undefined" || sDataSource ) {
+        if ( typeof apiIndexData != "undefined" ) {
+            oOptions.aaData = apiIndexData;
+        } else {
+            oOptions.sAjaxSource = sDataSource;
+        }
+        oOptions.bDeferRender = true;
+        /* The generator already wrote the rows in order */
+        oOptions.aaSorting = [];
+        oOptions.aoColumnDefs = [ { "sClass": "column-content-small", "aTargets": [ 4, 8 ] } ];
+        oOptions.fnRowCallback = function ( nRow, aData ) {
+            $(nRow).addClass( methodGrades[ aData[1] ] );
+            return nRow;
+        };
+    }
+
+    var oTable = $(tableID).dataTable( oOptions );
 
     //$(tableID).dataTable().columns([3]).visible(false);
 
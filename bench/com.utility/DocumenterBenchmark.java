@@ -0,0 +1,279 @@
+package com.utility;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+import com.utility.RESTEndpointsDocumenter.RestEndpoint;
+
+/**
+ * Benchmarks the stages of a documenter run separately against
+ * {@link SyntheticResourceCorpus} packages of growing size:
+ * <ul>
+ * <li>{@code discovery}: listing the class files of the package</li>
+ * <li>{@code extraction.bytecode}: decoding the listed class files into
+ * endpoints with {@link BytecodeEndpointScanner}</li>
+ * <li>{@code extraction.reflection}: {@link RESTEndpointsDocumenter#findRESTEndpoints(String)}
+ * in a fresh class loader, so loading the classes is part of it</li>
+ * <li>{@code rendering}: writing the HTML page and its search index with
+ * {@link HtmlEndpointRenderer}</li>
+ * </ul>
+ * Every stage runs serially on the calling thread for a number of warmup
+ * iterations and then measured ones, reporting the mean and best time and the
+ * bytes allocated per iteration.
+ * <p>
+ * Results can be saved as a properties file and later runs checked against
+ * it; the run fails with exit code 1 when a stage got slower or allocates
+ * more than the tolerance allows.
+ * <p>
+ * Usage: {@code DocumenterBenchmark [--iterations n] [--warmup n] [--corpus dir]
+ * [--save file] [--baseline file] [--tolerance fraction] [classes...]}; the
+ * corpus sizes default to 100, 1k and 10k resource classes.
+ */
+public class DocumenterBenchmark {
+
+    private static final int[] DEFAULT_CLASSES = {100, 1_000, 10_000};
+
+    private static final double DEFAULT_TOLERANCE = 0.25;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private int iterations = 10;
+
+    private int warmup = 5;
+
+    private final Properties results = new Properties();
+
+    public static void main(String[] args) throws Exception {
+        final DocumenterBenchmark benchmark = new DocumenterBenchmark();
+        final List<Integer> sizes = new ArrayList<>();
+        Path corpusRoot = null;
+        Path save = null;
+        Path baseline = null;
+        double tolerance = DEFAULT_TOLERANCE;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--iterations":
+                    benchmark.iterations = Integer.parseInt(args[++i]);
+                    break;
+                case "--warmup":
+                    benchmark.warmup = Integer.parseInt(args[++i]);
+                    break;
+                case "--corpus":
+                    corpusRoot = Paths.get(args[++i]);
+                    break;
+                case "--save":
+                    save = Paths.get(args[++i]);
+                    break;
+                case "--baseline":
+                    baseline = Paths.get(args[++i]);
+                    break;
+                case "--tolerance":
+                    tolerance = Double.parseDouble(args[++i]);
+                    break;
+                default:
+                    sizes.add(Integer.parseInt(args[i]));
+                    break;
+            }
+        }
+        if (sizes.isEmpty()) {
+            for (final int size : DEFAULT_CLASSES) {
+                sizes.add(size);
+            }
+        }
+
+        // a temporary corpus is thrown away, a given one is kept for the next run
+        final boolean temporary = corpusRoot == null;
+        final Path root = temporary ? Files.createTempDirectory("documenter-benchmark") : corpusRoot;
+        try {
+            System.out.println(String.format("%8s %-24s %10s %10s %10s %12s %12s", "classes", "benchmark",
+                    "endpoints", "mean ms", "best ms", "us/class", "alloc MB/op"));
+            for (final int size : sizes) {
+                benchmark.run(new SyntheticResourceCorpus(SyntheticResourceCorpus.DEFAULT_PACKAGE, size,
+                        SyntheticResourceCorpus.DEFAULT_SEED), root.resolve("corpus-" + size));
+            }
+        }
+        finally {
+            if (temporary) {
+                delete(root);
+            }
+        }
+
+        if (save != null) {
+            try (OutputStream out = Files.newOutputStream(save)) {
+                benchmark.results.store(out, "DocumenterBenchmark results: mean nanoseconds and bytes per operation");
+            }
+            System.out.println("Results written to " + save.toAbsolutePath());
+        }
+        if (baseline != null && benchmark.compare(baseline, tolerance) == false) {
+            System.exit(1);
+        }
+    }
+
+    private void run(final SyntheticResourceCorpus corpus, final Path directory) throws Exception {
+        final Path classes = corpus.compile(directory);
+        final String basePackage = corpus.getBasePackage();
+        final String packagePath = basePackage.replace('.', '/');
+        final int size = corpus.getResourceClasses();
+
+        final List<ClassFileEntry> classFiles = measure(size, "discovery",
+                () -> new ClassFileLocator().list(classes, packagePath), List::size);
+
+        // the class files are read up front, so that extraction does no I/O
+        final List<byte[]> classBytes = new ArrayList<>(classFiles.size());
+        for (final ClassFileEntry classFile : classFiles) {
+            classBytes.add(classFile.readBytes());
+        }
+        final URL[] urls = {classes.toUri().toURL()};
+        final List<RestEndpoint> endpoints;
+        try (URLClassLoader classLoader = new URLClassLoader(urls, DocumenterBenchmark.class.getClassLoader())) {
+            endpoints = measure(size, "extraction.bytecode", () -> {
+                final BytecodeEndpointScanner scanner = new BytecodeEndpointScanner(classLoader, 1);
+                final List<RestEndpoint> found = new ArrayList<>();
+                for (final byte[] bytes : classBytes) {
+                    found.addAll(scanner.scanClass(bytes));
+                }
+                found.sort(RESTEndpointsDocumenter.ENDPOINT_ORDER);
+                return found;
+            }, List::size);
+        }
+
+        measure(size, "extraction.reflection", () -> {
+            final Thread thread = Thread.currentThread();
+            final ClassLoader previous = thread.getContextClassLoader();
+            try (URLClassLoader classLoader = new URLClassLoader(urls, DocumenterBenchmark.class.getClassLoader())) {
+                thread.setContextClassLoader(classLoader);
+                return new RESTEndpointsDocumenter().findRESTEndpoints(basePackage);
+            }
+            finally {
+                thread.setContextClassLoader(previous);
+            }
+        }, List::size);
+
+        final HtmlEndpointRenderer renderer = new HtmlEndpointRenderer();
+        final WritableByteChannel discard = new DiscardingChannel();
+        measure(size, "rendering", () -> renderer.render(endpoints, discard)
+                + renderer.renderSearchIndex(endpoints, discard), bytes -> endpoints.size());
+    }
+
+    /**
+     * Runs one stage for the warmup and the measured iterations, prints its
+     * line and records its results. Returns the result of the last iteration.
+     */
+    private <T> T measure(final int size, final String name, final Stage<T> stage, final Count<T> count)
+            throws Exception {
+        T result = null;
+        for (int i = 0; i < warmup; i++) {
+            result = stage.run();
+        }
+        System.gc();
+
+        final long threadId = Thread.currentThread().getId();
+        long totalNanos = 0;
+        long bestNanos = Long.MAX_VALUE;
+        long totalBytes = 0;
+        for (int i = 0; i < iterations; i++) {
+            final long startBytes = THREADS.getThreadAllocatedBytes(threadId);
+            final long start = System.nanoTime();
+            result = stage.run();
+            final long nanos = System.nanoTime() - start;
+            totalBytes += THREADS.getThreadAllocatedBytes(threadId) - startBytes;
+            totalNanos += nanos;
+            bestNanos = Math.min(bestNanos, nanos);
+        }
+
+        final long meanNanos = totalNanos / iterations;
+        final long meanBytes = totalBytes / iterations;
+        System.out.println(String.format("%8d %-24s %10d %10.2f %10.2f %12.2f %12.2f", size, name,
+                count.of(result), meanNanos / 1e6, bestNanos / 1e6, meanNanos / 1e3 / size,
+                meanBytes / (1024.0 * 1024.0)));
+        results.setProperty(size + "." + name + ".nanosPerOp", Long.toString(meanNanos));
+        results.setProperty(size + "." + name + ".bytesPerOp", Long.toString(meanBytes));
+        return result;
+    }
+
+    /**
+     * Compares the results with a baseline saved by an earlier run and prints
+     * every stage that got worse by more than the tolerance. Stages missing
+     * from either side are skipped.
+     */
+    private boolean compare(final Path baselineFile, final double tolerance) throws IOException {
+        final Properties baseline = new Properties();
+        try (InputStream in = Files.newInputStream(baselineFile)) {
+            baseline.load(in);
+        }
+        boolean passed = true;
+        for (final String key : new TreeSet<>(results.stringPropertyNames())) {
+            final String expected = baseline.getProperty(key);
+            if (expected == null) {
+                continue;
+            }
+            final long before = Long.parseLong(expected);
+            final long after = Long.parseLong(results.getProperty(key));
+            if (after > before * (1 + tolerance)) {
+                System.out.println(String.format("REGRESSION %s: %d -> %d (%+.1f%%)", key, before, after,
+                        100.0 * (after - before) / before));
+                passed = false;
+            }
+        }
+        System.out.println(passed ? "No regressions against " + baselineFile
+                : "Regressions against " + baselineFile + " beyond " + Math.round(tolerance * 100) + "%");
+        return passed;
+    }
+
+    private static void delete(final Path root) throws IOException {
+        if (Files.exists(root) == false) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (final Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private interface Stage<T> {
+        T run() throws Exception;
+    }
+
+    private interface Count<T> {
+        long of(T result);
+    }
+
+    /**
+     * Accepts and drops everything written, so rendering is measured without
+     * any I/O.
+     */
+    private static final class DiscardingChannel implements WritableByteChannel {
+        @Override
+        public int write(final ByteBuffer source) {
+            final int bytes = source.remaining();
+            source.position(source.limit());
+            return bytes;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.utility;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.utility.EndpointProbe.EndpointLatency;
+import com.utility.RESTEndpointsDocumenter.EndpointParameter;
+import com.utility.RESTEndpointsDocumenter.MethodEnum;
+import com.utility.RESTEndpointsDocumenter.ParameterType;
+import com.utility.RESTEndpointsDocumenter.RestEndpoint;
+
+/**
+ * Probes endpoints served by an in-process JDK {@code HttpServer} and checks
+ * what {@link EndpointProbe} records: which endpoints it calls, with which
+ * parameter values and {@code Accept} header, the requests, errors and
+ * latencies per endpoint, and that at a rate no request arrives before it is
+ * due. An unpaced round warms the client and the server up first. Prints
+ * each check and exits with status 1 if any fails.
+ * <p>
+ * Usage: {@code EndpointProbeCheck [rate] [requestsPerEndpoint]}, 200 requests
+ * per second and 25 requests by default.
+ */
+public class EndpointProbeCheck {
+
+    private static final long SLOW_MILLIS = 20;
+
+    private static final int CONCURRENCY = 4;
+
+    // arrival times of the requests at the server, in nanoseconds
+    private static final List<Long> arrivals = Collections.synchronizedList(new ArrayList<>());
+
+    private static int failures;
+
+    public static void main(String[] args) throws Exception {
+        final double rate = args.length > 0 ? Double.parseDouble(args[0]) : 200;
+        final int requestsPerEndpoint = args.length > 1 ? Integer.parseInt(args[1]) : 25;
+
+        final HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        final ExecutorService handlers = Executors.newFixedThreadPool(CONCURRENCY * 2);
+        server.setExecutor(handlers);
+        server.createContext("/api/", EndpointProbeCheck::handle);
+        server.start();
+        try {
+            final RestEndpoint fast = endpoint(MethodEnum.GET, "/api/fast");
+            final RestEndpoint slow = endpoint(MethodEnum.GET, "/api/slow");
+            final RestEndpoint failing = endpoint(MethodEnum.GET, "/api/failing");
+            final RestEndpoint item = endpoint(MethodEnum.GET, "/api/items/{id: \\d+}");
+            item.pathParameters.add(parameter(ParameterType.PATH, "id", null));
+            item.queryParameters.add(parameter(ParameterType.QUERY, "view", "full"));
+            item.produces.add("application/json");
+            final RestEndpoint post = endpoint(MethodEnum.POST, "/api/fast");
+            final RestEndpoint unknownId = endpoint(MethodEnum.GET, "/api/orders/{orderId}");
+            unknownId.pathParameters.add(parameter(ParameterType.PATH, "orderId", null));
+
+            final EndpointProbe probe = new EndpointProbe(URI.create("http://127.0.0.1:"
+                    + server.getAddress().getPort() + "/"));
+            probe.setConcurrency(CONCURRENCY);
+            probe.setRequestsPerEndpoint(requestsPerEndpoint);
+            probe.setSamples(Collections.singletonMap("id", "42"));
+            final List<RestEndpoint> restEndpoints = Arrays.asList(fast, slow, failing, item, post, unknownId);
+            final EndpointProbe.Results warmUp = probe.probe(restEndpoints);
+            check(warmUp.get(fast) != null && warmUp.get(fast).getRequests() == requestsPerEndpoint,
+                    "unpaced round sent " + requestsPerEndpoint + " requests to the fast endpoint");
+            arrivals.clear();
+
+            probe.setRate(rate);
+            final long start = System.nanoTime();
+            final EndpointProbe.Results results = probe.probe(restEndpoints);
+            final long elapsed = System.nanoTime() - start;
+
+            check(results.size() == 4, "4 endpoints probed, POST and unresolved path parameter skipped: "
+                    + results.size());
+            check(results.get(post) == null && results.get(unknownId) == null, "skipped endpoints have no results");
+            for (final RestEndpoint restEndpoint : Arrays.asList(fast, slow, failing, item)) {
+                final EndpointLatency latency = results.get(restEndpoint);
+                check(latency != null && latency.getRequests() == requestsPerEndpoint
+                        && latency.getHistogram().getCount() == requestsPerEndpoint,
+                        restEndpoint.uri + " recorded " + requestsPerEndpoint + " latencies: "
+                                + (latency != null ? latency.getHistogram().getCount() : "none"));
+            }
+            check(results.get(fast).getErrors() == 0, "fast endpoint without errors: "
+                    + results.get(fast).getErrors());
+            check(results.get(item).getErrors() == 0, "sample path value, default query value and Accept header"
+                    + " sent: " + results.get(item).getErrors() + " errors");
+            check(results.get(failing).getErrorRate() == 1.0, "500 responses count as errors: "
+                    + results.get(failing).getErrorRate());
+            final long slowMedian = results.get(slow).getHistogram().getValueAtPercentile(50);
+            final long fastMedian = results.get(fast).getHistogram().getValueAtPercentile(50);
+            check(slowMedian >= SLOW_MILLIS * 1_000, "slow p50 at least " + SLOW_MILLIS + " ms: " + slowMedian
+                    + " us");
+            check(fastMedian < slowMedian, "fast p50 below slow p50: " + fastMedian + " us");
+
+            final int total = 4 * requestsPerEndpoint;
+            final long span = (long) ((total - 1) / rate * 1_000_000_000L);
+            check(arrivals.size() == total, total + " requests arrived: " + arrivals.size());
+            check(elapsed >= span, "probe took the " + span / 1_000_000 + " ms the rate gives: "
+                    + elapsed / 1_000_000 + " ms");
+            final List<Long> times = new ArrayList<>(arrivals);
+            Collections.sort(times);
+            // of the first k + 1 requests to arrive, one at least was due k intervals after the start
+            final long interval = (long) (1_000_000_000L / rate);
+            int early = 0;
+            for (int k = 0; k < times.size(); k++) {
+                if (times.get(k) < start + k * interval) {
+                    early++;
+                }
+            }
+            check(early == 0, "no request arrived before it was due: " + early + " early");
+        }
+        finally {
+            server.stop(0);
+            handlers.shutdownNow();
+            handlers.awaitTermination(1, TimeUnit.SECONDS);
+        }
+        if (failures > 0) {
+            System.out.println(failures + " checks failed");
+            System.exit(1);
+        }
+        System.out.println("All checks passed");
+    }
+
+    private static void handle(final HttpExchange exchange) throws IOException {
+        arrivals.add(System.nanoTime());
+        final String path = exchange.getRequestURI().getPath();
+        int status = 200;
+        if (path.equals("/api/slow")) {
+            try {
+                Thread.sleep(SLOW_MILLIS);
+            }
+            catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        else if (path.equals("/api/failing")) {
+            status = 500;
+        }
+        else if (path.startsWith("/api/items/")) {
+            final String accept = exchange.getRequestHeaders().getFirst("Accept");
+            if (path.equals("/api/items/42") == false || "view=full".equals(exchange.getRequestURI().getQuery())
+                    == false) {
+                status = 404;
+            }
+            else if (accept == null || accept.contains("application/json") == false) {
+                status = 406;
+            }
+        }
+        else if (path.equals("/api/fast") == false || exchange.getRequestMethod().equals("GET") == false) {
+            status = 404;
+        }
+        // without keep-alive, so no request goes out on a connection the server is closing
+        exchange.getResponseHeaders().set("Connection", "close");
+        exchange.sendResponseHeaders(status, -1);
+        exchange.close();
+    }
+
+    private static RestEndpoint endpoint(final MethodEnum method, final String uri) {
+        final RestEndpoint restEndpoint = new RestEndpoint();
+        restEndpoint.method = method;
+        restEndpoint.uri = uri;
+        restEndpoint.javaClass = "com.example.ProbedResource";
+        restEndpoint.javaMethodName = method.name().toLowerCase() + uri.replaceAll("[^A-Za-z]", "");
+        return restEndpoint;
+    }
+
+    private static EndpointParameter parameter(final ParameterType type, final String name,
+            final String defaultValue) {
+        final EndpointParameter parameter = new EndpointParameter();
+        parameter.parameterType = type;
+        parameter.name = name;
+        parameter.defaultValue = defaultValue;
+        return parameter;
+    }
+
+    private static void check(final boolean passed, final String description) {
+        System.out.println((passed ? "ok      " : "FAILED  ") + description);
+        if (passed == false) {
+            failures++;
+        }
+    }
+}
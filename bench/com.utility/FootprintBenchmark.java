@@ -0,0 +1,123 @@
+package com.utility;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import com.utility.RESTEndpointsDocumenter.RestEndpoint;
+
+/**
+ * Measures the heap the endpoints of {@link SyntheticResourceCorpus} packages
+ * retain, as the scanner builds them and once compacted by
+ * {@link EndpointSymbols}, and prints the bytes per endpoint of both. The
+ * symbol table is counted with the compacted endpoints.
+ * <p>
+ * The heap is measured after full collections, so the numbers are steadiest
+ * with {@code -XX:+UseSerialGC}.
+ * <p>
+ * Usage: {@code FootprintBenchmark [--corpus dir] [classes...]}; the corpus
+ * sizes default to 1k, 10k and 20k resource classes, about 5k, 50k and 100k
+ * endpoints.
+ */
+public class FootprintBenchmark {
+
+    private static final int[] DEFAULT_CLASSES = {1_000, 10_000, 20_000};
+
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+    public static void main(String[] args) throws Exception {
+        final List<Integer> sizes = new ArrayList<>();
+        Path corpusRoot = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--corpus")) {
+                corpusRoot = Paths.get(args[++i]);
+            }
+            else {
+                sizes.add(Integer.parseInt(args[i]));
+            }
+        }
+        if (sizes.isEmpty()) {
+            for (final int size : DEFAULT_CLASSES) {
+                sizes.add(size);
+            }
+        }
+
+        // a temporary corpus is thrown away, a given one is kept for the next run
+        final boolean temporary = corpusRoot == null;
+        final Path root = temporary ? Files.createTempDirectory("footprint-benchmark") : corpusRoot;
+        try {
+            System.out.println(String.format("%8s %10s %14s %14s %10s %10s", "classes", "endpoints",
+                    "built B/ep", "compact B/ep", "saved", "symbols"));
+            for (final int size : sizes) {
+                run(new SyntheticResourceCorpus(SyntheticResourceCorpus.DEFAULT_PACKAGE, size,
+                        SyntheticResourceCorpus.DEFAULT_SEED), root.resolve("corpus-" + size));
+            }
+        }
+        finally {
+            if (temporary) {
+                delete(root);
+            }
+        }
+    }
+
+    private static void run(final SyntheticResourceCorpus corpus, final Path directory) throws Exception {
+        final Path classes = corpus.compile(directory);
+        final URL[] urls = {classes.toUri().toURL()};
+        try (URLClassLoader classLoader = new URLClassLoader(urls, FootprintBenchmark.class.getClassLoader())) {
+            // one scan first, so that what the scanner initializes once is not counted
+            scan(classLoader, classes, corpus.getBasePackage());
+
+            final long before = usedHeap();
+            final List<RestEndpoint> endpoints = scan(classLoader, classes, corpus.getBasePackage());
+            final long built = usedHeap() - before;
+
+            final EndpointSymbols symbols = new EndpointSymbols();
+            symbols.compact(endpoints);
+            final long compacted = usedHeap() - before;
+
+            final int count = endpoints.size();
+            System.out.println(String.format("%8d %10d %14.1f %14.1f %9.1f%% %10d", corpus.getResourceClasses(),
+                    count, (double) built / count, (double) compacted / count,
+                    100.0 * (built - compacted) / built, symbols.size()));
+        }
+    }
+
+    /**
+     * Returns the endpoints of the package as the scanner builds them, not
+     * compacted.
+     */
+    private static List<RestEndpoint> scan(final ClassLoader classLoader, final Path classes,
+            final String basePackage) throws Exception {
+        final BytecodeEndpointScanner scanner = new BytecodeEndpointScanner(classLoader, 1);
+        scanner.setSymbols(null);
+        return scanner.findRESTEndpoints(Collections.singletonList(classes), basePackage);
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return MEMORY.getHeapMemoryUsage().getUsed();
+    }
+
+    private static void delete(final Path root) throws Exception {
+        if (Files.exists(root) == false) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (final Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+}
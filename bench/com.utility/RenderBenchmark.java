@@ -0,0 +1,111 @@
+package com.utility;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.utility.RESTEndpointsDocumenter.EndpointParameter;
+import com.utility.RESTEndpointsDocumenter.MethodEnum;
+import com.utility.RESTEndpointsDocumenter.ParameterType;
+import com.utility.RESTEndpointsDocumenter.RestEndpoint;
+
+/**
+ * Measures how fast {@link HtmlEndpointRenderer} writes pages of synthetic
+ * endpoints to disk, including the final rename, and prints rows per second
+ * and throughput for each page size.
+ * <p>
+ * Usage: {@code RenderBenchmark [rounds] [rows...]}; the row counts default to
+ * 10k, 50k, 100k and 200k.
+ */
+public class RenderBenchmark {
+
+    private static final int[] DEFAULT_ROWS = {10_000, 50_000, 100_000, 200_000};
+
+    public static void main(String[] args) throws IOException {
+        final int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        final int[] rowCounts = new int[Math.max(args.length - 1, 0)];
+        for (int i = 1; i < args.length; i++) {
+            rowCounts[i - 1] = Integer.parseInt(args[i]);
+        }
+
+        final Path directory = Files.createTempDirectory("render-benchmark");
+        final Path target = directory.resolve("jersey-api-index.html");
+        final HtmlEndpointRenderer renderer = new HtmlEndpointRenderer();
+        try {
+            System.out.println(String.format("%10s %10s %12s %10s %10s", "rows", "best ms", "rows/s", "MB", "MB/s"));
+            for (final int rows : rowCounts.length > 0 ? rowCounts : DEFAULT_ROWS) {
+                final List<RestEndpoint> endpoints = createEndpoints(rows);
+
+                // one untimed round so the JIT has compiled the row writer
+                long bytes = renderer.render(endpoints, target);
+                long best = Long.MAX_VALUE;
+                for (int i = 0; i < rounds; i++) {
+                    final long start = System.nanoTime();
+                    bytes = renderer.render(endpoints, target);
+                    best = Math.min(best, System.nanoTime() - start);
+                }
+
+                final double seconds = best / 1e9;
+                final double megabytes = bytes / (1024.0 * 1024.0);
+                System.out.println(String.format("%10d %10.1f %12.0f %10.1f %10.1f", rows, best / 1e6,
+                        rows / seconds, megabytes, megabytes / seconds));
+            }
+        }
+        finally {
+            Files.deleteIfExists(target);
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    /**
+     * Creates endpoints shaped like those of a typical resource class, with
+     * parameters, media types, responses, tags and text that needs escaping.
+     */
+    static List<RestEndpoint> createEndpoints(final int count) {
+        final MethodEnum[] methods = MethodEnum.values();
+        final List<RestEndpoint> endpoints = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final int resource = i / methods.length;
+            final RestEndpoint endpoint = new RestEndpoint();
+            endpoint.uri = RESTEndpointsDocumenter.BASE_URI + "/resource" + resource + "/{id}/items";
+            endpoint.method = methods[i % methods.length];
+            endpoint.javaClass = "com.server.api.generated.Resource" + resource;
+            endpoint.javaMethodName = endpoint.method.name().toLowerCase() + "Items" + resource;
+            endpoint.javaMethodReturnType = "javax.ws.rs.core.Response";
+
+            final EndpointParameter id = new EndpointParameter();
+            id.parameterType = ParameterType.PATH;
+            id.name = "id";
+            id.javaType = "java.lang.String";
+            endpoint.pathParameters.add(id);
+
+            final EndpointParameter limit = new EndpointParameter();
+            limit.parameterType = ParameterType.QUERY;
+            limit.name = "limit";
+            limit.javaType = "int";
+            limit.defaultValue = "25";
+            endpoint.queryParameters.add(limit);
+
+            if (endpoint.method == MethodEnum.POST || endpoint.method == MethodEnum.PUT) {
+                final EndpointParameter payload = new EndpointParameter();
+                payload.javaType = "com.server.api.generated.Item" + resource;
+                endpoint.payloadParameters.add(payload);
+                endpoint.consumes.add("application/json");
+            }
+            endpoint.produces.add("application/json");
+            endpoint.produces.add("application/xml");
+            endpoint.successResponseTypes.add("com.server.api.generated.Item" + resource);
+            endpoint.failureResponseTypes.add("com.server.api.generated.Error");
+
+            endpoint.tags.add("resource" + resource % 50);
+            endpoint.annotations.add("javax.ws.rs.Produces");
+            endpoint.annotations.add("io.swagger.annotations.ApiOperation");
+            endpoint.description = "Items of resource " + resource + " & <its> \"children\"";
+            endpoint.notes = "Generated endpoint " + i;
+            endpoints.add(endpoint);
+        }
+        return endpoints;
+    }
+}
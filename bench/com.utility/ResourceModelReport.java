@@ -0,0 +1,97 @@
+package com.utility;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import javax.ws.rs.core.Application;
+
+import org.glassfish.jersey.media.multipart.MultiPartFeature;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.server.model.ResourceModel;
+
+import com.utility.RESTEndpointsDocumenter.RestEndpoint;
+
+/**
+ * Compares the endpoints of an application as Jersey's resource model has
+ * them with those the reflection scan finds in its package, and prints the
+ * time each extraction takes: the reflection and bytecode scans, building the
+ * model in an {@code ApplicationHandler}, and reading the endpoints from the
+ * built model. Speedups over the reflection scan are printed for the whole
+ * model path and for a model the application has built anyway. The
+ * differences are printed with the reflection scan as the baseline, so added
+ * endpoints are those only the model has.
+ * <p>
+ * Usage: {@code ResourceModelReport <package> [rounds] [applicationClass]};
+ * the package and the application must be on the classpath. Without an
+ * application class, a {@code ResourceConfig} of the package, with multipart
+ * support, is modelled.
+ */
+public class ResourceModelReport {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: ResourceModelReport <package> [rounds] [applicationClass]");
+            System.exit(2);
+        }
+        final String packageName = args[0];
+        final int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        final Class<?> applicationClass = args.length > 2 ? Class.forName(args[2], true, classLoader) : null;
+        // a new application each round, as a ResourceConfig keeps the classes it found in its packages
+        final Supplier<Application> application = () -> {
+            if (applicationClass == null) {
+                return new ResourceConfig().packages(packageName).register(MultiPartFeature.class);
+            }
+            try {
+                return (Application) applicationClass.getDeclaredConstructor().newInstance();
+            }
+            catch (final ReflectiveOperationException e) {
+                throw new IllegalArgumentException("Unable to create the application " + applicationClass, e);
+            }
+        };
+
+        // one untimed round each so the JIT and the page cache are warm
+        final List<RestEndpoint> reflected = new RESTEndpointsDocumenter().findRESTEndpoints(packageName);
+        final List<RestEndpoint> scanned = new BytecodeEndpointScanner(classLoader).findRESTEndpoints(packageName);
+        final ResourceModel resourceModel = new RESTEndpointsDocumenter().buildResourceModel(application.get());
+        final List<RestEndpoint> modelled = new RESTEndpointsDocumenter().findRESTEndpoints(resourceModel);
+
+        long reflectionNanos = Long.MAX_VALUE;
+        long bytecodeNanos = Long.MAX_VALUE;
+        long buildNanos = Long.MAX_VALUE;
+        long extractNanos = Long.MAX_VALUE;
+        for (int i = 0; i < rounds; i++) {
+            long start = System.nanoTime();
+            new RESTEndpointsDocumenter().findRESTEndpoints(packageName);
+            reflectionNanos = Math.min(reflectionNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            new BytecodeEndpointScanner(classLoader).findRESTEndpoints(packageName);
+            bytecodeNanos = Math.min(bytecodeNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            new RESTEndpointsDocumenter().buildResourceModel(application.get());
+            buildNanos = Math.min(buildNanos, System.nanoTime() - start);
+
+            // the model an application has already built, as ApiIndexFeature() reads it
+            start = System.nanoTime();
+            new RESTEndpointsDocumenter().findRESTEndpoints(resourceModel);
+            extractNanos = Math.min(extractNanos, System.nanoTime() - start);
+        }
+
+        System.out.println("Package:                  " + packageName);
+        System.out.println("Endpoints (reflection):   " + reflected.size());
+        System.out.println("Endpoints (bytecode):     " + scanned.size());
+        System.out.println("Endpoints (model):        " + modelled.size());
+        System.out.println("Reflection scan:          " + reflectionNanos / 1_000_000 + " ms");
+        System.out.println("Bytecode scan:            " + bytecodeNanos / 1_000_000 + " ms");
+        System.out.println("Model build:              " + buildNanos / 1_000_000 + " ms");
+        System.out.println("Model extraction:         " + extractNanos / 1_000_000 + " ms");
+        System.out.println(String.format("Model vs reflection:      %.2fx (build and extraction)",
+                (double) reflectionNanos / (buildNanos + extractNanos)));
+        System.out.println(String.format("Extraction vs reflection: %.2fx (model already built)",
+                (double) reflectionNanos / extractNanos));
+        EndpointSnapshotDiff.compare(EndpointSnapshot.of(reflected), EndpointSnapshot.of(modelled))
+                .print(System.out);
+    }
+}
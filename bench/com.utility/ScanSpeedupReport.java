@@ -0,0 +1,72 @@
+package com.utility;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.utility.RESTEndpointsDocumenter.RestEndpoint;
+
+/**
+ * Compares the serial scan of a package with the parallel one and prints the
+ * speedup. Both scans must produce the same endpoints in the same order.
+ * <p>
+ * Usage: {@code ScanSpeedupReport <package> [parallelism] [rounds]}; the
+ * package must be on the classpath.
+ */
+public class ScanSpeedupReport {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: ScanSpeedupReport <package> [parallelism] [rounds]");
+            System.exit(2);
+        }
+        final String packageName = args[0];
+        final int parallelism = args.length > 1 ? Integer.parseInt(args[1])
+                : Runtime.getRuntime().availableProcessors();
+        final int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+
+        // one untimed round each so the JIT and the page cache are warm
+        final List<RestEndpoint> serial = new BytecodeEndpointScanner(classLoader, 1).findRESTEndpoints(packageName);
+        final List<RestEndpoint> parallel = new BytecodeEndpointScanner(classLoader, parallelism)
+                .findRESTEndpoints(packageName);
+        if (sameOrder(serial, parallel) == false) {
+            throw new IllegalStateException("Serial and parallel scans produced different endpoint lists");
+        }
+
+        final long serialNanos = bestOf(rounds, classLoader, 1, packageName);
+        final long parallelNanos = bestOf(rounds, classLoader, parallelism, packageName);
+
+        System.out.println("Package:            " + packageName);
+        System.out.println("Endpoints:          " + serial.size());
+        System.out.println("Serial (1 thread):  " + serialNanos / 1_000_000 + " ms");
+        System.out.println("Parallel (" + parallelism + " threads): " + parallelNanos / 1_000_000 + " ms");
+        System.out.println(String.format("Speedup:            %.2fx", (double) serialNanos / parallelNanos));
+    }
+
+    /**
+     * Returns the fastest of several scans, each with a fresh scanner so that
+     * no class file is served from a previous round.
+     */
+    private static long bestOf(final int rounds, final ClassLoader classLoader, final int parallelism,
+            final String packageName) throws IOException {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < rounds; i++) {
+            final long start = System.nanoTime();
+            new BytecodeEndpointScanner(classLoader, parallelism).findRESTEndpoints(packageName);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    private static boolean sameOrder(final List<RestEndpoint> expected, final List<RestEndpoint> actual) {
+        if (expected.size() != actual.size()) {
+            return false;
+        }
+        for (int i = 0; i < expected.size(); i++) {
+            if (RESTEndpointsDocumenter.ENDPOINT_ORDER.compare(expected.get(i), actual.get(i)) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
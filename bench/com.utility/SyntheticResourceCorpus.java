@@ -0,0 +1,277 @@
+package com.utility;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/**
+ * Generates and compiles a package of synthetic Jersey resource classes to
+ * benchmark the documenter against, at any scale from a hundred to tens of
+ * thousands of classes.
+ * <p>
+ * Each resource class mixes the shapes real resources have: collection and
+ * item {@code GET}s with {@code @PathParam}, {@code @QueryParam},
+ * {@code @DefaultValue} and {@code @Pattern} parameters, JSON and multipart
+ * {@code @FormDataParam} uploads, updates, deletes and nested sub-paths,
+ * documented with Swagger annotations to varying degrees. Every resource has
+ * a nested payload class, so about half the class files scanned are not
+ * resources. The corpus is a function of the class count and the seed.
+ * <p>
+ * Usage: {@code SyntheticResourceCorpus <directory> <classes> [package] [seed]};
+ * the classes are compiled to {@code <directory>/classes}.
+ */
+public class SyntheticResourceCorpus {
+
+    public static final String DEFAULT_PACKAGE = "com.server.api.synthetic";
+
+    public static final long DEFAULT_SEED = 42;
+
+    // resource classes per sub-package, so that no directory gets huge
+    static final int CLASSES_PER_PACKAGE = 500;
+
+    // source files handed to the compiler at once, which bounds its memory
+    private static final int COMPILE_BATCH = 2_000;
+
+    private final String basePackage;
+
+    private final int resourceClasses;
+
+    private final long seed;
+
+    public SyntheticResourceCorpus(final String basePackage, final int resourceClasses, final long seed) {
+        if (resourceClasses < 1) {
+            throw new IllegalArgumentException("At least one resource class is needed: " + resourceClasses);
+        }
+        this.basePackage = basePackage;
+        this.resourceClasses = resourceClasses;
+        this.seed = seed;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: SyntheticResourceCorpus <directory> <classes> [package] [seed]");
+            System.exit(2);
+        }
+        final SyntheticResourceCorpus corpus = new SyntheticResourceCorpus(
+                args.length > 2 ? args[2] : DEFAULT_PACKAGE, Integer.parseInt(args[1]),
+                args.length > 3 ? Long.parseLong(args[3]) : DEFAULT_SEED);
+        final long start = System.nanoTime();
+        final Path classes = corpus.compile(Paths.get(args[0]));
+        System.out.println(corpus.getResourceClasses() + " resource classes compiled to " + classes + " in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    public String getBasePackage() {
+        return basePackage;
+    }
+
+    public int getResourceClasses() {
+        return resourceClasses;
+    }
+
+    /**
+     * Writes the sources to {@code directory/src} and compiles them to
+     * {@code directory/classes}, which is returned. A directory that already
+     * holds the compiled corpus is reused as it is.
+     */
+    public Path compile(final Path directory) throws IOException {
+        final Path classes = directory.resolve("classes");
+        final Path marker = classes.resolve(".corpus");
+        final String description = basePackage + " " + resourceClasses + " " + seed;
+        if (Files.isRegularFile(marker)
+                && description.equals(new String(Files.readAllBytes(marker), StandardCharsets.UTF_8))) {
+            return classes;
+        }
+
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("Compiling the corpus needs a JDK, not a JRE");
+        }
+        final List<Path> sources = writeSources(directory.resolve("src"));
+        Files.createDirectories(classes);
+
+        // the classes of earlier batches are on the class path of later ones
+        final String classpath = System.getProperty("java.class.path") + File.pathSeparator + classes;
+        final List<String> options = Arrays.asList("-d", classes.toString(), "-cp", classpath, "-proc:none",
+                "-nowarn", "-encoding", "UTF-8");
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, Locale.ROOT,
+                StandardCharsets.UTF_8)) {
+            for (int from = 0; from < sources.size(); from += COMPILE_BATCH) {
+                final List<Path> batch = sources.subList(from, Math.min(from + COMPILE_BATCH, sources.size()));
+                final Iterable<? extends JavaFileObject> units = fileManager.getJavaFileObjectsFromPaths(batch);
+                final StringWriter errors = new StringWriter();
+                if (compiler.getTask(errors, fileManager, null, options, null, units).call() == false) {
+                    throw new IOException("Failed to compile the corpus:\n" + errors);
+                }
+            }
+        }
+        Files.write(marker, description.getBytes(StandardCharsets.UTF_8));
+        return classes;
+    }
+
+    /**
+     * Writes the source files of the corpus below the given source root and
+     * returns them, dependencies first.
+     */
+    public List<Path> writeSources(final Path sourceRoot) throws IOException {
+        final List<Path> sources = new ArrayList<>(resourceClasses + 1);
+        sources.add(write(sourceRoot, basePackage, "ApiError", errorSource()));
+        for (int i = 0; i < resourceClasses; i++) {
+            final String pkg = basePackage + ".g" + i / CLASSES_PER_PACKAGE;
+            sources.add(write(sourceRoot, pkg, "Resource" + i, resourceSource(pkg, i)));
+        }
+        return sources;
+    }
+
+    private static Path write(final Path sourceRoot, final String pkg, final String className, final String source)
+            throws IOException {
+        final Path directory = sourceRoot.resolve(pkg.replace('.', '/'));
+        Files.createDirectories(directory);
+        final Path file = directory.resolve(className + ".java");
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write(source);
+        }
+        return file;
+    }
+
+    private String errorSource() {
+        return "package " + basePackage + ";\n\n"
+                + "public class ApiError {\n"
+                + "    public int code;\n"
+                + "    public String message;\n"
+                + "}\n";
+    }
+
+    private String resourceSource(final String pkg, final int index) {
+        final Random random = new Random(seed * 31 + index);
+        final String error = basePackage + ".ApiError";
+        final StringBuilder source = new StringBuilder(4096);
+        source.append("package ").append(pkg).append(";\n\n")
+                .append("import java.io.InputStream;\n")
+                .append("import java.util.List;\n\n")
+                .append("import javax.validation.constraints.Pattern;\n")
+                .append("import javax.ws.rs.*;\n")
+                .append("import javax.ws.rs.core.MediaType;\n")
+                .append("import javax.ws.rs.core.Response;\n\n")
+                .append("import org.glassfish.jersey.media.multipart.FormDataParam;\n\n")
+                .append("import io.swagger.annotations.*;\n\n");
+
+        // some resources are documented at the class level only, some not at all
+        if (random.nextInt(4) > 0) {
+            source.append("@Api(value = \"resource").append(index).append("\", tags = {\"tag")
+                    .append(index % 50).append("\"})\n");
+        }
+        source.append("@Path(\"/resource").append(index).append("\")\n")
+                .append("@Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML})\n")
+                .append("public class Resource").append(index).append(" {\n\n")
+                .append("    public static class Item {\n")
+                .append("        public String id;\n")
+                .append("        public String name;\n")
+                .append("        public List<String> labels;\n")
+                .append("    }\n");
+
+        final int methods = 2 + random.nextInt(7);
+        boolean listed = false;
+        for (int m = 0; m < methods; m++) {
+            final boolean documented = random.nextInt(10) < 7;
+            final boolean responses = documented && random.nextBoolean();
+            final int shape = random.nextInt(7);
+            source.append('\n');
+            if (documented) {
+                source.append("    @ApiOperation(value = \"Operation ").append(m).append(" of resource ")
+                        .append(index).append("\", notes = \"Generated <operation> & \\\"notes\\\" ").append(m)
+                        .append("\")\n");
+            }
+            if (responses) {
+                source.append("    @ApiResponses({@ApiResponse(code = 200, message = \"OK\", response = Item.class),\n")
+                        .append("            @ApiResponse(code = 404, message = \"Not found\", response = ")
+                        .append(error).append(".class)})\n");
+            }
+            switch (shape) {
+                case 0:
+                    // one collection GET per resource, further ones are searches below it
+                    source.append("    @GET\n");
+                    if (listed) {
+                        source.append("    @Path(\"/search").append(m).append("\")\n");
+                    }
+                    listed = true;
+                    source.append("    public List<Item> list").append(m)
+                            .append("(@QueryParam(\"offset\") @DefaultValue(\"0\") int offset,\n")
+                            .append("            @QueryParam(\"limit\") @DefaultValue(\"25\") int limit,\n")
+                            .append("            @QueryParam(\"sort\") @Pattern(regexp = \"[a-z]+(,[a-z]+)*\") String sort) {\n")
+                            .append("        return null;\n");
+                    break;
+                case 1:
+                    source.append("    @GET\n")
+                            .append("    @Path(\"/{id}/v").append(m).append("\")\n")
+                            .append("    public Item get").append(m)
+                            .append("(@PathParam(\"id\") @Pattern(regexp = \"[0-9a-f]{8}\") String id,\n")
+                            .append("            @QueryParam(\"expand\") @DefaultValue(\"false\") boolean expand) {\n")
+                            .append("        return null;\n");
+                    break;
+                case 2:
+                    source.append("    @POST\n")
+                            .append("    @Path(\"/create").append(m).append("\")\n")
+                            .append("    @Consumes(MediaType.APPLICATION_JSON)\n")
+                            .append("    public Response create").append(m).append("(Item item) {\n")
+                            .append("        return null;\n");
+                    break;
+                case 3:
+                    source.append("    @POST\n")
+                            .append("    @Path(\"/{id}/upload").append(m).append("\")\n")
+                            .append("    @Consumes(MediaType.MULTIPART_FORM_DATA)\n")
+                            .append("    public Response upload").append(m).append("(@PathParam(\"id\") String id,\n")
+                            .append("            @FormDataParam(\"file\") InputStream file,\n")
+                            .append("            @FormDataParam(\"name\") String name) {\n")
+                            .append("        return null;\n");
+                    break;
+                case 4:
+                    source.append("    @PUT\n")
+                            .append("    @Path(\"/{id}/v").append(m).append("\")\n")
+                            .append("    @Consumes({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML})\n")
+                            .append("    public Item update").append(m).append("(@PathParam(\"id\") String id, Item item) {\n")
+                            .append("        return item;\n");
+                    break;
+                case 5:
+                    source.append("    @DELETE\n")
+                            .append("    @Path(\"/{id}/v").append(m).append("\")\n")
+                            .append("    public void delete").append(m).append("(@PathParam(\"id\") String id) {\n");
+                    break;
+                default:
+                    source.append("    @GET\n")
+                            .append("    @Path(\"/{id}/children").append(m).append("/{childId: [0-9]+}\")\n")
+                            .append("    public Item child").append(m)
+                            .append("(@PathParam(\"id\") String id, @PathParam(\"childId\") long childId,\n")
+                            .append("            @QueryParam(\"fields\") List<String> fields) {\n")
+                            .append("        return null;\n");
+                    break;
+            }
+            source.append("    }\n");
+        }
+
+        // methods that are no endpoints, which the documenter has to skip
+        source.append("\n    public String describe() {\n")
+                .append("        return \"resource").append(index).append("\";\n")
+                .append("    }\n\n")
+                .append("    private Item find(final String id) {\n")
+                .append("        return null;\n")
+                .append("    }\n")
+                .append("}\n");
+        return source.toString();
+    }
+}
@@ -0,0 +1,750 @@
+package com.utility;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Logger;
+
+import com.utility.RESTEndpointsDocumenter.RestEndpoint;
+import com.utility.TrafficReport.EndpointTraffic;
+
+/**
+ * Reads access logs and aggregates their requests by documented endpoint into
+ * a {@link TrafficReport}, e.g. {@code -Dapiindex.accessLogs=access.log}.
+ * <p>
+ * A log is split into chunks of whole lines, about
+ * {@link #setChunkSize(int) chunk size} bytes each, that are memory-mapped and
+ * read in parallel, each into counts and {@link LatencyHistogram}s of its
+ * own that are merged once all are read. Request paths are resolved with the
+ * {@link RouteIndex} of the endpoints, a segment trie compiled once, so a line
+ * costs a walk down the trie rather than a match against every template.
+ * <p>
+ * Each line is either in the NCSA common or combined format, or a JSON object:
+ * <ul>
+ * <li>NCSA: the method and path are read from the quoted request line, the
+ * status follows it. A latency may end the line: a number with a decimal
+ * point is in seconds (nginx {@code $request_time}), one without in
+ * microseconds (Apache {@code %D}).</li>
+ * <li>JSON: the method from {@code method}, the path from {@code path},
+ * {@code uri}, {@code url} or a {@code request} line, the status from
+ * {@code status}. The latency is read from a member whose name starts with
+ * {@code latency}, {@code duration}, {@code request_time} or
+ * {@code response_time}, in microseconds if it ends with {@code _us}, in
+ * milliseconds if it ends with {@code _ms}, in seconds otherwise.</li>
+ * </ul>
+ * Paths are matched as they were logged, so they must include the base URI
+ * the endpoints are documented with. Logs must be uncompressed to be mapped.
+ */
+public class AccessLogIngester {
+
+    /**
+     * System property with the access logs to read, separated by commas, e.g.
+     * {@code -Dapiindex.accessLogs=logs/access.log,logs/access.log.1}.
+     */
+    public static final String LOGS_PROPERTY = "apiindex.accessLogs";
+
+    /**
+     * The default size of the chunks logs are read in.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 32 << 20;
+
+    private static final Logger LOG = Logger.getLogger(AccessLogIngester.class.getName());
+
+    // the distinct unmatched requests kept apart before the rest are counted together
+    private static final int MAX_UNMATCHED_PATHS = 10_000;
+
+    private static final long MICROS_PER_SECOND = 1_000_000;
+
+    private static final String[] METHODS = {"GET", "POST", "PUT", "DELETE", "HEAD", "OPTIONS", "PATCH"};
+
+    private final List<RestEndpoint> restEndpoints;
+
+    private final RouteIndex routes;
+
+    private final int parallelism;
+
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+    /**
+     * Creates an ingester for the given endpoints with the parallelism of
+     * {@link BytecodeEndpointScanner#PARALLELISM_PROPERTY}.
+     */
+    public AccessLogIngester(final List<RestEndpoint> restEndpoints) {
+        this(restEndpoints, Integer.getInteger(BytecodeEndpointScanner.PARALLELISM_PROPERTY,
+                Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * @param parallelism the number of chunks read at once
+     */
+    public AccessLogIngester(final List<RestEndpoint> restEndpoints, final int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+        }
+        this.restEndpoints = restEndpoints;
+        this.routes = RouteIndex.build(restEndpoints);
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Returns the logs listed by {@link #LOGS_PROPERTY}, or null if it is not
+     * set.
+     */
+    public static List<Path> getLogsFromSystemProperties() {
+        final String logs = System.getProperty(LOGS_PROPERTY);
+        if (logs == null) {
+            return null;
+        }
+        final List<Path> paths = new ArrayList<>();
+        for (final String log : logs.split(",")) {
+            if (log.trim().isEmpty() == false) {
+                paths.add(Paths.get(log.trim()));
+            }
+        }
+        return paths;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Sets the size in bytes logs are split into chunks at; a chunk extends to
+     * the end of the line the size falls in.
+     */
+    public void setChunkSize(final int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be at least 1: " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Reads the logs and returns the traffic of the endpoints.
+     */
+    public TrafficReport ingest(final List<Path> logs) throws IOException {
+        final long start = System.nanoTime();
+        final List<Chunk> chunks = new ArrayList<>();
+        for (final Path log : logs) {
+            split(log, chunks);
+        }
+
+        final Counts counts;
+        if (parallelism == 1) {
+            counts = new Counts();
+            for (final Chunk chunk : chunks) {
+                counts.add(read(chunk));
+            }
+        }
+        else {
+            final ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                counts = pool.submit(() -> chunks.parallelStream().map(chunk -> {
+                    try {
+                        return read(chunk);
+                    }
+                    catch (final IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }).reduce(Counts::merge).orElseGet(Counts::new)).get();
+            }
+            catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while reading access logs", e);
+            }
+            catch (final ExecutionException e) {
+                if (e.getCause() instanceof UncheckedIOException) {
+                    throw ((UncheckedIOException) e.getCause()).getCause();
+                }
+                throw new IOException("Failed to read access logs", e.getCause());
+            }
+            finally {
+                pool.shutdown();
+            }
+        }
+
+        final Map<String, EndpointTraffic> traffic = TrafficReport.byIdentity(counts.traffic);
+        final List<RestEndpoint> unused = new ArrayList<>();
+        for (final RestEndpoint restEndpoint : restEndpoints) {
+            if (traffic.containsKey(EndpointSnapshot.getIdentity(restEndpoint)) == false) {
+                unused.add(restEndpoint);
+            }
+        }
+        unused.sort(RESTEndpointsDocumenter.ENDPOINT_ORDER);
+        LOG.info(() -> counts.lines + " access log lines in " + chunks.size() + " chunks read in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+        return new TrafficReport(traffic, unused, TrafficReport.byFrequency(counts.unmatched), counts.lines,
+                counts.malformed);
+    }
+
+    /**
+     * Adds the chunks of whole lines a log splits into.
+     */
+    private void split(final Path log, final List<Chunk> chunks) throws IOException {
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            final ByteBuffer buffer = ByteBuffer.allocate(4096);
+            long start = 0;
+            while (start < size) {
+                final long end = nextLineStart(channel, Math.min(size, start + chunkSize), size, buffer);
+                if (end - start > Integer.MAX_VALUE) {
+                    throw new IOException("Line too long near offset " + start + " of " + log);
+                }
+                chunks.add(new Chunk(log, start, (int) (end - start)));
+                start = end;
+            }
+        }
+    }
+
+    /**
+     * Returns the offset of the line after the one at the given offset, or the
+     * size at the end of the file.
+     */
+    private static long nextLineStart(final FileChannel channel, long position, final long size,
+            final ByteBuffer buffer) throws IOException {
+        while (position < size) {
+            buffer.clear();
+            final int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private Counts read(final Chunk chunk) throws IOException {
+        final MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(chunk.log, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, chunk.start, chunk.length);
+        }
+        final LineReader reader = new LineReader(buffer, routes);
+        int start = 0;
+        for (int i = 0; i < chunk.length; i++) {
+            if (buffer.get(i) == '\n') {
+                reader.read(start, i);
+                start = i + 1;
+            }
+        }
+        if (start < chunk.length) {
+            reader.read(start, chunk.length);
+        }
+        return reader.counts;
+    }
+
+    private static final class Chunk {
+        final Path log;
+
+        final long start;
+
+        final int length;
+
+        Chunk(final Path log, final long start, final int length) {
+            this.log = log;
+            this.start = start;
+            this.length = length;
+        }
+    }
+
+    /**
+     * The requests of one or more chunks.
+     */
+    private static final class Counts {
+        final Map<RouteIndex.Route, EndpointTraffic> traffic = new HashMap<>();
+
+        final Map<String, Long> unmatched = new HashMap<>();
+
+        long lines;
+
+        long malformed;
+
+        void record(final RouteIndex.Route route, final int status, final long micros) {
+            EndpointTraffic endpointTraffic = traffic.get(route);
+            if (endpointTraffic == null) {
+                endpointTraffic = new EndpointTraffic();
+                traffic.put(route, endpointTraffic);
+            }
+            endpointTraffic.record(status, micros);
+        }
+
+        void unmatched(final String request, final long count) {
+            // an unbounded variety of paths, e.g. of scanners probing the server, must not exhaust the heap
+            final String key = unmatched.size() < MAX_UNMATCHED_PATHS || unmatched.containsKey(request) ? request
+                    : TrafficReport.OTHER_PATHS;
+            unmatched.merge(key, count, Long::sum);
+        }
+
+        void add(final Counts other) {
+            for (final Map.Entry<RouteIndex.Route, EndpointTraffic> entry : other.traffic.entrySet()) {
+                final EndpointTraffic endpointTraffic = traffic.get(entry.getKey());
+                if (endpointTraffic == null) {
+                    traffic.put(entry.getKey(), entry.getValue());
+                }
+                else {
+                    endpointTraffic.add(entry.getValue());
+                }
+            }
+            for (final Map.Entry<String, Long> entry : other.unmatched.entrySet()) {
+                unmatched(entry.getKey(), entry.getValue());
+            }
+            lines += other.lines;
+            malformed += other.malformed;
+        }
+
+        /**
+         * Merges two counts into the larger one, for a parallel reduction.
+         */
+        static Counts merge(final Counts first, final Counts second) {
+            if (first.traffic.size() >= second.traffic.size()) {
+                first.add(second);
+                return first;
+            }
+            second.add(first);
+            return second;
+        }
+    }
+
+    /**
+     * Reads the request of each line of a chunk into its counts. Bytes are
+     * read straight from the mapped chunk; only the path becomes a string.
+     */
+    private static final class LineReader {
+        private final ByteBuffer buffer;
+
+        private final RouteIndex routes;
+
+        private final Counts counts = new Counts();
+
+        private final StringBuilder text = new StringBuilder(256);
+
+        // the request of the line being read
+        private String method;
+
+        private String path;
+
+        private int status;
+
+        private long micros;
+
+        LineReader(final ByteBuffer buffer, final RouteIndex routes) {
+            this.buffer = buffer;
+            this.routes = routes;
+        }
+
+        void read(int from, int to) {
+            while (to > from && isSpace(buffer.get(to - 1))) {
+                to--;
+            }
+            while (from < to && isSpace(buffer.get(from))) {
+                from++;
+            }
+            if (from == to) {
+                return;
+            }
+            counts.lines++;
+            method = null;
+            path = null;
+            status = 0;
+            micros = -1;
+            final boolean parsed = buffer.get(from) == '{' ? readJson(from, to) : readNcsa(from, to);
+            if (parsed == false || method == null || path == null) {
+                counts.malformed++;
+                return;
+            }
+            final RouteIndex.Route route = routes.resolve(method, path);
+            if (route != null) {
+                counts.record(route, status, micros);
+            }
+            else {
+                final int query = path.indexOf('?');
+                counts.unmatched(method + " " + (query < 0 ? path : path.substring(0, query)), 1);
+            }
+        }
+
+        /**
+         * Reads {@code host ident user [time] "METHOD path protocol" status
+         * bytes ["referer" "agent"] [latency]}.
+         */
+        private boolean readNcsa(final int from, final int to) {
+            final int open = indexOf('"', from, to);
+            if (open < 0) {
+                return false;
+            }
+            final int close = indexOf('"', open + 1, to);
+            if (close < 0 || readRequestLine(open + 1, close) == false) {
+                return false;
+            }
+            int position = skipSpaces(close + 1, to);
+            final int statusEnd = tokenEnd(position, to);
+            status = (int) parseNumber(position, statusEnd, 1);
+            position = tokenEnd(skipSpaces(statusEnd, to), to);
+
+            // a number ending the line after the size is the latency
+            int last = to;
+            while (last > position && isSpace(buffer.get(last - 1)) == false) {
+                last--;
+            }
+            if (last > position) {
+                micros = parseNumber(last, to, indexOf('.', last, to) >= 0 ? MICROS_PER_SECOND : 1);
+            }
+            return true;
+        }
+
+        /**
+         * Reads {@code METHOD path protocol}.
+         */
+        private boolean readRequestLine(final int from, final int to) {
+            final int methodEnd = tokenEnd(from, to);
+            final int pathStart = skipSpaces(methodEnd, to);
+            final int pathEnd = tokenEnd(pathStart, to);
+            if (methodEnd == from || pathEnd == pathStart) {
+                return false;
+            }
+            method = toMethod(from, methodEnd);
+            path = toPath(ascii(pathStart, pathEnd));
+            return true;
+        }
+
+        /**
+         * Reads the members of a flat JSON object; nested values are skipped.
+         */
+        private boolean readJson(int position, final int to) {
+            position++;
+            while (true) {
+                position = skipSpaces(position, to);
+                if (position >= to) {
+                    return false;
+                }
+                final byte next = buffer.get(position);
+                if (next == '}') {
+                    return true;
+                }
+                if (next == ',') {
+                    position++;
+                    continue;
+                }
+                if (next != '"') {
+                    return false;
+                }
+                final int keyStart = position + 1;
+                final int keyEnd = stringEnd(keyStart, to);
+                if (keyEnd < 0) {
+                    return false;
+                }
+                position = skipSpaces(keyEnd + 1, to);
+                if (position >= to || buffer.get(position) != ':') {
+                    return false;
+                }
+                position = skipSpaces(position + 1, to);
+                if (position >= to) {
+                    return false;
+                }
+                final int valueEnd = valueEnd(position, to);
+                if (valueEnd < 0) {
+                    return false;
+                }
+                readMember(keyStart, keyEnd, position, valueEnd);
+                position = valueEnd;
+            }
+        }
+
+        private void readMember(final int keyStart, final int keyEnd, final int valueStart, final int valueEnd) {
+            final boolean string = buffer.get(valueStart) == '"';
+            if (bytesEqual(keyStart, keyEnd, "method") && string) {
+                method = toMethod(valueStart + 1, valueEnd - 1);
+            }
+            else if (bytesEqual(keyStart, keyEnd, "path") || bytesEqual(keyStart, keyEnd, "uri")
+                    || bytesEqual(keyStart, keyEnd, "url")) {
+                final String value = string ? unescape(valueStart + 1, valueEnd - 1) : null;
+                if (value != null) {
+                    path = toPath(value);
+                }
+            }
+            else if (bytesEqual(keyStart, keyEnd, "request") && string) {
+                final String requestLine = unescape(valueStart + 1, valueEnd - 1);
+                final String[] parts = requestLine != null ? requestLine.trim().split(" +") : new String[0];
+                if (parts.length >= 2) {
+                    if (method == null) {
+                        method = toMethod(parts[0]);
+                    }
+                    if (path == null) {
+                        path = toPath(parts[1]);
+                    }
+                }
+            }
+            else if (bytesEqual(keyStart, keyEnd, "status")) {
+                status = (int) (string ? parseNumber(valueStart + 1, valueEnd - 1, 1)
+                        : parseNumber(valueStart, valueEnd, 1));
+            }
+            else if (micros < 0) {
+                final long unit = getLatencyUnit(keyStart, keyEnd);
+                if (unit > 0) {
+                    micros = string ? parseNumber(valueStart + 1, valueEnd - 1, unit)
+                            : parseNumber(valueStart, valueEnd, unit);
+                }
+            }
+        }
+
+        /**
+         * Returns the microseconds per unit of a latency member, or 0 for
+         * another member.
+         */
+        private long getLatencyUnit(final int keyStart, final int keyEnd) {
+            if (bytesStartWith(keyStart, keyEnd, "latency") == false
+                    && bytesStartWith(keyStart, keyEnd, "duration") == false
+                    && bytesStartWith(keyStart, keyEnd, "request_time") == false
+                    && bytesStartWith(keyStart, keyEnd, "response_time") == false) {
+                return 0;
+            }
+            if (bytesEndWith(keyStart, keyEnd, "_us")) {
+                return 1;
+            }
+            if (bytesEndWith(keyStart, keyEnd, "_ms")) {
+                return 1_000;
+            }
+            return MICROS_PER_SECOND;
+        }
+
+        /**
+         * Parses a non-negative decimal number, scaled by the given factor, or
+         * returns -1 if it is not one.
+         */
+        private long parseNumber(final int from, final int to, final long scale) {
+            long integer = 0;
+            long fraction = 0;
+            long fractionScale = 1;
+            boolean point = false;
+            boolean digits = false;
+            for (int i = from; i < to; i++) {
+                final byte c = buffer.get(i);
+                if (c >= '0' && c <= '9') {
+                    digits = true;
+                    if (point) {
+                        // digits beyond a microsecond are dropped
+                        if (fractionScale < 1_000_000_000L) {
+                            fraction = fraction * 10 + (c - '0');
+                            fractionScale *= 10;
+                        }
+                    }
+                    else {
+                        integer = integer * 10 + (c - '0');
+                    }
+                }
+                else if (c == '.' && point == false) {
+                    point = true;
+                }
+                else {
+                    return -1;
+                }
+            }
+            if (digits == false) {
+                return -1;
+            }
+            return integer * scale + fraction * scale / fractionScale;
+        }
+
+        private String toMethod(final int from, final int to) {
+            for (final String known : METHODS) {
+                if (bytesEqual(from, to, known)) {
+                    return known;
+                }
+            }
+            return ascii(from, to);
+        }
+
+        private static String toMethod(final String method) {
+            for (final String known : METHODS) {
+                if (known.equals(method)) {
+                    return known;
+                }
+            }
+            return method;
+        }
+
+        /**
+         * Returns the path of an absolute URL, or the path as it is.
+         */
+        private static String toPath(final String target) {
+            final int scheme = target.indexOf("://");
+            if (scheme < 0 || target.indexOf('/') < scheme) {
+                return target;
+            }
+            final int slash = target.indexOf('/', scheme + 3);
+            return slash < 0 ? "/" : target.substring(slash);
+        }
+
+        /**
+         * Returns the offset after a JSON value, or -1.
+         */
+        private int valueEnd(final int from, final int to) {
+            final byte first = buffer.get(from);
+            if (first == '"') {
+                final int end = stringEnd(from + 1, to);
+                return end < 0 ? -1 : end + 1;
+            }
+            if (first == '{' || first == '[') {
+                int depth = 0;
+                for (int i = from; i < to; i++) {
+                    final byte c = buffer.get(i);
+                    if (c == '"') {
+                        i = stringEnd(i + 1, to);
+                        if (i < 0) {
+                            return -1;
+                        }
+                    }
+                    else if (c == '{' || c == '[') {
+                        depth++;
+                    }
+                    else if ((c == '}' || c == ']') && --depth == 0) {
+                        return i + 1;
+                    }
+                }
+                return -1;
+            }
+            int i = from;
+            while (i < to && buffer.get(i) != ',' && buffer.get(i) != '}' && isSpace(buffer.get(i)) == false) {
+                i++;
+            }
+            return i;
+        }
+
+        /**
+         * Returns the offset of the quote closing a JSON string, or -1.
+         */
+        private int stringEnd(final int from, final int to) {
+            for (int i = from; i < to; i++) {
+                final byte c = buffer.get(i);
+                if (c == '\\') {
+                    i++;
+                }
+                else if (c == '"') {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Decodes the content of a JSON string; logged paths are ASCII, so
+         * other characters are kept as their bytes. Returns null for a
+         * Unicode escape without four hex digits.
+         */
+        private String unescape(final int from, final int to) {
+            text.setLength(0);
+            for (int i = from; i < to; i++) {
+                char c = (char) (buffer.get(i) & 0xff);
+                if (c == '\\' && i + 1 < to) {
+                    c = (char) buffer.get(++i);
+                    switch (c) {
+                        case 'n':
+                            c = '\n';
+                            break;
+                        case 't':
+                            c = '\t';
+                            break;
+                        case 'r':
+                            c = '\r';
+                            break;
+                        case 'b':
+                            c = '\b';
+                            break;
+                        case 'f':
+                            c = '\f';
+                            break;
+                        case 'u':
+                            if (i + 4 >= to) {
+                                return null;
+                            }
+                            int code = 0;
+                            for (int digit = i + 1; digit <= i + 4; digit++) {
+                                final int value = Character.digit(buffer.get(digit), 16);
+                                if (value < 0) {
+                                    return null;
+                                }
+                                code = code << 4 | value;
+                            }
+                            c = (char) code;
+                            i += 4;
+                            break;
+                        default:
+                            break;
+                    }
+                }
+                text.append(c);
+            }
+            return text.toString();
+        }
+
+        private String ascii(final int from, final int to) {
+            final byte[] bytes = new byte[to - from];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = buffer.get(from + i);
+            }
+            return new String(bytes, StandardCharsets.ISO_8859_1);
+        }
+
+        private boolean bytesEqual(final int from, final int to, final String text) {
+            return to - from == text.length() && bytesStartWith(from, to, text);
+        }
+
+        private boolean bytesStartWith(final int from, final int to, final String prefix) {
+            if (to - from < prefix.length()) {
+                return false;
+            }
+            for (int i = 0; i < prefix.length(); i++) {
+                if (buffer.get(from + i) != prefix.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean bytesEndWith(final int from, final int to, final String suffix) {
+            return to - from >= suffix.length() && bytesStartWith(to - suffix.length(), to, suffix);
+        }
+
+        private int indexOf(final char c, final int from, final int to) {
+            for (int i = from; i < to; i++) {
+                if (buffer.get(i) == c) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private int skipSpaces(int position, final int to) {
+            while (position < to && isSpace(buffer.get(position))) {
+                position++;
+            }
+            return position;
+        }
+
+        private int tokenEnd(int position, final int to) {
+            while (position < to && isSpace(buffer.get(position)) == false) {
+                position++;
+            }
+            return position;
+        }
+
+        private static boolean isSpace(final byte c) {
+            return c == ' ' || c == '\t' || c == '\r';
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.utility;
+
+import javax.ws.rs.core.Feature;
+import javax.ws.rs.core.FeatureContext;
+
+/**
+ * Serves the live API index from inside a Jersey application, e.g.
+ * {@code resourceConfig.register(new ApiIndexFeature("com.server.api"))}.
+ * Without a package, {@code new ApiIndexFeature()} indexes every resource of
+ * the application's resource model, however it was registered.
+ * <p>
+ * The page assets ({@link HtmlEndpointRenderer#ASSET_FILES}, the
+ * {@link HtmlEndpointRenderer#OPTIONAL_ASSET_FILES optional ones} and the
+ * table images) are expected on the class path below
+ * {@link #DEFAULT_ASSET_ROOT} unless another root is given.
+ * <p>
+ * Endpoint paths are documented below the application's
+ * {@code @ApplicationPath}, or below the base URI given, relative to the
+ * context root. The index's own resource is not listed.
+ */
+public class ApiIndexFeature implements Feature {
+
+    public static final String DEFAULT_ASSET_ROOT = "api-index/";
+
+    private final String basePackage;
+
+    private final String assetRoot;
+
+    private final String baseUri;
+
+    public ApiIndexFeature() {
+        this(null, DEFAULT_ASSET_ROOT);
+    }
+
+    public ApiIndexFeature(final String basePackage) {
+        this(basePackage, DEFAULT_ASSET_ROOT);
+    }
+
+    public ApiIndexFeature(final String basePackage, final String assetRoot) {
+        this(basePackage, assetRoot, null);
+    }
+
+    /**
+     * @param baseUri the prefix of the documented endpoint paths, e.g.
+     *            {@code /api}, or null for the application's
+     *            {@code @ApplicationPath}
+     */
+    public ApiIndexFeature(final String basePackage, final String assetRoot, final String baseUri) {
+        this.basePackage = basePackage;
+        this.assetRoot = assetRoot;
+        this.baseUri = baseUri;
+    }
+
+    @Override
+    public boolean configure(final FeatureContext context) {
+        final ApiIndexListener listener = new ApiIndexListener(basePackage, assetRoot, baseUri);
+        context.register(listener);
+        context.register(new ApiIndexResource(listener));
+        return true;
+    }
+}
@@ -0,0 +1,187 @@
+package com.utility;
+
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+import javax.ws.rs.ApplicationPath;
+import javax.ws.rs.core.Application;
+
+import org.glassfish.jersey.server.model.Resource;
+import org.glassfish.jersey.server.model.ResourceMethod;
+import org.glassfish.jersey.server.model.ResourceModel;
+import org.glassfish.jersey.server.monitoring.ApplicationEvent;
+import org.glassfish.jersey.server.monitoring.ApplicationEventListener;
+import org.glassfish.jersey.server.monitoring.RequestEvent;
+import org.glassfish.jersey.server.monitoring.RequestEventListener;
+
+import com.utility.RESTEndpointsDocumenter.RestEndpoint;
+
+/**
+ * Builds the {@link ApiIndexSnapshot} of the application once it has been
+ * initialized. The endpoints are scanned from the class files of the
+ * application's class loader on a background thread, so neither startup nor
+ * any request waits for it. Without a package, they are read from the
+ * resource model Jersey has built for the application instead. The
+ * {@link ApiIndexResource} serving the index is left out.
+ */
+public class ApiIndexListener implements ApplicationEventListener {
+
+    private static final Logger LOG = Logger.getLogger(ApiIndexListener.class.getName());
+
+    private final String basePackage;
+
+    private final String assetRoot;
+
+    private final String baseUri;
+
+    private volatile ApiIndexSnapshot snapshot;
+
+    private volatile Exception failure;
+
+    private Thread builder;
+
+    /**
+     * @param basePackage the package whose resources are indexed, or null
+     *            for all the resources of the application's resource model
+     * @param assetRoot the class path directory holding the page assets, e.g.
+     *            {@code api-index/}
+     * @param baseUri the prefix of the endpoint paths, or null for the
+     *            {@code @ApplicationPath} of the application, if any
+     */
+    public ApiIndexListener(final String basePackage, final String assetRoot, final String baseUri) {
+        this.basePackage = basePackage;
+        this.assetRoot = assetRoot;
+        this.baseUri = baseUri;
+    }
+
+    /**
+     * Returns the snapshot, or null while it is being built or if building
+     * it failed.
+     */
+    public ApiIndexSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Returns why the snapshot could not be built, or null.
+     */
+    public Exception getFailure() {
+        return failure;
+    }
+
+    @Override
+    public synchronized void onEvent(final ApplicationEvent event) {
+        switch (event.getType()) {
+            case INITIALIZATION_APP_FINISHED:
+                // a daemon thread, so that an unfinished build never holds up shutdown
+                if (builder == null) {
+                    final ClassLoader classLoader = event.getResourceConfig().getClassLoader();
+                    final ResourceModel resourceModel = event.getResourceModel();
+                    final String endpointBaseUri = baseUri != null ? baseUri
+                            : getBaseUri(event.getResourceConfig().getApplication());
+                    builder = new Thread(() -> build(classLoader, resourceModel, endpointBaseUri),
+                            "api-index-builder");
+                    builder.setDaemon(true);
+                    builder.start();
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public RequestEventListener onRequest(final RequestEvent requestEvent) {
+        return null;
+    }
+
+    private void build(final ClassLoader classLoader, final ResourceModel resourceModel, final String baseUri) {
+        try {
+            final long start = System.nanoTime();
+            final List<RestEndpoint> restEndpoints;
+            if (basePackage != null) {
+                final BytecodeEndpointScanner scanner = new BytecodeEndpointScanner(classLoader);
+                scanner.setBaseUri(baseUri);
+                restEndpoints = scanner.findRESTEndpoints(basePackage).stream()
+                        .filter(endpoint -> endpoint.javaClass.equals(ApiIndexResource.class.getName()) == false)
+                        .collect(Collectors.toList());
+            }
+            else {
+                final RESTEndpointsDocumenter documenter = new RESTEndpointsDocumenter();
+                documenter.setBaseUri(baseUri);
+                restEndpoints = documenter.findRESTEndpoints(withoutApiIndex(resourceModel));
+            }
+            snapshot = ApiIndexSnapshot.build(restEndpoints, classLoader, assetRoot);
+            LOG.info("Api-Index of " + restEndpoints.size() + " endpoints built in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms");
+        }
+        catch (final Exception e) {
+            failure = e;
+            LOG.log(Level.SEVERE, "Unable to build the Api-Index of "
+                    + (basePackage != null ? basePackage : "the resource model"), e);
+        }
+    }
+
+    /**
+     * Returns the base URI of an application's endpoints, its
+     * {@code @ApplicationPath} without a trailing slash or wildcard, e.g.
+     * {@code /api}, or an empty string.
+     */
+    static String getBaseUri(final Application application) {
+        final ApplicationPath applicationPath = application != null
+                ? application.getClass().getAnnotation(ApplicationPath.class) : null;
+        if (applicationPath == null) {
+            return "";
+        }
+        String path = applicationPath.value();
+        if (path.endsWith("/*")) {
+            path = path.substring(0, path.length() - 2);
+        }
+        while (path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        if (path.isEmpty() == false && path.startsWith("/") == false) {
+            path = "/" + path;
+        }
+        return path;
+    }
+
+    /**
+     * Returns the resource model without the resources only served by an
+     * {@link ApiIndexResource}.
+     */
+    private static ResourceModel withoutApiIndex(final ResourceModel resourceModel) {
+        final ResourceModel.Builder builder = new ResourceModel.Builder(false);
+        for (final Resource resource : resourceModel.getRootResources()) {
+            if (isApiIndex(resource) == false) {
+                builder.addResource(resource);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Returns whether all the methods of a resource, but those Jersey added
+     * such as {@code OPTIONS}, are handled by an {@link ApiIndexResource}.
+     */
+    private static boolean isApiIndex(final Resource resource) {
+        boolean apiIndex = false;
+        for (final ResourceMethod method : resource.getAllMethods()) {
+            if (method.isExtended() == false) {
+                if (method.getInvocable().getHandler().getHandlerClass() != ApiIndexResource.class) {
+                    return false;
+                }
+                apiIndex = true;
+            }
+        }
+        for (final Resource child : resource.getChildResources()) {
+            if (isApiIndex(child) == false) {
+                return false;
+            }
+            apiIndex = true;
+        }
+        return apiIndex;
+    }
+}
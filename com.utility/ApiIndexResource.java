@@ -0,0 +1,115 @@
+package com.utility;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+
+import com.utility.ApiIndexSnapshot.Representation;
+
+/**
+ * Serves the API index of the running application from the snapshot built
+ * by {@link ApiIndexListener}: the page at
+ * {@code api-index/jersey-api-index.html}, its rows, search index and assets.
+ * <p>
+ * Responses carry a strong {@code ETag} and {@code Last-Modified}, so
+ * polling clients mostly get {@code 304 Not Modified}, and are sent
+ * pre-compressed to clients that accept gzip. Until the snapshot is ready,
+ * requests are answered with {@code 503 Service Unavailable} and a
+ * {@code Retry-After} header.
+ */
+@Path(ApiIndexResource.PATH)
+public class ApiIndexResource {
+
+    public static final String PATH = "api-index";
+
+    static final int RETRY_AFTER_SECONDS = 5;
+
+    // always revalidate, which is a 304 as long as the snapshot is unchanged
+    private static final CacheControl REVALIDATE = CacheControl.valueOf("no-cache");
+
+    private final ApiIndexListener listener;
+
+    public ApiIndexResource(final ApiIndexListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Redirects to the page, so that its relative asset URLs resolve below
+     * {@link #PATH}.
+     */
+    @GET
+    public Response index(@Context final UriInfo uriInfo) {
+        return Response.seeOther(uriInfo.getAbsolutePathBuilder().path(HtmlEndpointRenderer.DEFAULT_PAGE_NAME)
+                .build()).build();
+    }
+
+    @GET
+    @Path("{file: .+}")
+    public Response get(@PathParam("file") final String file,
+            @HeaderParam(HttpHeaders.ACCEPT_ENCODING) final String acceptEncoding, @Context final Request request) {
+        final ApiIndexSnapshot snapshot = listener.getSnapshot();
+        if (snapshot == null) {
+            if (listener.getFailure() != null) {
+                return Response.serverError().entity("The API index could not be built: "
+                        + listener.getFailure()).type("text/plain").build();
+            }
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS).build();
+        }
+
+        final Representation representation = snapshot.get(file);
+        if (representation == null) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+
+        final boolean gzip = representation.gzipped != null && acceptsGzip(acceptEncoding);
+        final EntityTag entityTag = gzip ? representation.gzipEntityTag : representation.entityTag;
+        Response.ResponseBuilder response = request.evaluatePreconditions(snapshot.getLastModified(), entityTag);
+        if (response == null) {
+            response = Response.ok(gzip ? representation.gzipped : representation.bytes, representation.mediaType);
+            if (gzip) {
+                response.encoding("gzip");
+            }
+        }
+        return response.tag(entityTag).lastModified(snapshot.getLastModified()).cacheControl(REVALIDATE)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING).build();
+    }
+
+    /**
+     * Tells whether an {@code Accept-Encoding} header accepts gzip, i.e.
+     * lists {@code gzip} or {@code *} without a zero quality.
+     */
+    static boolean acceptsGzip(final String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (final String coding : acceptEncoding.split(",")) {
+            final String[] parts = coding.split(";");
+            final String name = parts[0].trim();
+            if (name.equalsIgnoreCase("gzip") || name.equals("*")) {
+                boolean accepted = true;
+                for (int i = 1; i < parts.length; i++) {
+                    final String parameter = parts[i].trim();
+                    if (parameter.startsWith("q=")) {
+                        try {
+                            accepted = Double.parseDouble(parameter.substring(2)) > 0;
+                        }
+                        catch (final NumberFormatException e) {
+                            accepted = false;
+                        }
+                    }
+                }
+                return accepted;
+            }
+        }
+        return false;
+    }
+}
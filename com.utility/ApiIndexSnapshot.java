@@ -0,0 +1,203 @@
+package com.utility;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import javax.ws.rs.core.EntityTag;
+
+import com.utility.HtmlEndpointRenderer.ChannelRenderer;
+import com.utility.HtmlEndpointRenderer.RowData;
+import com.utility.RESTEndpointsDocumenter.RestEndpoint;
+
+/**
+ * Everything {@link ApiIndexResource} serves, rendered once: the HTML page,
+ * its JSON rows and search index, the OpenAPI documents, and the page assets. Each file is kept as
+ * bytes together with a gzip-compressed copy and their entity tags, so
+ * serving a request is a map lookup.
+ * <p>
+ * Snapshots are immutable and can be shared by any number of request threads.
+ */
+public final class ApiIndexSnapshot {
+
+    /**
+     * The images referenced by the page style sheets, served with the assets.
+     */
+    static final List<String> IMAGE_FILES = Collections.unmodifiableList(Arrays.asList(
+            "images/sort_asc.png", "images/sort_asc_disabled.png", "images/sort_both.png", "images/sort_desc.png",
+            "images/sort_desc_disabled.png"));
+
+    /**
+     * The name of the OpenAPI documents of the endpoints, served as
+     * {@code openapi.json} and {@code openapi.yaml}.
+     */
+    static final String OPENAPI_NAME = "openapi";
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final List<RestEndpoint> endpoints;
+
+    private final Date lastModified;
+
+    private final Map<String, Representation> files;
+
+    private ApiIndexSnapshot(final List<RestEndpoint> endpoints, final Date lastModified,
+            final Map<String, Representation> files) {
+        this.endpoints = endpoints;
+        this.lastModified = lastModified;
+        this.files = files;
+    }
+
+    /**
+     * Renders the snapshot of the given endpoints. The page assets are read
+     * from the class loader below {@code assetRoot}, e.g. {@code api-index/};
+     * assets it does not have are left out.
+     */
+    public static ApiIndexSnapshot build(final List<RestEndpoint> restEndpoints, final ClassLoader assetLoader,
+            final String assetRoot) throws IOException {
+        final List<RestEndpoint> endpoints = Collections.unmodifiableList(new ArrayList<>(restEndpoints));
+        final Map<String, Representation> files = new HashMap<>();
+
+        // rows are fetched by the page, so the page itself stays small
+        final HtmlEndpointRenderer renderer = new HtmlEndpointRenderer(Utf8ChannelWriter.DEFAULT_CAPACITY,
+                RowData.BESIDE);
+        final String page = HtmlEndpointRenderer.DEFAULT_PAGE_NAME;
+        files.put(page, Representation.of("text/html;charset=utf-8",
+                render(channel -> renderer.render(endpoints, channel, page))));
+        files.put(HtmlEndpointRenderer.getDataFileName(page), Representation.of("application/json",
+                render(channel -> renderer.renderData(endpoints, channel))));
+        files.put(HtmlEndpointRenderer.getSearchIndexFileName(page), Representation.of(
+                "application/javascript;charset=utf-8", render(channel -> renderer.renderSearchIndex(endpoints,
+                        channel))));
+
+        for (final OpenApiWriter.Format format : OpenApiWriter.Format.values()) {
+            final OpenApiWriter openApiWriter = new OpenApiWriter(format);
+            files.put(OPENAPI_NAME + format.getExtension(), Representation.of(format.getMediaType(),
+                    render(channel -> openApiWriter.write(endpoints, channel))));
+        }
+
+        final List<String> assets = new ArrayList<>(HtmlEndpointRenderer.ASSET_FILES);
+        assets.addAll(HtmlEndpointRenderer.OPTIONAL_ASSET_FILES);
+        assets.addAll(IMAGE_FILES);
+        for (final String asset : assets) {
+            try (InputStream in = assetLoader.getResourceAsStream(assetRoot + asset)) {
+                if (in != null) {
+                    files.put(asset, Representation.of(getMediaType(asset), in.readAllBytes()));
+                }
+            }
+        }
+
+        // HTTP dates have a resolution of seconds
+        final Date lastModified = new Date(System.currentTimeMillis() / 1000 * 1000);
+        return new ApiIndexSnapshot(endpoints, lastModified, Collections.unmodifiableMap(files));
+    }
+
+    /**
+     * Returns the endpoints the snapshot was rendered from.
+     */
+    public List<RestEndpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    public Date getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Returns the file with the given name, such as
+     * {@code jersey-api-index.html} or {@code jquery.js}, or null.
+     */
+    public Representation get(final String name) {
+        return files.get(name);
+    }
+
+    private static byte[] render(final ChannelRenderer renderer) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (WritableByteChannel channel = Channels.newChannel(bytes)) {
+            renderer.render(channel);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static String getMediaType(final String name) {
+        if (name.endsWith(".js")) {
+            return "application/javascript;charset=utf-8";
+        }
+        else if (name.endsWith(".css")) {
+            return "text/css;charset=utf-8";
+        }
+        else if (name.endsWith(".png")) {
+            return "image/png";
+        }
+        else if (name.endsWith(".jpg")) {
+            return "image/jpeg";
+        }
+        return "application/octet-stream";
+    }
+
+    /**
+     * One file of a snapshot, as is and gzip-compressed.
+     */
+    public static final class Representation {
+        final String mediaType;
+
+        final byte[] bytes;
+
+        // null when compression does not make the file smaller, e.g. for images
+        final byte[] gzipped;
+
+        final EntityTag entityTag;
+
+        final EntityTag gzipEntityTag;
+
+        private Representation(final String mediaType, final byte[] bytes, final byte[] gzipped,
+                final EntityTag entityTag, final EntityTag gzipEntityTag) {
+            this.mediaType = mediaType;
+            this.bytes = bytes;
+            this.gzipped = gzipped;
+            this.entityTag = entityTag;
+            this.gzipEntityTag = gzipEntityTag;
+        }
+
+        static Representation of(final String mediaType, final byte[] bytes) throws IOException {
+            final ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 4 + 64);
+            try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+                out.write(bytes);
+            }
+            final byte[] gzipped = compressed.size() < bytes.length ? compressed.toByteArray() : null;
+
+            // strong tags, since both encodings are byte-for-byte stable for a snapshot
+            final String hash = hash(bytes);
+            return new Representation(mediaType, bytes, gzipped, new EntityTag(hash),
+                    gzipped != null ? new EntityTag(hash + "-gz") : null);
+        }
+
+        private static String hash(final byte[] bytes) {
+            final byte[] digest;
+            try {
+                digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            }
+            catch (final NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not available", e);
+            }
+            final char[] hex = new char[32];
+            for (int i = 0; i < 16; i++) {
+                hex[2 * i] = HEX[(digest[i] >> 4) & 0xF];
+                hex[2 * i + 1] = HEX[digest[i] & 0xF];
+            }
+            return new String(hex);
+        }
+    }
+}
@@ -0,0 +1,1330 @@
+package com.utility;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.utility.ClassFileInfo.AnnotationInfo;
+import com.utility.ClassFileInfo.FieldInfo;
+import com.utility.ClassFileInfo.MethodInfo;
+import com.utility.ClassFileInfo.TypeConstant;
+import com.utility.DocumenterMetrics.Counter;
+import com.utility.DocumenterMetrics.Phase;
+import com.utility.PayloadTypeGraph.Bean;
+import com.utility.PayloadTypeGraph.PayloadConstraints;
+import com.utility.PayloadTypeGraph.Property;
+import com.utility.PayloadTypeGraph.TypeRef;
+import com.utility.RESTEndpointsDocumenter.EndpointParameter;
+import com.utility.RESTEndpointsDocumenter.EndpointResponse;
+import com.utility.RESTEndpointsDocumenter.MethodEnum;
+import com.utility.RESTEndpointsDocumenter.ParameterType;
+import com.utility.RESTEndpointsDocumenter.RestEndpoint;
+
+/**
+ * Finds REST endpoints by reading class files instead of loading classes. The
+ * output matches {@link RESTEndpointsDocumenter#findRESTEndpoints(String)}, but
+ * no class is ever defined: static initializers do not run, dependencies are
+ * not resolved and metaspace is untouched.
+ * <p>
+ * Classes whose constant pool does not mention {@code @Path} are rejected
+ * before their methods are decoded, so the cost of a scan follows the size of
+ * the resource classes rather than the size of the package. Supertypes and
+ * annotation types are read on demand through the class loader's resources
+ * and are decoded at most once per scanner.
+ * <p>
+ * Packages may live in class directories, jars, multi-release jars and fat
+ * jars; see {@link ClassFileLocator}. Package locations are listed and class
+ * files inspected concurrently on a fork-join pool of the configured
+ * parallelism. The result is sorted with
+ * {@link RESTEndpointsDocumenter#ENDPOINT_ORDER}, so it does not depend on the
+ * number of threads or on the order in which they finish.
+ * <p>
+ * Each endpoint found is logged at {@code FINE}; timings and counts go to the
+ * scanner's {@link DocumenterMetrics}.
+ */
+public class BytecodeEndpointScanner {
+
+    private static final Logger LOG = Logger.getLogger(BytecodeEndpointScanner.class.getName());
+
+    private static final String PATH_DESCRIPTOR = "Ljavax/ws/rs/Path;";
+
+    private static final String PATH = "javax.ws.rs.Path";
+
+    private static final String GET = "javax.ws.rs.GET";
+
+    private static final String POST = "javax.ws.rs.POST";
+
+    private static final String PUT = "javax.ws.rs.PUT";
+
+    private static final String DELETE = "javax.ws.rs.DELETE";
+
+    private static final String CONSUMES = "javax.ws.rs.Consumes";
+
+    private static final String PRODUCES = "javax.ws.rs.Produces";
+
+    private static final String PATH_PARAM = "javax.ws.rs.PathParam";
+
+    private static final String QUERY_PARAM = "javax.ws.rs.QueryParam";
+
+    private static final String DEFAULT_VALUE = "javax.ws.rs.DefaultValue";
+
+    private static final String FORM_DATA_PARAM = "org.glassfish.jersey.media.multipart.FormDataParam";
+
+    private static final String PATTERN = "javax.validation.constraints.Pattern";
+
+    private static final String API = "io.swagger.annotations.Api";
+
+    private static final String API_OPERATION = "io.swagger.annotations.ApiOperation";
+
+    private static final String API_RESPONSES = "io.swagger.annotations.ApiResponses";
+
+    private static final String INHERITED = "java.lang.annotation.Inherited";
+
+    private static final String OBJECT = "java.lang.Object";
+
+    // parameters used to access context, not part of the API
+    private static final Set<String> CONTEXT_TYPES = new HashSet<>(Arrays.asList("javax.ws.rs.core.Request",
+            "javax.servlet.http.HttpServletResponse", "javax.servlet.http.HttpServletRequest"));
+
+    // the class files a lazy scan keeps decoded before it forgets them all
+    private static final int STREAMED_CLASS_FILES = 256;
+
+    /** System property overriding the default parallelism, e.g. {@code -Dapiindex.parallelism=8}. */
+    public static final String PARALLELISM_PROPERTY = "apiindex.parallelism";
+
+    private final ClassLoader classLoader;
+
+    // where classes are looked up instead of the class loader, e.g. the sources being compiled
+    private final ClassFileSource classFileSource;
+
+    private final int parallelism;
+
+    private final ClassFileLocator locator = new ClassFileLocator();
+
+    private volatile EndpointIndexCache cache;
+
+    private volatile DocumenterMetrics metrics = new DocumenterMetrics();
+
+    private volatile String baseUri = RESTEndpointsDocumenter.BASE_URI;
+
+    // shares the strings and lists of the endpoints found; null leaves them as built
+    private volatile EndpointSymbols symbols = new EndpointSymbols();
+
+    // decoded class files by binary name; an empty value records a missing class
+    private final Map<String, Optional<ClassFileInfo>> classFiles = new ConcurrentHashMap<>();
+
+    private final Map<String, List<AnnotationInfo>> effectiveAnnotations = new ConcurrentHashMap<>();
+
+    private final Map<String, ClassMetadata> classMetadata = new ConcurrentHashMap<>();
+
+    // endpoints of sub-resource classes relative to their locators, by class name
+    private final SubResourceExpansions<String, SubResource> subResources = new SubResourceExpansions<>();
+
+    private final Map<String, Map<String, Object>> annotationDefaults = new ConcurrentHashMap<>();
+
+    private final Map<String, Boolean> inheritedAnnotationTypes = new ConcurrentHashMap<>();
+
+    private final Map<String, Boolean> constraintTypes = new ConcurrentHashMap<>();
+
+    // payload types read from their class files
+    private final PayloadTypeGraph payloadTypes = new PayloadTypeGraph(this::describe);
+
+    // content hashes of the class files read, used to validate cache dependencies
+    private final Map<String, Long> classHashes = new ConcurrentHashMap<>();
+
+    public BytecodeEndpointScanner(final ClassLoader classLoader) {
+        this(classLoader, Integer.getInteger(PARALLELISM_PROPERTY, Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * @param parallelism the number of threads used to walk and scan; 1 scans
+     *            serially on the calling thread
+     */
+    public BytecodeEndpointScanner(final ClassLoader classLoader, final int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+        }
+        this.classLoader = classLoader;
+        this.classFileSource = null;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Creates a scanner looking classes up in the given source only, for
+     * {@link #analyze(ClassFileInfo)}.
+     */
+    BytecodeEndpointScanner(final ClassFileSource classFileSource) {
+        this.classLoader = null;
+        this.classFileSource = classFileSource;
+        this.parallelism = 1;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Serves unchanged class files from the given cache and records the
+     * results of the others in it. The caller saves the cache after scanning.
+     */
+    public void setCache(final EndpointIndexCache cache) {
+        this.cache = cache;
+    }
+
+    public DocumenterMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Compacts the endpoints of the following scans with the given symbol
+     * table, e.g. to share it with other scans of the same index, or leaves
+     * them as built with null.
+     */
+    void setSymbols(final EndpointSymbols symbols) {
+        this.symbols = symbols;
+    }
+
+    public String getBaseUri() {
+        return baseUri;
+    }
+
+    /**
+     * Sets the URI the endpoint paths start with, {@link RESTEndpointsDocumenter#BASE_URI}
+     * by default. Set it before scanning; class metadata is kept with it.
+     */
+    public void setBaseUri(final String baseUri) {
+        this.baseUri = baseUri;
+    }
+
+    /**
+     * Records the timings and counts of the following scans in the given
+     * metrics, e.g. to share them with the rest of a documenter run.
+     */
+    public void setMetrics(final DocumenterMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns REST endpoints defined in class files in the specified package
+     * (including sub-packages), sorted by URI and then method. The package is
+     * looked up through the class loader and may live in class directories or
+     * in jars. The endpoints are compacted by {@link EndpointSymbols}, so
+     * their lists cannot be modified.
+     */
+    public List<RestEndpoint> findRESTEndpoints(final String basePackage) throws IOException {
+        final String packagePath = basePackage.replace('.', '/');
+        final List<URL> locations = Collections.list(classLoader.getResources(packagePath));
+        return scan(locations, location -> locator.list(location, packagePath));
+    }
+
+    /**
+     * Returns REST endpoints defined in class files in the specified package
+     * found in the given classpath entries, sorted by URI and then method.
+     * Entries may be class directories, plain or multi-release jars, or fat
+     * jars whose classes and libraries are nested in {@code BOOT-INF}.
+     */
+    public List<RestEndpoint> findRESTEndpoints(final List<Path> classpath, final String basePackage)
+            throws IOException {
+        final String packagePath = basePackage.replace('.', '/');
+        return scan(classpath, classpathEntry -> locator.list(classpathEntry, packagePath));
+    }
+
+    /**
+     * Returns the REST endpoints defined in class files in the specified
+     * package lazily, class by class, for a consumer such as
+     * {@link EndpointSink#writeAll} that does not need them all at once. A
+     * package location is listed when the stream reaches it, and a class file
+     * is read when its endpoints are next. The endpoints of a class are in
+     * {@link RESTEndpointsDocumenter#ENDPOINT_ORDER} and the classes in the
+     * order they are listed, so the stream as a whole is not sorted.
+     * <p>
+     * With a parallelism above 1, up to twice as many class files as threads
+     * are scanned ahead of the consumer, and no more, so a slow consumer holds
+     * the scan back rather than letting endpoints pile up. Endpoints are not
+     * compacted, as the symbol table would keep them alive, and the class
+     * files read are forgotten every few hundred, so that what the scan
+     * holds does not grow with the package either. A class file that
+     * cannot be read fails the stream with an {@link UncheckedIOException}.
+     * Close the stream to stop the threads of a scan not used up.
+     */
+    public Stream<RestEndpoint> streamRESTEndpoints(final String basePackage) throws IOException {
+        final String packagePath = basePackage.replace('.', '/');
+        final List<URL> locations = Collections.list(classLoader.getResources(packagePath));
+        return stream(locations, location -> locator.list(location, packagePath));
+    }
+
+    /**
+     * Returns the REST endpoints defined in class files in the specified
+     * package found in the given classpath entries lazily, as
+     * {@link #streamRESTEndpoints(String)} does.
+     */
+    public Stream<RestEndpoint> streamRESTEndpoints(final List<Path> classpath, final String basePackage) {
+        final String packagePath = basePackage.replace('.', '/');
+        return stream(classpath, classpathEntry -> locator.list(classpathEntry, packagePath));
+    }
+
+    private <T> Stream<RestEndpoint> stream(final List<T> roots, final ClassFileLocator.Lister<T> lister) {
+        final ClassScanIterator<T> classes = new ClassScanIterator<>(roots, lister);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(classes,
+                Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .flatMap(List::stream)
+                .onClose(classes::close);
+    }
+
+    private <T> List<RestEndpoint> scan(final List<T> roots, final ClassFileLocator.Lister<T> lister)
+            throws IOException {
+        final List<RestEndpoint> restEndpoints;
+        try {
+            if (parallelism == 1) {
+                restEndpoints = new ArrayList<>();
+                for (final T root : roots) {
+                    for (final ClassFileEntry classFile : list(lister, root)) {
+                        restEndpoints.addAll(scanClassFile(classFile));
+                    }
+                }
+            }
+            else {
+                restEndpoints = scanInParallel(roots, lister);
+            }
+        }
+        catch (final UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        restEndpoints.sort(RESTEndpointsDocumenter.ENDPOINT_ORDER);
+        final EndpointSymbols symbols = this.symbols;
+        if (symbols != null) {
+            symbols.compact(restEndpoints);
+        }
+        metrics.add(Counter.ENDPOINTS, restEndpoints.size());
+        for (final RestEndpoint restEndpoint : restEndpoints) {
+            metrics.add(Counter.PARAMETERS, restEndpoint.pathParameters.size()
+                    + restEndpoint.queryParameters.size() + restEndpoint.payloadParameters.size());
+        }
+        return restEndpoints;
+    }
+
+    @SuppressWarnings("try")
+    private <T> List<ClassFileEntry> list(final ClassFileLocator.Lister<T> lister, final T root) {
+        try (DocumenterMetrics.Timer timer = metrics.time(Phase.DISCOVERY)) {
+            return lister.listUnchecked(root);
+        }
+    }
+
+    private <T> List<RestEndpoint> scanInParallel(final List<T> roots, final ClassFileLocator.Lister<T> lister)
+            throws IOException {
+        final ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return pool.submit(() -> {
+                // list every root first so that a single large root still fans out across the pool
+                final List<ClassFileEntry> classFiles = roots.parallelStream()
+                        .flatMap(root -> list(lister, root).stream())
+                        .collect(Collectors.toList());
+                return classFiles.parallelStream()
+                        .flatMap(classFile -> scanClassFile(classFile).stream())
+                        .collect(Collectors.toList());
+            }).get();
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while scanning " + roots, e);
+        }
+        catch (final ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw (UncheckedIOException) e.getCause();
+            }
+            throw new IOException("Failed to scan " + roots, e.getCause());
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    private List<RestEndpoint> scanClassFile(final ClassFileEntry classFile) {
+        metrics.increment(Counter.CLASSES_SCANNED);
+        try {
+            final EndpointIndexCache cache = this.cache;
+            if (cache == null) {
+                return scanClass(readBytes(classFile));
+            }
+            return scanCached(classFile, cache);
+        }
+        catch (final IOException e) {
+            throw new UncheckedIOException("Unable to scan " + classFile.location(), e);
+        }
+    }
+
+    /**
+     * Returns the endpoints of a class file from the cache when neither it nor
+     * its supertypes changed and its entry can be decoded, and analyzes it
+     * otherwise.
+     */
+    @SuppressWarnings("try")
+    private List<RestEndpoint> scanCached(final ClassFileEntry classFile, final EndpointIndexCache cache)
+            throws IOException {
+        try (DocumenterMetrics.Timer timer = metrics.time(Phase.CACHE)) {
+            final EndpointIndexCache.Entry cached = cache.lookup(classFile.location());
+            if (cached != null && cached.size == classFile.size()
+                    && (cached.lastModified == classFile.lastModified()
+                            || cached.contentHash == classFile.contentHash())
+                    && dependenciesUnchanged(cached)) {
+                final List<RestEndpoint> endpoints = cached.endpoints();
+                if (endpoints != null) {
+                    cache.retain(cached, classFile.size(), classFile.lastModified());
+                    return endpoints;
+                }
+            }
+        }
+
+        final byte[] bytes = readBytes(classFile);
+        final ClassScan scan = analyze(bytes);
+        cache.put(classFile.location(), classFile.size(), classFile.lastModified(), classFile.contentHash(bytes),
+                scan.dependencies, scan.endpoints);
+        return scan.endpoints;
+    }
+
+    @SuppressWarnings("try")
+    private byte[] readBytes(final ClassFileEntry classFile) throws IOException {
+        try (DocumenterMetrics.Timer timer = metrics.time(Phase.CLASS_LOADING)) {
+            return classFile.readBytes();
+        }
+    }
+
+    private boolean dependenciesUnchanged(final EndpointIndexCache.Entry cached) {
+        for (final EndpointIndexCache.Dependency dependency : cached.dependencies) {
+            if (getClassHash(dependency.className) != dependency.contentHash) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the REST endpoints declared by the given class file, or an empty
+     * list when it is not a resource class.
+     */
+    List<RestEndpoint> scanClass(final byte[] classBytes) throws IOException {
+        return analyze(classBytes).endpoints;
+    }
+
+    /**
+     * Forgets every class file read and everything worked out from them, so
+     * that a lazy scan holds a bounded working set however large the package.
+     * What the next classes share with earlier ones, such as supertypes, is
+     * read again.
+     */
+    private void forgetClassFiles() {
+        classFiles.clear();
+        classHashes.clear();
+        annotationDefaults.clear();
+        inheritedAnnotationTypes.clear();
+        constraintTypes.clear();
+        payloadTypes.clear();
+        classMetadata.clear();
+        effectiveAnnotations.clear();
+        subResources.clear();
+    }
+
+    /**
+     * Forgets what was read from the given classes, so that class files
+     * changed since are read again. Classes derived from them, and
+     * sub-resources reached through them, are worked out again as well.
+     */
+    void invalidate(final Collection<String> classNames) {
+        for (final String className : classNames) {
+            classFiles.remove(className);
+            classHashes.remove(className);
+            annotationDefaults.remove(className);
+            inheritedAnnotationTypes.remove(className);
+            constraintTypes.remove(className);
+        }
+        payloadTypes.invalidate(classNames);
+        // these also hold what was inherited from the classes, and are cheap to work out again
+        classMetadata.clear();
+        effectiveAnnotations.clear();
+        subResources.removeIf(subResource -> subResource.dependencies.stream()
+                .anyMatch(classNames::contains));
+    }
+
+    /**
+     * Returns the REST endpoints declared by the given class file and the
+     * supertypes and sub-resources they were derived from.
+     */
+    @SuppressWarnings("try")
+    ClassScan analyze(final byte[] classBytes) throws IOException {
+        final ClassFileInfo classFile;
+        try (DocumenterMetrics.Timer timer = metrics.time(Phase.CLASS_LOADING)) {
+            final ClassFileReader reader = new ClassFileReader(classBytes);
+            if (reader.containsUtf8(PATH_DESCRIPTOR) == false) {
+                return ClassScan.NONE;
+            }
+            classFile = reader.read();
+            metrics.increment(Counter.CLASSES_LOADED);
+        }
+        classHashes.putIfAbsent(classFile.name, ClassFileEntry.hash(classBytes));
+        return analyze(classFile);
+    }
+
+    /**
+     * Returns the REST endpoints declared by the given class and the
+     * supertypes and sub-resources they were derived from.
+     */
+    ClassScan analyze(final ClassFileInfo classFile) {
+        classFiles.putIfAbsent(classFile.name, Optional.of(classFile));
+
+        if (classFile.getAnnotation(PATH) == null) {
+            return ClassScan.NONE;
+        }
+        metrics.increment(Counter.RESOURCE_CLASSES);
+        final long start = System.nanoTime();
+
+        // the supertypes, and the sub-resources reached through locators with their supertypes
+        final Set<String> dependencyNames = getSupertypeNames(classFile);
+        final SubResourceExpansions.Expanding<String> expanding = new SubResourceExpansions.Expanding<>(
+                Collections.singleton(classFile.name));
+        final List<RestEndpoint> restEndpoints = getEndpoints(classFile, getClassMetadata(classFile).basePath,
+                expanding, dependencyNames);
+
+        final List<EndpointIndexCache.Dependency> dependencies = new ArrayList<>();
+        for (final String dependency : dependencyNames) {
+            dependencies.add(new EndpointIndexCache.Dependency(dependency, getClassHash(dependency)));
+        }
+        metrics.recordClass(classFile.name, System.nanoTime() - start, restEndpoints.size());
+        return new ClassScan(restEndpoints, dependencies);
+    }
+
+    /**
+     * Returns the endpoints of the resource methods of a class below the given
+     * path, and those of the sub-resources returned by its locator methods.
+     * The classes the endpoints depend on are added to {@code dependencies}.
+     */
+    private List<RestEndpoint> getEndpoints(final ClassFileInfo classFile, final String classUri,
+            final SubResourceExpansions.Expanding<String> expanding, final Set<String> dependencies) {
+        final ClassMetadata metadata = getClassMetadata(classFile);
+        final List<RestEndpoint> restEndpoints = new ArrayList<>();
+        for (final MethodRef method : getPublicMethods(classFile)) {
+            if (method.info.getAnnotation(GET) != null) {
+                restEndpoints.add(createEndpoint(method, MethodEnum.GET, classFile, metadata, classUri,
+                        dependencies));
+            }
+            else if (method.info.getAnnotation(PUT) != null) {
+                restEndpoints.add(createEndpoint(method, MethodEnum.PUT, classFile, metadata, classUri,
+                        dependencies));
+            }
+            else if (method.info.getAnnotation(POST) != null) {
+                restEndpoints.add(createEndpoint(method, MethodEnum.POST, classFile, metadata, classUri,
+                        dependencies));
+            }
+            else if (method.info.getAnnotation(DELETE) != null) {
+                restEndpoints.add(createEndpoint(method, MethodEnum.DELETE, classFile, metadata, classUri,
+                        dependencies));
+            }
+            else if (method.info.getAnnotation(PATH) != null) {
+                restEndpoints.addAll(getLocatorEndpoints(method, classFile, classUri, expanding, dependencies));
+            }
+        }
+        return restEndpoints;
+    }
+
+    /**
+     * Returns the endpoints of the sub-resource a locator method returns,
+     * mounted below the locator. The endpoints of each sub-resource class are
+     * worked out once per scanner however many locators return it, unless a
+     * locator cycle makes them differ; a locator leading back to a class
+     * being expanded is skipped.
+     */
+    @SuppressWarnings("try")
+    private List<RestEndpoint> getLocatorEndpoints(final MethodRef locator, final ClassFileInfo classFile,
+            final String classUri, final SubResourceExpansions.Expanding<String> expanding,
+            final Set<String> dependencies) {
+        final String subResourceName = ClassFileReader.returnType(locator.info.descriptor);
+        if (subResourceName.endsWith("[]") || subResourceName.startsWith("java.")
+                || subResourceName.indexOf('.') < 0) {
+            LOG.fine(() -> "Skipping sub-resource locator " + classFile.name + "." + locator.info.name
+                    + ", whose sub-resource type is only known at runtime");
+            return Collections.emptyList();
+        }
+        final SubResource subResource = subResources.get(subResourceName, expanding,
+                name -> getSubResource(name, expanding));
+        if (subResource == null) {
+            LOG.warning("Skipping sub-resource locator " + classFile.name + "." + locator.info.name
+                    + ", which leads back to " + subResourceName + " in " + expanding.getClasses());
+            return Collections.emptyList();
+        }
+        dependencies.addAll(subResource.dependencies);
+
+        final RestEndpoint mount = new RestEndpoint();
+        mount.uri = classUri + stringValue(locator.info.getAnnotation(PATH), "value");
+        try (DocumenterMetrics.Timer timer = metrics.time(Phase.PARAMETERS)) {
+            discoverParameters(locator.info, mount, dependencies);
+        }
+        final List<RestEndpoint> mounted = new ArrayList<>(subResource.endpoints.size());
+        for (final RestEndpoint restEndpoint : subResource.endpoints) {
+            mounted.add(restEndpoint.mountedAt(mount));
+        }
+        return mounted;
+    }
+
+    /**
+     * Returns the endpoints of a sub-resource class relative to the locators
+     * returning it, expanded below the classes being expanded.
+     */
+    private SubResource getSubResource(final String subResourceName,
+            final SubResourceExpansions.Expanding<String> expanding) {
+        final ClassFileInfo subResourceFile = getClassFile(subResourceName);
+        final Set<String> subDependencies = new LinkedHashSet<>();
+        subDependencies.add(subResourceName);
+        if (subResourceFile == null) {
+            return new SubResource(Collections.emptyList(), subDependencies);
+        }
+        subDependencies.addAll(getSupertypeNames(subResourceFile));
+        return new SubResource(getEndpoints(subResourceFile, "", expanding, subDependencies), subDependencies);
+    }
+
+    /**
+     * Create an endpoint object to represent the REST endpoint defined in the
+     * specified class file method.
+     */
+    @SuppressWarnings("try")
+    private RestEndpoint createEndpoint(final MethodRef method, final MethodEnum restMethod,
+            final ClassFileInfo classFile, final ClassMetadata classMetadata, final String classUri,
+            final Set<String> dependencies) {
+        final RestEndpoint newRestEndpoint = new RestEndpoint();
+        newRestEndpoint.method = restMethod;
+        newRestEndpoint.javaMethodName = method.info.name;
+        newRestEndpoint.javaClass = classFile.name;
+        newRestEndpoint.javaMethodReturnType = ClassFileReader.returnType(method.info.descriptor);
+
+        final AnnotationInfo path = method.info.getAnnotation(PATH);
+        if (path != null) {
+            newRestEndpoint.uri = classUri + stringValue(path, "value");
+        }
+        else {
+            newRestEndpoint.uri = classUri;
+        }
+
+        try (DocumenterMetrics.Timer timer = metrics.time(Phase.PARAMETERS)) {
+            discoverParameters(method.info, newRestEndpoint, dependencies);
+        }
+
+        try (DocumenterMetrics.Timer timer = metrics.time(Phase.SWAGGER)) {
+            discoverSwaggerDocInfos(method.info, classMetadata, newRestEndpoint);
+        }
+
+        // NOTE: the annotations of the class declaring the method, which may be a superclass
+        try (DocumenterMetrics.Timer timer = metrics.time(Phase.ANNOTATIONS)) {
+            final List<String> methodAnnotations = new ArrayList<>(method.info.annotations.size());
+            for (final AnnotationInfo annotation : method.info.annotations) {
+                methodAnnotations.add(annotation.type);
+            }
+            newRestEndpoint.annotations = getClassMetadata(method.owner).getEndpointAnnotations(methodAnnotations);
+        }
+
+        LOG.fine(newRestEndpoint::toString);
+
+        return newRestEndpoint;
+    }
+
+    /**
+     * Returns the metadata of a class, working it out on first use.
+     * Superclasses are shared, so a deep hierarchy is decoded and walked only
+     * once per scanner.
+     */
+    private ClassMetadata getClassMetadata(final ClassFileInfo classFile) {
+        final ClassMetadata cached = classMetadata.get(classFile.name);
+        if (cached != null) {
+            return cached;
+        }
+
+        final List<AnnotationInfo> annotations = getEffectiveAnnotations(classFile);
+        final List<String> annotationTypes = new ArrayList<>(annotations.size());
+        for (final AnnotationInfo annotation : annotations) {
+            annotationTypes.add(annotation.type);
+        }
+        final ClassFileInfo superclass = getSuperclass(classFile);
+        final AnnotationInfo path = classFile.getAnnotation(PATH);
+        final AnnotationInfo api = AnnotationInfo.find(annotations, API);
+        final AnnotationInfo consume = AnnotationInfo.find(annotations, CONSUMES);
+        final AnnotationInfo produce = AnnotationInfo.find(annotations, PRODUCES);
+        final ClassMetadata metadata = new ClassMetadata(
+                path != null ? RESTEndpointsDocumenter.toEndpointPath(baseUri, stringValue(path, "value")) : null,
+                annotationTypes, superclass != null ? getClassMetadata(superclass) : null,
+                api != null ? stringValue(api, "value") : null, api != null ? stringValues(api, "tags") : null,
+                consume != null ? stringValues(consume, "value") : null,
+                produce != null ? stringValues(produce, "value") : null);
+        // racing threads compute equal metadata, so either may win
+        classMetadata.putIfAbsent(classFile.name, metadata);
+        return metadata;
+    }
+
+    private void discoverSwaggerDocInfos(final MethodInfo javaMethod, final ClassMetadata classMetadata,
+            final RestEndpoint newRestEndpoint) {
+        if (classMetadata.tags != null) {
+            newRestEndpoint.description = classMetadata.description;
+            newRestEndpoint.tags = new ArrayList<>(classMetadata.tags);
+        }
+
+        final AnnotationInfo apiOperations = javaMethod.getAnnotation(API_OPERATION);
+        if (apiOperations != null) {
+            final String value = stringValue(apiOperations, "value");
+            if (value != null && value.length() > 0) {
+                newRestEndpoint.description = value;
+            }
+            // Add child tags
+            for (final String childTag : stringValues(apiOperations, "tags")) {
+                if (!newRestEndpoint.tags.contains(childTag)) {
+                    newRestEndpoint.tags.add(childTag);
+                }
+            }
+            newRestEndpoint.notes = stringValue(apiOperations, "notes");
+        }
+
+        final AnnotationInfo consume = javaMethod.getAnnotation(CONSUMES);
+        if (consume != null) {
+            newRestEndpoint.consumes = stringValues(consume, "value");
+        }
+        else if (classMetadata.consumes != null) {
+            newRestEndpoint.consumes = classMetadata.consumes;
+        }
+
+        final AnnotationInfo produce = javaMethod.getAnnotation(PRODUCES);
+        if (produce != null) {
+            newRestEndpoint.produces = stringValues(produce, "value");
+        }
+        else if (classMetadata.produces != null) {
+            newRestEndpoint.produces = classMetadata.produces;
+        }
+
+        final AnnotationInfo apiResponses = javaMethod.getAnnotation(API_RESPONSES);
+        if (apiResponses != null) {
+            for (final Object value : (Object[]) value(apiResponses, "value")) {
+                final AnnotationInfo apiRes = (AnnotationInfo) value;
+                final String response = ((TypeConstant) value(apiRes, "response")).name;
+                newRestEndpoint.responses.add(new EndpointResponse((Integer) value(apiRes, "code"),
+                        stringValue(apiRes, "message"), response));
+                // Success Response Check
+                if ((Integer) value(apiRes, "code") == 200) {
+                    newRestEndpoint.successResponseTypes.add(response);
+                }
+                // Failure section
+                else if (!newRestEndpoint.failureResponseTypes.contains(response)) {
+                    newRestEndpoint.failureResponseTypes.add(response);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the parameters for the specified endpoint from the provided class file method.
+     * The classes the payload validations were read from are added to {@code dependencies}.
+     */
+    private void discoverParameters(final MethodInfo method, final RestEndpoint restEndpoint,
+            final Set<String> dependencies) {
+        final List<String> parameterTypes = ClassFileReader.parameterTypes(method.descriptor);
+        List<TypeRef> genericTypes = null;
+
+        for (int i = 0; i < parameterTypes.size(); i++) {
+            final String parameter = parameterTypes.get(i);
+
+            // ignore parameters used to access context
+            if (CONTEXT_TYPES.contains(parameter)) {
+                continue;
+            }
+
+            final EndpointParameter nextParameter = new EndpointParameter();
+            nextParameter.javaType = parameter;
+
+            for (final AnnotationInfo annotation : method.getParameterAnnotations(i)) {
+                switch (annotation.type) {
+                    case PATH_PARAM:
+                        nextParameter.parameterType = ParameterType.PATH;
+                        nextParameter.name = stringValue(annotation, "value");
+                        break;
+                    case QUERY_PARAM:
+                        nextParameter.parameterType = ParameterType.QUERY;
+                        nextParameter.name = stringValue(annotation, "value");
+                        break;
+                    case DEFAULT_VALUE:
+                        nextParameter.defaultValue = stringValue(annotation, "value");
+                        break;
+                    // For Multi-Form payload
+                    case FORM_DATA_PARAM:
+                        nextParameter.name = stringValue(annotation, "value");
+                        break;
+                    case PATTERN:
+                        nextParameter.pattern = stringValue(annotation, "regexp");
+                        break;
+                    default:
+                        break;
+                }
+            }
+
+            if (nextParameter.parameterType == ParameterType.PAYLOAD) {
+                if (genericTypes == null) {
+                    genericTypes = method.signature != null ? TypeRef.parseParameters(method.signature) : null;
+                    // a signature may leave out synthetic parameters; the descriptor never does
+                    if (genericTypes == null || genericTypes.size() != parameterTypes.size()) {
+                        genericTypes = TypeRef.parseParameters(method.descriptor);
+                    }
+                }
+                final TypeRef type = genericTypes.get(i);
+                if (type.isGeneric()) {
+                    nextParameter.genericType = type.toString();
+                }
+                final PayloadConstraints payload = payloadTypes.getConstraints(type);
+                dependencies.addAll(payload.classNames);
+                restEndpoint.payloadValidations = PayloadTypeGraph.addValidations(restEndpoint.payloadValidations,
+                        nextParameter.name, getConstraints(method.getParameterAnnotations(i)), payload.constraints);
+            }
+
+            switch (nextParameter.parameterType) {
+                case PATH:
+                    restEndpoint.pathParameters.add(nextParameter);
+                    break;
+                case QUERY:
+                    restEndpoint.queryParameters.add(nextParameter);
+                    break;
+                case PAYLOAD:
+                    restEndpoint.payloadParameters.add(nextParameter);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Describes a payload type from its class file: its type parameters and
+     * generic superclass, its instance fields in declaration order, and the
+     * getters carrying constraints, as {@link PayloadTypeGraph#describe(Class)}
+     * does by reflection.
+     */
+    private Bean describe(final TypeRef type) {
+        final ClassFileInfo classFile = getClassFile(type.name);
+        if (classFile == null) {
+            return null;
+        }
+        final Bean declaration;
+        if (classFile.signature != null) {
+            declaration = TypeRef.parseClassSignature(classFile.signature);
+        }
+        else {
+            declaration = new Bean(Collections.emptyList(), classFile.superName == null
+                    || OBJECT.equals(classFile.superName) ? null : TypeRef.ofClass(classFile.superName),
+                    Collections.emptyList());
+        }
+
+        final List<Property> properties = new ArrayList<>();
+        for (final FieldInfo field : classFile.fields) {
+            if (field.isStatic() == false && field.isSynthetic() == false) {
+                properties.add(new Property(field.name,
+                        TypeRef.parse(field.signature != null ? field.signature : field.descriptor),
+                        getConstraints(field.annotations)));
+            }
+        }
+        final List<MethodInfo> methods = new ArrayList<>(classFile.methods);
+        methods.sort((first, second) -> first.name.compareTo(second.name));
+        for (final MethodInfo method : methods) {
+            final String property = PayloadTypeGraph.getPropertyName(method.name,
+                    ClassFileReader.returnType(method.descriptor));
+            if (property != null && method.descriptor.startsWith("()") && method.isStatic() == false
+                    && method.isSynthetic() == false && method.isBridge() == false) {
+                final List<String> constraints = getConstraints(method.annotations);
+                if (constraints.isEmpty() == false) {
+                    properties.add(new Property(property, TypeRef.parseReturnType(method.signature != null
+                            ? method.signature : method.descriptor), constraints));
+                }
+            }
+        }
+        return new Bean(declaration.typeParameters, declaration.superclass, properties);
+    }
+
+    /**
+     * Returns the constraints among the given annotations, formatted as
+     * {@link PayloadTypeGraph#getConstraints(java.lang.annotation.Annotation[])}
+     * formats them.
+     */
+    private List<String> getConstraints(final List<AnnotationInfo> annotations) {
+        List<String> constraints = Collections.emptyList();
+        for (final AnnotationInfo annotation : annotations) {
+            if (isConstraint(annotation.type)) {
+                if (constraints.isEmpty()) {
+                    constraints = new ArrayList<>();
+                }
+                final Map<String, Object> defaults = getAnnotationDefaults(annotation.type);
+                final SortedMap<String, Object> elements = new TreeMap<>();
+                for (final Map.Entry<String, Object> element : annotation.values.entrySet()) {
+                    if (Objects.deepEquals(element.getValue(), defaults.get(element.getKey())) == false) {
+                        elements.put(element.getKey(), element.getValue());
+                    }
+                }
+                constraints.add(PayloadTypeGraph.formatConstraint(annotation.type, elements,
+                        getEnumElements(annotation.type)));
+            }
+        }
+        return constraints;
+    }
+
+    private boolean isConstraint(final String annotationType) {
+        Boolean constraint = constraintTypes.get(annotationType);
+        if (constraint == null) {
+            if (annotationType.startsWith(PayloadTypeGraph.CONSTRAINTS_PACKAGE)) {
+                constraint = true;
+            }
+            else {
+                final ClassFileInfo type = getClassFile(annotationType);
+                constraint = type != null && type.getAnnotation(PayloadTypeGraph.CONSTRAINT) != null;
+            }
+            constraintTypes.put(annotationType, constraint);
+        }
+        return constraint;
+    }
+
+    /**
+     * Returns the elements of an annotation type holding enum constants, or
+     * arrays of them.
+     */
+    private Set<String> getEnumElements(final String annotationType) {
+        final ClassFileInfo type = getClassFile(annotationType);
+        if (type == null) {
+            return Collections.emptySet();
+        }
+        final Set<String> elements = new HashSet<>();
+        for (final MethodInfo method : type.methods) {
+            final String returnType = method.descriptor.substring(method.descriptor.lastIndexOf(')') + 1)
+                    .replace("[", "");
+            if (returnType.startsWith("L") && returnType.equals("Ljava/lang/String;") == false) {
+                elements.add(method.name);
+            }
+        }
+        return elements;
+    }
+
+    /**
+     * Returns the public methods of a class in the way {@link Class#getMethods()}
+     * does: declared and inherited, with overriding methods hiding the ones
+     * they override.
+     */
+    private List<MethodRef> getPublicMethods(final ClassFileInfo classFile) {
+        final Map<String, MethodRef> methods = new LinkedHashMap<>();
+        final List<ClassFileInfo> interfaces = new ArrayList<>();
+        for (ClassFileInfo type = classFile; type != null; type = getSuperclass(type)) {
+            addPublicMethods(type, methods, true);
+            collectInterfaces(type, interfaces);
+        }
+        for (final ClassFileInfo type : interfaces) {
+            addPublicMethods(type, methods, false);
+        }
+        return new ArrayList<>(methods.values());
+    }
+
+    /**
+     * Adds the public methods of a type that no subtype declares. A method
+     * without JAX-RS annotations is replaced by the one it overrides or
+     * implements if that has any, as JAX-RS annotation inheritance asks.
+     */
+    private void addPublicMethods(final ClassFileInfo type, final Map<String, MethodRef> methods,
+            final boolean includeStatic) {
+        for (final MethodInfo method : type.methods) {
+            if (method.isPublic() && (includeStatic || method.isStatic() == false) && method.name.charAt(0) != '<') {
+                final String key = method.name + method.descriptor;
+                final MethodRef declared = methods.get(key);
+                if (declared == null || (hasJaxRsAnnotations(declared.info) == false && hasJaxRsAnnotations(method))) {
+                    methods.put(key, new MethodRef(type, method));
+                }
+            }
+        }
+    }
+
+    private static boolean hasJaxRsAnnotations(final MethodInfo method) {
+        for (final AnnotationInfo annotation : method.annotations) {
+            if (annotation.type.startsWith(RESTEndpointsDocumenter.JAX_RS_PACKAGE)) {
+                return true;
+            }
+        }
+        for (final List<AnnotationInfo> parameterAnnotations : method.parameterAnnotations) {
+            for (final AnnotationInfo annotation : parameterAnnotations) {
+                if (annotation.type.startsWith(RESTEndpointsDocumenter.JAX_RS_PACKAGE)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void collectInterfaces(final ClassFileInfo type, final List<ClassFileInfo> interfaces) {
+        for (final String name : type.interfaces) {
+            final ClassFileInfo superInterface = getClassFile(name);
+            if (superInterface != null && interfaces.contains(superInterface) == false) {
+                interfaces.add(superInterface);
+                collectInterfaces(superInterface, interfaces);
+            }
+        }
+    }
+
+    /**
+     * Returns the names of all superclasses and superinterfaces of a class,
+     * including those whose class file cannot be found.
+     */
+    private Set<String> getSupertypeNames(final ClassFileInfo classFile) {
+        final Set<String> names = new LinkedHashSet<>();
+        final List<String> pending = new ArrayList<>();
+        pending.add(classFile.name);
+        while (pending.isEmpty() == false) {
+            final ClassFileInfo type = getClassFile(pending.remove(pending.size() - 1));
+            if (type == null) {
+                continue;
+            }
+            if (type.superName != null && OBJECT.equals(type.superName) == false && names.add(type.superName)) {
+                pending.add(type.superName);
+            }
+            for (final String superInterface : type.interfaces) {
+                if (names.add(superInterface)) {
+                    pending.add(superInterface);
+                }
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Returns the content hash of a class file, or 0 when it cannot be found.
+     */
+    private long getClassHash(final String className) {
+        getClassFile(className);
+        return classHashes.getOrDefault(className, 0L);
+    }
+
+    /**
+     * Returns the annotations present on a class, ordered as
+     * {@link Class#getAnnotations()} orders them: inherited ones first, then the
+     * declared ones that do not replace an inherited annotation.
+     */
+    private List<AnnotationInfo> getEffectiveAnnotations(final ClassFileInfo classFile) {
+        final List<AnnotationInfo> cached = effectiveAnnotations.get(classFile.name);
+        if (cached != null) {
+            return cached;
+        }
+        final Map<String, AnnotationInfo> annotations = new LinkedHashMap<>();
+        final ClassFileInfo superclass = getSuperclass(classFile);
+        if (superclass != null) {
+            for (final AnnotationInfo annotation : getEffectiveAnnotations(superclass)) {
+                if (isInherited(annotation.type)) {
+                    annotations.put(annotation.type, annotation);
+                }
+            }
+        }
+        for (final AnnotationInfo annotation : classFile.annotations) {
+            annotations.put(annotation.type, annotation);
+        }
+        final List<AnnotationInfo> result = new ArrayList<>(annotations.values());
+        effectiveAnnotations.put(classFile.name, result);
+        return result;
+    }
+
+    private boolean isInherited(final String annotationType) {
+        Boolean inherited = inheritedAnnotationTypes.get(annotationType);
+        if (inherited == null) {
+            final ClassFileInfo type = getClassFile(annotationType);
+            inherited = type != null && type.getAnnotation(INHERITED) != null;
+            inheritedAnnotationTypes.put(annotationType, inherited);
+        }
+        return inherited;
+    }
+
+    /**
+     * Returns an element value of an annotation, falling back to the default
+     * declared by the annotation type.
+     */
+    private Object value(final AnnotationInfo annotation, final String element) {
+        final Object value = annotation.get(element);
+        if (value != null) {
+            return value;
+        }
+        return getAnnotationDefaults(annotation.type).get(element);
+    }
+
+    private Map<String, Object> getAnnotationDefaults(final String annotationType) {
+        Map<String, Object> defaults = annotationDefaults.get(annotationType);
+        if (defaults == null) {
+            defaults = new HashMap<>();
+            final ClassFileInfo type = getClassFile(annotationType);
+            if (type != null) {
+                for (final MethodInfo method : type.methods) {
+                    if (method.defaultValue != null) {
+                        defaults.put(method.name, method.defaultValue);
+                    }
+                }
+            }
+            annotationDefaults.put(annotationType, defaults);
+        }
+        return defaults;
+    }
+
+    private String stringValue(final AnnotationInfo annotation, final String element) {
+        return (String) value(annotation, element);
+    }
+
+    private List<String> stringValues(final AnnotationInfo annotation, final String element) {
+        final Object[] values = (Object[]) value(annotation, element);
+        final List<String> strings = new ArrayList<>();
+        if (values != null) {
+            for (final Object value : values) {
+                strings.add((String) value);
+            }
+        }
+        return strings;
+    }
+
+    private ClassFileInfo getSuperclass(final ClassFileInfo classFile) {
+        if (classFile.superName == null || OBJECT.equals(classFile.superName)) {
+            return null;
+        }
+        return getClassFile(classFile.superName);
+    }
+
+    /**
+     * Reads and decodes the class file for the given binary name through the
+     * class loader's resources, falling back to the archives and directories
+     * scanned so far. Returns null when it cannot be found.
+     */
+    @SuppressWarnings("try")
+    private ClassFileInfo getClassFile(final String className) {
+        final Optional<ClassFileInfo> cached = classFiles.get(className);
+        if (cached != null) {
+            return cached.orElse(null);
+        }
+        if (classFileSource != null) {
+            final ClassFileInfo classFile = classFileSource.find(className);
+            classFiles.putIfAbsent(className, Optional.ofNullable(classFile));
+            return classFile;
+        }
+        final String resourceName = className.replace('.', '/') + ".class";
+        ClassFileInfo classFile = null;
+        try (DocumenterMetrics.Timer timer = metrics.time(Phase.CLASS_LOADING);
+                InputStream in = classLoader.getResourceAsStream(resourceName)) {
+            final byte[] bytes = in != null ? in.readAllBytes() : locator.findClassFile(resourceName);
+            if (bytes != null) {
+                classFile = new ClassFileReader(bytes).read();
+                classHashes.putIfAbsent(className, ClassFileEntry.hash(bytes));
+                metrics.increment(Counter.CLASSES_LOADED);
+            }
+        }
+        catch (final IOException e) {
+            LOG.warning("Unable to read class file for " + className + ": " + e.getMessage());
+        }
+        classFiles.putIfAbsent(className, Optional.ofNullable(classFile));
+        return classFile;
+    }
+
+    /**
+     * Looks classes up by binary name, instead of reading their class files.
+     */
+    interface ClassFileSource {
+        /**
+         * Returns the class of the given binary name, or null when there is none.
+         */
+        ClassFileInfo find(String className);
+    }
+
+    /**
+     * The endpoints of a class file and the supertypes they were derived from.
+     */
+    static final class ClassScan {
+        static final ClassScan NONE = new ClassScan(Collections.emptyList(), Collections.emptyList());
+
+        final List<RestEndpoint> endpoints;
+
+        final List<EndpointIndexCache.Dependency> dependencies;
+
+        ClassScan(final List<RestEndpoint> endpoints, final List<EndpointIndexCache.Dependency> dependencies) {
+            this.endpoints = endpoints;
+            this.dependencies = dependencies;
+        }
+    }
+
+    /**
+     * Yields the endpoints of the class files of several roots, a class file at
+     * a time. A root is listed once the class files before it are used up, and
+     * with a parallelism above 1 a bounded number of class files is scanned
+     * ahead on a pool of daemon threads.
+     */
+    private final class ClassScanIterator<T> implements Iterator<List<RestEndpoint>> {
+        private final Iterator<T> roots;
+
+        private final ClassFileLocator.Lister<T> lister;
+
+        private Iterator<ClassFileEntry> listed = Collections.emptyIterator();
+
+        // null when class files are scanned on the consumer's thread
+        private final ExecutorService pool;
+
+        // the scans of the class files ahead, in listing order
+        private final Deque<Future<List<RestEndpoint>>> ahead = new ArrayDeque<>();
+
+        private final int window;
+
+        private List<RestEndpoint> next;
+
+        ClassScanIterator(final List<T> roots, final ClassFileLocator.Lister<T> lister) {
+            this.roots = roots.iterator();
+            this.lister = lister;
+            this.window = parallelism == 1 ? 0 : parallelism * 2;
+            this.pool = parallelism == 1 ? null : Executors.newFixedThreadPool(parallelism, runnable -> {
+                final Thread thread = new Thread(runnable, "endpoint-scan");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null) {
+                // only between scans, so that no scan reads a class file again
+                if (ahead.isEmpty() && classFiles.size() > STREAMED_CLASS_FILES) {
+                    forgetClassFiles();
+                }
+                if (pool == null) {
+                    final ClassFileEntry classFile = nextClassFile();
+                    if (classFile == null) {
+                        return false;
+                    }
+                    next = scan(classFile);
+                }
+                else {
+                    // past the limit, the scans ahead are drained before the class files are forgotten
+                    while (ahead.size() < window && classFiles.size() <= STREAMED_CLASS_FILES) {
+                        final ClassFileEntry classFile = nextClassFile();
+                        if (classFile == null) {
+                            break;
+                        }
+                        ahead.add(pool.submit(() -> scan(classFile)));
+                    }
+                    final Future<List<RestEndpoint>> scan = ahead.poll();
+                    if (scan == null) {
+                        return false;
+                    }
+                    next = get(scan);
+                }
+                if (next.isEmpty()) {
+                    next = null;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public List<RestEndpoint> next() {
+            if (hasNext() == false) {
+                throw new NoSuchElementException();
+            }
+            final List<RestEndpoint> restEndpoints = next;
+            next = null;
+            return restEndpoints;
+        }
+
+        void close() {
+            if (pool != null) {
+                pool.shutdownNow();
+            }
+        }
+
+        private ClassFileEntry nextClassFile() {
+            while (listed.hasNext() == false) {
+                if (roots.hasNext() == false) {
+                    return null;
+                }
+                listed = list(lister, roots.next()).iterator();
+            }
+            return listed.next();
+        }
+
+        private List<RestEndpoint> scan(final ClassFileEntry classFile) {
+            final List<RestEndpoint> restEndpoints = new ArrayList<>(scanClassFile(classFile));
+            restEndpoints.sort(RESTEndpointsDocumenter.ENDPOINT_ORDER);
+            metrics.add(Counter.ENDPOINTS, restEndpoints.size());
+            for (final RestEndpoint restEndpoint : restEndpoints) {
+                metrics.add(Counter.PARAMETERS, restEndpoint.pathParameters.size()
+                        + restEndpoint.queryParameters.size() + restEndpoint.payloadParameters.size());
+            }
+            return restEndpoints;
+        }
+
+        private List<RestEndpoint> get(final Future<List<RestEndpoint>> scan) {
+            try {
+                return scan.get();
+            }
+            catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new UncheckedIOException(new InterruptedIOException("Interrupted while scanning"));
+            }
+            catch (final ExecutionException e) {
+                if (e.getCause() instanceof UncheckedIOException) {
+                    throw (UncheckedIOException) e.getCause();
+                }
+                throw new UncheckedIOException(new IOException("Failed to scan", e.getCause()));
+            }
+        }
+    }
+
+    /**
+     * The endpoints of a sub-resource class relative to the locators returning
+     * it, and the classes they were read from.
+     */
+    private static final class SubResource {
+        final List<RestEndpoint> endpoints;
+
+        final Set<String> dependencies;
+
+        SubResource(final List<RestEndpoint> endpoints, final Set<String> dependencies) {
+            this.endpoints = endpoints;
+            this.dependencies = dependencies;
+        }
+    }
+
+    /**
+     * A method together with the class file that declares it.
+     */
+    private static final class MethodRef {
+        final ClassFileInfo owner;
+
+        final MethodInfo info;
+
+        MethodRef(final ClassFileInfo owner, final MethodInfo info) {
+            this.owner = owner;
+            this.info = info;
+        }
+    }
+}
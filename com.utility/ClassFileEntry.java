@@ -0,0 +1,144 @@
+package com.utility;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32C;
+
+/**
+ * A class file found while scanning a package, either a file in a class
+ * directory or an entry of a (possibly nested) archive.
+ */
+interface ClassFileEntry {
+
+    /**
+     * Where the class file lives, e.g. {@code /app/classes/com/server/api/Foo.class}
+     * or {@code /app/app.jar!/BOOT-INF/lib/api.jar!/com/server/api/Foo.class}.
+     */
+    String location();
+
+    byte[] readBytes() throws IOException;
+
+    long size();
+
+    /**
+     * Modification time as recorded by the location, in milliseconds for files
+     * and in MS-DOS format for archive entries.
+     */
+    long lastModified();
+
+    /**
+     * Returns a hash of the class file content, computed from the given bytes
+     * unless the location already records one.
+     */
+    default long contentHash(final byte[] bytes) {
+        return hash(bytes);
+    }
+
+    /**
+     * Returns a hash of the class file content, reading it if necessary.
+     */
+    default long contentHash() throws IOException {
+        return contentHash(readBytes());
+    }
+
+    static long hash(final byte[] bytes) {
+        final CRC32C crc = new CRC32C();
+        crc.update(bytes, 0, bytes.length);
+        return crc.getValue();
+    }
+
+    /**
+     * A class file in a directory.
+     */
+    final class FileEntry implements ClassFileEntry {
+        private final Path file;
+
+        private final long size;
+
+        private final long lastModified;
+
+        FileEntry(final Path file, final long size, final long lastModified) {
+            this.file = file;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        @Override
+        public String location() {
+            return file.toAbsolutePath().toString();
+        }
+
+        @Override
+        public byte[] readBytes() throws IOException {
+            return Files.readAllBytes(file);
+        }
+
+        @Override
+        public long size() {
+            return size;
+        }
+
+        @Override
+        public long lastModified() {
+            return lastModified;
+        }
+
+        @Override
+        public String toString() {
+            return location();
+        }
+    }
+
+    /**
+     * A class file stored in an archive.
+     */
+    final class ArchiveEntry implements ClassFileEntry {
+        private final ZipCentralDirectory archive;
+
+        private final ZipCentralDirectory.Entry entry;
+
+        ArchiveEntry(final ZipCentralDirectory archive, final ZipCentralDirectory.Entry entry) {
+            this.archive = archive;
+            this.entry = entry;
+        }
+
+        @Override
+        public String location() {
+            return archive.getName() + "!/" + entry.name;
+        }
+
+        @Override
+        public byte[] readBytes() throws IOException {
+            return archive.readBytes(entry);
+        }
+
+        @Override
+        public long size() {
+            return entry.size;
+        }
+
+        @Override
+        public long lastModified() {
+            return entry.dosTime;
+        }
+
+        /**
+         * Answers with the CRC-32 from the central directory, without inflating the entry.
+         */
+        @Override
+        public long contentHash(final byte[] bytes) {
+            return entry.crc;
+        }
+
+        @Override
+        public long contentHash() {
+            return entry.crc;
+        }
+
+        @Override
+        public String toString() {
+            return location();
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.utility;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The subset of a Java class file needed to document REST endpoints: the class
+ * hierarchy, the fields and methods with their generic signatures, and their
+ * runtime-visible annotations. Instances
+ * are produced by {@link ClassFileReader} without loading or initializing the
+ * class they describe.
+ */
+final class ClassFileInfo {
+
+    static final int ACC_PUBLIC = 0x0001;
+
+    static final int ACC_STATIC = 0x0008;
+
+    static final int ACC_BRIDGE = 0x0040;
+
+    static final int ACC_SYNTHETIC = 0x1000;
+
+    static final int ACC_INTERFACE = 0x0200;
+
+    static final int ACC_ANNOTATION = 0x2000;
+
+    /** Binary name of the class, e.g. {@code com.server.api.OrderResource}. */
+    final String name;
+
+    /** Binary name of the superclass, or null for {@code java.lang.Object} and interfaces. */
+    final String superName;
+
+    final List<String> interfaces;
+
+    final int accessFlags;
+
+    /** The generic signature of the class, or null when it has none. */
+    final String signature;
+
+    final List<AnnotationInfo> annotations;
+
+    final List<FieldInfo> fields;
+
+    final List<MethodInfo> methods;
+
+    ClassFileInfo(final String name, final String superName, final List<String> interfaces, final int accessFlags,
+            final String signature, final List<AnnotationInfo> annotations, final List<FieldInfo> fields,
+            final List<MethodInfo> methods) {
+        this.name = name;
+        this.superName = superName;
+        this.interfaces = interfaces;
+        this.accessFlags = accessFlags;
+        this.signature = signature;
+        this.annotations = annotations;
+        this.fields = fields;
+        this.methods = methods;
+    }
+
+    boolean isInterface() {
+        return (accessFlags & ACC_INTERFACE) != 0;
+    }
+
+    /**
+     * Returns the annotation of the given type declared directly on this class,
+     * or null when it is not present.
+     */
+    AnnotationInfo getAnnotation(final String annotationType) {
+        return AnnotationInfo.find(annotations, annotationType);
+    }
+
+    @Override
+    public String toString() {
+        return "ClassFileInfo {" + "name='" + name + '\'' + ", superName='" + superName + '\'' + '}';
+    }
+
+    /**
+     * A field declared in a class file.
+     */
+    static final class FieldInfo {
+        final String name;
+
+        final String descriptor;
+
+        /** The generic signature of the field, or null when it has none. */
+        final String signature;
+
+        final int accessFlags;
+
+        final List<AnnotationInfo> annotations;
+
+        FieldInfo(final String name, final String descriptor, final String signature, final int accessFlags,
+                final List<AnnotationInfo> annotations) {
+            this.name = name;
+            this.descriptor = descriptor;
+            this.signature = signature;
+            this.accessFlags = accessFlags;
+            this.annotations = annotations;
+        }
+
+        boolean isStatic() {
+            return (accessFlags & ACC_STATIC) != 0;
+        }
+
+        boolean isSynthetic() {
+            return (accessFlags & ACC_SYNTHETIC) != 0;
+        }
+
+        @Override
+        public String toString() {
+            return "FieldInfo {" + "name='" + name + '\'' + ", descriptor='" + descriptor + '\'' + '}';
+        }
+    }
+
+    /**
+     * A method declared in a class file.
+     */
+    static final class MethodInfo {
+        final String name;
+
+        final String descriptor;
+
+        /** The generic signature of the method, or null when it has none. */
+        final String signature;
+
+        final int accessFlags;
+
+        final List<AnnotationInfo> annotations;
+
+        final List<List<AnnotationInfo>> parameterAnnotations;
+
+        /** The {@code AnnotationDefault} value when this is an element of an annotation type. */
+        final Object defaultValue;
+
+        MethodInfo(final String name, final String descriptor, final String signature, final int accessFlags,
+                final List<AnnotationInfo> annotations, final List<List<AnnotationInfo>> parameterAnnotations,
+                final Object defaultValue) {
+            this.name = name;
+            this.descriptor = descriptor;
+            this.signature = signature;
+            this.accessFlags = accessFlags;
+            this.annotations = annotations;
+            this.parameterAnnotations = parameterAnnotations;
+            this.defaultValue = defaultValue;
+        }
+
+        boolean isPublic() {
+            return (accessFlags & ACC_PUBLIC) != 0;
+        }
+
+        boolean isStatic() {
+            return (accessFlags & ACC_STATIC) != 0;
+        }
+
+        boolean isBridge() {
+            return (accessFlags & ACC_BRIDGE) != 0;
+        }
+
+        boolean isSynthetic() {
+            return (accessFlags & ACC_SYNTHETIC) != 0;
+        }
+
+        AnnotationInfo getAnnotation(final String annotationType) {
+            return AnnotationInfo.find(annotations, annotationType);
+        }
+
+        /**
+         * Returns the annotations of the parameter at the given index. Class files
+         * may omit trailing parameters, which then have no annotations.
+         */
+        List<AnnotationInfo> getParameterAnnotations(final int index) {
+            if (index < parameterAnnotations.size()) {
+                return parameterAnnotations.get(index);
+            }
+            return Collections.emptyList();
+        }
+
+        @Override
+        public String toString() {
+            return "MethodInfo {" + "name='" + name + '\'' + ", descriptor='" + descriptor + '\'' + '}';
+        }
+    }
+
+    /**
+     * A runtime-visible annotation with the element values written in the class
+     * file. Elements left at their default value are not present here; the
+     * defaults live in the annotation type's own class file.
+     * <p>
+     * Values are {@link String}s, boxed primitives, {@link TypeConstant}s for
+     * class literals, enum constant names, nested {@link AnnotationInfo}s or
+     * {@code Object[]} arrays of those.
+     */
+    static final class AnnotationInfo {
+        final String type;
+
+        final Map<String, Object> values;
+
+        AnnotationInfo(final String type, final Map<String, Object> values) {
+            this.type = type;
+            this.values = values;
+        }
+
+        Object get(final String element) {
+            return values.get(element);
+        }
+
+        static AnnotationInfo find(final List<AnnotationInfo> annotations, final String annotationType) {
+            for (final AnnotationInfo annotation : annotations) {
+                if (annotation.type.equals(annotationType)) {
+                    return annotation;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public String toString() {
+            return "@" + type + values;
+        }
+    }
+
+    /**
+     * A class literal used as an annotation value, named as {@link Class#getName()} would.
+     */
+    static final class TypeConstant {
+        final String name;
+
+        TypeConstant(final String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package com.utility;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.jar.Manifest;
+import java.util.logging.Logger;
+
+import com.utility.ClassFileEntry.ArchiveEntry;
+import com.utility.ClassFileEntry.FileEntry;
+
+/**
+ * Lists the class files of a package across class directories, plain jars,
+ * multi-release jars and Spring Boot style fat jars with nested
+ * {@code BOOT-INF/lib/*.jar} archives.
+ * <p>
+ * Archives are read through {@link ZipCentralDirectory}, so only the entries
+ * under the requested package are ever decompressed. Every archive and class
+ * directory seen is remembered, which lets {@link #findClassFile(String)}
+ * resolve supertypes that live beside the scanned classes but are not visible
+ * to the scanning class loader.
+ */
+final class ClassFileLocator {
+
+    private static final Logger LOG = Logger.getLogger(ClassFileLocator.class.getName());
+
+    private static final String CLASS_SUFFIX = ".class";
+
+    private static final String JAR_SUFFIX = ".jar";
+
+    private static final String JAR_SEPARATOR = "!/";
+
+    private static final String VERSIONS = "META-INF/versions/";
+
+    private static final String MANIFEST = "META-INF/MANIFEST.MF";
+
+    // where fat jars and wars keep their own classes and their dependencies
+    private static final String[] NESTED_CLASS_ROOTS = {"BOOT-INF/classes/", "WEB-INF/classes/"};
+
+    private static final String[] NESTED_LIBRARY_ROOTS = {"BOOT-INF/lib/", "WEB-INF/lib/"};
+
+    // versioned entries of multi-release jars are chosen for the running release
+    private final int releaseVersion = Runtime.version().feature();
+
+    private final Map<String, ZipCentralDirectory> archives = new ConcurrentHashMap<>();
+
+    private final List<Path> classDirectories = new CopyOnWriteArrayList<>();
+
+    /**
+     * Lists the class files of a package location returned by
+     * {@link ClassLoader#getResources(String)}.
+     */
+    List<ClassFileEntry> list(final URL location, final String packagePath) throws IOException {
+        try {
+            switch (location.getProtocol()) {
+                case "file":
+                    return listDirectory(Paths.get(location.toURI()));
+                case "jar":
+                    return listJarUrl(location, packagePath);
+                default:
+                    LOG.warning("Skipping unsupported package location " + location);
+                    return Collections.emptyList();
+            }
+        }
+        catch (final URISyntaxException e) {
+            throw new IOException("Invalid package location " + location, e);
+        }
+    }
+
+    /**
+     * Lists the class files of a package in a classpath entry, which is either
+     * a class directory or an archive. Fat jars and wars are searched in their
+     * nested class roots and library jars as well.
+     */
+    List<ClassFileEntry> list(final Path classpathEntry, final String packagePath) throws IOException {
+        if (Files.isDirectory(classpathEntry)) {
+            classDirectories.add(classpathEntry);
+            return listDirectory(packagePath.isEmpty() ? classpathEntry : classpathEntry.resolve(packagePath));
+        }
+
+        final ZipCentralDirectory archive = openArchive(classpathEntry);
+        final List<ClassFileEntry> classFiles = listArchive(archive, "", packagePath);
+        for (final String root : NESTED_CLASS_ROOTS) {
+            classFiles.addAll(listArchive(archive, root, packagePath));
+        }
+        for (final String root : NESTED_LIBRARY_ROOTS) {
+            for (final ZipCentralDirectory.Entry entry : archive.entries(root)) {
+                if (entry.name.endsWith(JAR_SUFFIX)) {
+                    classFiles.addAll(listArchive(openNested(archive, entry), "", packagePath));
+                }
+            }
+        }
+        return classFiles;
+    }
+
+    /**
+     * Looks up a class file, e.g. {@code com/server/api/Base.class}, in the
+     * archives and class directories listed so far. Returns null when none of
+     * them has it.
+     */
+    byte[] findClassFile(final String resourceName) throws IOException {
+        for (final Path directory : classDirectories) {
+            final Path file = directory.resolve(resourceName);
+            if (Files.isRegularFile(file)) {
+                return Files.readAllBytes(file);
+            }
+        }
+        for (final ZipCentralDirectory archive : archives.values()) {
+            ZipCentralDirectory.Entry entry = archive.find(resourceName);
+            for (int i = 0; entry == null && i < NESTED_CLASS_ROOTS.length; i++) {
+                entry = archive.find(NESTED_CLASS_ROOTS[i] + resourceName);
+            }
+            if (entry != null) {
+                return archive.readBytes(entry);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Lists a {@code jar:} URL such as {@code jar:file:/app.jar!/com/server/api}
+     * or, for nested archives, {@code jar:file:/app.jar!/BOOT-INF/lib/api.jar!/com/server/api}.
+     */
+    private List<ClassFileEntry> listJarUrl(final URL location, final String packagePath)
+            throws IOException, URISyntaxException {
+        final String[] parts = location.toString().substring("jar:".length()).split(JAR_SEPARATOR);
+        ZipCentralDirectory archive = openArchive(Paths.get(new URI(parts[0])));
+        String root = "";
+        // the last part is the package itself; everything between is a nested archive or class root
+        for (int i = 1; i < parts.length - 1; i++) {
+            final String part = root + parts[i];
+            if (part.endsWith(JAR_SUFFIX)) {
+                final ZipCentralDirectory.Entry entry = findEntry(archive, part);
+                if (entry == null) {
+                    throw new IOException("Nested archive " + part + " not found in " + archive.getName());
+                }
+                archive = openNested(archive, entry);
+                root = "";
+            }
+            else {
+                root = part.endsWith("/") ? part : part + "/";
+            }
+        }
+        return listArchive(archive, root, packagePath);
+    }
+
+    /**
+     * Lists the class files of a package below a root of an archive. For
+     * multi-release jars the newest versioned entry that the running release
+     * supports replaces the base entry.
+     */
+    private List<ClassFileEntry> listArchive(final ZipCentralDirectory archive, final String root,
+            final String packagePath) throws IOException {
+        final String packagePrefix = packagePath.isEmpty() ? "" : packagePath + "/";
+
+        // keyed by the class file name relative to the root, which also keeps the order stable
+        final Map<String, ClassFileEntry> classFiles = new TreeMap<>();
+        for (final ZipCentralDirectory.Entry entry : archive.entries(root + packagePrefix)) {
+            if (entry.name.endsWith(CLASS_SUFFIX)) {
+                classFiles.put(entry.name.substring(root.length()), new ArchiveEntry(archive, entry));
+            }
+        }
+
+        if (root.isEmpty() && isMultiRelease(archive)) {
+            final Map<String, Integer> versions = new HashMap<>();
+            for (final ZipCentralDirectory.Entry entry : archive.entries(VERSIONS)) {
+                final int slash = entry.name.indexOf('/', VERSIONS.length());
+                if (slash < 0 || entry.name.endsWith(CLASS_SUFFIX) == false) {
+                    continue;
+                }
+                final int version;
+                try {
+                    version = Integer.parseInt(entry.name.substring(VERSIONS.length(), slash));
+                }
+                catch (final NumberFormatException e) {
+                    continue;
+                }
+                final String name = entry.name.substring(slash + 1);
+                if (version <= releaseVersion && name.startsWith(packagePrefix)
+                        && version > versions.getOrDefault(name, 0)) {
+                    versions.put(name, version);
+                    classFiles.put(name, new ArchiveEntry(archive, entry));
+                }
+            }
+        }
+        return new ArrayList<>(classFiles.values());
+    }
+
+    private boolean isMultiRelease(final ZipCentralDirectory archive) throws IOException {
+        final ZipCentralDirectory.Entry entry = findEntry(archive, MANIFEST);
+        if (entry == null) {
+            return false;
+        }
+        final Manifest manifest = new Manifest(new ByteArrayInputStream(archive.readBytes(entry)));
+        return "true".equalsIgnoreCase(manifest.getMainAttributes().getValue("Multi-Release"));
+    }
+
+    /**
+     * Finds a single entry with one pass over the central directory, without
+     * building the archive's full name index.
+     */
+    private static ZipCentralDirectory.Entry findEntry(final ZipCentralDirectory archive, final String name)
+            throws IOException {
+        for (final ZipCentralDirectory.Entry entry : archive.entries(name)) {
+            if (entry.name.equals(name)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    private ZipCentralDirectory openArchive(final Path file) throws IOException {
+        final String key = file.toAbsolutePath().normalize().toString();
+        final ZipCentralDirectory archive = archives.get(key);
+        if (archive != null) {
+            return archive;
+        }
+        final ZipCentralDirectory opened = ZipCentralDirectory.open(Paths.get(key));
+        final ZipCentralDirectory existing = archives.putIfAbsent(key, opened);
+        return existing != null ? existing : opened;
+    }
+
+    private ZipCentralDirectory openNested(final ZipCentralDirectory archive, final ZipCentralDirectory.Entry entry)
+            throws IOException {
+        final String key = archive.getName() + JAR_SEPARATOR + entry.name;
+        final ZipCentralDirectory nested = archives.get(key);
+        if (nested != null) {
+            return nested;
+        }
+        final ZipCentralDirectory opened = archive.openNested(entry);
+        final ZipCentralDirectory existing = archives.putIfAbsent(key, opened);
+        return existing != null ? existing : opened;
+    }
+
+    /**
+     * Returns the class files under a package directory, in path order.
+     */
+    private static List<ClassFileEntry> listDirectory(final Path root) throws IOException {
+        if (Files.isDirectory(root) == false) {
+            return Collections.emptyList();
+        }
+        // the walk already has each file's attributes, which is all the index cache needs to validate it
+        final Map<Path, ClassFileEntry> classFiles = new TreeMap<>();
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) {
+                if (attrs.isRegularFile() && file.getFileName().toString().endsWith(CLASS_SUFFIX)) {
+                    classFiles.put(file, new FileEntry(file, attrs.size(), attrs.lastModifiedTime().toMillis()));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return new ArrayList<>(classFiles.values());
+    }
+
+    /**
+     * Wraps {@link #list(URL, String)} and {@link #list(Path, String)} for use in streams.
+     */
+    interface Lister<T> {
+        List<ClassFileEntry> list(T root) throws IOException;
+
+        default List<ClassFileEntry> listUnchecked(final T root) {
+            try {
+                return list(root);
+            }
+            catch (final IOException e) {
+                throw new UncheckedIOException("Unable to list " + root, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,431 @@
+package com.utility;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.utility.ClassFileInfo.AnnotationInfo;
+import com.utility.ClassFileInfo.FieldInfo;
+import com.utility.ClassFileInfo.MethodInfo;
+import com.utility.ClassFileInfo.TypeConstant;
+
+/**
+ * Reads the constant pool and the runtime-visible annotation and signature
+ * attributes of a class file straight from its bytes. Nothing is defined in a class loader, so
+ * static initializers never run and dependencies are never resolved.
+ * <p>
+ * Only the constant pool is indexed on construction; callers can check
+ * {@link #containsUtf8(String)} to reject uninteresting classes before paying
+ * for {@link #read()}. A reader is not thread-safe.
+ */
+final class ClassFileReader {
+
+    private static final int MAGIC = 0xCAFEBABE;
+
+    private static final String RUNTIME_VISIBLE_ANNOTATIONS = "RuntimeVisibleAnnotations";
+
+    private static final String RUNTIME_VISIBLE_PARAMETER_ANNOTATIONS = "RuntimeVisibleParameterAnnotations";
+
+    private static final String ANNOTATION_DEFAULT = "AnnotationDefault";
+
+    private static final String SIGNATURE = "Signature";
+
+    private final byte[] bytes;
+
+    // offset of the tag byte of each constant pool entry
+    private final int[] offsets;
+
+    private final String[] utf8Cache;
+
+    // offset of the access flags, right after the constant pool
+    private final int headerOffset;
+
+    // read cursor used while decoding attributes
+    private int position;
+
+    ClassFileReader(final byte[] bytes) throws IOException {
+        this.bytes = bytes;
+        try {
+            if (readInt(0) != MAGIC) {
+                throw new IOException("Not a class file");
+            }
+            final int count = readUnsignedShort(8);
+            offsets = new int[count];
+            utf8Cache = new String[count];
+
+            int offset = 10;
+            for (int i = 1; i < count; i++) {
+                offsets[i] = offset;
+                final int tag = bytes[offset] & 0xFF;
+                switch (tag) {
+                    case 1: // Utf8
+                        offset += 3 + readUnsignedShort(offset + 1);
+                        break;
+                    case 3: // Integer
+                    case 4: // Float
+                    case 9: // Fieldref
+                    case 10: // Methodref
+                    case 11: // InterfaceMethodref
+                    case 12: // NameAndType
+                    case 17: // Dynamic
+                    case 18: // InvokeDynamic
+                        offset += 5;
+                        break;
+                    case 5: // Long
+                    case 6: // Double
+                        offset += 9;
+                        i++;
+                        break;
+                    case 7: // Class
+                    case 8: // String
+                    case 16: // MethodType
+                    case 19: // Module
+                    case 20: // Package
+                        offset += 3;
+                        break;
+                    case 15: // MethodHandle
+                        offset += 4;
+                        break;
+                    default:
+                        throw new IOException("Unknown constant pool tag " + tag + " at offset " + offset);
+                }
+            }
+            headerOffset = offset;
+        }
+        catch (final IndexOutOfBoundsException e) {
+            throw new IOException("Truncated class file", e);
+        }
+    }
+
+    /**
+     * Returns true when the constant pool holds the given ASCII string, such as
+     * an annotation descriptor. No strings are decoded to answer this.
+     */
+    boolean containsUtf8(final String ascii) {
+        final int length = ascii.length();
+        for (int i = 1; i < offsets.length; i++) {
+            final int offset = offsets[i];
+            if (offset == 0 || bytes[offset] != 1 || readUnsignedShort(offset + 1) != length) {
+                continue;
+            }
+            int j = 0;
+            while (j < length && bytes[offset + 3 + j] == ascii.charAt(j)) {
+                j++;
+            }
+            if (j == length) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Decodes the class header, the fields, the methods, their signatures and
+     * the runtime-visible annotations.
+     */
+    ClassFileInfo read() throws IOException {
+        try {
+            int offset = headerOffset;
+            final int accessFlags = readUnsignedShort(offset);
+            final String name = readClassName(readUnsignedShort(offset + 2));
+            final int superIndex = readUnsignedShort(offset + 4);
+            final String superName = superIndex == 0 ? null : readClassName(superIndex);
+
+            final int interfaceCount = readUnsignedShort(offset + 6);
+            final List<String> interfaces = new ArrayList<>(interfaceCount);
+            offset += 8;
+            for (int i = 0; i < interfaceCount; i++) {
+                interfaces.add(readClassName(readUnsignedShort(offset)));
+                offset += 2;
+            }
+
+            // fields only matter as properties of payload types
+            final int fieldCount = readUnsignedShort(offset);
+            offset += 2;
+            final List<FieldInfo> fields = new ArrayList<>(fieldCount);
+            for (int i = 0; i < fieldCount; i++) {
+                final int fieldAccess = readUnsignedShort(offset);
+                final String fieldName = readUtf8(readUnsignedShort(offset + 2));
+                final String descriptor = readUtf8(readUnsignedShort(offset + 4));
+                final int attributeCount = readUnsignedShort(offset + 6);
+                offset += 8;
+
+                List<AnnotationInfo> annotations = Collections.emptyList();
+                String signature = null;
+                for (int a = 0; a < attributeCount; a++) {
+                    final String attributeName = readUtf8(readUnsignedShort(offset));
+                    final int length = readInt(offset + 2);
+                    position = offset + 6;
+                    if (RUNTIME_VISIBLE_ANNOTATIONS.equals(attributeName)) {
+                        annotations = readAnnotations();
+                    }
+                    else if (SIGNATURE.equals(attributeName)) {
+                        signature = readUtf8(readUnsignedShort(position));
+                    }
+                    offset += 6 + length;
+                }
+                fields.add(new FieldInfo(fieldName, descriptor, signature, fieldAccess, annotations));
+            }
+
+            final int methodCount = readUnsignedShort(offset);
+            offset += 2;
+            final List<MethodInfo> methods = new ArrayList<>(methodCount);
+            for (int i = 0; i < methodCount; i++) {
+                final int methodAccess = readUnsignedShort(offset);
+                final String methodName = readUtf8(readUnsignedShort(offset + 2));
+                final String descriptor = readUtf8(readUnsignedShort(offset + 4));
+                final int attributeCount = readUnsignedShort(offset + 6);
+                offset += 8;
+
+                List<AnnotationInfo> annotations = Collections.emptyList();
+                List<List<AnnotationInfo>> parameterAnnotations = Collections.emptyList();
+                Object defaultValue = null;
+                String signature = null;
+                for (int a = 0; a < attributeCount; a++) {
+                    final String attributeName = readUtf8(readUnsignedShort(offset));
+                    final int length = readInt(offset + 2);
+                    position = offset + 6;
+                    if (RUNTIME_VISIBLE_ANNOTATIONS.equals(attributeName)) {
+                        annotations = readAnnotations();
+                    }
+                    else if (RUNTIME_VISIBLE_PARAMETER_ANNOTATIONS.equals(attributeName)) {
+                        final int parameterCount = bytes[position++] & 0xFF;
+                        parameterAnnotations = new ArrayList<>(parameterCount);
+                        for (int p = 0; p < parameterCount; p++) {
+                            parameterAnnotations.add(readAnnotations());
+                        }
+                    }
+                    else if (ANNOTATION_DEFAULT.equals(attributeName)) {
+                        defaultValue = readElementValue();
+                    }
+                    else if (SIGNATURE.equals(attributeName)) {
+                        signature = readUtf8(readUnsignedShort(position));
+                    }
+                    offset += 6 + length;
+                }
+                methods.add(new MethodInfo(methodName, descriptor, signature, methodAccess, annotations,
+                        parameterAnnotations, defaultValue));
+            }
+
+            List<AnnotationInfo> annotations = Collections.emptyList();
+            String signature = null;
+            final int attributeCount = readUnsignedShort(offset);
+            offset += 2;
+            for (int a = 0; a < attributeCount; a++) {
+                final String attributeName = readUtf8(readUnsignedShort(offset));
+                final int length = readInt(offset + 2);
+                position = offset + 6;
+                if (RUNTIME_VISIBLE_ANNOTATIONS.equals(attributeName)) {
+                    annotations = readAnnotations();
+                }
+                else if (SIGNATURE.equals(attributeName)) {
+                    signature = readUtf8(readUnsignedShort(position));
+                }
+                offset += 6 + length;
+            }
+
+            return new ClassFileInfo(name, superName, interfaces, accessFlags, signature, annotations, fields,
+                    methods);
+        }
+        catch (final IndexOutOfBoundsException | ClassCastException e) {
+            throw new IOException("Malformed class file", e);
+        }
+    }
+
+    private List<AnnotationInfo> readAnnotations() {
+        final int count = readUnsignedShort(position);
+        position += 2;
+        if (count == 0) {
+            return Collections.emptyList();
+        }
+        final List<AnnotationInfo> annotations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            annotations.add(readAnnotation());
+        }
+        return annotations;
+    }
+
+    private AnnotationInfo readAnnotation() {
+        final String type = toClassName(readUtf8(readUnsignedShort(position)));
+        final int pairCount = readUnsignedShort(position + 2);
+        position += 4;
+        final Map<String, Object> values = new LinkedHashMap<>();
+        for (int i = 0; i < pairCount; i++) {
+            final String element = readUtf8(readUnsignedShort(position));
+            position += 2;
+            values.put(element, readElementValue());
+        }
+        return new AnnotationInfo(type, values);
+    }
+
+    private Object readElementValue() {
+        final char tag = (char) (bytes[position++] & 0xFF);
+        switch (tag) {
+            case 'B':
+                return (byte) readConstantInt();
+            case 'C':
+                return (char) readConstantInt();
+            case 'S':
+                return (short) readConstantInt();
+            case 'Z':
+                return readConstantInt() != 0;
+            case 'I':
+                return readConstantInt();
+            case 'J':
+                return readConstantLong();
+            case 'F':
+                return Float.intBitsToFloat(readConstantInt());
+            case 'D':
+                return Double.longBitsToDouble(readConstantLong());
+            case 's': {
+                final String value = readUtf8(readUnsignedShort(position));
+                position += 2;
+                return value;
+            }
+            case 'e': {
+                // enum constants are reported by name only
+                final String constant = readUtf8(readUnsignedShort(position + 2));
+                position += 4;
+                return constant;
+            }
+            case 'c': {
+                final String descriptor = readUtf8(readUnsignedShort(position));
+                position += 2;
+                return new TypeConstant(toClassName(descriptor));
+            }
+            case '@':
+                return readAnnotation();
+            case '[': {
+                final int count = readUnsignedShort(position);
+                position += 2;
+                final Object[] values = new Object[count];
+                for (int i = 0; i < count; i++) {
+                    values[i] = readElementValue();
+                }
+                return values;
+            }
+            default:
+                throw new IndexOutOfBoundsException("Unknown element value tag " + tag);
+        }
+    }
+
+    private int readConstantInt() {
+        final int index = readUnsignedShort(position);
+        position += 2;
+        return readInt(offsets[index] + 1);
+    }
+
+    private long readConstantLong() {
+        final int index = readUnsignedShort(position);
+        position += 2;
+        final int offset = offsets[index] + 1;
+        return ((long) readInt(offset) << 32) | (readInt(offset + 4) & 0xFFFFFFFFL);
+    }
+
+    private String readClassName(final int classIndex) {
+        return readUtf8(readUnsignedShort(offsets[classIndex] + 1)).replace('/', '.');
+    }
+
+    /**
+     * Decodes the modified UTF-8 constant at the given index, caching the result.
+     */
+    private String readUtf8(final int index) {
+        String value = utf8Cache[index];
+        if (value != null) {
+            return value;
+        }
+        final int offset = offsets[index];
+        final int length = readUnsignedShort(offset + 1);
+        final char[] chars = new char[length];
+        int charCount = 0;
+        int i = offset + 3;
+        final int end = i + length;
+        while (i < end) {
+            final int c = bytes[i++] & 0xFF;
+            if (c < 0x80) {
+                chars[charCount++] = (char) c;
+            }
+            else if ((c & 0xE0) == 0xC0) {
+                chars[charCount++] = (char) (((c & 0x1F) << 6) | (bytes[i++] & 0x3F));
+            }
+            else {
+                chars[charCount++] = (char) (((c & 0x0F) << 12) | ((bytes[i++] & 0x3F) << 6) | (bytes[i++] & 0x3F));
+            }
+        }
+        value = new String(chars, 0, charCount);
+        utf8Cache[index] = value;
+        return value;
+    }
+
+    private int readUnsignedShort(final int offset) {
+        return ((bytes[offset] & 0xFF) << 8) | (bytes[offset + 1] & 0xFF);
+    }
+
+    private int readInt(final int offset) {
+        return ((bytes[offset] & 0xFF) << 24) | ((bytes[offset + 1] & 0xFF) << 16) | ((bytes[offset + 2] & 0xFF) << 8)
+                | (bytes[offset + 3] & 0xFF);
+    }
+
+    /**
+     * Converts a field descriptor, e.g. {@code Ljava/lang/String;} or {@code [I},
+     * into the name {@link Class#getName()} reports for that type.
+     */
+    static String toClassName(final String descriptor) {
+        switch (descriptor.charAt(0)) {
+            case 'L':
+                return descriptor.substring(1, descriptor.length() - 1).replace('/', '.');
+            case '[':
+                return descriptor.replace('/', '.');
+            case 'B':
+                return "byte";
+            case 'C':
+                return "char";
+            case 'D':
+                return "double";
+            case 'F':
+                return "float";
+            case 'I':
+                return "int";
+            case 'J':
+                return "long";
+            case 'S':
+                return "short";
+            case 'Z':
+                return "boolean";
+            case 'V':
+                return "void";
+            default:
+                throw new IllegalArgumentException("Invalid descriptor " + descriptor);
+        }
+    }
+
+    /**
+     * Returns the parameter type names of a method descriptor, in declaration order.
+     */
+    static List<String> parameterTypes(final String methodDescriptor) {
+        final List<String> types = new ArrayList<>();
+        int i = 1;
+        while (methodDescriptor.charAt(i) != ')') {
+            final int start = i;
+            while (methodDescriptor.charAt(i) == '[') {
+                i++;
+            }
+            if (methodDescriptor.charAt(i) == 'L') {
+                i = methodDescriptor.indexOf(';', i);
+            }
+            i++;
+            types.add(toClassName(methodDescriptor.substring(start, i)));
+        }
+        return types;
+    }
+
+    /**
+     * Returns the return type name of a method descriptor.
+     */
+    static String returnType(final String methodDescriptor) {
+        return toClassName(methodDescriptor.substring(methodDescriptor.indexOf(')') + 1));
+    }
+}
@@ -0,0 +1,88 @@
+package com.utility;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * What a class contributes to the endpoints of its methods, worked out once
+ * per class and shared by all of them: the annotations of the class and its
+ * superclasses, the class-level Swagger documentation and media types, and
+ * the base path of a resource class.
+ * <p>
+ * Instances are immutable; the lists are shared by every endpoint of the
+ * class and must not be modified.
+ */
+final class ClassMetadata {
+
+    /**
+     * Annotations that make a method an endpoint rather than describe it, left
+     * out of the documented annotations.
+     */
+    static final Set<String> IGNORED_ANNOTATIONS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "javax.ws.rs.Path", "javax.ws.rs.GET", "javax.ws.rs.POST", "javax.ws.rs.PUT", "javax.ws.rs.DELETE")));
+
+    /** The endpoint path of a class with {@code @Path}, otherwise null. */
+    final String basePath;
+
+    /**
+     * The annotation types of the class and its superclasses, the class first,
+     * without {@link #IGNORED_ANNOTATIONS}.
+     */
+    final Set<String> annotations;
+
+    /** The {@code @Api} value, or null without {@code @Api}. */
+    final String description;
+
+    /** The {@code @Api} tags, or null without {@code @Api}. */
+    final List<String> tags;
+
+    /** The class-level {@code @Consumes} media types, or null. */
+    final List<String> consumes;
+
+    /** The class-level {@code @Produces} media types, or null. */
+    final List<String> produces;
+
+    /**
+     * @param ownAnnotations the annotation types present on the class
+     * @param superclass the metadata of the superclass, or null
+     */
+    ClassMetadata(final String basePath, final Collection<String> ownAnnotations, final ClassMetadata superclass,
+            final String description, final List<String> tags, final List<String> consumes,
+            final List<String> produces) {
+        final Set<String> hierarchy = new LinkedHashSet<>(ownAnnotations);
+        if (superclass != null) {
+            hierarchy.addAll(superclass.annotations);
+        }
+        hierarchy.removeAll(IGNORED_ANNOTATIONS);
+
+        this.basePath = basePath;
+        this.annotations = Collections.unmodifiableSet(hierarchy);
+        this.description = description;
+        this.tags = tags != null ? Collections.unmodifiableList(new ArrayList<>(tags)) : null;
+        this.consumes = consumes != null ? Collections.unmodifiableList(new ArrayList<>(consumes)) : null;
+        this.produces = produces != null ? Collections.unmodifiableList(new ArrayList<>(produces)) : null;
+    }
+
+    /**
+     * Returns the annotations documented for a method declared by this class:
+     * those of the class hierarchy followed by the method's own, each once and
+     * without {@link #IGNORED_ANNOTATIONS}.
+     */
+    List<String> getEndpointAnnotations(final Collection<String> methodAnnotations) {
+        final List<String> endpointAnnotations = new ArrayList<>(annotations.size() + methodAnnotations.size());
+        endpointAnnotations.addAll(annotations);
+        for (final String annotation : methodAnnotations) {
+            // a method has each annotation type once, so only the class ones can repeat
+            if (annotations.contains(annotation) == false && IGNORED_ANNOTATIONS.contains(annotation) == false) {
+                endpointAnnotations.add(annotation);
+            }
+        }
+        return endpointAnnotations;
+    }
+}
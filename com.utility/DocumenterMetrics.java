@@ -0,0 +1,349 @@
+package com.utility;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Timings and counters of a documenter run, broken down by {@link Phase}.
+ * <p>
+ * Phases are timed with {@link #time(Phase)} in try-with-resources blocks,
+ * whose methods suppress the {@code try} lint for the unreferenced timer, and
+ * may nest: a phase is only charged for its own time, not for the phases
+ * started inside it, so the phase times of a thread add up to the time it
+ * spent in timed code. Wall and CPU times are summed over all threads, so on
+ * a parallel scan they can exceed the elapsed time of the run.
+ * <p>
+ * Every timed block is also a {@code com.utility.DocumenterPhase} JFR event,
+ * and every class that takes longer than {@link #SLOW_CLASS_PROPERTY}
+ * milliseconds to analyze is a {@code com.utility.SlowClass} event; both cost
+ * next to nothing unless a recording enables them. {@link #writeJson(Path)}
+ * writes a summary for build tooling.
+ * <p>
+ * Instances are thread-safe.
+ */
+public class DocumenterMetrics {
+
+    /**
+     * System property with the analysis time in milliseconds above which a
+     * class is reported as slow, e.g. {@code -Dapiindex.slowClassMillis=20}.
+     */
+    public static final String SLOW_CLASS_PROPERTY = "apiindex.slowClassMillis";
+
+    private static final Logger LOG = Logger.getLogger(DocumenterMetrics.class.getName());
+
+    // the slowest classes kept for the summary
+    private static final int MAX_SLOW_CLASSES = 50;
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private static final boolean CPU_TIME_SUPPORTED = THREADS.isCurrentThreadCpuTimeSupported();
+
+    public enum Phase {
+        /** Enumerating the class files of the package. */
+        DISCOVERY,
+        /** Loading classes, or reading and decoding class files. */
+        CLASS_LOADING,
+        /** Building and validating Jersey's resource model of an application. */
+        MODEL,
+        /** Collecting the annotations of endpoint methods and their classes. */
+        ANNOTATIONS,
+        /** Reading Swagger documentation and media types. */
+        SWAGGER,
+        /** Reading the parameters of endpoint methods. */
+        PARAMETERS,
+        /** Validating and decoding entries of the index cache. */
+        CACHE,
+        /** Writing the HTML page and the files beside it. */
+        RENDERING
+    }
+
+    public enum Counter {
+        /** Class files inspected. */
+        CLASSES_SCANNED,
+        /** Classes loaded, or class files decoded when reading bytecode. */
+        CLASSES_LOADED,
+        /** Classes annotated with {@code @Path}. */
+        RESOURCE_CLASSES,
+        ENDPOINTS,
+        PARAMETERS,
+        BYTES_WRITTEN
+    }
+
+    private final long startNanos = System.nanoTime();
+
+    private final long slowClassNanos;
+
+    private final Map<Phase, LongAdder> wallNanos = new EnumMap<>(Phase.class);
+
+    private final Map<Phase, LongAdder> cpuNanos = new EnumMap<>(Phase.class);
+
+    private final Map<Phase, LongAdder> calls = new EnumMap<>(Phase.class);
+
+    private final Map<Counter, LongAdder> counters = new EnumMap<>(Counter.class);
+
+    // innermost running timer of each thread
+    private final ThreadLocal<Timer> current = new ThreadLocal<>();
+
+    private final List<SlowClass> slowClasses = new ArrayList<>();
+
+    public DocumenterMetrics() {
+        this(Long.getLong(SLOW_CLASS_PROPERTY, 100) * 1_000_000);
+    }
+
+    public DocumenterMetrics(final long slowClassNanos) {
+        this.slowClassNanos = slowClassNanos;
+        for (final Phase phase : Phase.values()) {
+            wallNanos.put(phase, new LongAdder());
+            cpuNanos.put(phase, new LongAdder());
+            calls.put(phase, new LongAdder());
+        }
+        for (final Counter counter : Counter.values()) {
+            counters.put(counter, new LongAdder());
+        }
+    }
+
+    /**
+     * Starts timing a phase on the current thread until the returned timer is
+     * closed.
+     */
+    public Timer time(final Phase phase) {
+        final Timer timer = new Timer(phase, current.get());
+        current.set(timer);
+        return timer;
+    }
+
+    public void increment(final Counter counter) {
+        counters.get(counter).increment();
+    }
+
+    public void add(final Counter counter, final long amount) {
+        counters.get(counter).add(amount);
+    }
+
+    /**
+     * Records how long analyzing a resource class took, reporting it if it is
+     * slow.
+     */
+    public void recordClass(final String className, final long nanos, final int endpoints) {
+        if (nanos < slowClassNanos) {
+            return;
+        }
+        final SlowClassEvent event = new SlowClassEvent();
+        if (event.shouldCommit()) {
+            event.className = className;
+            event.analysisTime = nanos;
+            event.endpoints = endpoints;
+            event.commit();
+        }
+        LOG.fine(() -> "Slow class " + className + ": " + nanos / 1_000_000 + " ms for " + endpoints + " endpoints");
+        synchronized (slowClasses) {
+            slowClasses.add(new SlowClass(className, nanos, endpoints));
+            if (slowClasses.size() > MAX_SLOW_CLASSES) {
+                slowClasses.sort((a, b) -> Long.compare(b.nanos, a.nanos));
+                slowClasses.remove(MAX_SLOW_CLASSES);
+            }
+        }
+    }
+
+    public long getWallNanos(final Phase phase) {
+        return wallNanos.get(phase).sum();
+    }
+
+    /**
+     * Returns the CPU time spent in a phase, or 0 when the JVM does not measure
+     * thread CPU time.
+     */
+    public long getCpuNanos(final Phase phase) {
+        return cpuNanos.get(phase).sum();
+    }
+
+    public long getCount(final Counter counter) {
+        return counters.get(counter).sum();
+    }
+
+    /**
+     * Returns the time since these metrics were created.
+     */
+    public long getElapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    /**
+     * Writes the summary to a file, replacing it.
+     */
+    public void writeJson(final Path file) throws IOException {
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writeJson(out);
+        }
+    }
+
+    /**
+     * Writes the summary as a JSON object with the elapsed time, the wall and
+     * CPU time and the number of calls of each phase, the counters, and the
+     * slowest classes. Times are in nanoseconds.
+     */
+    public void writeJson(final Appendable out) throws IOException {
+        out.append("{\"elapsedNanos\":").append(Long.toString(getElapsedNanos()));
+        out.append(",\"phases\":{");
+        for (final Phase phase : Phase.values()) {
+            if (phase.ordinal() > 0) {
+                out.append(',');
+            }
+            out.append('"').append(phase.name()).append("\":{\"wallNanos\":")
+                    .append(Long.toString(getWallNanos(phase))).append(",\"cpuNanos\":")
+                    .append(Long.toString(getCpuNanos(phase))).append(",\"calls\":")
+                    .append(Long.toString(calls.get(phase).sum())).append('}');
+        }
+        out.append("},\"counters\":{");
+        for (final Counter counter : Counter.values()) {
+            if (counter.ordinal() > 0) {
+                out.append(',');
+            }
+            out.append('"').append(counter.name()).append("\":").append(Long.toString(getCount(counter)));
+        }
+        out.append("},\"slowClasses\":[");
+        final List<SlowClass> slowest;
+        synchronized (slowClasses) {
+            slowest = new ArrayList<>(slowClasses);
+        }
+        slowest.sort((a, b) -> Long.compare(b.nanos, a.nanos));
+        for (int i = 0; i < slowest.size(); i++) {
+            final SlowClass slowClass = slowest.get(i);
+            if (i > 0) {
+                out.append(',');
+            }
+            // class names need no JSON escaping
+            out.append("{\"className\":\"").append(slowClass.className).append("\",\"nanos\":")
+                    .append(Long.toString(slowClass.nanos)).append(",\"endpoints\":")
+                    .append(Integer.toString(slowClass.endpoints)).append('}');
+        }
+        out.append("]}");
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder summary = new StringBuilder("DocumenterMetrics {elapsed=")
+                .append(getElapsedNanos() / 1_000_000).append(" ms");
+        for (final Phase phase : Phase.values()) {
+            summary.append(", ").append(phase).append('=').append(getWallNanos(phase) / 1_000_000).append(" ms");
+        }
+        for (final Counter counter : Counter.values()) {
+            summary.append(", ").append(counter).append('=').append(getCount(counter));
+        }
+        return summary.append('}').toString();
+    }
+
+    private static long currentCpuNanos() {
+        return CPU_TIME_SUPPORTED ? THREADS.getCurrentThreadCpuTime() : 0;
+    }
+
+    /**
+     * A running phase of the current thread; closing it records its time.
+     */
+    public final class Timer implements AutoCloseable {
+        private final Phase phase;
+
+        private final Timer parent;
+
+        private final PhaseEvent event = new PhaseEvent();
+
+        private final long startWall;
+
+        private final long startCpu;
+
+        // time of the phases nested in this one, which is not charged to it
+        private long childWall;
+
+        private long childCpu;
+
+        private Timer(final Phase phase, final Timer parent) {
+            this.phase = phase;
+            this.parent = parent;
+            this.event.begin();
+            this.startWall = System.nanoTime();
+            this.startCpu = currentCpuNanos();
+        }
+
+        @Override
+        public void close() {
+            final long wall = System.nanoTime() - startWall;
+            final long cpu = currentCpuNanos() - startCpu;
+            wallNanos.get(phase).add(wall - childWall);
+            cpuNanos.get(phase).add(cpu - childCpu);
+            calls.get(phase).increment();
+            if (parent != null) {
+                parent.childWall += wall;
+                parent.childCpu += cpu;
+                current.set(parent);
+            }
+            else {
+                current.remove();
+            }
+
+            event.end();
+            if (event.shouldCommit()) {
+                event.phase = phase.name();
+                event.commit();
+            }
+        }
+    }
+
+    private static final class SlowClass {
+        final String className;
+
+        final long nanos;
+
+        final int endpoints;
+
+        SlowClass(final String className, final long nanos, final int endpoints) {
+            this.className = className;
+            this.nanos = nanos;
+            this.endpoints = endpoints;
+        }
+    }
+
+    @Name("com.utility.DocumenterPhase")
+    @Label("Documenter Phase")
+    @Category("Api-Index")
+    @StackTrace(false)
+    static final class PhaseEvent extends Event {
+        @Label("Phase")
+        String phase;
+    }
+
+    @Name("com.utility.SlowClass")
+    @Label("Slow Resource Class")
+    @Description("A resource class whose endpoints took long to extract")
+    @Category("Api-Index")
+    @StackTrace(false)
+    static final class SlowClassEvent extends Event {
+        @Label("Class Name")
+        String className;
+
+        @Label("Analysis Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long analysisTime;
+
+        @Label("Endpoints")
+        int endpoints;
+    }
+}
@@ -0,0 +1,459 @@
+package com.utility;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.TypeParameterElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.TypeVariable;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+import com.utility.ClassFileInfo.AnnotationInfo;
+import com.utility.ClassFileInfo.FieldInfo;
+import com.utility.ClassFileInfo.MethodInfo;
+import com.utility.ClassFileInfo.TypeConstant;
+
+/**
+ * Builds {@link ClassFileInfo}s from the elements of a compilation, as
+ * {@link ClassFileReader} reads them from class files: descriptors and
+ * signatures in class file form, and only the annotations retained at
+ * runtime, with the element values written explicitly. Sources being compiled
+ * and classes on the classpath are described alike, so that
+ * {@link BytecodeEndpointScanner} works on them before any class file exists.
+ * <p>
+ * Constructors and static initializers are left out, as nothing documented
+ * comes from them. The bridges javac adds to public classes for methods
+ * inherited from classes that are not public are added, as reflection sees
+ * them.
+ */
+final class ElementClassFileReader implements BytecodeEndpointScanner.ClassFileSource {
+
+    private static final String RETENTION = "java.lang.annotation.Retention";
+
+    private static final String OBJECT = "java.lang.Object";
+
+    private final Elements elements;
+
+    private final Types types;
+
+    // whether annotation types are retained at runtime, by binary name
+    private final Map<String, Boolean> runtimeRetained = new ConcurrentHashMap<>();
+
+    ElementClassFileReader(final Elements elements, final Types types) {
+        this.elements = elements;
+        this.types = types;
+    }
+
+    @Override
+    public ClassFileInfo find(final String className) {
+        TypeElement type = elements.getTypeElement(className);
+        if (type == null && className.indexOf('$') >= 0) {
+            // nested classes are looked up by canonical name
+            type = elements.getTypeElement(className.replace('$', '.'));
+        }
+        return type != null ? read(type) : null;
+    }
+
+    /**
+     * Describes a class or interface.
+     */
+    ClassFileInfo read(final TypeElement type) {
+        final boolean isInterface = type.getKind().isInterface();
+        int accessFlags = getAccessFlags(type, false);
+        if (isInterface) {
+            accessFlags |= ClassFileInfo.ACC_INTERFACE;
+        }
+        if (type.getKind() == ElementKind.ANNOTATION_TYPE) {
+            accessFlags |= ClassFileInfo.ACC_ANNOTATION;
+        }
+
+        final String name = getBinaryName(type);
+        String superName = null;
+        if (type.getSuperclass().getKind() == TypeKind.DECLARED) {
+            superName = getClassName(type.getSuperclass());
+        }
+        else if (isInterface) {
+            // as class files have it
+            superName = OBJECT;
+        }
+        final List<String> interfaces = new ArrayList<>();
+        for (final TypeMirror superInterface : type.getInterfaces()) {
+            interfaces.add(getClassName(superInterface));
+        }
+
+        final List<FieldInfo> fields = new ArrayList<>();
+        final List<MethodInfo> methods = new ArrayList<>();
+        for (final Element member : type.getEnclosedElements()) {
+            if (member.getKind() == ElementKind.FIELD || member.getKind() == ElementKind.ENUM_CONSTANT) {
+                final TypeMirror fieldType = member.asType();
+                fields.add(new FieldInfo(member.getSimpleName().toString(), getDescriptor(fieldType),
+                        getSignature(fieldType), getAccessFlags(member, isInterface),
+                        getAnnotations(member.getAnnotationMirrors())));
+            }
+            else if (member.getKind() == ElementKind.METHOD) {
+                methods.add(readMethod((ExecutableElement) member, isInterface));
+            }
+        }
+        if (isInterface == false && type.getModifiers().contains(Modifier.PUBLIC)) {
+            addVisibilityBridges(type, methods);
+        }
+        return new ClassFileInfo(name, OBJECT.equals(name) ? null : superName, interfaces, accessFlags,
+                getClassSignature(type), getAnnotations(type.getAnnotationMirrors()), fields, methods);
+    }
+
+    private MethodInfo readMethod(final ExecutableElement method, final boolean inInterface) {
+        final StringBuilder descriptor = new StringBuilder("(");
+        final StringBuilder signature = new StringBuilder();
+        appendTypeParameters(method.getTypeParameters(), signature);
+        signature.append('(');
+        List<List<AnnotationInfo>> parameterAnnotations = Collections.emptyList();
+        final List<? extends VariableElement> parameters = method.getParameters();
+        for (int i = 0; i < parameters.size(); i++) {
+            final VariableElement parameter = parameters.get(i);
+            descriptor.append(getDescriptor(parameter.asType()));
+            appendSignature(parameter.asType(), signature);
+            final List<AnnotationInfo> annotations = getAnnotations(parameter.getAnnotationMirrors());
+            if (annotations.isEmpty() == false && parameterAnnotations.isEmpty()) {
+                parameterAnnotations = new ArrayList<>(parameters.size());
+                for (int j = 0; j < parameters.size(); j++) {
+                    parameterAnnotations.add(Collections.emptyList());
+                }
+            }
+            if (annotations.isEmpty() == false) {
+                parameterAnnotations.set(i, annotations);
+            }
+        }
+        descriptor.append(')').append(getDescriptor(method.getReturnType()));
+        signature.append(')');
+        appendSignature(method.getReturnType(), signature);
+
+        final AnnotationValue defaultValue = method.getDefaultValue();
+        final String methodSignature = signature.toString();
+        return new MethodInfo(method.getSimpleName().toString(), descriptor.toString(),
+                methodSignature.contentEquals(descriptor) ? null : methodSignature,
+                getAccessFlags(method, inInterface), getAnnotations(method.getAnnotationMirrors()),
+                parameterAnnotations, defaultValue != null ? toValue(defaultValue) : null);
+    }
+
+    /**
+     * Adds the bridges javac writes into a public class for the public methods
+     * it inherits from superclasses that are not public, so that they can be
+     * called through the class. Reflection reports them as methods of the
+     * class, with its annotations, and so does a scan of the class file.
+     */
+    private void addVisibilityBridges(final TypeElement type, final List<MethodInfo> methods) {
+        final List<TypeElement> overriding = new ArrayList<>();
+        overriding.add(type);
+        for (TypeElement superclass = getSuperclass(type); superclass != null; superclass = getSuperclass(superclass)) {
+            if (superclass.getModifiers().contains(Modifier.PUBLIC) == false) {
+                for (final Element member : superclass.getEnclosedElements()) {
+                    if (member.getKind() == ElementKind.METHOD && isBridged((ExecutableElement) member, type,
+                            overriding)) {
+                        final MethodInfo method = readMethod((ExecutableElement) member, false);
+                        if (isDeclared(methods, method) == false) {
+                            // bridges have the erased descriptor only
+                            methods.add(new MethodInfo(method.name, method.descriptor, null,
+                                    ClassFileInfo.ACC_PUBLIC | ClassFileInfo.ACC_BRIDGE | ClassFileInfo.ACC_SYNTHETIC,
+                                    method.annotations, method.parameterAnnotations, null));
+                        }
+                    }
+                }
+            }
+            overriding.add(superclass);
+        }
+    }
+
+    /**
+     * Returns whether javac bridges a method of a superclass in the given
+     * class: it is public, not abstract, final or static, and not overridden
+     * on the way down.
+     */
+    private boolean isBridged(final ExecutableElement method, final TypeElement type,
+            final List<TypeElement> overriding) {
+        final Set<Modifier> modifiers = method.getModifiers();
+        if (modifiers.contains(Modifier.PUBLIC) == false || modifiers.contains(Modifier.ABSTRACT)
+                || modifiers.contains(Modifier.FINAL) || modifiers.contains(Modifier.STATIC)) {
+            return false;
+        }
+        for (final TypeElement subclass : overriding) {
+            for (final Element member : subclass.getEnclosedElements()) {
+                if (member.getKind() == ElementKind.METHOD
+                        && elements.overrides((ExecutableElement) member, method, type)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean isDeclared(final List<MethodInfo> methods, final MethodInfo method) {
+        for (final MethodInfo declared : methods) {
+            if (declared.name.equals(method.name) && declared.descriptor.equals(method.descriptor)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static TypeElement getSuperclass(final TypeElement type) {
+        final TypeMirror superclass = type.getSuperclass();
+        if (superclass.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        final TypeElement element = (TypeElement) ((DeclaredType) superclass).asElement();
+        return OBJECT.equals(element.getQualifiedName().toString()) ? null : element;
+    }
+
+    private static int getAccessFlags(final Element element, final boolean inInterface) {
+        int accessFlags = 0;
+        // members of interfaces are public unless declared private
+        if (element.getModifiers().contains(Modifier.PUBLIC)
+                || (inInterface && element.getModifiers().contains(Modifier.PRIVATE) == false)) {
+            accessFlags |= ClassFileInfo.ACC_PUBLIC;
+        }
+        if (element.getModifiers().contains(Modifier.STATIC)) {
+            accessFlags |= ClassFileInfo.ACC_STATIC;
+        }
+        return accessFlags;
+    }
+
+    /**
+     * Returns the annotations retained at runtime, with the element values
+     * written explicitly.
+     */
+    private List<AnnotationInfo> getAnnotations(final List<? extends AnnotationMirror> mirrors) {
+        if (mirrors.isEmpty()) {
+            return Collections.emptyList();
+        }
+        final List<AnnotationInfo> annotations = new ArrayList<>(mirrors.size());
+        for (final AnnotationMirror mirror : mirrors) {
+            final TypeElement annotationType = (TypeElement) mirror.getAnnotationType().asElement();
+            if (isRuntimeRetained(annotationType)) {
+                annotations.add(toAnnotation(mirror));
+            }
+        }
+        return annotations.isEmpty() ? Collections.emptyList() : annotations;
+    }
+
+    private boolean isRuntimeRetained(final TypeElement annotationType) {
+        final String name = getBinaryName(annotationType);
+        Boolean retained = runtimeRetained.get(name);
+        if (retained == null) {
+            retained = false;
+            for (final AnnotationMirror meta : annotationType.getAnnotationMirrors()) {
+                if (getClassName(meta.getAnnotationType()).equals(RETENTION)) {
+                    for (final AnnotationValue value : meta.getElementValues().values()) {
+                        retained = "RUNTIME".equals(((VariableElement) value.getValue()).getSimpleName().toString());
+                    }
+                }
+            }
+            runtimeRetained.put(name, retained);
+        }
+        return retained;
+    }
+
+    private AnnotationInfo toAnnotation(final AnnotationMirror mirror) {
+        final Map<String, Object> values = new LinkedHashMap<>();
+        for (final Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> value : mirror
+                .getElementValues().entrySet()) {
+            values.put(value.getKey().getSimpleName().toString(), toValue(value.getValue()));
+        }
+        return new AnnotationInfo(getClassName(mirror.getAnnotationType()), values);
+    }
+
+    /**
+     * Converts an element value to the form {@link ClassFileReader} gives it.
+     */
+    private Object toValue(final AnnotationValue annotationValue) {
+        final Object value = annotationValue.getValue();
+        if (value instanceof TypeMirror) {
+            return new TypeConstant(ClassFileReader.toClassName(getDescriptor((TypeMirror) value)));
+        }
+        if (value instanceof VariableElement) {
+            // enum constants are reported by name only
+            return ((VariableElement) value).getSimpleName().toString();
+        }
+        if (value instanceof AnnotationMirror) {
+            return toAnnotation((AnnotationMirror) value);
+        }
+        if (value instanceof List) {
+            final List<?> list = (List<?>) value;
+            final Object[] values = new Object[list.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = toValue((AnnotationValue) list.get(i));
+            }
+            return values;
+        }
+        return value;
+    }
+
+    private String getBinaryName(final TypeElement type) {
+        return elements.getBinaryName(type).toString();
+    }
+
+    /**
+     * Returns the name {@link Class#getName()} reports for the erasure of a type.
+     */
+    private String getClassName(final TypeMirror type) {
+        return ClassFileReader.toClassName(getDescriptor(type));
+    }
+
+    private String getDescriptor(final TypeMirror type) {
+        final StringBuilder descriptor = new StringBuilder();
+        appendSignature(types.erasure(type), descriptor);
+        return descriptor.toString();
+    }
+
+    /**
+     * Returns the signature of a field type, or null when it is its descriptor.
+     */
+    private String getSignature(final TypeMirror type) {
+        final StringBuilder signature = new StringBuilder();
+        appendSignature(type, signature);
+        final String descriptor = getDescriptor(type);
+        return descriptor.contentEquals(signature) ? null : signature.toString();
+    }
+
+    /**
+     * Returns the signature of a class, or null when it has neither type
+     * parameters nor generic supertypes.
+     */
+    private String getClassSignature(final TypeElement type) {
+        final StringBuilder signature = new StringBuilder();
+        final StringBuilder erased = new StringBuilder();
+        appendTypeParameters(type.getTypeParameters(), signature);
+        final TypeMirror superclass = type.getSuperclass().getKind() == TypeKind.DECLARED ? type.getSuperclass()
+                : elements.getTypeElement(OBJECT).asType();
+        appendSignature(superclass, signature);
+        appendSignature(types.erasure(superclass), erased);
+        for (final TypeMirror superInterface : type.getInterfaces()) {
+            appendSignature(superInterface, signature);
+            appendSignature(types.erasure(superInterface), erased);
+        }
+        return erased.toString().contentEquals(signature) ? null : signature.toString();
+    }
+
+    private void appendTypeParameters(final List<? extends TypeParameterElement> typeParameters,
+            final StringBuilder signature) {
+        if (typeParameters.isEmpty()) {
+            return;
+        }
+        signature.append('<');
+        for (final TypeParameterElement typeParameter : typeParameters) {
+            signature.append(typeParameter.getSimpleName()).append(':');
+            boolean first = true;
+            for (final TypeMirror bound : typeParameter.getBounds()) {
+                // the class bound comes first and is left empty when there are interface bounds only
+                if (first && isInterface(bound)) {
+                    signature.append(':');
+                }
+                else if (first == false) {
+                    signature.append(':');
+                }
+                appendSignature(bound, signature);
+                first = false;
+            }
+        }
+        signature.append('>');
+    }
+
+    private static boolean isInterface(final TypeMirror type) {
+        return type.getKind() == TypeKind.DECLARED
+                && ((DeclaredType) type).asElement().getKind().isInterface();
+    }
+
+    /**
+     * Appends the signature of a type, as the JVM specification, section
+     * 4.7.9.1, writes it. The signature of an erased type is its descriptor.
+     */
+    private void appendSignature(final TypeMirror type, final StringBuilder signature) {
+        switch (type.getKind()) {
+            case BOOLEAN:
+                signature.append('Z');
+                break;
+            case BYTE:
+                signature.append('B');
+                break;
+            case CHAR:
+                signature.append('C');
+                break;
+            case SHORT:
+                signature.append('S');
+                break;
+            case INT:
+                signature.append('I');
+                break;
+            case LONG:
+                signature.append('J');
+                break;
+            case FLOAT:
+                signature.append('F');
+                break;
+            case DOUBLE:
+                signature.append('D');
+                break;
+            case VOID:
+                signature.append('V');
+                break;
+            case ARRAY:
+                signature.append('[');
+                appendSignature(((ArrayType) type).getComponentType(), signature);
+                break;
+            case TYPEVAR:
+                signature.append('T').append(((TypeVariable) type).asElement().getSimpleName()).append(';');
+                break;
+            case WILDCARD: {
+                final WildcardType wildcard = (WildcardType) type;
+                if (wildcard.getExtendsBound() != null) {
+                    signature.append('+');
+                    appendSignature(wildcard.getExtendsBound(), signature);
+                }
+                else if (wildcard.getSuperBound() != null) {
+                    signature.append('-');
+                    appendSignature(wildcard.getSuperBound(), signature);
+                }
+                else {
+                    signature.append('*');
+                }
+                break;
+            }
+            case DECLARED:
+            case ERROR: {
+                final DeclaredType declared = (DeclaredType) type;
+                signature.append('L')
+                        .append(getBinaryName((TypeElement) declared.asElement()).replace('.', '/'));
+                if (declared.getTypeArguments().isEmpty() == false) {
+                    signature.append('<');
+                    for (final TypeMirror argument : declared.getTypeArguments()) {
+                        appendSignature(argument, signature);
+                    }
+                    signature.append('>');
+                }
+                signature.append(';');
+                break;
+            }
+            default:
+                // intersection and union types do not occur in declarations
+                appendSignature(types.erasure(type), signature);
+                break;
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package com.utility;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.utility.RESTEndpointsDocumenter.EndpointParameter;
+import com.utility.RESTEndpointsDocumenter.EndpointResponse;
+import com.utility.RESTEndpointsDocumenter.MethodEnum;
+import com.utility.RESTEndpointsDocumenter.ParameterType;
+import com.utility.RESTEndpointsDocumenter.RestEndpoint;
+
+/**
+ * Compact binary encoding of {@link RestEndpoint}s. Strings are written as
+ * variable-length references into a {@link StringTable} that the caller stores
+ * once per file, so the many repeated type names, media types and annotation
+ * names cost a byte or two each. Null strings and null lists are preserved.
+ * <p>
+ * Encoding goes through {@link DataOutput}; decoding reads from a
+ * {@link ByteBuffer}, typically a memory-mapped file.
+ */
+final class EndpointCodec {
+
+    private static final MethodEnum[] METHODS = MethodEnum.values();
+
+    private static final ParameterType[] PARAMETER_TYPES = ParameterType.values();
+
+    private EndpointCodec() {
+    }
+
+    static void writeEndpoint(final DataOutput out, final RestEndpoint endpoint, final StringTable strings)
+            throws IOException {
+        writeString(out, endpoint.uri, strings);
+        out.writeByte(endpoint.method.ordinal());
+        writeString(out, endpoint.javaClass, strings);
+        writeString(out, endpoint.javaMethodName, strings);
+        writeParameters(out, endpoint.pathParameters, strings);
+        writeParameters(out, endpoint.queryParameters, strings);
+        writeParameters(out, endpoint.payloadParameters, strings);
+        writeString(out, endpoint.javaMethodReturnType, strings);
+        writeString(out, endpoint.description, strings);
+        writeStrings(out, endpoint.tags, strings);
+        writeString(out, endpoint.notes, strings);
+        writeStrings(out, endpoint.consumes, strings);
+        writeStrings(out, endpoint.produces, strings);
+        writeStrings(out, endpoint.successResponseTypes, strings);
+        writeStrings(out, endpoint.failureResponseTypes, strings);
+        writeResponses(out, endpoint.responses, strings);
+        writeStrings(out, endpoint.annotations, strings);
+        writeStrings(out, endpoint.requestHeaders, strings);
+        writeStrings(out, endpoint.responseHeaders, strings);
+        writeStrings(out, endpoint.payloadValidations, strings);
+    }
+
+    static RestEndpoint readEndpoint(final ByteBuffer in, final StringLookup strings) {
+        final RestEndpoint endpoint = new RestEndpoint();
+        endpoint.uri = readString(in, strings);
+        endpoint.method = METHODS[in.get()];
+        endpoint.javaClass = readString(in, strings);
+        endpoint.javaMethodName = readString(in, strings);
+        endpoint.pathParameters = readParameters(in, strings);
+        endpoint.queryParameters = readParameters(in, strings);
+        endpoint.payloadParameters = readParameters(in, strings);
+        endpoint.javaMethodReturnType = readString(in, strings);
+        endpoint.description = readString(in, strings);
+        endpoint.tags = readStrings(in, strings);
+        endpoint.notes = readString(in, strings);
+        endpoint.consumes = readStrings(in, strings);
+        endpoint.produces = readStrings(in, strings);
+        endpoint.successResponseTypes = readStrings(in, strings);
+        endpoint.failureResponseTypes = readStrings(in, strings);
+        endpoint.responses = readResponses(in, strings);
+        endpoint.annotations = readStrings(in, strings);
+        endpoint.requestHeaders = readStrings(in, strings);
+        endpoint.responseHeaders = readStrings(in, strings);
+        endpoint.payloadValidations = readStrings(in, strings);
+        return endpoint;
+    }
+
+    private static void writeParameters(final DataOutput out, final List<EndpointParameter> parameters,
+            final StringTable strings) throws IOException {
+        writeVarInt(out, parameters.size());
+        for (final EndpointParameter parameter : parameters) {
+            out.writeByte(parameter.parameterType.ordinal());
+            writeString(out, parameter.javaType, strings);
+            writeString(out, parameter.defaultValue, strings);
+            writeString(out, parameter.name, strings);
+            writeString(out, parameter.pattern, strings);
+            writeString(out, parameter.genericType, strings);
+        }
+    }
+
+    private static List<EndpointParameter> readParameters(final ByteBuffer in, final StringLookup strings) {
+        final int count = readVarInt(in);
+        final List<EndpointParameter> parameters = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final EndpointParameter parameter = new EndpointParameter();
+            parameter.parameterType = PARAMETER_TYPES[in.get()];
+            parameter.javaType = readString(in, strings);
+            parameter.defaultValue = readString(in, strings);
+            parameter.name = readString(in, strings);
+            parameter.pattern = readString(in, strings);
+            parameter.genericType = readString(in, strings);
+            parameters.add(parameter);
+        }
+        return parameters;
+    }
+
+    private static void writeResponses(final DataOutput out, final List<EndpointResponse> responses,
+            final StringTable strings) throws IOException {
+        writeVarInt(out, responses.size());
+        for (final EndpointResponse response : responses) {
+            writeVarInt(out, response.code);
+            writeString(out, response.message, strings);
+            writeString(out, response.javaType, strings);
+        }
+    }
+
+    private static List<EndpointResponse> readResponses(final ByteBuffer in, final StringLookup strings) {
+        final int count = readVarInt(in);
+        final List<EndpointResponse> responses = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            responses.add(new EndpointResponse(readVarInt(in), readString(in, strings), readString(in, strings)));
+        }
+        return responses;
+    }
+
+    // lists are written as size + 1, so that 0 can stand for null
+    private static void writeStrings(final DataOutput out, final List<String> values, final StringTable strings)
+            throws IOException {
+        if (values == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        writeVarInt(out, values.size() + 1);
+        for (final String value : values) {
+            writeString(out, value, strings);
+        }
+    }
+
+    private static List<String> readStrings(final ByteBuffer in, final StringLookup strings) {
+        final int count = readVarInt(in) - 1;
+        if (count < 0) {
+            return null;
+        }
+        final List<String> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(readString(in, strings));
+        }
+        return values;
+    }
+
+    static void writeString(final DataOutput out, final String value, final StringTable strings)
+            throws IOException {
+        writeVarInt(out, strings.reference(value));
+    }
+
+    static String readString(final ByteBuffer in, final StringLookup strings) {
+        final int reference = readVarInt(in);
+        return reference == 0 ? null : strings.get(reference - 1);
+    }
+
+    static void writeVarInt(final DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    static int readVarInt(final ByteBuffer in) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    static void writeVarLong(final DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarLong(final ByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    /**
+     * Resolves string references while decoding.
+     */
+    interface StringLookup {
+        String get(int index);
+    }
+
+    /**
+     * Assigns each distinct string an index while encoding. Reference 0 is
+     * null; any other reference is the index plus one.
+     */
+    static final class StringTable {
+        private final Map<String, Integer> indexes = new HashMap<>();
+
+        private final List<String> strings = new ArrayList<>();
+
+        // where strings go as they are added instead of to the list, or null
+        private final DataOutput spill;
+
+        private final int maxIndexed;
+
+        private int size;
+
+        StringTable() {
+            this(null, Integer.MAX_VALUE);
+        }
+
+        /**
+         * Creates a table writing each string to the given output as it is
+         * added, as {@link #writeTo(DataOutput)} does after the count, and
+         * remembering at most {@code maxIndexed} of them: once full it starts
+         * over, so a string may be added again, and references stay valid.
+         */
+        StringTable(final DataOutput spill, final int maxIndexed) {
+            this.spill = spill;
+            this.maxIndexed = maxIndexed;
+        }
+
+        int reference(final String value) throws IOException {
+            if (value == null) {
+                return 0;
+            }
+            Integer index = indexes.get(value);
+            if (index == null) {
+                if (indexes.size() == maxIndexed) {
+                    indexes.clear();
+                }
+                index = size++;
+                indexes.put(value, index);
+                if (spill != null) {
+                    writeUtf8(spill, value);
+                }
+                else {
+                    strings.add(value);
+                }
+            }
+            return index + 1;
+        }
+
+        int size() {
+            return size;
+        }
+
+        /**
+         * Writes the table as a count followed by length-prefixed UTF-8 strings.
+         */
+        void writeTo(final DataOutput out) throws IOException {
+            if (spill != null) {
+                throw new IllegalStateException("The strings were written as they were added");
+            }
+            writeVarInt(out, strings.size());
+            for (final String value : strings) {
+                writeUtf8(out, value);
+            }
+        }
+
+        private static void writeUtf8(final DataOutput out, final String value) throws IOException {
+            final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(out, bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * A string table written by {@link StringTable#writeTo(DataOutput)}, decoded
+     * lazily from its buffer as strings are referenced.
+     */
+    static final class BufferStringLookup implements StringLookup {
+        private final ByteBuffer buffer;
+
+        private final int[] offsets;
+
+        private final String[] strings;
+
+        /**
+         * Indexes the table at the buffer's position and leaves the position
+         * right after it.
+         */
+        BufferStringLookup(final ByteBuffer in) {
+            this.buffer = in.duplicate();
+            final int count = readVarInt(in);
+            offsets = new int[count];
+            strings = new String[count];
+            for (int i = 0; i < count; i++) {
+                offsets[i] = in.position();
+                final int length = readVarInt(in);
+                in.position(in.position() + length);
+            }
+        }
+
+        @Override
+        public String get(final int index) {
+            String value = strings[index];
+            if (value == null) {
+                final ByteBuffer in = buffer.duplicate();
+                in.position(offsets[index]);
+                final byte[] bytes = new byte[readVarInt(in)];
+                in.get(bytes);
+                value = new String(bytes, StandardCharsets.UTF_8);
+                strings[index] = value;
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package com.utility;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import com.utility.EndpointCodec.BufferStringLookup;
+import com.utility.EndpointCodec.StringTable;
+import com.utility.RESTEndpointsDocumenter.RestEndpoint;
+
+/**
+ * On-disk cache of the endpoints extracted from each class file, so that a
+ * rerun only analyzes the class files that changed.
+ * <p>
+ * Entries are keyed by class file location and validated by size and
+ * modification time, falling back to a content hash when only the timestamp
+ * moved (e.g. a rebuilt jar). An entry also records the content hash of every
+ * supertype it was derived from, so editing a base resource class invalidates
+ * its subclasses. Entries not looked up during a run are pruned on
+ * {@link #save()}.
+ * <p>
+ * The file is a string table followed by one record per class file; the cache
+ * is memory-mapped on {@link #open(Path, String)} and endpoints are only
+ * decoded for the class files that are actually reused. A cache written for a
+ * different format version or context (such as another base URI) is ignored.
+ */
+public class EndpointIndexCache {
+
+    private static final Logger LOG = Logger.getLogger(EndpointIndexCache.class.getName());
+
+    private static final int MAGIC = 0x41504958; // "APIX"
+
+    private static final int VERSION = 3;
+
+    private final Path file;
+
+    private final String context;
+
+    // entries read from disk; never modified after open
+    private final Map<String, Entry> previous;
+
+    // entries confirmed or re-analyzed during this run; the next file's content
+    private final Map<String, Entry> current = new ConcurrentHashMap<>();
+
+    private final AtomicInteger reused = new AtomicInteger();
+
+    private final AtomicInteger analyzed = new AtomicInteger();
+
+    private EndpointIndexCache(final Path file, final String context, final Map<String, Entry> previous) {
+        this.file = file;
+        this.context = context;
+        this.previous = previous;
+    }
+
+    /**
+     * Opens the cache stored in the given file. A missing, unreadable or
+     * incompatible file yields an empty cache that will replace it on save.
+     *
+     * @param context anything that changes the extracted endpoints without
+     *            changing the class files, such as the base URI
+     */
+    public static EndpointIndexCache open(final Path file, final String context) throws IOException {
+        if (Files.isRegularFile(file) == false) {
+            return new EndpointIndexCache(file, context, Collections.emptyMap());
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new EndpointIndexCache(file, context, read(buffer, context));
+        }
+        catch (final RuntimeException e) {
+            // e.g. buffer underflows and negative lengths
+            LOG.warning("Ignoring corrupt endpoint index cache " + file + ": " + e);
+            return new EndpointIndexCache(file, context, Collections.emptyMap());
+        }
+    }
+
+    private static Map<String, Entry> read(final ByteBuffer in, final String context) {
+        if (in.getInt() != MAGIC || in.getInt() != VERSION) {
+            return Collections.emptyMap();
+        }
+        final byte[] contextBytes = new byte[EndpointCodec.readVarInt(in)];
+        in.get(contextBytes);
+        if (context.equals(new String(contextBytes, StandardCharsets.UTF_8)) == false) {
+            return Collections.emptyMap();
+        }
+
+        final BufferStringLookup strings = new BufferStringLookup(in);
+        final int count = EndpointCodec.readVarInt(in);
+        final Map<String, Entry> entries = new HashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            final String location = EndpointCodec.readString(in, strings);
+            final long size = EndpointCodec.readVarLong(in);
+            final long lastModified = in.getLong();
+            final long contentHash = in.getLong();
+            final int dependencyCount = EndpointCodec.readVarInt(in);
+            final List<Dependency> dependencies = new ArrayList<>(dependencyCount);
+            for (int d = 0; d < dependencyCount; d++) {
+                dependencies.add(new Dependency(EndpointCodec.readString(in, strings), in.getLong()));
+            }
+            final int bodyLength = EndpointCodec.readVarInt(in);
+            final ByteBuffer body = in.duplicate();
+            body.limit(in.position() + bodyLength);
+            in.position(in.position() + bodyLength);
+            entries.put(location, new Entry(location, size, lastModified, contentHash, dependencies, body, strings,
+                    null));
+        }
+        return entries;
+    }
+
+    /**
+     * Returns the entry stored for a class file location, or null.
+     */
+    Entry lookup(final String location) {
+        return previous.get(location);
+    }
+
+    /**
+     * Keeps a cached entry, refreshing its stamp, after the caller validated it.
+     */
+    void retain(final Entry entry, final long size, final long lastModified) {
+        current.put(entry.location, new Entry(entry.location, size, lastModified, entry.contentHash,
+                entry.dependencies, entry.body, entry.strings, entry.endpoints));
+        reused.incrementAndGet();
+    }
+
+    /**
+     * Stores the endpoints of a class file that was analyzed in this run.
+     */
+    void put(final String location, final long size, final long lastModified, final long contentHash,
+            final List<Dependency> dependencies, final List<RestEndpoint> endpoints) {
+        current.put(location, new Entry(location, size, lastModified, contentHash, dependencies, null, null,
+                endpoints));
+        analyzed.incrementAndGet();
+    }
+
+    public int getReusedCount() {
+        return reused.get();
+    }
+
+    public int getAnalyzedCount() {
+        return analyzed.get();
+    }
+
+    /**
+     * Returns the number of cached class files that were not seen in this run
+     * and will be dropped on save.
+     */
+    public int getPrunedCount() {
+        int pruned = 0;
+        for (final String location : previous.keySet()) {
+            if (current.containsKey(location) == false) {
+                pruned++;
+            }
+        }
+        return pruned;
+    }
+
+    /**
+     * Writes the entries seen in this run to a temporary file and moves it over
+     * the cache file.
+     */
+    public void save() throws IOException {
+        final StringTable strings = new StringTable();
+        final ByteArrayOutputStream records = new ByteArrayOutputStream();
+        final DataOutputStream recordsOut = new DataOutputStream(records);
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        final DataOutputStream bodyOut = new DataOutputStream(body);
+
+        // sorted so that an unchanged build writes an identical file
+        final Map<String, Entry> entries = new TreeMap<>(current);
+        EndpointCodec.writeVarInt(recordsOut, entries.size());
+        for (final Entry entry : entries.values()) {
+            EndpointCodec.writeString(recordsOut, entry.location, strings);
+            EndpointCodec.writeVarLong(recordsOut, entry.size);
+            recordsOut.writeLong(entry.lastModified);
+            recordsOut.writeLong(entry.contentHash);
+            EndpointCodec.writeVarInt(recordsOut, entry.dependencies.size());
+            for (final Dependency dependency : entry.dependencies) {
+                EndpointCodec.writeString(recordsOut, dependency.className, strings);
+                recordsOut.writeLong(dependency.contentHash);
+            }
+
+            body.reset();
+            final List<RestEndpoint> endpoints = entry.endpoints();
+            EndpointCodec.writeVarInt(bodyOut, endpoints.size());
+            for (final RestEndpoint endpoint : endpoints) {
+                EndpointCodec.writeEndpoint(bodyOut, endpoint, strings);
+            }
+            EndpointCodec.writeVarInt(recordsOut, body.size());
+            body.writeTo(recordsOut);
+        }
+
+        final Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        final Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream stream = Files.newOutputStream(temp);
+                    DataOutputStream out = new DataOutputStream(stream)) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                final byte[] contextBytes = context.getBytes(StandardCharsets.UTF_8);
+                EndpointCodec.writeVarInt(out, contextBytes.length);
+                out.write(contextBytes);
+                strings.writeTo(out);
+                records.writeTo(out);
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch (final AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "EndpointIndexCache {" + "file=" + file + ", reused=" + reused + ", analyzed=" + analyzed
+                + ", pruned=" + getPrunedCount() + '}';
+    }
+
+    /**
+     * The cached result of analyzing one class file.
+     */
+    static final class Entry {
+        final String location;
+
+        final long size;
+
+        final long lastModified;
+
+        final long contentHash;
+
+        final List<Dependency> dependencies;
+
+        // encoded endpoints of an entry read from disk
+        private final ByteBuffer body;
+
+        private final BufferStringLookup strings;
+
+        // endpoints of an entry analyzed in this run
+        private final List<RestEndpoint> endpoints;
+
+        private Entry(final String location, final long size, final long lastModified, final long contentHash,
+                final List<Dependency> dependencies, final ByteBuffer body, final BufferStringLookup strings,
+                final List<RestEndpoint> endpoints) {
+            this.location = location;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.contentHash = contentHash;
+            this.dependencies = dependencies;
+            this.body = body;
+            this.strings = strings;
+            this.endpoints = endpoints;
+        }
+
+        /**
+         * Returns the endpoints of the class file, or null when the entry
+         * read from disk cannot be decoded, in which case the class file must
+         * be analyzed again. Entries read from disk are decoded into new
+         * objects on every call.
+         */
+        List<RestEndpoint> endpoints() {
+            if (endpoints != null) {
+                return endpoints;
+            }
+            try {
+                final ByteBuffer in = body.duplicate();
+                final int count = EndpointCodec.readVarInt(in);
+                final List<RestEndpoint> decoded = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    decoded.add(EndpointCodec.readEndpoint(in, strings));
+                }
+                return decoded;
+            }
+            catch (final RuntimeException e) {
+                // e.g. buffer underflows and enum ordinals out of range
+                LOG.warning("Ignoring corrupt endpoint index cache entry " + location + ": " + e);
+                return null;
+            }
+        }
+    }
+
+    /**
+     * A supertype an entry was derived from, with the content hash it had.
+     */
+    static final class Dependency {
+        final String className;
+
+        final long contentHash;
+
+        Dependency(final String className, final long contentHash) {
+            this.className = className;
+            this.contentHash = contentHash;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.utility;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+import com.utility.RESTEndpointsDocumenter.RestEndpoint;
+
+/**
+ * Documents REST endpoints while they are compiled. For each class annotated
+ * with {@code @Path}, the endpoints {@link RESTEndpointsDocumenter} would find
+ * are worked out from the source model and written to an
+ * {@link EndpointManifest} in the class output, so documents can be written
+ * after the build without loading a class.
+ * <p>
+ * The elements are described as class files would describe them and handed
+ * to a {@link BytecodeEndpointScanner}, so the endpoints match those of a
+ * scan. Each manifest depends only on its resource class and the types that
+ * class reaches: supertypes, sub-resources, payload and annotation types.
+ * Incremental builds therefore reprocess only the resource classes that were
+ * recompiled, and the manifests of the others stay in the class output; in
+ * Gradle's terms the processor is isolating. The jar registers it for
+ * discovery in {@code META-INF/services/javax.annotation.processing.Processor}
+ * and as isolating in {@code META-INF/gradle/incremental.annotation.processors}.
+ * <p>
+ * Options: {@code -Aapiindex.baseUri=...} sets the URI the endpoint paths
+ * start with, {@link RESTEndpointsDocumenter#BASE_URI} by default, and
+ * {@code -Aapiindex.package=com.server.api} limits the classes documented to
+ * a package and its sub-packages.
+ */
+@SupportedAnnotationTypes(EndpointIndexProcessor.PATH)
+@SupportedOptions({ EndpointIndexProcessor.BASE_URI_OPTION, EndpointIndexProcessor.PACKAGE_OPTION })
+public class EndpointIndexProcessor extends AbstractProcessor {
+
+    static final String PATH = "javax.ws.rs.Path";
+
+    public static final String BASE_URI_OPTION = "apiindex.baseUri";
+
+    public static final String PACKAGE_OPTION = "apiindex.package";
+
+    private ElementClassFileReader reader;
+
+    private BytecodeEndpointScanner scanner;
+
+    private String packagePrefix;
+
+    @Override
+    public synchronized void init(final ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        reader = new ElementClassFileReader(processingEnv.getElementUtils(), processingEnv.getTypeUtils());
+        scanner = new BytecodeEndpointScanner(reader);
+        final String baseUri = processingEnv.getOptions().get(BASE_URI_OPTION);
+        if (baseUri != null) {
+            scanner.setBaseUri(baseUri);
+        }
+        final String basePackage = processingEnv.getOptions().get(PACKAGE_OPTION);
+        packagePrefix = basePackage != null ? basePackage + "." : null;
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv) {
+        for (final TypeElement annotation : annotations) {
+            for (final Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                // methods carry @Path as well, and are documented with their class
+                if (element.getKind().isClass() || element.getKind().isInterface()) {
+                    writeManifest((TypeElement) element);
+                }
+            }
+        }
+        // other processors may want @Path too
+        return false;
+    }
+
+    private void writeManifest(final TypeElement resourceClass) {
+        final String className = processingEnv.getElementUtils().getBinaryName(resourceClass).toString();
+        if (packagePrefix != null && className.startsWith(packagePrefix) == false) {
+            return;
+        }
+        final List<RestEndpoint> restEndpoints = scanner.analyze(reader.read(resourceClass)).endpoints;
+        try {
+            final FileObject manifest = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "",
+                    EndpointManifest.DIRECTORY + className + EndpointManifest.EXTENSION, resourceClass);
+            try (OutputStream out = manifest.openOutputStream()) {
+                EndpointManifest.write(out, restEndpoints);
+            }
+        }
+        catch (final IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Unable to write the endpoint manifest of " + className + ": " + e.getMessage(), resourceClass);
+        }
+    }
+}
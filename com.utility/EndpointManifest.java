@@ -0,0 +1,146 @@
+package com.utility;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.utility.EndpointCodec.BufferStringLookup;
+import com.utility.EndpointCodec.StringTable;
+import com.utility.RESTEndpointsDocumenter.RestEndpoint;
+
+/**
+ * The endpoints of the resource classes of a build, as
+ * {@link EndpointIndexProcessor} writes them into the class output during
+ * compilation: one file per resource class, named after it, in
+ * {@value #DIRECTORY}. Each file is a string table followed by the encoded
+ * endpoints of the class.
+ * <p>
+ * Documents are written from the manifests of class directories and jars
+ * without loading a class. Usage:
+ * {@code EndpointManifest <page> <classDirectoryOrJar>...}; the OpenAPI
+ * document, snapshot and metrics are written next to the page, as
+ * {@link RESTEndpointsDocumenter} writes them.
+ */
+public final class EndpointManifest {
+
+    /** Where the manifests are in the class output. */
+    static final String DIRECTORY = "META-INF/jersey-api-index/";
+
+    static final String EXTENSION = ".endpoints";
+
+    private static final int MAGIC = 0x4150494D; // "APIM"
+
+    private static final int VERSION = 1;
+
+    private EndpointManifest() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: EndpointManifest <page> <classDirectoryOrJar>...");
+            System.exit(2);
+        }
+        final List<Path> classpath = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            classpath.add(Paths.get(args[i]));
+        }
+        final List<RestEndpoint> restEndpoints = load(classpath);
+        new RESTEndpointsDocumenter().outputDocuments(restEndpoints, args[0]);
+    }
+
+    /**
+     * Returns the endpoints of the manifests in the given class directories
+     * and jars, sorted with {@link RESTEndpointsDocumenter#ENDPOINT_ORDER} and
+     * compacted by {@link EndpointSymbols}.
+     */
+    public static List<RestEndpoint> load(final List<Path> classpath) throws IOException {
+        final List<RestEndpoint> restEndpoints = new ArrayList<>();
+        for (final Path classpathEntry : classpath) {
+            if (Files.isDirectory(classpathEntry)) {
+                final Path directory = classpathEntry.resolve(DIRECTORY);
+                if (Files.isDirectory(directory) == false) {
+                    continue;
+                }
+                final List<Path> files;
+                try (Stream<Path> listed = Files.list(directory)) {
+                    files = listed.filter(file -> file.getFileName().toString().endsWith(EXTENSION)).sorted()
+                            .collect(Collectors.toList());
+                }
+                for (final Path file : files) {
+                    restEndpoints.addAll(read(ByteBuffer.wrap(Files.readAllBytes(file)), file.toString()));
+                }
+            }
+            else {
+                final ZipCentralDirectory archive = ZipCentralDirectory.open(classpathEntry);
+                for (final ZipCentralDirectory.Entry entry : archive.entries(DIRECTORY)) {
+                    if (entry.name.endsWith(EXTENSION)) {
+                        restEndpoints.addAll(read(archive.read(entry), archive.getName() + "!/" + entry.name));
+                    }
+                }
+            }
+        }
+        restEndpoints.sort(RESTEndpointsDocumenter.ENDPOINT_ORDER);
+        return new EndpointSymbols().compact(restEndpoints);
+    }
+
+    /**
+     * Writes the manifest of the endpoints of one class.
+     */
+    static void write(final OutputStream stream, final List<RestEndpoint> restEndpoints) throws IOException {
+        final StringTable strings = new StringTable();
+        final ByteArrayOutputStream records = new ByteArrayOutputStream();
+        final DataOutputStream recordsOut = new DataOutputStream(records);
+        EndpointCodec.writeVarInt(recordsOut, restEndpoints.size());
+        for (final RestEndpoint restEndpoint : restEndpoints) {
+            EndpointCodec.writeEndpoint(recordsOut, restEndpoint, strings);
+        }
+
+        final DataOutputStream out = new DataOutputStream(stream);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        strings.writeTo(out);
+        records.writeTo(out);
+        out.flush();
+    }
+
+    /**
+     * Reads the manifest of the endpoints of one class.
+     *
+     * @throws IOException if the manifest is corrupt or of another version
+     */
+    static List<RestEndpoint> read(final ByteBuffer in, final String source) throws IOException {
+        try {
+            if (in.getInt() != MAGIC) {
+                throw new IOException("Not an endpoint manifest: " + source);
+            }
+            final int version = in.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported endpoint manifest version " + version + ": " + source);
+            }
+            final BufferStringLookup strings = new BufferStringLookup(in);
+            final int count = EndpointCodec.readVarInt(in);
+            if (count == 0) {
+                return Collections.emptyList();
+            }
+            final List<RestEndpoint> restEndpoints = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                restEndpoints.add(EndpointCodec.readEndpoint(in, strings));
+            }
+            return restEndpoints;
+        }
+        catch (final BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Corrupt endpoint manifest: " + source, e);
+        }
+    }
+}
@@ -0,0 +1,508 @@
+package com.utility;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+import com.utility.RESTEndpointsDocumenter.EndpointParameter;
+import com.utility.RESTEndpointsDocumenter.MethodEnum;
+import com.utility.RESTEndpointsDocumenter.RestEndpoint;
+
+/**
+ * Measures the latency of documented endpoints on a running server, for the
+ * index to show next to them, e.g.
+ * {@code -Dapiindex.probe=http://localhost:8080/}.
+ * <p>
+ * Only safe {@code GET} endpoints are called unless other methods are
+ * {@link #setMethods(Set) allowed}, and never endpoints with a payload. Path
+ * and query parameters take their {@link #setSamples(Map) sample value} by
+ * name, or else their {@code @DefaultValue}; an endpoint with a path parameter
+ * left without a value is not probed, a query parameter without one is left
+ * out. The endpoint URIs, base URI included, are resolved against the target
+ * URL.
+ * <p>
+ * Requests are spread over the endpoints in turn and sent by
+ * {@link #setConcurrency(int) concurrency} workers, on virtual threads where
+ * the JDK has them. At a {@link #setRate(double) rate}, each request is due at
+ * a fixed time and its latency is measured from then, not from when a worker
+ * got to send it, so a server that stalls the workers shows in the
+ * percentiles instead of slowing the probe down. Latencies are recorded in a
+ * {@link LatencyHistogram} per endpoint, in microseconds; responses with a
+ * status of 400 and above and failed requests count as errors.
+ */
+public class EndpointProbe {
+
+    /**
+     * System property with the URL to probe, e.g.
+     * {@code -Dapiindex.probe=http://localhost:8080/}.
+     */
+    public static final String TARGET_PROPERTY = "apiindex.probe";
+
+    /**
+     * System property with the number of requests in flight at once, 8 by
+     * default.
+     */
+    public static final String CONCURRENCY_PROPERTY = "apiindex.probe.concurrency";
+
+    /**
+     * System property with the requests sent per second over all endpoints, 0
+     * (as fast as the workers go) by default.
+     */
+    public static final String RATE_PROPERTY = "apiindex.probe.rate";
+
+    /**
+     * System property with the requests sent to each endpoint, 100 by
+     * default.
+     */
+    public static final String REQUESTS_PROPERTY = "apiindex.probe.requests";
+
+    /**
+     * System property with a properties file of sample parameter values by
+     * parameter name, e.g. {@code id = 42}.
+     */
+    public static final String SAMPLES_PROPERTY = "apiindex.probe.samples";
+
+    private static final Logger LOG = Logger.getLogger(EndpointProbe.class.getName());
+
+    private final URI target;
+
+    private int concurrency = 8;
+
+    private double rate;
+
+    private int requestsPerEndpoint = 100;
+
+    private Duration timeout = Duration.ofSeconds(10);
+
+    private Set<MethodEnum> methods = EnumSet.of(MethodEnum.GET);
+
+    private Map<String, String> samples = Collections.emptyMap();
+
+    public EndpointProbe(final URI target) {
+        this.target = target;
+    }
+
+    /**
+     * Returns a probe configured by the {@code apiindex.probe} system
+     * properties, or null if {@link #TARGET_PROPERTY} is not set.
+     */
+    public static EndpointProbe fromSystemProperties() throws IOException {
+        final String target = System.getProperty(TARGET_PROPERTY);
+        if (target == null) {
+            return null;
+        }
+        final EndpointProbe probe = new EndpointProbe(URI.create(target));
+        probe.setConcurrency(Integer.getInteger(CONCURRENCY_PROPERTY, probe.concurrency));
+        probe.setRate(Double.parseDouble(System.getProperty(RATE_PROPERTY, String.valueOf(probe.rate))));
+        probe.setRequestsPerEndpoint(Integer.getInteger(REQUESTS_PROPERTY, probe.requestsPerEndpoint));
+        final String samplesFile = System.getProperty(SAMPLES_PROPERTY);
+        if (samplesFile != null) {
+            final Properties properties = new Properties();
+            try (InputStream in = Files.newInputStream(Paths.get(samplesFile))) {
+                properties.load(in);
+            }
+            final Map<String, String> values = new HashMap<>();
+            for (final String name : properties.stringPropertyNames()) {
+                values.put(name, properties.getProperty(name).trim());
+            }
+            probe.setSamples(values);
+        }
+        return probe;
+    }
+
+    public URI getTarget() {
+        return target;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * Sets the number of requests in flight at once.
+     */
+    public void setConcurrency(final int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Concurrency must be at least 1: " + concurrency);
+        }
+        this.concurrency = concurrency;
+    }
+
+    public double getRate() {
+        return rate;
+    }
+
+    /**
+     * Sets the requests sent per second over all endpoints, or 0 to send each
+     * request as soon as a worker is free.
+     */
+    public void setRate(final double rate) {
+        if (rate < 0) {
+            throw new IllegalArgumentException("Rate must not be negative: " + rate);
+        }
+        this.rate = rate;
+    }
+
+    public int getRequestsPerEndpoint() {
+        return requestsPerEndpoint;
+    }
+
+    public void setRequestsPerEndpoint(final int requestsPerEndpoint) {
+        if (requestsPerEndpoint < 1) {
+            throw new IllegalArgumentException("At least one request per endpoint is needed: "
+                    + requestsPerEndpoint);
+        }
+        this.requestsPerEndpoint = requestsPerEndpoint;
+    }
+
+    /**
+     * Sets how long a request may take before it fails, 10 seconds by default.
+     */
+    public void setTimeout(final Duration timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * Sets the HTTP methods whose endpoints are called, only {@code GET} by
+     * default. Requests are sent without a body whatever the method.
+     */
+    public void setMethods(final Set<MethodEnum> methods) {
+        this.methods = EnumSet.copyOf(methods);
+    }
+
+    /**
+     * Sets the values of path and query parameters by parameter name, which
+     * take precedence over their {@code @DefaultValue}.
+     */
+    public void setSamples(final Map<String, String> samples) {
+        this.samples = new HashMap<>(samples);
+    }
+
+    /**
+     * Probes the endpoints that can be called and returns their latencies.
+     */
+    public Results probe(final List<RestEndpoint> restEndpoints) throws IOException {
+        final Results results = new Results();
+        final List<Target> targets = new ArrayList<>();
+        for (final RestEndpoint restEndpoint : restEndpoints) {
+            final URI uri = toRequestUri(restEndpoint);
+            if (uri != null) {
+                final EndpointLatency latency = new EndpointLatency();
+                results.latencies.put(EndpointSnapshot.getIdentity(restEndpoint), latency);
+                final HttpRequest.Builder request = HttpRequest.newBuilder(uri).timeout(timeout)
+                        .method(restEndpoint.method.name(), HttpRequest.BodyPublishers.noBody());
+                // so that of the methods of a URI, the one producing these types answers
+                if (restEndpoint.produces.isEmpty() == false) {
+                    request.header("Accept", String.join(", ", restEndpoint.produces));
+                }
+                targets.add(new Target(request.build(), latency));
+            }
+        }
+        if (targets.isEmpty()) {
+            LOG.warning("No endpoint to probe at " + target);
+            return results;
+        }
+
+        final long total = (long) targets.size() * requestsPerEndpoint;
+        final long interval = rate > 0 ? (long) (1_000_000_000L / rate) : 0;
+        final ExecutorService executor = newExecutor(concurrency);
+        final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout).build();
+        final AtomicInteger next = new AtomicInteger();
+        final long start = System.nanoTime();
+        try {
+            final List<Future<?>> workers = new ArrayList<>(concurrency);
+            for (int i = 0; i < concurrency; i++) {
+                workers.add(executor.submit(() -> {
+                    for (long request = next.getAndIncrement(); request < total; request = next.getAndIncrement()) {
+                        send(client, targets.get((int) (request % targets.size())), interval > 0,
+                                start + request * interval);
+                    }
+                }));
+            }
+            for (final Future<?> worker : workers) {
+                worker.get();
+            }
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while probing " + target, e);
+        }
+        catch (final ExecutionException e) {
+            throw new IOException("Failed to probe " + target, e.getCause());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+        LOG.info(() -> "Probed " + targets.size() + " endpoints at " + target + " with " + total + " requests in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+        return results;
+    }
+
+    /**
+     * Sends a request, when it is due if paced, and records its latency.
+     */
+    private static void send(final HttpClient client, final Target target, final boolean paced, final long due) {
+        if (paced) {
+            for (long wait = due - System.nanoTime(); wait > 0; wait = due - System.nanoTime()) {
+                LockSupport.parkNanos(wait);
+            }
+        }
+        final long sent = paced ? due : System.nanoTime();
+        int status;
+        try {
+            status = client.send(target.request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        }
+        catch (final IOException e) {
+            LOG.fine(() -> target.request.uri() + " failed: " + e);
+            status = 0;
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        target.latency.record(status, (System.nanoTime() - sent) / 1_000);
+    }
+
+    /**
+     * Returns the URI to call an endpoint at, or null if it cannot be called.
+     */
+    private URI toRequestUri(final RestEndpoint restEndpoint) {
+        if (methods.contains(restEndpoint.method) == false) {
+            return null;
+        }
+        if (restEndpoint.payloadParameters.isEmpty() == false) {
+            LOG.fine(() -> "Not probing " + EndpointSnapshot.getKey(restEndpoint) + ", which takes a payload");
+            return null;
+        }
+
+        final StringBuilder uri = new StringBuilder(target.toString());
+        if (uri.length() > 0 && uri.charAt(uri.length() - 1) == '/') {
+            uri.setLength(uri.length() - 1);
+        }
+        if (restEndpoint.uri.startsWith("/") == false) {
+            uri.append('/');
+        }
+        final String template = restEndpoint.uri;
+        int from = 0;
+        for (int open = template.indexOf('{'); open >= 0; open = template.indexOf('{', from)) {
+            final int close = findClosingBrace(template, open);
+            if (close < 0) {
+                break;
+            }
+            String name = template.substring(open + 1, close);
+            final int colon = name.indexOf(':');
+            if (colon >= 0) {
+                name = name.substring(0, colon);
+            }
+            name = name.trim();
+            final String value = getValue(name, restEndpoint.pathParameters);
+            if (value == null) {
+                LOG.info("Not probing " + EndpointSnapshot.getKey(restEndpoint) + ", no sample value for {"
+                        + name + "}");
+                return null;
+            }
+            uri.append(template, from, open).append(encode(value).replace("+", "%20"));
+            from = close + 1;
+        }
+        uri.append(template, from, template.length());
+
+        char separator = '?';
+        for (final EndpointParameter parameter : restEndpoint.queryParameters) {
+            final String value = getValue(parameter.name, Collections.singletonList(parameter));
+            if (value != null) {
+                uri.append(separator).append(encode(parameter.name)).append('=').append(encode(value));
+                separator = '&';
+            }
+        }
+        return URI.create(uri.toString());
+    }
+
+    private String getValue(final String name, final List<EndpointParameter> parameters) {
+        final String sample = samples.get(name);
+        if (sample != null) {
+            return sample;
+        }
+        for (final EndpointParameter parameter : parameters) {
+            if (name.equals(parameter.name) && parameter.defaultValue != null) {
+                return parameter.defaultValue;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the index of the brace closing a template variable, whose
+     * regular expression may hold braces itself, or -1.
+     */
+    private static int findClosingBrace(final String template, final int open) {
+        int depth = 0;
+        for (int i = open; i < template.length(); i++) {
+            if (template.charAt(i) == '{') {
+                depth++;
+            }
+            else if (template.charAt(i) == '}' && --depth == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String encode(final String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8");
+        }
+        catch (final UnsupportedEncodingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns an executor running each worker on a virtual thread where the
+     * JDK has them (21 and later), or on a daemon platform thread of a pool of
+     * the given size.
+     */
+    private static ExecutorService newExecutor(final int concurrency) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch (final ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(concurrency, runnable -> {
+                final Thread thread = new Thread(runnable, "api-index-probe");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private static final class Target {
+        final HttpRequest request;
+
+        final EndpointLatency latency;
+
+        Target(final HttpRequest request, final EndpointLatency latency) {
+            this.request = request;
+            this.latency = latency;
+        }
+    }
+
+    /**
+     * The latencies and errors of the requests to an endpoint. Instances are
+     * thread-safe.
+     */
+    public static final class EndpointLatency {
+        private final LatencyHistogram histogram = new LatencyHistogram();
+
+        private long requests;
+
+        private long errors;
+
+        synchronized void record(final int status, final long micros) {
+            requests++;
+            if (status == 0 || status >= 400) {
+                errors++;
+            }
+            // a request that got no response has no latency to speak of
+            if (status != 0) {
+                histogram.record(micros);
+            }
+        }
+
+        /**
+         * Returns a copy of the latencies of the responses, in microseconds.
+         */
+        public synchronized LatencyHistogram getHistogram() {
+            final LatencyHistogram copy = new LatencyHistogram();
+            copy.add(histogram);
+            return copy;
+        }
+
+        public synchronized long getRequests() {
+            return requests;
+        }
+
+        public synchronized long getErrors() {
+            return errors;
+        }
+
+        public synchronized double getErrorRate() {
+            return requests > 0 ? (double) errors / requests : 0;
+        }
+    }
+
+    /**
+     * The latencies of the probed endpoints, shown as p50, p99 and error rate
+     * columns. Endpoints sharing a URI and method, but not their media types
+     * or resource method, have latencies of their own.
+     */
+    public static final class Results implements EndpointStatistics {
+
+        private static final List<String> COLUMNS = Collections.unmodifiableList(Arrays.asList("p50 (ms)",
+                "p99 (ms)", "Errors"));
+
+        private static final List<String> NOT_PROBED = Collections.unmodifiableList(Arrays.asList("", "", ""));
+
+        private final Map<String, EndpointLatency> latencies = new LinkedHashMap<>();
+
+        /**
+         * Returns the latencies of an endpoint, or null if it was not probed.
+         */
+        public EndpointLatency get(final RestEndpoint restEndpoint) {
+            return latencies.get(EndpointSnapshot.getIdentity(restEndpoint));
+        }
+
+        /**
+         * Returns the number of endpoints probed.
+         */
+        public int size() {
+            return latencies.size();
+        }
+
+        @Override
+        public List<String> getColumns() {
+            return COLUMNS;
+        }
+
+        @Override
+        public List<String> getCells(final RestEndpoint restEndpoint) {
+            final EndpointLatency latency = get(restEndpoint);
+            if (latency == null) {
+                return NOT_PROBED;
+            }
+            final LatencyHistogram histogram = latency.getHistogram();
+            if (histogram.getCount() == 0) {
+                return Arrays.asList("", "", String.format(Locale.ROOT, "%.1f%%", 100 * latency.getErrorRate()));
+            }
+            return Arrays.asList(String.format(Locale.ROOT, "%.1f", histogram.getValueAtPercentile(50) / 1000.0),
+                    String.format(Locale.ROOT, "%.1f", histogram.getValueAtPercentile(99) / 1000.0),
+                    String.format(Locale.ROOT, "%.1f%%", 100 * latency.getErrorRate()));
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.utility;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import com.utility.RESTEndpointsDocumenter.RestEndpoint;
+
+/**
+ * A document written one endpoint at a time, e.g. the page of
+ * {@link HtmlEndpointRenderer#sink(java.nio.file.Path)}, the OpenAPI document
+ * of {@link OpenApiWriter#sink(java.nio.file.Path)} or the snapshot of
+ * {@link EndpointSnapshot#sink(java.nio.file.Path)}. A sink writes each
+ * endpoint as it is {@link #accept(RestEndpoint) accepted} and keeps no
+ * reference to it, so endpoints from a lazy scan, see
+ * {@link BytecodeEndpointScanner#streamRESTEndpoints(String)}, can be
+ * collected as soon as every sink has seen them.
+ * <p>
+ * Documents are written to a temporary file that {@link #finish()} moves over
+ * the target; closing an unfinished sink deletes it and leaves the target
+ * alone. Endpoints are written in the order they are accepted.
+ */
+public interface EndpointSink extends Closeable {
+
+    /**
+     * Writes an endpoint to the document.
+     */
+    void accept(RestEndpoint restEndpoint) throws IOException;
+
+    /**
+     * Completes the document and replaces the target with it. Returns the
+     * number of bytes written.
+     */
+    long finish() throws IOException;
+
+    /**
+     * Releases the temporary files of the sink, deleting an unfinished
+     * document.
+     */
+    @Override
+    void close() throws IOException;
+
+    /**
+     * Writes the endpoints to all sinks in a single pass over the stream,
+     * each endpoint to every sink before the next one is taken, finishes the
+     * sinks and closes them and the stream. A lazy stream is pulled only as
+     * fast as the sinks write, so its scan does not run ahead of them.
+     * Returns the number of endpoints written.
+     *
+     * @throws IOException if a sink fails, or the stream fails with an
+     *             {@link UncheckedIOException}; the sinks not finished by then
+     *             leave their targets alone
+     */
+    static long writeAll(final Stream<RestEndpoint> restEndpoints, final List<? extends EndpointSink> sinks)
+            throws IOException {
+        long count = 0;
+        try (Stream<RestEndpoint> stream = restEndpoints) {
+            final Iterator<RestEndpoint> iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                final RestEndpoint restEndpoint = iterator.next();
+                for (final EndpointSink sink : sinks) {
+                    sink.accept(restEndpoint);
+                }
+                count++;
+            }
+            for (final EndpointSink sink : sinks) {
+                sink.finish();
+            }
+        }
+        catch (final UncheckedIOException e) {
+            closeAll(sinks, e.getCause());
+            throw e.getCause();
+        }
+        catch (final IOException | RuntimeException | Error e) {
+            closeAll(sinks, e);
+            throw e;
+        }
+        for (final EndpointSink sink : sinks) {
+            sink.close();
+        }
+        return count;
+    }
+
+    private static void closeAll(final List<? extends EndpointSink> sinks, final Throwable failure) {
+        for (final EndpointSink sink : sinks) {
+            try {
+                sink.close();
+            }
+            catch (final IOException e) {
+                failure.addSuppressed(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,609 @@
+package com.utility;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.utility.EndpointCodec.BufferStringLookup;
+import com.utility.EndpointCodec.StringTable;
+import com.utility.RESTEndpointsDocumenter.EndpointParameter;
+import com.utility.RESTEndpointsDocumenter.EndpointResponse;
+import com.utility.RESTEndpointsDocumenter.MethodEnum;
+import com.utility.RESTEndpointsDocumenter.RestEndpoint;
+
+/**
+ * The endpoints of one build, each under a stable key with a hash of its
+ * signature, for {@link EndpointSnapshotDiff} to compare builds by.
+ * <p>
+ * The key is the HTTP method and the OpenAPI form of the URI template, e.g.
+ * {@code GET /Server/api/orders/{id}}; endpoints repeating a key are numbered
+ * in {@link RESTEndpointsDocumenter#ENDPOINT_ORDER}, whatever the order they
+ * are given in. The hash covers the {@link SignatureField}s, so a change to
+ * the documentation or to the Java method implementing an endpoint does not
+ * change it.
+ * <p>
+ * The file is a string table followed by one record per endpoint, holding its
+ * key, hash and encoded endpoint. It is memory-mapped by
+ * {@link #read(Path)}, and endpoints are only decoded when asked for.
+ */
+public final class EndpointSnapshot {
+
+    private static final int MAGIC = 0x41504953; // "APIS"
+
+    private static final int VERSION = 2;
+
+    // FNV-1a, 64 bit
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final List<Entry> entries;
+
+    private EndpointSnapshot(final List<Entry> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * Takes the snapshot of endpoints in {@link RESTEndpointsDocumenter#ENDPOINT_ORDER}.
+     */
+    public static EndpointSnapshot of(final List<RestEndpoint> restEndpoints) {
+        final List<String> keys = new ArrayList<>(restEndpoints.size());
+        final Map<String, List<Integer>> indexesByKey = new HashMap<>();
+        for (int i = 0; i < restEndpoints.size(); i++) {
+            final String key = getKey(restEndpoints.get(i));
+            keys.add(key);
+            indexesByKey.computeIfAbsent(key, k -> new ArrayList<>(1)).add(i);
+        }
+        for (final List<Integer> indexes : indexesByKey.values()) {
+            if (indexes.size() > 1) {
+                indexes.sort(Comparator.comparing(restEndpoints::get, RESTEndpointsDocumenter.ENDPOINT_ORDER));
+                for (int occurrence = 2; occurrence <= indexes.size(); occurrence++) {
+                    final int index = indexes.get(occurrence - 1);
+                    keys.set(index, getKey(keys.get(index), occurrence));
+                }
+            }
+        }
+
+        final List<Entry> entries = new ArrayList<>(restEndpoints.size());
+        final StringBuilder signature = new StringBuilder(256);
+        for (int i = 0; i < restEndpoints.size(); i++) {
+            final RestEndpoint restEndpoint = restEndpoints.get(i);
+            entries.add(new Entry(keys.get(i), hash(restEndpoint, signature), restEndpoint, null, null));
+        }
+        return new EndpointSnapshot(Collections.unmodifiableList(entries));
+    }
+
+    /**
+     * Reads a snapshot written by {@link #write(Path)}.
+     *
+     * @throws IOException if the file cannot be read or is no snapshot of
+     *             this version
+     */
+    public static EndpointSnapshot read(final Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final ByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (in.getInt() != MAGIC) {
+                throw new IOException("Not an endpoint snapshot: " + file);
+            }
+            final int version = in.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported endpoint snapshot version " + version + ": " + file);
+            }
+
+            final BufferStringLookup strings = new BufferStringLookup(in);
+            final int count = EndpointCodec.readVarInt(in);
+            final List<Entry> entries = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                final String key = EndpointCodec.readString(in, strings);
+                final long hash = in.getLong();
+                final int bodyLength = EndpointCodec.readVarInt(in);
+                final ByteBuffer body = in.duplicate();
+                body.limit(in.position() + bodyLength);
+                in.position(in.position() + bodyLength);
+                entries.add(new Entry(key, hash, null, body, strings));
+            }
+            return new EndpointSnapshot(Collections.unmodifiableList(entries));
+        }
+        catch (final BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Corrupt endpoint snapshot: " + file, e);
+        }
+    }
+
+    /**
+     * Writes the snapshot to a temporary file and moves it over the given one.
+     * The same endpoints always give the same file.
+     */
+    public void write(final Path file) throws IOException {
+        final StringTable strings = new StringTable();
+        final ByteArrayOutputStream records = new ByteArrayOutputStream();
+        final DataOutputStream recordsOut = new DataOutputStream(records);
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        final DataOutputStream bodyOut = new DataOutputStream(body);
+
+        EndpointCodec.writeVarInt(recordsOut, entries.size());
+        for (final Entry entry : entries) {
+            EndpointCodec.writeString(recordsOut, entry.key, strings);
+            recordsOut.writeLong(entry.hash);
+            body.reset();
+            EndpointCodec.writeEndpoint(bodyOut, entry.endpoint(), strings);
+            EndpointCodec.writeVarInt(recordsOut, body.size());
+            body.writeTo(recordsOut);
+        }
+
+        final Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        final Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream stream = Files.newOutputStream(temp);
+                    DataOutputStream out = new DataOutputStream(stream)) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                strings.writeTo(out);
+                records.writeTo(out);
+            }
+            HtmlEndpointRenderer.moveAtomically(temp, file);
+        }
+        finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Returns a sink writing the snapshot of the endpoints it is given to a
+     * file, as {@link #of(List)} and {@link #write(Path)} do, an endpoint at a
+     * time. Strings and records are written to temporary files as endpoints
+     * are accepted. Only the keys and up to 65536 strings are remembered, so
+     * the table of a large snapshot may hold a string more than once.
+     * Endpoints repeating a key are numbered as {@link #of(List)} numbers
+     * them, once all are accepted, so the snapshot does not depend on the
+     * order of the stream.
+     */
+    public static EndpointSink sink(final Path file) throws IOException {
+        return new SnapshotSink(file);
+    }
+
+    /**
+     * Returns the entries in the order the endpoints were given in.
+     */
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the key of an endpoint, its HTTP method and the OpenAPI form of
+     * its URI template.
+     */
+    static String getKey(final RestEndpoint restEndpoint) {
+        return restEndpoint.method + " " + OpenApiWriter.toOpenApiPath(restEndpoint.uri);
+    }
+
+    /**
+     * Returns what tells an endpoint from the others, where its key does not
+     * when templates differ only in their regular expressions: the key, media
+     * types and resource method.
+     */
+    static String getIdentity(final RestEndpoint restEndpoint) {
+        return getKey(restEndpoint) + " " + restEndpoint.consumes + " " + restEndpoint.produces + " "
+                + restEndpoint.javaClass + "." + restEndpoint.javaMethodName;
+    }
+
+    /**
+     * Returns the key of the given occurrence of an endpoint key, counting
+     * from 1.
+     */
+    private static String getKey(final String key, final int occurrence) {
+        return occurrence == 1 ? key : key + " #" + occurrence;
+    }
+
+    /**
+     * Returns the hash of the signature of an endpoint, over the
+     * {@link SignatureField}s in their order, using the given builder.
+     */
+    static long hash(final RestEndpoint restEndpoint, final StringBuilder signature) {
+        long hash = FNV_OFFSET_BASIS;
+        for (final SignatureField field : SignatureField.values()) {
+            signature.setLength(0);
+            field.append(restEndpoint, signature);
+            // the length keeps the boundaries between the fields
+            final int length = signature.length();
+            for (int i = 0; i <= length; i++) {
+                final int c = i < length ? signature.charAt(i) : length;
+                hash = (hash ^ (c & 0xFF)) * FNV_PRIME;
+                hash = (hash ^ (c >>> 8 & 0xFF)) * FNV_PRIME;
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Writes the strings and the records of endpoints to temporary files as
+     * they are accepted, and the snapshot from them when finished. The
+     * records are written with their unnumbered keys and what orders the
+     * endpoints repeating a key, and numbered once all are known.
+     */
+    private static final class SnapshotSink extends FileEndpointSink {
+        // the strings remembered to be written once; a string forgotten is written again
+        private static final int INDEXED_STRINGS = 1 << 16;
+
+        private final Map<String, Integer> occurrences = new HashMap<>();
+
+        private final StringBuilder signature = new StringBuilder(256);
+
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        private final DataOutputStream bodyOut = new DataOutputStream(body);
+
+        // the encoded endpoint of the accepted record read last
+        private byte[] bytes = new byte[256];
+
+        private final Path strings;
+
+        private final DataOutputStream stringsOut;
+
+        private final StringTable stringTable;
+
+        // the records as accepted, with unnumbered keys
+        private final Path accepted;
+
+        private final DataOutputStream acceptedOut;
+
+        // the records as written, with numbered keys
+        private final Path records;
+
+        private int count;
+
+        SnapshotSink(final Path file) throws IOException {
+            super(file);
+            final Path directory = file.toAbsolutePath().getParent();
+            final String name = file.getFileName().toString();
+            final List<Path> created = new ArrayList<>(3);
+            try {
+                created.add(Files.createTempFile(directory, name, ".strings.tmp"));
+                created.add(Files.createTempFile(directory, name, ".accepted.tmp"));
+                created.add(Files.createTempFile(directory, name, ".records.tmp"));
+            }
+            catch (final IOException e) {
+                for (final Path path : created) {
+                    Files.deleteIfExists(path);
+                }
+                super.close();
+                throw e;
+            }
+            strings = created.get(0);
+            accepted = created.get(1);
+            records = created.get(2);
+            stringsOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(strings)));
+            stringTable = new StringTable(stringsOut, INDEXED_STRINGS);
+            acceptedOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(accepted)));
+        }
+
+        @Override
+        public void accept(final RestEndpoint restEndpoint) throws IOException {
+            final String key = getKey(restEndpoint);
+            occurrences.merge(key, 1, Integer::sum);
+            acceptedOut.writeUTF(key);
+            acceptedOut.writeUTF(restEndpoint.uri);
+            acceptedOut.writeByte(restEndpoint.method.ordinal());
+            acceptedOut.writeUTF(restEndpoint.javaClass);
+            acceptedOut.writeUTF(restEndpoint.javaMethodName);
+            acceptedOut.writeLong(hash(restEndpoint, signature));
+            body.reset();
+            EndpointCodec.writeEndpoint(bodyOut, restEndpoint, stringTable);
+            acceptedOut.writeInt(body.size());
+            body.writeTo(acceptedOut);
+            count++;
+        }
+
+        @Override
+        long complete() throws IOException {
+            acceptedOut.close();
+            writeRecords(getOccurrences());
+            stringsOut.close();
+            // not closed, which would close the channel
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    Channels.newOutputStream(channel)));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            EndpointCodec.writeVarInt(out, stringTable.size());
+            out.flush();
+            transfer(strings);
+            EndpointCodec.writeVarInt(out, count);
+            out.flush();
+            transfer(records);
+            return channel.position();
+        }
+
+        /**
+         * Returns the occurrence of each accepted record whose key is
+         * repeated, by record index, numbered in
+         * {@link RESTEndpointsDocumenter#ENDPOINT_ORDER}.
+         */
+        private Map<Integer, Integer> getOccurrences() throws IOException {
+            final Map<String, List<RestEndpoint>> repeated = new HashMap<>();
+            final Map<RestEndpoint, Integer> indexes = new IdentityHashMap<>();
+            if (occurrences.size() < count) {
+                try (DataInputStream in = open(accepted)) {
+                    for (int i = 0; i < count; i++) {
+                        final String key = in.readUTF();
+                        final RestEndpoint restEndpoint = new RestEndpoint();
+                        restEndpoint.uri = in.readUTF();
+                        restEndpoint.method = MethodEnum.values()[in.readByte()];
+                        restEndpoint.javaClass = in.readUTF();
+                        restEndpoint.javaMethodName = in.readUTF();
+                        in.readLong();
+                        readBody(in);
+                        if (occurrences.get(key) > 1) {
+                            repeated.computeIfAbsent(key, k -> new ArrayList<>()).add(restEndpoint);
+                            indexes.put(restEndpoint, i);
+                        }
+                    }
+                }
+            }
+            final Map<Integer, Integer> numbered = new HashMap<>();
+            for (final List<RestEndpoint> restEndpoints : repeated.values()) {
+                restEndpoints.sort(RESTEndpointsDocumenter.ENDPOINT_ORDER);
+                for (int occurrence = 1; occurrence <= restEndpoints.size(); occurrence++) {
+                    numbered.put(indexes.get(restEndpoints.get(occurrence - 1)), occurrence);
+                }
+            }
+            return numbered;
+        }
+
+        private void writeRecords(final Map<Integer, Integer> numbered) throws IOException {
+            try (DataInputStream in = open(accepted);
+                    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                            Files.newOutputStream(records)))) {
+                for (int i = 0; i < count; i++) {
+                    final String key = in.readUTF();
+                    in.readUTF();
+                    in.readByte();
+                    in.readUTF();
+                    in.readUTF();
+                    final long hash = in.readLong();
+                    final int length = readBody(in);
+                    EndpointCodec.writeString(out, getKey(key, numbered.getOrDefault(i, 1)), stringTable);
+                    out.writeLong(hash);
+                    EndpointCodec.writeVarInt(out, length);
+                    out.write(bytes, 0, length);
+                }
+            }
+        }
+
+        /**
+         * Reads the encoded endpoint of an accepted record into
+         * {@link #bytes}, returning its length.
+         */
+        private int readBody(final DataInputStream in) throws IOException {
+            final int length = in.readInt();
+            if (bytes.length < length) {
+                bytes = new byte[Math.max(length, bytes.length * 2)];
+            }
+            in.readFully(bytes, 0, length);
+            return length;
+        }
+
+        private static DataInputStream open(final Path file) throws IOException {
+            return new DataInputStream(new BufferedInputStream(Files.newInputStream(file)));
+        }
+
+        private void transfer(final Path file) throws IOException {
+            try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+                final long size = in.size();
+                for (long position = 0; position < size;) {
+                    position += in.transferTo(position, size - position, channel);
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                stringsOut.close();
+                acceptedOut.close();
+                super.close();
+            }
+            finally {
+                Files.deleteIfExists(strings);
+                Files.deleteIfExists(accepted);
+                Files.deleteIfExists(records);
+            }
+        }
+    }
+
+    /**
+     * One endpoint of a snapshot.
+     */
+    public static final class Entry {
+        private final String key;
+
+        private final long hash;
+
+        // the endpoint of a snapshot taken in this run
+        private final RestEndpoint endpoint;
+
+        // the encoded endpoint of a snapshot read from disk
+        private final ByteBuffer body;
+
+        private final BufferStringLookup strings;
+
+        private Entry(final String key, final long hash, final RestEndpoint endpoint, final ByteBuffer body,
+                final BufferStringLookup strings) {
+            this.key = key;
+            this.hash = hash;
+            this.endpoint = endpoint;
+            this.body = body;
+            this.strings = strings;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public long getHash() {
+            return hash;
+        }
+
+        /**
+         * Returns the endpoint. Entries read from disk are decoded into a new
+         * object on every call.
+         */
+        public RestEndpoint endpoint() {
+            if (endpoint != null) {
+                return endpoint;
+            }
+            return EndpointCodec.readEndpoint(body.duplicate(), strings);
+        }
+
+        @Override
+        public String toString() {
+            return key;
+        }
+    }
+
+    /**
+     * The parts of an endpoint that make up its signature, each with a text
+     * form that changes exactly when the part does.
+     */
+    public enum SignatureField {
+        URI_TEMPLATE {
+            @Override
+            void append(final RestEndpoint restEndpoint, final StringBuilder text) {
+                text.append(restEndpoint.uri);
+            }
+        },
+        PATH_PARAMETERS {
+            @Override
+            void append(final RestEndpoint restEndpoint, final StringBuilder text) {
+                appendParameters(restEndpoint.pathParameters, text);
+            }
+        },
+        QUERY_PARAMETERS {
+            @Override
+            void append(final RestEndpoint restEndpoint, final StringBuilder text) {
+                appendParameters(restEndpoint.queryParameters, text);
+            }
+        },
+        PAYLOAD_PARAMETERS {
+            @Override
+            void append(final RestEndpoint restEndpoint, final StringBuilder text) {
+                appendParameters(restEndpoint.payloadParameters, text);
+            }
+        },
+        RETURN_TYPE {
+            @Override
+            void append(final RestEndpoint restEndpoint, final StringBuilder text) {
+                text.append(restEndpoint.javaMethodReturnType);
+            }
+        },
+        CONSUMES {
+            @Override
+            void append(final RestEndpoint restEndpoint, final StringBuilder text) {
+                appendValues(restEndpoint.consumes, text);
+            }
+        },
+        PRODUCES {
+            @Override
+            void append(final RestEndpoint restEndpoint, final StringBuilder text) {
+                appendValues(restEndpoint.produces, text);
+            }
+        },
+        RESPONSES {
+            @Override
+            void append(final RestEndpoint restEndpoint, final StringBuilder text) {
+                for (final EndpointResponse response : restEndpoint.responses) {
+                    if (text.length() > 0) {
+                        text.append(", ");
+                    }
+                    text.append(response.code).append(' ').append(response.javaType);
+                }
+            }
+        },
+        ANNOTATIONS {
+            @Override
+            void append(final RestEndpoint restEndpoint, final StringBuilder text) {
+                appendValues(restEndpoint.annotations, text);
+            }
+        },
+        REQUEST_HEADERS {
+            @Override
+            void append(final RestEndpoint restEndpoint, final StringBuilder text) {
+                appendValues(restEndpoint.requestHeaders, text);
+            }
+        },
+        RESPONSE_HEADERS {
+            @Override
+            void append(final RestEndpoint restEndpoint, final StringBuilder text) {
+                appendValues(restEndpoint.responseHeaders, text);
+            }
+        },
+        PAYLOAD_VALIDATIONS {
+            @Override
+            void append(final RestEndpoint restEndpoint, final StringBuilder text) {
+                appendValues(restEndpoint.payloadValidations, text);
+            }
+        };
+
+        abstract void append(RestEndpoint restEndpoint, StringBuilder text);
+
+        /**
+         * Returns the text form of this part of an endpoint.
+         */
+        public String describe(final RestEndpoint restEndpoint) {
+            final StringBuilder text = new StringBuilder();
+            append(restEndpoint, text);
+            return text.toString();
+        }
+
+        private static void appendParameters(final List<EndpointParameter> parameters, final StringBuilder text) {
+            for (final EndpointParameter parameter : parameters) {
+                if (text.length() > 0) {
+                    text.append(", ");
+                }
+                text.append(parameter.genericType != null ? parameter.genericType : parameter.javaType);
+                if (parameter.name != null) {
+                    text.append(' ').append(parameter.name);
+                }
+                if (parameter.pattern != null) {
+                    text.append(" ~ ").append(parameter.pattern);
+                }
+                if (parameter.defaultValue != null) {
+                    text.append(" = ").append(parameter.defaultValue);
+                }
+            }
+        }
+
+        private static void appendValues(final List<String> values, final StringBuilder text) {
+            if (values == null) {
+                return;
+            }
+            for (final String value : values) {
+                if (text.length() > 0) {
+                    text.append(", ");
+                }
+                text.append(value);
+            }
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.utility;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.utility.EndpointSnapshot.Entry;
+import com.utility.EndpointSnapshot.SignatureField;
+import com.utility.RESTEndpointsDocumenter.RestEndpoint;
+
+/**
+ * The endpoints added, removed and changed between two
+ * {@link EndpointSnapshot}s. Endpoints are matched by key and compared by
+ * hash, so comparing takes time linear in the number of endpoints; only
+ * endpoints whose hashes differ are decoded, to tell which
+ * {@link SignatureField}s changed.
+ * <p>
+ * Usage: {@code EndpointSnapshotDiff <baseline> <current>}; the run fails
+ * with exit code 1 when an endpoint of the baseline was removed or changed,
+ * so a build can be gated on it. Added endpoints are reported only.
+ */
+public final class EndpointSnapshotDiff {
+
+    private final List<Entry> added;
+
+    private final List<Entry> removed;
+
+    private final List<Change> changed;
+
+    private EndpointSnapshotDiff(final List<Entry> added, final List<Entry> removed, final List<Change> changed) {
+        this.added = added;
+        this.removed = removed;
+        this.changed = changed;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: EndpointSnapshotDiff <baseline> <current>");
+            System.exit(2);
+        }
+        final EndpointSnapshotDiff diff = compare(EndpointSnapshot.read(Paths.get(args[0])),
+                EndpointSnapshot.read(Paths.get(args[1])));
+        diff.print(System.out);
+        if (diff.isCompatible() == false) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Compares the current snapshot with the baseline.
+     */
+    public static EndpointSnapshotDiff compare(final EndpointSnapshot baseline, final EndpointSnapshot current) {
+        final Map<String, Entry> unmatched = new HashMap<>(baseline.size() * 2);
+        for (final Entry entry : baseline.getEntries()) {
+            unmatched.put(entry.getKey(), entry);
+        }
+
+        final List<Entry> added = new ArrayList<>();
+        final List<Change> changed = new ArrayList<>();
+        for (final Entry entry : current.getEntries()) {
+            final Entry before = unmatched.remove(entry.getKey());
+            if (before == null) {
+                added.add(entry);
+            }
+            else if (before.getHash() != entry.getHash()) {
+                changed.add(new Change(entry.getKey(), before.endpoint(), entry.endpoint()));
+            }
+        }
+
+        // in the order of the baseline
+        final List<Entry> removed = new ArrayList<>(unmatched.size());
+        if (unmatched.isEmpty() == false) {
+            for (final Entry entry : baseline.getEntries()) {
+                if (unmatched.containsKey(entry.getKey())) {
+                    removed.add(entry);
+                }
+            }
+        }
+        return new EndpointSnapshotDiff(Collections.unmodifiableList(added), Collections.unmodifiableList(removed),
+                Collections.unmodifiableList(changed));
+    }
+
+    public List<Entry> getAdded() {
+        return added;
+    }
+
+    public List<Entry> getRemoved() {
+        return removed;
+    }
+
+    public List<Change> getChanged() {
+        return changed;
+    }
+
+    public boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+    }
+
+    /**
+     * Returns whether every endpoint of the baseline is still there
+     * unchanged, i.e. endpoints were at most added.
+     */
+    public boolean isCompatible() {
+        return removed.isEmpty() && changed.isEmpty();
+    }
+
+    /**
+     * Prints the differences, one endpoint per line followed by the fields
+     * that changed, and a summary.
+     */
+    public void print(final PrintStream out) {
+        for (final Entry entry : removed) {
+            out.println("- " + entry.getKey() + "  " + getJavaMethod(entry.endpoint()));
+        }
+        for (final Change change : changed) {
+            out.println("~ " + change.key + "  " + getJavaMethod(change.after));
+            for (final SignatureField field : change.fields) {
+                out.println("    " + field + ": " + field.describe(change.before) + " -> "
+                        + field.describe(change.after));
+            }
+        }
+        for (final Entry entry : added) {
+            out.println("+ " + entry.getKey() + "  " + getJavaMethod(entry.endpoint()));
+        }
+        out.println(added.size() + " added, " + removed.size() + " removed, " + changed.size() + " changed");
+    }
+
+    private static String getJavaMethod(final RestEndpoint restEndpoint) {
+        return restEndpoint.javaClass + "." + restEndpoint.javaMethodName;
+    }
+
+    /**
+     * An endpoint whose signature changed, with the fields that did.
+     */
+    public static final class Change {
+        private final String key;
+
+        private final RestEndpoint before;
+
+        private final RestEndpoint after;
+
+        private final List<SignatureField> fields;
+
+        Change(final String key, final RestEndpoint before, final RestEndpoint after) {
+            this.key = key;
+            this.before = before;
+            this.after = after;
+            final List<SignatureField> fields = new ArrayList<>();
+            for (final SignatureField field : SignatureField.values()) {
+                if (field.describe(before).equals(field.describe(after)) == false) {
+                    fields.add(field);
+                }
+            }
+            this.fields = Collections.unmodifiableList(fields);
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public RestEndpoint getBefore() {
+            return before;
+        }
+
+        public RestEndpoint getAfter() {
+            return after;
+        }
+
+        public List<SignatureField> getFields() {
+            return fields;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.utility;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.utility.RESTEndpointsDocumenter.RestEndpoint;
+
+/**
+ * Measurements of endpoints shown as extra columns of the endpoints table,
+ * after the documented ones, e.g. the latencies {@link EndpointProbe}
+ * measured. See {@link HtmlEndpointRenderer#setStatistics(EndpointStatistics)}.
+ */
+public interface EndpointStatistics {
+
+    /**
+     * Returns the headings of the columns.
+     */
+    List<String> getColumns();
+
+    /**
+     * Returns the text of the cells of an endpoint, one per column; empty
+     * strings for an endpoint that was not measured.
+     */
+    List<String> getCells(RestEndpoint restEndpoint);
+
+    /**
+     * Returns the columns of several statistics side by side, or null for
+     * none.
+     */
+    static EndpointStatistics concat(final List<EndpointStatistics> statistics) {
+        if (statistics.isEmpty()) {
+            return null;
+        }
+        if (statistics.size() == 1) {
+            return statistics.get(0);
+        }
+        return new EndpointStatistics() {
+            @Override
+            public List<String> getColumns() {
+                final List<String> columns = new ArrayList<>();
+                for (final EndpointStatistics each : statistics) {
+                    columns.addAll(each.getColumns());
+                }
+                return columns;
+            }
+
+            @Override
+            public List<String> getCells(final RestEndpoint restEndpoint) {
+                final List<String> cells = new ArrayList<>();
+                for (final EndpointStatistics each : statistics) {
+                    cells.addAll(each.getCells(restEndpoint));
+                }
+                return cells;
+            }
+        };
+    }
+}
@@ -0,0 +1,212 @@
+package com.utility;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.utility.RESTEndpointsDocumenter.EndpointParameter;
+import com.utility.RESTEndpointsDocumenter.EndpointResponse;
+import com.utility.RESTEndpointsDocumenter.RestEndpoint;
+
+/**
+ * A symbol table for the endpoints of an index. Endpoints are built with a
+ * growable list per attribute and full copies of the type names, media types,
+ * tags and annotation names they repeat; {@link #compact(RestEndpoint)}
+ * replaces them with the table's canonical instances:
+ * <ul>
+ * <li>each distinct string once,</li>
+ * <li>each distinct list once, immutable and exactly as long as its content,
+ * so that e.g. the media types or annotations of a resource class are held
+ * once for all of its endpoints, and empty lists not at all,</li>
+ * <li>each distinct parameter and {@code @ApiResponse} once.</li>
+ * </ul>
+ * A compacted endpoint reads as before, so renderers and callers are not
+ * affected; its lists cannot be modified, and its parameters and responses
+ * are shared with other endpoints. One table is meant to be shared by all the
+ * endpoints of an index, across roots; it is safe to use from several
+ * threads.
+ */
+final class EndpointSymbols {
+
+    private final ConcurrentMap<String, String> strings = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<SymbolList<?>, SymbolList<?>> lists = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<SymbolList<Object>, EndpointParameter> parameters = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<SymbolList<Object>, EndpointResponse> responses = new ConcurrentHashMap<>();
+
+    /**
+     * Compacts the given endpoints in place and returns them.
+     */
+    List<RestEndpoint> compact(final List<RestEndpoint> restEndpoints) {
+        for (final RestEndpoint restEndpoint : restEndpoints) {
+            compact(restEndpoint);
+        }
+        return restEndpoints;
+    }
+
+    /**
+     * Replaces the strings, lists, parameters and responses of an endpoint with
+     * canonical ones. Compacting an endpoint again changes nothing.
+     */
+    RestEndpoint compact(final RestEndpoint restEndpoint) {
+        restEndpoint.uri = symbol(restEndpoint.uri);
+        restEndpoint.javaClass = symbol(restEndpoint.javaClass);
+        restEndpoint.javaMethodName = symbol(restEndpoint.javaMethodName);
+        restEndpoint.pathParameters = parameters(restEndpoint.pathParameters);
+        restEndpoint.queryParameters = parameters(restEndpoint.queryParameters);
+        restEndpoint.payloadParameters = parameters(restEndpoint.payloadParameters);
+        restEndpoint.javaMethodReturnType = symbol(restEndpoint.javaMethodReturnType);
+        restEndpoint.description = symbol(restEndpoint.description);
+        restEndpoint.tags = symbols(restEndpoint.tags);
+        restEndpoint.notes = symbol(restEndpoint.notes);
+        restEndpoint.consumes = symbols(restEndpoint.consumes);
+        restEndpoint.produces = symbols(restEndpoint.produces);
+        restEndpoint.successResponseTypes = symbols(restEndpoint.successResponseTypes);
+        restEndpoint.failureResponseTypes = symbols(restEndpoint.failureResponseTypes);
+        restEndpoint.responses = responses(restEndpoint.responses);
+        restEndpoint.annotations = symbols(restEndpoint.annotations);
+        restEndpoint.requestHeaders = symbols(restEndpoint.requestHeaders);
+        restEndpoint.responseHeaders = symbols(restEndpoint.responseHeaders);
+        restEndpoint.payloadValidations = symbols(restEndpoint.payloadValidations);
+        return restEndpoint;
+    }
+
+    /**
+     * Returns the canonical instance of a string, or null for null.
+     */
+    String symbol(final String value) {
+        if (value == null) {
+            return null;
+        }
+        final String canonical = strings.putIfAbsent(value, value);
+        return canonical != null ? canonical : value;
+    }
+
+    /**
+     * Returns the number of distinct strings held.
+     */
+    int size() {
+        return strings.size();
+    }
+
+    /**
+     * Returns the canonical list of the given strings; null stays null, as it
+     * means something else than an empty list for some attributes.
+     */
+    List<String> symbols(final List<String> values) {
+        if (values == null) {
+            return null;
+        }
+        final Object[] elements = new Object[values.size()];
+        for (int i = 0; i < elements.length; i++) {
+            elements[i] = symbol(values.get(i));
+        }
+        return list(elements);
+    }
+
+    private List<EndpointParameter> parameters(final List<EndpointParameter> values) {
+        final Object[] elements = new Object[values.size()];
+        for (int i = 0; i < elements.length; i++) {
+            final EndpointParameter parameter = values.get(i);
+            final SymbolList<Object> key = new SymbolList<>(new Object[] {parameter.parameterType,
+                    symbol(parameter.javaType), symbol(parameter.defaultValue), symbol(parameter.name),
+                    symbol(parameter.pattern), symbol(parameter.genericType)});
+            EndpointParameter canonical = parameters.get(key);
+            if (canonical == null) {
+                canonical = new EndpointParameter();
+                canonical.parameterType = parameter.parameterType;
+                canonical.javaType = (String) key.get(1);
+                canonical.defaultValue = (String) key.get(2);
+                canonical.name = (String) key.get(3);
+                canonical.pattern = (String) key.get(4);
+                canonical.genericType = (String) key.get(5);
+                final EndpointParameter raced = parameters.putIfAbsent(key, canonical);
+                if (raced != null) {
+                    canonical = raced;
+                }
+            }
+            elements[i] = canonical;
+        }
+        return list(elements);
+    }
+
+    private List<EndpointResponse> responses(final List<EndpointResponse> values) {
+        final Object[] elements = new Object[values.size()];
+        for (int i = 0; i < elements.length; i++) {
+            final EndpointResponse response = values.get(i);
+            final SymbolList<Object> key = new SymbolList<>(new Object[] {response.code, symbol(response.message),
+                    symbol(response.javaType)});
+            EndpointResponse canonical = responses.get(key);
+            if (canonical == null) {
+                canonical = new EndpointResponse(response.code, (String) key.get(1), (String) key.get(2));
+                final EndpointResponse raced = responses.putIfAbsent(key, canonical);
+                if (raced != null) {
+                    canonical = raced;
+                }
+            }
+            elements[i] = canonical;
+        }
+        return list(elements);
+    }
+
+    /**
+     * Returns the canonical list of elements that are canonical themselves, so
+     * that lists are compared by the identity of their elements in effect.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> List<T> list(final Object[] elements) {
+        if (elements.length == 0) {
+            return Collections.emptyList();
+        }
+        final SymbolList<T> list = new SymbolList<>(elements);
+        final SymbolList<?> canonical = lists.putIfAbsent(list, list);
+        return canonical != null ? (List<T>) canonical : list;
+    }
+
+    /**
+     * An immutable list over an array of exactly its size, which caches its
+     * hash code as it is looked up by it.
+     */
+    private static final class SymbolList<E> extends AbstractList<E> implements RandomAccess {
+
+        private final Object[] elements;
+
+        private final int hash;
+
+        SymbolList(final Object[] elements) {
+            this.elements = elements;
+            this.hash = Arrays.hashCode(elements);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public E get(final int index) {
+            return (E) elements[index];
+        }
+
+        @Override
+        public int size() {
+            return elements.length;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            if (other instanceof SymbolList) {
+                final SymbolList<?> list = (SymbolList<?>) other;
+                return hash == list.hash && Arrays.equals(elements, list.elements);
+            }
+            return super.equals(other);
+        }
+    }
+}
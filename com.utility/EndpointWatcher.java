@@ -0,0 +1,469 @@
+package com.utility;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.utility.RESTEndpointsDocumenter.RestEndpoint;
+
+/**
+ * Keeps the endpoints page of class directories up to date while their
+ * classes are recompiled, e.g. during development.
+ * <p>
+ * The directories are watched with a {@link WatchService}. A compiler writes
+ * class files in bursts, so changes are collected until none arrived for the
+ * debounce period ({@code -Dapiindex.debounceMillis}, default 100) and then
+ * handled at once. Only the changed class files, and the resource classes
+ * inheriting from them or reaching them as sub-resources, are read again. The
+ * endpoints of all other classes stay in memory, and so do their rendered
+ * rows, so the page is written again without rendering them.
+ * <p>
+ * Usage: {@code EndpointWatcher <page> <basePackage> <classDirectory>...}
+ */
+public final class EndpointWatcher implements Closeable, Runnable {
+
+    private static final Logger LOG = Logger.getLogger(EndpointWatcher.class.getName());
+
+    /**
+     * System property setting how long changes are collected before they are
+     * handled, e.g. {@code -Dapiindex.debounceMillis=250}.
+     */
+    public static final String DEBOUNCE_PROPERTY = "apiindex.debounceMillis";
+
+    private static final long DEFAULT_DEBOUNCE_MILLIS = 100;
+
+    private static final String CLASS_SUFFIX = ".class";
+
+    private final List<Path> classDirectories;
+
+    // the directories of the base package within the class directories
+    private final List<Path> packageDirectories;
+
+    private final Path page;
+
+    private final URLClassLoader classLoader;
+
+    private final BytecodeEndpointScanner scanner;
+
+    private final HtmlEndpointRenderer renderer = new HtmlEndpointRenderer();
+
+    private final WatchService watchService;
+
+    private final Map<WatchKey, Path> watchedDirectories = new HashMap<>();
+
+    // the endpoints of the class files below the base package
+    private final Map<Path, ClassEndpoints> classEndpoints = new HashMap<>();
+
+    private volatile List<RestEndpoint> restEndpoints = Collections.emptyList();
+
+    private long debounceMillis = Long.getLong(DEBOUNCE_PROPERTY, DEFAULT_DEBOUNCE_MILLIS);
+
+    /**
+     * @param classDirectories the directories the compiler writes class files
+     *            to; supertypes outside them are read through the context
+     *            class loader
+     * @param page the endpoints page to keep up to date, with the asset files
+     *            beside it
+     */
+    public EndpointWatcher(final List<Path> classDirectories, final String basePackage, final Path page)
+            throws IOException {
+        this.classDirectories = new ArrayList<>();
+        this.packageDirectories = new ArrayList<>();
+        final String packagePath = basePackage.replace('.', '/');
+        final URL[] urls = new URL[classDirectories.size()];
+        for (int i = 0; i < urls.length; i++) {
+            final Path classDirectory = classDirectories.get(i).toAbsolutePath().normalize();
+            this.classDirectories.add(classDirectory);
+            this.packageDirectories.add(classDirectory.resolve(packagePath));
+            urls[i] = classDirectory.toUri().toURL();
+        }
+        this.page = page.toAbsolutePath();
+        this.classLoader = new URLClassLoader(urls, Thread.currentThread().getContextClassLoader());
+        this.scanner = new BytecodeEndpointScanner(classLoader);
+        this.renderer.setRowCaching(true);
+        this.watchService = FileSystems.getDefault().newWatchService();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: EndpointWatcher <page> <basePackage> <classDirectory>...");
+            System.exit(2);
+        }
+        final List<Path> classDirectories = new ArrayList<>();
+        for (int i = 2; i < args.length; i++) {
+            classDirectories.add(Paths.get(args[i]));
+        }
+        try (EndpointWatcher watcher = new EndpointWatcher(classDirectories, args[1], Paths.get(args[0]))) {
+            watcher.start();
+            System.out.println("Watching " + classDirectories + " for changes to " + watcher.page);
+            watcher.run();
+        }
+    }
+
+    public long getDebounceMillis() {
+        return debounceMillis;
+    }
+
+    public void setDebounceMillis(final long debounceMillis) {
+        this.debounceMillis = debounceMillis;
+    }
+
+    /**
+     * Sets the URI the endpoint paths start with; see
+     * {@link BytecodeEndpointScanner#setBaseUri(String)}. Set it before
+     * {@link #start()}.
+     */
+    public void setBaseUri(final String baseUri) {
+        scanner.setBaseUri(baseUri);
+    }
+
+    /**
+     * Returns the endpoints as of the last change handled, sorted with
+     * {@link RESTEndpointsDocumenter#ENDPOINT_ORDER}.
+     */
+    public List<RestEndpoint> getEndpoints() {
+        return restEndpoints;
+    }
+
+    /**
+     * Starts watching the class directories, then scans them and writes the
+     * page.
+     */
+    public void start() throws IOException {
+        // watching first, so that nothing compiled during the scan is missed
+        for (final Path classDirectory : classDirectories) {
+            register(classDirectory);
+        }
+        reindex();
+    }
+
+    /**
+     * Handles changes until the thread is interrupted or the watcher is
+     * closed. A change that cannot be handled, such as a class file still
+     * being written, is logged and handled with the next change of the file.
+     */
+    @Override
+    public void run() {
+        try {
+            while (Thread.currentThread().isInterrupted() == false) {
+                final Set<Path> changedFiles = new LinkedHashSet<>();
+                boolean overflow = collect(watchService.take(), changedFiles);
+                // a compile writes many class files; wait until it is over
+                WatchKey key;
+                while ((key = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS)) != null) {
+                    overflow |= collect(key, changedFiles);
+                }
+                try {
+                    if (overflow) {
+                        LOG.info("Too many changes to follow, scanning the class directories again");
+                        reindex();
+                    }
+                    else {
+                        update(changedFiles);
+                    }
+                }
+                catch (final IOException | UncheckedIOException e) {
+                    LOG.warning("Unable to update " + page + ": " + e.getMessage());
+                }
+            }
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        catch (final ClosedWatchServiceException e) {
+            LOG.fine("Watcher closed");
+        }
+    }
+
+    /**
+     * Reads the given class files, which changed, were added or were deleted,
+     * again together with the classes derived from them, and writes the page
+     * again.
+     */
+    public void update(final Collection<Path> changedFiles) throws IOException {
+        final long start = System.nanoTime();
+        final Set<String> classNames = new HashSet<>();
+        final Set<Path> affected = new LinkedHashSet<>();
+        for (final Path changedFile : changedFiles) {
+            final Path file = changedFile.toAbsolutePath().normalize();
+            final String className = getClassName(file);
+            if (className != null) {
+                classNames.add(className);
+                if (isIndexed(file)) {
+                    affected.add(file);
+                }
+            }
+        }
+        if (classNames.isEmpty()) {
+            return;
+        }
+        scanner.invalidate(classNames);
+        for (final Map.Entry<Path, ClassEndpoints> entry : classEndpoints.entrySet()) {
+            if (entry.getValue().dependsOn(classNames)) {
+                affected.add(entry.getKey());
+            }
+        }
+
+        final Set<RestEndpoint> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+        final List<RestEndpoint> added = new ArrayList<>();
+        for (final Path file : affected) {
+            final ClassEndpoints previous = classEndpoints.remove(file);
+            if (previous != null) {
+                removed.addAll(previous.endpoints);
+            }
+            if (Files.isRegularFile(file)) {
+                final ClassEndpoints scanned = scan(file);
+                classEndpoints.put(file, scanned);
+                added.addAll(scanned.endpoints);
+            }
+        }
+        restEndpoints = Collections.unmodifiableList(merge(restEndpoints, removed, added));
+        renderer.render(restEndpoints, page);
+        LOG.info(() -> "Updated " + page.getFileName() + " in " + (System.nanoTime() - start) / 1_000_000
+                + " ms: " + affected.size() + " class files read, " + removed.size() + " endpoints replaced by "
+                + added.size() + ", " + restEndpoints.size() + " in total");
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            watchService.close();
+        }
+        finally {
+            classLoader.close();
+        }
+    }
+
+    /**
+     * Scans every class file below the base package and writes the page.
+     */
+    private void reindex() throws IOException {
+        final long start = System.nanoTime();
+        final Set<String> classNames = new HashSet<>();
+        final List<Path> files = new ArrayList<>();
+        for (final Path classDirectory : classDirectories) {
+            if (Files.isDirectory(classDirectory)) {
+                try (Stream<Path> walk = Files.walk(classDirectory)) {
+                    walk.filter(file -> file.toString().endsWith(CLASS_SUFFIX)).forEach(file -> {
+                        classNames.add(getClassName(file));
+                        if (isIndexed(file)) {
+                            files.add(file);
+                        }
+                    });
+                }
+            }
+        }
+
+        // supertypes outside the base package may have changed as well
+        scanner.invalidate(classNames);
+        final Map<Path, ClassEndpoints> scanned = scanInParallel(files);
+        classEndpoints.clear();
+        classEndpoints.putAll(scanned);
+        final List<RestEndpoint> all = new ArrayList<>();
+        for (final ClassEndpoints endpoints : scanned.values()) {
+            all.addAll(endpoints.endpoints);
+        }
+        all.sort(RESTEndpointsDocumenter.ENDPOINT_ORDER);
+        restEndpoints = Collections.unmodifiableList(all);
+
+        Files.createDirectories(page.getParent());
+        renderer.render(restEndpoints, page);
+        LOG.info(() -> "Wrote " + page + " in " + (System.nanoTime() - start) / 1_000_000 + " ms: "
+                + files.size() + " class files read, " + restEndpoints.size() + " endpoints");
+    }
+
+    private Map<Path, ClassEndpoints> scanInParallel(final List<Path> files) throws IOException {
+        final ForkJoinPool pool = new ForkJoinPool(scanner.getParallelism());
+        try {
+            return pool.submit(() -> files.parallelStream()
+                    .collect(Collectors.toMap(file -> file, this::scanUnchecked))).get();
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while scanning " + classDirectories, e);
+        }
+        catch (final ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw new IOException("Failed to scan " + classDirectories, e.getCause());
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    private ClassEndpoints scanUnchecked(final Path file) {
+        try {
+            return scan(file);
+        }
+        catch (final IOException e) {
+            throw new UncheckedIOException("Unable to scan " + file, e);
+        }
+    }
+
+    private ClassEndpoints scan(final Path file) throws IOException {
+        final BytecodeEndpointScanner.ClassScan scan = scanner.analyze(Files.readAllBytes(file));
+        final Set<String> dependencies = new HashSet<>();
+        for (final EndpointIndexCache.Dependency dependency : scan.dependencies) {
+            dependencies.add(dependency.className);
+        }
+        return new ClassEndpoints(scan.endpoints, dependencies);
+    }
+
+    /**
+     * Merges the endpoints added into the sorted ones, leaving out those
+     * removed. Endpoints kept are the same objects, so their rows are not
+     * rendered again.
+     */
+    private static List<RestEndpoint> merge(final List<RestEndpoint> sorted, final Set<RestEndpoint> removed,
+            final List<RestEndpoint> added) {
+        added.sort(RESTEndpointsDocumenter.ENDPOINT_ORDER);
+        final List<RestEndpoint> merged = new ArrayList<>(sorted.size() - removed.size() + added.size());
+        int next = 0;
+        for (final RestEndpoint restEndpoint : sorted) {
+            if (removed.contains(restEndpoint)) {
+                continue;
+            }
+            while (next < added.size()
+                    && RESTEndpointsDocumenter.ENDPOINT_ORDER.compare(added.get(next), restEndpoint) < 0) {
+                merged.add(added.get(next++));
+            }
+            merged.add(restEndpoint);
+        }
+        merged.addAll(added.subList(next, added.size()));
+        return merged;
+    }
+
+    /**
+     * Watches a directory and the directories below it.
+     */
+    private void register(final Path directory) throws IOException {
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attributes)
+                    throws IOException {
+                final WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+                watchedDirectories.put(key, dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Adds the class files an event key reports and returns whether events
+     * were lost.
+     */
+    private boolean collect(final WatchKey key, final Set<Path> changedFiles) {
+        final Path directory = watchedDirectories.get(key);
+        boolean overflow = false;
+        for (final WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || directory == null) {
+                overflow = true;
+                continue;
+            }
+            final Path child = directory.resolve((Path) event.context());
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(child)) {
+                // a new package; its class files may have been written before it was watched
+                try {
+                    register(child);
+                    try (Stream<Path> walk = Files.walk(child)) {
+                        walk.filter(file -> file.toString().endsWith(CLASS_SUFFIX)).forEach(changedFiles::add);
+                    }
+                }
+                catch (final IOException e) {
+                    LOG.warning("Unable to watch " + child + ": " + e.getMessage());
+                    overflow = true;
+                }
+            }
+            else if (child.toString().endsWith(CLASS_SUFFIX)) {
+                changedFiles.add(child);
+            }
+        }
+        if (key.reset() == false) {
+            watchedDirectories.remove(key);
+        }
+        return overflow;
+    }
+
+    /**
+     * Returns the binary name of the class of a class file in one of the
+     * class directories, or null for any other file.
+     */
+    private String getClassName(final Path file) {
+        if (file.toString().endsWith(CLASS_SUFFIX) == false) {
+            return null;
+        }
+        for (final Path classDirectory : classDirectories) {
+            if (file.startsWith(classDirectory)) {
+                final String relative = classDirectory.relativize(file).toString();
+                return relative.substring(0, relative.length() - CLASS_SUFFIX.length())
+                        .replace(file.getFileSystem().getSeparator(), ".");
+            }
+        }
+        return null;
+    }
+
+    private boolean isIndexed(final Path file) {
+        for (final Path packageDirectory : packageDirectories) {
+            if (file.startsWith(packageDirectory)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The endpoints of a class file and the classes they were derived from.
+     */
+    private static final class ClassEndpoints {
+        final List<RestEndpoint> endpoints;
+
+        final Set<String> dependencies;
+
+        ClassEndpoints(final List<RestEndpoint> endpoints, final Set<String> dependencies) {
+            this.endpoints = endpoints;
+            this.dependencies = dependencies;
+        }
+
+        boolean dependsOn(final Set<String> classNames) {
+            for (final String dependency : dependencies) {
+                if (classNames.contains(dependency)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
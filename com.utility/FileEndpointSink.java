@@ -0,0 +1,64 @@
+package com.utility;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An {@link EndpointSink} writing its document to a temporary file beside the
+ * target, which {@link #finish()} moves over the target once
+ * {@link #complete()} has written the end of the document.
+ */
+abstract class FileEndpointSink implements EndpointSink {
+
+    final Path target;
+
+    // open until the sink finishes or is closed; readable, for a sink that
+    // moves part of what it wrote
+    final FileChannel channel;
+
+    private final Path temp;
+
+    private boolean finished;
+
+    FileEndpointSink(final Path target) throws IOException {
+        this.target = target;
+        final Path directory = target.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        this.temp = Files.createTempFile(directory, target.getFileName().toString(), ".tmp");
+        this.channel = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Writes the end of the document to the channel, and any file that must
+     * be replaced before the target. Returns the number of bytes written.
+     */
+    abstract long complete() throws IOException;
+
+    @Override
+    public long finish() throws IOException {
+        if (finished) {
+            throw new IllegalStateException("Already finished: " + target);
+        }
+        final long bytes = complete();
+        channel.close();
+        HtmlEndpointRenderer.moveAtomically(temp, target);
+        finished = true;
+        return bytes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            channel.close();
+        }
+        finally {
+            if (finished == false) {
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+}
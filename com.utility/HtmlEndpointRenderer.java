@@ -0,0 +1,888 @@
+package com.utility;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.utility.RESTEndpointsDocumenter.EndpointParameter;
+import com.utility.RESTEndpointsDocumenter.RestEndpoint;
+
+/**
+ * Writes the endpoints HTML table page. Markup and escaped endpoint text are
+ * encoded straight into a reusable {@link Utf8ChannelWriter}, so rendering does
+ * not build a string per cell. The page is written to a temporary file that
+ * replaces the target only once it is complete.
+ * <p>
+ * The rows are either part of the table markup or, for large indexes, a JSON
+ * array of cell HTML strings that the page hands to DataTables as
+ * {@code aaData}, so that only the rows being displayed become DOM nodes. See
+ * {@link RowData}.
+ * <p>
+ * A search index of the rows is written beside the page as well, see
+ * {@link SearchIndexWriter}.
+ * <p>
+ * With {@link #setRowCaching(boolean) row caching}, the rows and search tokens
+ * of the endpoints are kept between renders, and only endpoints that were not
+ * part of the previous render are rendered again.
+ * <p>
+ * With {@link #setStatistics(EndpointStatistics) statistics}, their columns
+ * follow the documented ones.
+ * <p>
+ * The page can also be written as endpoints arrive, e.g. from a lazy scan,
+ * through the {@link EndpointSink} of {@link #sink(Path)}.
+ * <p>
+ * A renderer keeps its buffer between calls and is not thread-safe.
+ */
+public class HtmlEndpointRenderer {
+
+    /**
+     * System property selecting the {@link RowData} of the default renderer,
+     * e.g. {@code -Dapiindex.rowData=embedded}.
+     */
+    public static final String ROW_DATA_PROPERTY = "apiindex.rowData";
+
+    /**
+     * Where the page takes its table rows from.
+     */
+    public enum RowData {
+        /** {@code <tr>} markup in the table body. */
+        MARKUP,
+        /** A JSON array in a script element of the page. */
+        EMBEDDED,
+        /**
+         * A JSON file beside the page, loaded with {@code sAjaxSource}. Browsers
+         * refuse to load it for pages opened from {@code file:} URLs, so the
+         * page must be served over HTTP.
+         */
+        BESIDE
+    }
+
+    private static final String NEWLINE = RESTEndpointsDocumenter.NEWLINE;
+
+    /**
+     * The page name assumed when rendering to a channel without one.
+     */
+    public static final String DEFAULT_PAGE_NAME = "jersey-api-index.html";
+
+    /**
+     * The scripts and style sheets the page loads, which must be beside it.
+     */
+    public static final List<String> ASSET_FILES = Collections.unmodifiableList(Arrays.asList(
+            "RowGroupingWithFixedColumn.js", "FixedColumns.js", "api_page.css", "api_table.css", "header.css",
+            "jquery.dataTables.js", "jquery.js"));
+
+    /**
+     * The scripts the page loads when they are beside it and works without:
+     * without {@code ApiSearchIndex.js}, the search box falls back to the
+     * DataTables search of every cell.
+     */
+    public static final List<String> OPTIONAL_ASSET_FILES = Collections.singletonList("ApiSearchIndex.js");
+
+    private static final String DATA_SUFFIX = ".json";
+
+    private static final String SEARCH_INDEX_SUFFIX = ".search.js";
+
+    private final Utf8ChannelWriter out;
+
+    private final SearchIndexWriter searchIndex;
+
+    private RowData rowData;
+
+    private EndpointStatistics statistics;
+
+    // whether cells are currently written as JSON strings rather than <td> elements
+    private boolean jsonCells;
+
+    private int cellCount;
+
+    // the rows of the previous render when caching them
+    private RowCache rowCache;
+
+    public HtmlEndpointRenderer() {
+        this(Utf8ChannelWriter.DEFAULT_CAPACITY,
+                RowData.valueOf(System.getProperty(ROW_DATA_PROPERTY, RowData.MARKUP.name()).toUpperCase()));
+    }
+
+    /**
+     * @param bufferSize the size in bytes of the reusable output buffer
+     */
+    public HtmlEndpointRenderer(final int bufferSize, final RowData rowData) {
+        this.out = new Utf8ChannelWriter(bufferSize);
+        this.searchIndex = new SearchIndexWriter(out);
+        this.rowData = rowData;
+    }
+
+    public RowData getRowData() {
+        return rowData;
+    }
+
+    public void setRowData(final RowData rowData) {
+        this.rowData = rowData;
+        if (rowCache != null) {
+            rowCache = new RowCache(rowData, statistics);
+        }
+    }
+
+    public EndpointStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Sets the statistics whose columns follow the documented ones, or null
+     * for none. Cached rows are dropped, as they hold the cells of the
+     * previous statistics.
+     */
+    public void setStatistics(final EndpointStatistics statistics) {
+        this.statistics = statistics;
+        if (rowCache != null) {
+            rowCache = new RowCache(rowData, statistics);
+        }
+    }
+
+    public boolean isRowCaching() {
+        return rowCache != null;
+    }
+
+    /**
+     * Sets whether the rendered rows and search tokens of the endpoints are
+     * kept until the next render, which renders only the endpoints it is not
+     * given the same objects for again. Endpoints must not be modified once
+     * rendered, as a modified endpoint keeps its old row.
+     */
+    public void setRowCaching(final boolean rowCaching) {
+        this.rowCache = rowCaching ? new RowCache(rowData, statistics) : null;
+    }
+
+    /**
+     * Returns the JSON file written beside the given page in
+     * {@link RowData#BESIDE} mode, e.g. {@code jersey-api-index.json}.
+     */
+    public static Path getDataFile(final Path page) {
+        return page.resolveSibling(getDataFileName(page.getFileName().toString()));
+    }
+
+    /**
+     * Returns the search index script written beside the given page, e.g.
+     * {@code jersey-api-index.search.js}.
+     */
+    public static Path getSearchIndexFile(final Path page) {
+        return page.resolveSibling(getSearchIndexFileName(page.getFileName().toString()));
+    }
+
+    static String getDataFileName(final String pageName) {
+        return getBaseName(pageName) + DATA_SUFFIX;
+    }
+
+    static String getSearchIndexFileName(final String pageName) {
+        return getBaseName(pageName) + SEARCH_INDEX_SUFFIX;
+    }
+
+    private static String getBaseName(final String pageName) {
+        final int dot = pageName.lastIndexOf('.');
+        return dot > 0 ? pageName.substring(0, dot) : pageName;
+    }
+
+    /**
+     * Renders the page to a temporary file beside the target and atomically
+     * moves it over the target. The files the page refers to, the search index
+     * and in {@link RowData#BESIDE} mode the data file, are replaced first, so
+     * the page never refers to missing rows. Returns the number of bytes
+     * written.
+     */
+    public long render(final List<RestEndpoint> restEndpoints, final Path target) throws IOException {
+        final RowCache rows = getRowCache(restEndpoints);
+        long bytes = 0;
+        if (rowData == RowData.BESIDE) {
+            bytes += writeAtomically(getDataFile(target), channel -> renderData(restEndpoints, channel, rows));
+        }
+        bytes += writeAtomically(getSearchIndexFile(target),
+                channel -> renderSearchIndex(restEndpoints, channel, rows));
+        final String pageName = target.getFileName().toString();
+        bytes += writeAtomically(target, channel -> render(restEndpoints, channel, pageName, rows));
+        return bytes;
+    }
+
+    /**
+     * Renders the page, named {@link #DEFAULT_PAGE_NAME}, to a channel.
+     * Returns the number of bytes written.
+     */
+    public long render(final List<RestEndpoint> restEndpoints, final WritableByteChannel channel)
+            throws IOException {
+        return render(restEndpoints, channel, DEFAULT_PAGE_NAME);
+    }
+
+    /**
+     * Renders the page to a channel. The page refers to its data file and
+     * search index by names derived from its own name. Returns the number of
+     * bytes written.
+     */
+    public long render(final List<RestEndpoint> restEndpoints, final WritableByteChannel channel,
+            final String pageName) throws IOException {
+        return render(restEndpoints, channel, pageName, getRowCache(restEndpoints));
+    }
+
+    private long render(final List<RestEndpoint> restEndpoints, final WritableByteChannel channel,
+            final String pageName, final RowCache rows) throws IOException {
+        out.open(channel);
+        writePageStart(pageName);
+        if (rowData == RowData.MARKUP) {
+            for (final RestEndpoint restEndpoint : restEndpoints) {
+                if (rows != null) {
+                    out.write(rows.getRow(restEndpoint));
+                }
+                else {
+                    writeRow(restEndpoint);
+                }
+            }
+        }
+        writeTableEnd();
+        if (rowData == RowData.EMBEDDED) {
+            out.write("<script type=\"text/javascript\">").write(NEWLINE);
+            out.write("var apiIndexData = ");
+            writeJsonRows(restEndpoints, rows);
+            out.write(";").write(NEWLINE);
+            out.write("</script>").write(NEWLINE);
+        }
+        out.write("</body></html>");
+        out.flush();
+        return out.getBytesWritten();
+    }
+
+    /**
+     * Renders the rows as a DataTables {@code sAjaxSource} document, i.e. an
+     * object whose {@code aaData} member holds one array of cell HTML strings
+     * per endpoint. Returns the number of bytes written.
+     */
+    public long renderData(final List<RestEndpoint> restEndpoints, final WritableByteChannel channel)
+            throws IOException {
+        return renderData(restEndpoints, channel, getRowCache(restEndpoints));
+    }
+
+    private long renderData(final List<RestEndpoint> restEndpoints, final WritableByteChannel channel,
+            final RowCache rows) throws IOException {
+        out.open(channel);
+        out.write("{\"aaData\":");
+        writeJsonRows(restEndpoints, rows);
+        out.write("}");
+        out.flush();
+        return out.getBytesWritten();
+    }
+
+    /**
+     * Renders the search index script of the rows. Returns the number of bytes
+     * written.
+     */
+    public long renderSearchIndex(final List<RestEndpoint> restEndpoints, final WritableByteChannel channel)
+            throws IOException {
+        return renderSearchIndex(restEndpoints, channel, getRowCache(restEndpoints));
+    }
+
+    private long renderSearchIndex(final List<RestEndpoint> restEndpoints, final WritableByteChannel channel,
+            final RowCache rows) throws IOException {
+        out.open(channel);
+        if (rows != null) {
+            searchIndex.write(restEndpoints, rows);
+        }
+        else {
+            searchIndex.write(restEndpoints);
+        }
+        out.flush();
+        return out.getBytesWritten();
+    }
+
+    /**
+     * Returns a sink writing the page of the endpoints it is given, with its
+     * search index and in {@link RowData#BESIDE} mode its data file, as
+     * {@link #render(List, Path)} does, but a row at a time: each endpoint is
+     * rendered as it is accepted, in that order, and only the search tokens
+     * of the rows are kept until the index is written. The start of the page
+     * is written at once. The renderer must not be used for anything else
+     * until the sink is closed, and rows are not cached.
+     */
+    public EndpointSink sink(final Path target) throws IOException {
+        return new RowSink(rowData == RowData.BESIDE ? getDataFile(target) : target, target);
+    }
+
+    /**
+     * Returns a sink writing the DataTables document of the endpoints it is
+     * given, as {@link #renderData(List, WritableByteChannel)} does, a row at a
+     * time. The renderer must not be used for anything else until the sink is
+     * closed.
+     */
+    public EndpointSink dataSink(final Path target) throws IOException {
+        return new RowSink(target, null);
+    }
+
+    /**
+     * Renders a document to a temporary file beside the target and atomically
+     * moves it over the target. Returns the number of bytes written.
+     */
+    static long writeAtomically(final Path target, final ChannelRenderer renderer) throws IOException {
+        final Path directory = target.toAbsolutePath().getParent();
+        final Path temp = Files.createTempFile(directory, target.getFileName().toString(), ".tmp");
+        try {
+            final long bytes;
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                bytes = renderer.render(channel);
+            }
+            moveAtomically(temp, target);
+            return bytes;
+        }
+        finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private void writePageStart(final String pageName) throws IOException {
+        out.write("<!DOCTYPE HTML PUBLIC \"-//W3C//DTD HTML 4.01//EN\" \"http://www.w3.org/TR/html4/strict.dtd\">")
+                .write(NEWLINE);
+        out.write("<html>");
+        out.write("<head>");
+        out.write("<meta http-equiv=\"Content-Type\" content=\"text/html; charset=utf-8\">").write(NEWLINE);
+
+        out.write("<style type=\"text/css\">").write(NEWLINE);
+        out.write("@import \"api_page.css\";").write(NEWLINE);
+        out.write("@import \"header.css\";").write(NEWLINE);
+        out.write("@import \"api_table.css\";").write(NEWLINE);
+        out.write("</style>").write(NEWLINE);
+
+        out.write("<script type=\"text/javascript\" charset=\"utf-8\" src=\"jquery.js\"></script>").write(NEWLINE);
+        out.write("<script type=\"text/javascript\" charset=\"utf-8\" src=\"jquery.dataTables.js\"></script>")
+                .write(NEWLINE);
+        out.write("<script type=\"text/javascript\" charset=\"utf-8\" src=\"FixedColumns.js\"></script>")
+                .write(NEWLINE);
+        out.write("<script type=\"text/javascript\" charset=\"utf-8\" src=\"RowGroupingWithFixedColumn.js\"></script>")
+                .write(NEWLINE);
+        out.write("<script type=\"text/javascript\" charset=\"utf-8\" src=\"")
+                .writeEscaped(getSearchIndexFileName(pageName)).write("\"></script>").write(NEWLINE);
+        out.write("<script type=\"text/javascript\" charset=\"utf-8\" src=\"ApiSearchIndex.js\"></script>")
+                .write(NEWLINE);
+
+        out.write("</head>").write(NEWLINE);
+
+        out.write("<body id=\"dt_example\">").write(NEWLINE);
+        out.write("<table cellpadding=\"0\" cellspacing=\"0\" border=\"0\" class=\"display\" id=\"endpoints\"");
+        if (rowData == RowData.BESIDE) {
+            out.write(" data-source=\"").writeEscaped(getDataFileName(pageName)).write("\"");
+        }
+        out.write(">").write(NEWLINE);
+        out.write("<thead><tr>");
+        out.write("<th>REST URI</th>");
+        out.write("<th>Method</th>");
+        out.write("<th>Java REST Class</th>");
+        out.write("<th>Java Class Method</th>");
+        out.write("<th>API REST Parameters</th>");
+        out.write("<th>REST Data Format</th>");
+        out.write("<th>REST Responses</th>");
+        out.write("<th>API-Tags</th>");
+        out.write("<th>Annotations</th>");
+        out.write("<th>Descriptions</th>");
+        if (statistics != null) {
+            for (final String column : statistics.getColumns()) {
+                out.write("<th>").writeEscaped(column).write("</th>");
+            }
+        }
+        out.write("</tr>").write(NEWLINE);
+        out.write("</thead>").write(NEWLINE);
+        out.write("<tbody>").write(NEWLINE);
+    }
+
+    private void writeTableEnd() throws IOException {
+        out.write("</tbody>").write(NEWLINE);
+        out.write("</table>").write(NEWLINE);
+    }
+
+    /**
+     * Returns the row cache holding the rows of the given endpoints, or null
+     * when rows are not cached.
+     */
+    private RowCache getRowCache(final List<RestEndpoint> restEndpoints) throws IOException {
+        if (rowCache != null) {
+            rowCache.update(restEndpoints);
+        }
+        return rowCache;
+    }
+
+    /**
+     * Writes the rows as a JSON array with one line per row. The row class
+     * and the cell classes of the markup are applied by the page script.
+     */
+    private void writeJsonRows(final List<RestEndpoint> restEndpoints, final RowCache rows) throws IOException {
+        out.write('[');
+        for (int i = 0; i < restEndpoints.size(); i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            out.write(NEWLINE);
+            if (rows != null) {
+                out.write(rows.getRow(restEndpoints.get(i)));
+            }
+            else {
+                writeJsonRow(restEndpoints.get(i));
+            }
+        }
+        out.write(NEWLINE).write(']');
+    }
+
+    private void writeJsonRow(final RestEndpoint restEndpoint) throws IOException {
+        jsonCells = true;
+        try {
+            out.write('[');
+            cellCount = 0;
+            writeCells(restEndpoint);
+            out.write(']');
+        }
+        finally {
+            jsonCells = false;
+        }
+    }
+
+    /**
+     * Renders the row of a single endpoint as the page or data file holds it,
+     * without separators.
+     */
+    private byte[] renderRow(final RestEndpoint restEndpoint, final ByteArrayOutputStream bytes)
+            throws IOException {
+        bytes.reset();
+        out.open(Channels.newChannel(bytes));
+        if (rowData == RowData.MARKUP) {
+            writeRow(restEndpoint);
+        }
+        else {
+            writeJsonRow(restEndpoint);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private void writeRow(final RestEndpoint restEndpoint) throws IOException {
+        switch (restEndpoint.method) {
+            case GET:
+                out.write("<tr class='gradeA'>");
+                break;
+            case POST:
+                out.write("<tr class='gradeU'>");
+                break;
+            case PUT:
+                out.write("<tr class='gradeC'>");
+                break;
+            case DELETE:
+                out.write("<tr class='gradeX'>");
+                break;
+            default:
+                out.write("<tr>");
+        }
+        writeCells(restEndpoint);
+        out.write("</tr>").write(NEWLINE);
+    }
+
+    private void writeCells(final RestEndpoint restEndpoint) throws IOException {
+        startCell(false);
+        out.writeEscaped(restEndpoint.uri);
+        endCell();
+        startCell(false);
+        out.write(restEndpoint.method.name());
+        endCell();
+        startCell(false);
+        out.writeEscaped(restEndpoint.javaClass);
+        endCell();
+        startCell(false);
+        out.writeEscaped(restEndpoint.javaMethodName);
+        endCell();
+
+        // Parameters Column
+        startCell(true);
+        for (final EndpointParameter parameter : restEndpoint.pathParameters) {
+            out.write("Path: {").writeEscaped(parameter.name).write("} (").writeEscaped(parameter.javaType).write(")");
+            writeDefaultValue(parameter);
+            out.write("<br/>");
+        }
+        for (final EndpointParameter parameter : restEndpoint.queryParameters) {
+            out.write("Query: {").writeEscaped(parameter.name).write("} (").writeEscaped(parameter.javaType)
+                    .write(") ");
+            writeDefaultValue(parameter);
+            out.write("<br/>");
+        }
+        for (final EndpointParameter parameter : restEndpoint.payloadParameters) {
+            final String payloadType = parameter.genericType != null ? parameter.genericType : parameter.javaType;
+            if (isBlank(parameter.name) == false) {
+                out.write("Payload: {").writeEscaped(parameter.name).write("} (").writeEscaped(payloadType)
+                        .write(") ");
+            }
+            else {
+                out.write("Payload: ").writeEscaped(payloadType);
+            }
+            out.write("<br/>");
+        }
+        if (restEndpoint.payloadValidations != null) {
+            for (final String validation : restEndpoint.payloadValidations) {
+                out.write("Constraint: ").writeEscaped(validation).write("<br/>");
+            }
+        }
+        endCell();
+
+        // Data Format Column
+        startCell(false);
+        if (restEndpoint.consumes.size() > 0) {
+            out.write("Consumes: ");
+            writeList(restEndpoint.consumes);
+            out.write("<br/>");
+        }
+        if (restEndpoint.produces.size() > 0) {
+            out.write("Produces: ");
+            writeList(restEndpoint.produces);
+        }
+        endCell();
+
+        // Return Response Column
+        startCell(false);
+        out.writeEscaped(restEndpoint.javaMethodReturnType).write("<br/>");
+        if (restEndpoint.successResponseTypes.size() > 0) {
+            out.write("Success: ");
+            writeList(restEndpoint.successResponseTypes);
+            out.write("<br/>");
+        }
+        if (restEndpoint.failureResponseTypes.size() > 0) {
+            out.write("Failure: ");
+            writeList(restEndpoint.failureResponseTypes);
+        }
+        endCell();
+
+        // Tags Column
+        startCell(false);
+        for (final String tag : restEndpoint.tags) {
+            if (isBlank(tag) == false) {
+                out.write("@").writeEscaped(tag);
+            }
+            out.write("<br/>");
+        }
+        endCell();
+
+        // Annotations Column
+        startCell(true);
+        for (final String annotation : restEndpoint.annotations) {
+            out.writeEscaped(annotation).write("<br/>");
+        }
+        endCell();
+
+        // Description Column
+        startCell(false);
+        out.writeEscaped(restEndpoint.description);
+        if (isBlank(restEndpoint.notes) == false) {
+            out.write("<br/>");
+            out.write("Note:").writeEscaped(restEndpoint.notes);
+        }
+        endCell();
+
+        if (statistics != null) {
+            for (final String cell : statistics.getCells(restEndpoint)) {
+                startCell(false);
+                out.writeEscaped(cell);
+                endCell();
+            }
+        }
+    }
+
+    private void startCell(final boolean small) throws IOException {
+        if (jsonCells) {
+            if (cellCount++ > 0) {
+                out.write(',');
+            }
+            out.beginJsonString();
+        }
+        else {
+            out.write(small ? "<td class='column-content-small'>" : "<td>");
+        }
+    }
+
+    private void endCell() throws IOException {
+        if (jsonCells) {
+            out.endJsonString();
+        }
+        else {
+            out.write("</td>");
+        }
+    }
+
+    private void writeDefaultValue(final EndpointParameter parameter) throws IOException {
+        if (isBlank(parameter.defaultValue) == false) {
+            out.write(" Default = \"").writeEscaped(parameter.defaultValue).write("\"");
+        }
+    }
+
+    /**
+     * Writes the values separated by commas. Duplicates are written as often as
+     * they occur.
+     */
+    private void writeList(final List<String> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                out.write(", ");
+            }
+            out.writeEscaped(values.get(i));
+        }
+    }
+
+    private static boolean isBlank(final String value) {
+        return value == null || value.trim().length() == 0;
+    }
+
+    static void moveAtomically(final Path source, final Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (final AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * The rows and search tokens of the endpoints of the last render, by
+     * identity. Each update drops the endpoints that are no longer rendered.
+     */
+    static final class RowCache implements SearchIndexWriter.TokenSource {
+        // renders the missing rows while the page is written with the buffer of the outer renderer
+        private final HtmlEndpointRenderer rowRenderer;
+
+        private final ByteArrayOutputStream rowBytes = new ByteArrayOutputStream(1024);
+
+        private Map<RestEndpoint, CachedRow> rows = new IdentityHashMap<>();
+
+        // the tokens of all rows rendered so far, numbered in the order they were first seen
+        private final Map<String, Integer> tokenIds = new HashMap<>();
+
+        private final List<String> tokens = new ArrayList<>();
+
+        private int[] sortedTokenIds = new int[0];
+
+        private int rendered;
+
+        RowCache(final RowData rowData, final EndpointStatistics statistics) {
+            this.rowRenderer = new HtmlEndpointRenderer(1 << 16, rowData);
+            this.rowRenderer.statistics = statistics;
+        }
+
+        /**
+         * Renders the endpoints not seen before and forgets those not given.
+         */
+        void update(final List<RestEndpoint> restEndpoints) throws IOException {
+            final Map<RestEndpoint, CachedRow> updated = new IdentityHashMap<>(restEndpoints.size() * 2);
+            final List<String> endpointTokens = new ArrayList<>();
+            rendered = 0;
+            for (final RestEndpoint restEndpoint : restEndpoints) {
+                CachedRow row = rows.get(restEndpoint);
+                if (row == null) {
+                    row = updated.get(restEndpoint);
+                }
+                if (row == null) {
+                    endpointTokens.clear();
+                    SearchIndexWriter.tokenize(restEndpoint, endpointTokens);
+                    row = new CachedRow(rowRenderer.renderRow(restEndpoint, rowBytes), getTokenIds(endpointTokens));
+                    rendered++;
+                }
+                updated.put(restEndpoint, row);
+            }
+            rows = updated;
+            if (sortedTokenIds.length != tokens.size()) {
+                final Integer[] ids = new Integer[tokens.size()];
+                for (int i = 0; i < ids.length; i++) {
+                    ids[i] = i;
+                }
+                Arrays.sort(ids, (a, b) -> tokens.get(a).compareTo(tokens.get(b)));
+                sortedTokenIds = new int[ids.length];
+                for (int i = 0; i < ids.length; i++) {
+                    sortedTokenIds[i] = ids[i];
+                }
+            }
+        }
+
+        /**
+         * Returns the number of rows rendered by the last update.
+         */
+        int getRenderedCount() {
+            return rendered;
+        }
+
+        byte[] getRow(final RestEndpoint restEndpoint) {
+            return rows.get(restEndpoint).row;
+        }
+
+        @Override
+        public int[] getTokenIds(final RestEndpoint restEndpoint) {
+            return rows.get(restEndpoint).tokenIds;
+        }
+
+        @Override
+        public int getTokenCount() {
+            return tokens.size();
+        }
+
+        @Override
+        public String getToken(final int tokenId) {
+            return tokens.get(tokenId);
+        }
+
+        @Override
+        public int[] getSortedTokenIds() {
+            return sortedTokenIds;
+        }
+
+        private int[] getTokenIds(final List<String> endpointTokens) {
+            final int[] ids = new int[endpointTokens.size()];
+            int count = 0;
+            for (final String token : endpointTokens) {
+                Integer id = tokenIds.get(token);
+                if (id == null) {
+                    id = tokens.size();
+                    tokenIds.put(token, id);
+                    tokens.add(token);
+                }
+                ids[count++] = id;
+            }
+            // a token repeated in an endpoint is listed once
+            Arrays.sort(ids);
+            int distinct = 0;
+            for (int i = 0; i < count; i++) {
+                if (distinct == 0 || ids[distinct - 1] != ids[i]) {
+                    ids[distinct++] = ids[i];
+                }
+            }
+            return Arrays.copyOf(ids, distinct);
+        }
+    }
+
+    /**
+     * Writes the rows of a page, or of a data file, as endpoints are accepted.
+     */
+    private final class RowSink extends FileEndpointSink {
+        // the page whose rows are written, null when writing a data file only
+        private final Path page;
+
+        // whether the rows go to a data file rather than to the page
+        private final boolean dataFile;
+
+        private final Map<String, SearchIndexWriter.Postings> index = new HashMap<>();
+
+        private final List<String> tokens = new ArrayList<>();
+
+        private int rows;
+
+        RowSink(final Path target, final Path page) throws IOException {
+            super(target);
+            this.page = page;
+            this.dataFile = page == null || rowData == RowData.BESIDE;
+            out.open(channel);
+            if (dataFile) {
+                out.write("{\"aaData\":[");
+            }
+            else {
+                writePageStart(page.getFileName().toString());
+                if (rowData == RowData.EMBEDDED) {
+                    writeTableEnd();
+                    out.write("<script type=\"text/javascript\">").write(NEWLINE);
+                    out.write("var apiIndexData = [");
+                }
+            }
+            // the start of the document goes out before the first endpoint is found
+            out.flush();
+        }
+
+        @Override
+        public void accept(final RestEndpoint restEndpoint) throws IOException {
+            if (dataFile || rowData == RowData.EMBEDDED) {
+                if (rows > 0) {
+                    out.write(',');
+                }
+                out.write(NEWLINE);
+                writeJsonRow(restEndpoint);
+            }
+            else {
+                writeRow(restEndpoint);
+            }
+            if (page != null) {
+                SearchIndexWriter.add(index, rows, restEndpoint, tokens);
+            }
+            rows++;
+        }
+
+        @Override
+        long complete() throws IOException {
+            if (dataFile) {
+                out.write(NEWLINE).write(']');
+                out.write("}");
+            }
+            else if (rowData == RowData.EMBEDDED) {
+                out.write(NEWLINE).write(']');
+                out.write(";").write(NEWLINE);
+                out.write("</script>").write(NEWLINE);
+                out.write("</body></html>");
+            }
+            else {
+                writeTableEnd();
+                out.write("</body></html>");
+            }
+            out.flush();
+            long bytes = out.getBytesWritten();
+            if (dataFile == false) {
+                // the page replaced next refers to the new index
+                bytes += writeSearchIndex();
+            }
+            return bytes;
+        }
+
+        @Override
+        public long finish() throws IOException {
+            long bytes = super.finish();
+            if (page != null && dataFile) {
+                // the page holds no rows, and is replaced once the rows and index are
+                bytes += writeSearchIndex();
+                final String pageName = page.getFileName().toString();
+                bytes += writeAtomically(page, channel -> render(Collections.emptyList(), channel, pageName,
+                        null));
+            }
+            return bytes;
+        }
+
+        private long writeSearchIndex() throws IOException {
+            return writeAtomically(getSearchIndexFile(page), channel -> {
+                out.open(channel);
+                searchIndex.write(rows, index);
+                out.flush();
+                return out.getBytesWritten();
+            });
+        }
+    }
+
+    private static final class CachedRow {
+        final byte[] row;
+
+        final int[] tokenIds;
+
+        CachedRow(final byte[] row, final int[] tokenIds) {
+            this.row = row;
+            this.tokenIds = tokenIds;
+        }
+    }
+
+    /**
+     * Renders a document to a channel, returning the number of bytes written.
+     */
+    interface ChannelRenderer {
+        long render(WritableByteChannel channel) throws IOException;
+    }
+}
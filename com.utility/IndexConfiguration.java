@@ -0,0 +1,152 @@
+package com.utility;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * The roots of a combined index and where to write it, read from a
+ * properties file such as:
+ *
+ * <pre>
+ * output = docs/jersey-api-index.html
+ * parallelism = 8
+ * roots = orders, billing
+ *
+ * root.orders.classpath = orders/target/classes:orders/target/lib/*
+ * root.orders.package = com.server.orders
+ * root.orders.baseUri = Orders/api
+ * root.orders.cache = docs/.orders.cache
+ *
+ * root.billing.classpath = billing/target/classes:billing/target/lib/*
+ * root.billing.package = com.server.billing
+ * </pre>
+ *
+ * Classpath entries are separated by {@link File#pathSeparator}, and an entry
+ * ending in {@code *} stands for the jars of its directory. Relative paths are
+ * resolved against the directory of the file. The base URI defaults to
+ * {@link RESTEndpointsDocumenter#BASE_URI}, the parallelism to that of
+ * {@link BytecodeEndpointScanner#PARALLELISM_PROPERTY}, and a root without a
+ * cache is scanned in full every time.
+ */
+public final class IndexConfiguration {
+
+    private final List<IndexRoot> roots;
+
+    private final int parallelism;
+
+    private final Path output;
+
+    private IndexConfiguration(final List<IndexRoot> roots, final int parallelism, final Path output) {
+        this.roots = roots;
+        this.parallelism = parallelism;
+        this.output = output;
+    }
+
+    /**
+     * Reads a configuration.
+     *
+     * @throws IOException if the file cannot be read or a property is missing
+     *             or invalid
+     */
+    public static IndexConfiguration load(final Path file) throws IOException {
+        final Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file)) {
+            properties.load(reader);
+        }
+        final Path directory = file.toAbsolutePath().getParent();
+
+        final List<IndexRoot> roots = new ArrayList<>();
+        for (final String name : require(properties, "roots", file).split(",")) {
+            final String rootName = name.trim();
+            if (rootName.isEmpty()) {
+                continue;
+            }
+            final String prefix = "root." + rootName + ".";
+            final String cache = properties.getProperty(prefix + "cache");
+            roots.add(new IndexRoot(rootName,
+                    parseClasspath(require(properties, prefix + "classpath", file), directory),
+                    require(properties, prefix + "package", file),
+                    properties.getProperty(prefix + "baseUri", RESTEndpointsDocumenter.BASE_URI).trim(),
+                    cache != null ? directory.resolve(cache.trim()) : null));
+        }
+        if (roots.isEmpty()) {
+            throw new IOException("No roots listed in " + file);
+        }
+
+        final int parallelism;
+        try {
+            parallelism = Integer.parseInt(properties.getProperty("parallelism",
+                    String.valueOf(Integer.getInteger(BytecodeEndpointScanner.PARALLELISM_PROPERTY,
+                            Runtime.getRuntime().availableProcessors()))).trim());
+        }
+        catch (final NumberFormatException e) {
+            throw new IOException("Invalid parallelism in " + file, e);
+        }
+        if (parallelism < 1) {
+            throw new IOException("Parallelism must be at least 1 in " + file + ": " + parallelism);
+        }
+
+        final Path output = directory.resolve(properties.getProperty("output",
+                RESTEndpointsDocumenter.UserDirectory + "/docs/jersey-api-index.html").trim());
+        return new IndexConfiguration(Collections.unmodifiableList(roots), parallelism, output);
+    }
+
+    public List<IndexRoot> getRoots() {
+        return roots;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Returns the path of the endpoints page; the other documents are written
+     * beside it.
+     */
+    public Path getOutput() {
+        return output;
+    }
+
+    private static String require(final Properties properties, final String key, final Path file)
+            throws IOException {
+        final String value = properties.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            throw new IOException("Missing " + key + " in " + file);
+        }
+        return value.trim();
+    }
+
+    private static List<Path> parseClasspath(final String classpath, final Path directory) throws IOException {
+        final List<Path> entries = new ArrayList<>();
+        for (final String entry : classpath.split(File.pathSeparator)) {
+            final String trimmed = entry.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            if (trimmed.endsWith("*")) {
+                // the jars of the directory, in a stable order
+                final Path jarDirectory = directory.resolve(trimmed.substring(0, trimmed.length() - 1));
+                final List<Path> jars = new ArrayList<>();
+                try (DirectoryStream<Path> stream = Files.newDirectoryStream(jarDirectory, "*.{jar,JAR}")) {
+                    for (final Path jar : stream) {
+                        jars.add(jar);
+                    }
+                }
+                Collections.sort(jars);
+                entries.addAll(jars);
+            }
+            else {
+                entries.add(directory.resolve(trimmed));
+            }
+        }
+        return entries;
+    }
+}
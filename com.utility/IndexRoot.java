@@ -0,0 +1,73 @@
+package com.utility;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One part of a combined index: the classpath of a service, the package its
+ * resource classes are found below and the base URI its endpoints are
+ * mounted at. See {@link IndexConfiguration}.
+ */
+public final class IndexRoot {
+
+    private final String name;
+
+    private final List<Path> classpath;
+
+    private final String basePackage;
+
+    private final String baseUri;
+
+    private final Path cacheFile;
+
+    /**
+     * @param classpath the directories and jars of the service and its
+     *            libraries, JAX-RS and Swagger included
+     * @param cacheFile the {@link EndpointIndexCache} of the root, or null
+     */
+    public IndexRoot(final String name, final List<Path> classpath, final String basePackage, final String baseUri,
+            final Path cacheFile) {
+        this.name = name;
+        this.classpath = Collections.unmodifiableList(new ArrayList<>(classpath));
+        this.basePackage = basePackage;
+        this.baseUri = baseUri;
+        this.cacheFile = cacheFile;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<Path> getClasspath() {
+        return classpath;
+    }
+
+    public String getBasePackage() {
+        return basePackage;
+    }
+
+    public String getBaseUri() {
+        return baseUri;
+    }
+
+    public Path getCacheFile() {
+        return cacheFile;
+    }
+
+    URL[] getClassLoaderUrls() throws MalformedURLException {
+        final URL[] urls = new URL[classpath.size()];
+        for (int i = 0; i < urls.length; i++) {
+            urls[i] = classpath.get(i).toUri().toURL();
+        }
+        return urls;
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + basePackage + " at " + baseUri + ")";
+    }
+}
@@ -0,0 +1,142 @@
+package com.utility;
+
+import java.util.Arrays;
+
+/**
+ * A histogram of non-negative values, e.g. latencies in microseconds, with
+ * log-linear buckets in the manner of HdrHistogram: values below 128 are
+ * counted exactly, and each power of two above is split into 64 buckets, so a
+ * percentile is reported within 1/64 (1.6%) of the recorded value. The
+ * buckets are allocated up to the largest value recorded, about 10 KB for
+ * values up to ten seconds in microseconds.
+ * <p>
+ * Histograms {@link #add(LatencyHistogram) merge} exactly, so values can be
+ * recorded in a histogram per thread or per chunk of input and summed once.
+ * Instances are not thread-safe.
+ */
+public final class LatencyHistogram {
+
+    // values below 2^SUB_BUCKET_BITS get a bucket each
+    private static final int SUB_BUCKET_BITS = 7;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    // the buckets of each power of two above
+    private static final int HALF_SUB_BUCKETS = SUB_BUCKETS >> 1;
+
+    private long[] counts = new long[SUB_BUCKETS];
+
+    private long count;
+
+    private long sum;
+
+    private long min = Long.MAX_VALUE;
+
+    private long max;
+
+    public void record(final long value) {
+        record(value, 1);
+    }
+
+    /**
+     * Records a value a number of times.
+     */
+    public void record(final long value, final long times) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative value: " + value);
+        }
+        final int index = index(value);
+        if (index >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(index + 1, counts.length + HALF_SUB_BUCKETS));
+        }
+        counts[index] += times;
+        count += times;
+        sum += value * times;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Adds the values recorded in another histogram to this one.
+     */
+    public void add(final LatencyHistogram other) {
+        if (other.counts.length > counts.length) {
+            counts = Arrays.copyOf(counts, other.counts.length);
+        }
+        for (int i = 0; i < other.counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the smallest value recorded, or 0 if none was.
+     */
+    public long getMin() {
+        return count > 0 ? min : 0;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Returns the exact mean of the values recorded, or 0 if none was.
+     */
+    public double getMean() {
+        return count > 0 ? (double) sum / count : 0;
+    }
+
+    /**
+     * Returns the value at or below which the given percentage of the values
+     * recorded fall, as the highest value of its bucket but never more than
+     * the largest value recorded; 0 if no value was recorded.
+     *
+     * @param percentile between 0 and 100, e.g. 99.9
+     */
+    public long getValueAtPercentile(final double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile out of range: " + percentile);
+        }
+        if (count == 0) {
+            return 0;
+        }
+        final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(highestValue(i), max);
+            }
+        }
+        return max;
+    }
+
+    static int index(final long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        final int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        return SUB_BUCKETS + (shift - 1) * HALF_SUB_BUCKETS + (int) (value >>> shift) - HALF_SUB_BUCKETS;
+    }
+
+    /**
+     * Returns the highest value counted in a bucket; for the last bucket this
+     * overflows to {@code Long.MAX_VALUE}.
+     */
+    static long highestValue(final int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        final int shift = (index - SUB_BUCKETS) / HALF_SUB_BUCKETS + 1;
+        final long mantissa = (index - SUB_BUCKETS) % HALF_SUB_BUCKETS + HALF_SUB_BUCKETS;
+        return ((mantissa + 1) << shift) - 1;
+    }
+}
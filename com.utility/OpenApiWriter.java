@@ -0,0 +1,1292 @@
+package com.utility;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+import com.utility.RESTEndpointsDocumenter.EndpointParameter;
+import com.utility.RESTEndpointsDocumenter.EndpointResponse;
+import com.utility.RESTEndpointsDocumenter.MethodEnum;
+import com.utility.RESTEndpointsDocumenter.RestEndpoint;
+
+/**
+ * Writes endpoints as an OpenAPI 3 document in JSON or YAML. The document is
+ * generated straight into a {@link Utf8ChannelWriter} rather than built as a
+ * tree first, so only the order of the operations is held in memory.
+ * <p>
+ * Path and query parameters become operation parameters, with their
+ * {@code @Pattern} or template expression and default value; payload
+ * parameters become the request body, a form object for
+ * {@code @FormDataParam}s, in the consumed media types. The
+ * {@code @ApiResponses} are the responses, with their codes; without them
+ * the return type is a 200 response, or a 204 for {@code void}. Types that
+ * have no OpenAPI equivalent are objects naming the Java type in an
+ * {@code x-java-type} extension.
+ * <p>
+ * A path has one operation per HTTP method, so an endpoint repeating the path
+ * and method of an earlier one is left out. Endpoints arriving one at a time,
+ * e.g. from a lazy scan, are written through the {@link EndpointSink} of
+ * {@link #sink(Path)}. A writer is not thread-safe.
+ */
+public final class OpenApiWriter {
+
+    /**
+     * System property selecting the format the documenter writes, e.g.
+     * {@code -Dapiindex.openApiFormat=yaml}.
+     */
+    public static final String FORMAT_PROPERTY = "apiindex.openApiFormat";
+
+    /**
+     * System property making the documenter also write one document per tag,
+     * e.g. {@code -Dapiindex.openApiByTag=true}.
+     */
+    public static final String BY_TAG_PROPERTY = "apiindex.openApiByTag";
+
+    public static final String OPENAPI_VERSION = "3.0.3";
+
+    /** The name of the document of the endpoints without tags when split by tag. */
+    public static final String UNTAGGED = "untagged";
+
+    public enum Format {
+        JSON(".json", "application/json"),
+        YAML(".yaml", "application/yaml");
+
+        private final String extension;
+
+        private final String mediaType;
+
+        Format(final String extension, final String mediaType) {
+            this.extension = extension;
+            this.mediaType = mediaType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public String getMediaType() {
+            return mediaType;
+        }
+    }
+
+    private static final Logger LOG = Logger.getLogger(OpenApiWriter.class.getName());
+
+    private static final String DEPRECATED = "java.lang.Deprecated";
+
+    // return and response types that say nothing about the entity
+    private static final Set<String> NO_CONTENT_TYPES = new HashSet<>(Arrays.asList(
+            "void", "java.lang.Void", "javax.ws.rs.core.Response"));
+
+    private static final Comparator<Operation> OPERATION_ORDER = Comparator
+            .comparing((final Operation operation) -> operation.path)
+            .thenComparing(operation -> operation.endpoint.method);
+
+    private static final Pattern FILE_NAME_UNSAFE = Pattern.compile("[^A-Za-z0-9._-]+");
+
+    private final Format format;
+
+    private final Utf8ChannelWriter out;
+
+    private String title = "Jersey API index";
+
+    private String version = "1.0";
+
+    /**
+     * Creates a writer of the format given by {@link #FORMAT_PROPERTY}, JSON by
+     * default.
+     */
+    public OpenApiWriter() {
+        this(Format.valueOf(System.getProperty(FORMAT_PROPERTY, Format.JSON.name()).toUpperCase()));
+    }
+
+    public OpenApiWriter(final Format format) {
+        this.format = format;
+        this.out = new Utf8ChannelWriter();
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    /**
+     * Sets the title and version of the API written to the document info.
+     */
+    public void setInfo(final String title, final String version) {
+        this.title = title;
+        this.version = version;
+    }
+
+    /**
+     * Writes the document of all endpoints to a channel. Returns the number of
+     * bytes written.
+     */
+    public long write(final List<RestEndpoint> restEndpoints, final WritableByteChannel channel)
+            throws IOException {
+        return writeDocument(getOperations(restEndpoints), channel);
+    }
+
+    /**
+     * Writes the document of all endpoints to a file, which is replaced
+     * atomically. Returns the number of bytes written.
+     */
+    public long write(final List<RestEndpoint> restEndpoints, final Path target) throws IOException {
+        final List<Operation> operations = getOperations(restEndpoints);
+        return HtmlEndpointRenderer.writeAtomically(target, channel -> writeDocument(operations, channel));
+    }
+
+    /**
+     * Returns a sink writing the document of the endpoints it is given to a
+     * file, replaced atomically when the sink finishes. Paths are written in
+     * the order they are accepted, with the operations of consecutive
+     * endpoints of a path. An endpoint of a path written before it, which a
+     * lazy scan gives when two resource classes share a path, is kept until
+     * the sink finishes and then inserted after the path's last operation,
+     * so the document has the operations a list gives. Only those endpoints,
+     * the hashes of the path templates and operation ids written so far with
+     * where each path ends, and the tags are kept. The writer must not be
+     * used for anything else until the sink is closed.
+     */
+    public EndpointSink sink(final Path target) throws IOException {
+        return new OperationSink(target);
+    }
+
+    /**
+     * Writes one document per tag to the given directory, named
+     * {@code <baseName>-<tag>} and the format's extension; endpoints without
+     * tags go to the {@link #UNTAGGED} document, and endpoints with several
+     * tags to each of theirs. Returns the files written by tag.
+     */
+    public Map<String, Path> writeByTag(final List<RestEndpoint> restEndpoints, final Path directory,
+            final String baseName) throws IOException {
+        final Map<String, List<Operation>> operationsByTag = new TreeMap<>();
+        for (final Operation operation : getOperations(restEndpoints)) {
+            final Collection<String> tags = getTags(operation.endpoint);
+            for (final String tag : tags.isEmpty() ? Collections.singleton(UNTAGGED) : tags) {
+                operationsByTag.computeIfAbsent(tag, key -> new ArrayList<>()).add(operation);
+            }
+        }
+
+        final Map<String, Path> files = new LinkedHashMap<>();
+        final Set<String> fileNames = new HashSet<>();
+        for (final Map.Entry<String, List<Operation>> entry : operationsByTag.entrySet()) {
+            // tags differing only in characters unsafe in file names get numbered
+            final String name = baseName + "-" + FILE_NAME_UNSAFE.matcher(entry.getKey()).replaceAll("_");
+            String fileName = name + format.extension;
+            for (int i = 2; fileNames.add(fileName) == false; i++) {
+                fileName = name + "-" + i + format.extension;
+            }
+            final Path file = directory.resolve(fileName);
+            HtmlEndpointRenderer.writeAtomically(file, channel -> writeDocument(entry.getValue(), channel));
+            files.put(entry.getKey(), file);
+        }
+        return files;
+    }
+
+    /**
+     * Returns the operations of the endpoints by path and HTTP method, each
+     * path and method once.
+     */
+    private static List<Operation> getOperations(final List<RestEndpoint> restEndpoints) {
+        final List<Operation> operations = new ArrayList<>(restEndpoints.size());
+        for (final RestEndpoint restEndpoint : restEndpoints) {
+            operations.add(new Operation(toOpenApiPath(restEndpoint.uri), restEndpoint));
+        }
+        // stable, so the first of repeated operations is kept
+        operations.sort(OPERATION_ORDER);
+
+        final List<Operation> distinct = new ArrayList<>(operations.size());
+        Operation previous = null;
+        for (final Operation operation : operations) {
+            if (previous != null && OPERATION_ORDER.compare(previous, operation) == 0) {
+                LOG.fine(() -> "Leaving " + operation.endpoint.javaClass + "." + operation.endpoint.javaMethodName
+                        + " out of the OpenAPI document, " + operation.endpoint.method + " " + operation.path
+                        + " is documented already");
+                continue;
+            }
+            distinct.add(operation);
+            previous = operation;
+        }
+        return distinct;
+    }
+
+    private long writeDocument(final List<Operation> operations, final WritableByteChannel channel) throws IOException {
+        out.open(channel);
+        final Emitter emitter = format == Format.JSON ? new JsonEmitter(out) : new YamlEmitter(out);
+
+        final Set<String> tags = new TreeSet<>();
+        for (final Operation operation : operations) {
+            tags.addAll(getTags(operation.endpoint));
+        }
+
+        writeDocumentStart(emitter);
+        writeTags(emitter, tags);
+
+        emitter.name("paths").beginObject();
+        final Set<String> operationIds = new HashSet<>();
+        String path = null;
+        for (final Operation operation : operations) {
+            if (operation.path.equals(path) == false) {
+                if (path != null) {
+                    emitter.endObject();
+                }
+                path = operation.path;
+                emitter.name(path).beginObject();
+            }
+            emitter.name(operation.endpoint.method.name().toLowerCase()).beginObject();
+            writeOperation(emitter, operation.endpoint, operationIds::add);
+            emitter.endObject();
+        }
+        if (path != null) {
+            emitter.endObject();
+        }
+        emitter.endObject();
+        emitter.endObject();
+        emitter.end();
+        out.flush();
+        return out.getBytesWritten();
+    }
+
+    private void writeDocumentStart(final Emitter emitter) throws IOException {
+        emitter.beginObject();
+        emitter.name("openapi").value(OPENAPI_VERSION);
+        emitter.name("info").beginObject();
+        emitter.name("title").value(title);
+        emitter.name("version").value(version);
+        emitter.endObject();
+    }
+
+    private static void writeTags(final Emitter emitter, final Set<String> tags) throws IOException {
+        if (tags.isEmpty() == false) {
+            emitter.name("tags").beginArray();
+            for (final String tag : tags) {
+                emitter.beginObject().name("name").value(tag).endObject();
+            }
+            emitter.endArray();
+        }
+    }
+
+    private static void writeOperation(final Emitter emitter, final RestEndpoint restEndpoint,
+            final Predicate<String> newOperationId) throws IOException {
+        final Collection<String> tags = getTags(restEndpoint);
+        if (tags.isEmpty() == false) {
+            emitter.name("tags").beginArray();
+            for (final String tag : tags) {
+                emitter.value(tag);
+            }
+            emitter.endArray();
+        }
+        if (isBlank(restEndpoint.description) == false) {
+            emitter.name("summary").value(restEndpoint.description);
+        }
+        if (isBlank(restEndpoint.notes) == false) {
+            emitter.name("description").value(restEndpoint.notes);
+        }
+
+        // sub-resource methods are mounted at several paths, and methods can be overloaded
+        final String operationId = getSimpleName(restEndpoint.javaClass) + "." + restEndpoint.javaMethodName;
+        String uniqueId = operationId;
+        for (int i = 2; newOperationId.test(uniqueId) == false; i++) {
+            uniqueId = operationId + "_" + i;
+        }
+        emitter.name("operationId").value(uniqueId);
+        emitter.name("x-java-method").value(restEndpoint.javaClass + "." + restEndpoint.javaMethodName);
+        if (restEndpoint.annotations.contains(DEPRECATED)) {
+            emitter.name("deprecated").value(true);
+        }
+
+        writeParameters(emitter, restEndpoint);
+        writeRequestBody(emitter, restEndpoint);
+        writeResponses(emitter, restEndpoint);
+    }
+
+    private static void writeParameters(final Emitter emitter, final RestEndpoint restEndpoint) throws IOException {
+        // every template variable must be declared once, whether or not the method has a parameter for it
+        boolean any = false;
+        for (final Map.Entry<String, String> variable : getTemplateVariables(restEndpoint.uri).entrySet()) {
+            final EndpointParameter parameter = getParameter(restEndpoint.pathParameters, variable.getKey());
+            any = beginParameters(emitter, any);
+            if (parameter == null) {
+                writeParameter(emitter, variable.getKey(), "path", "java.lang.String", variable.getValue(), null);
+            }
+            else {
+                writeParameter(emitter, parameter.name, "path", parameter.javaType,
+                        parameter.pattern != null ? parameter.pattern : variable.getValue(), null);
+            }
+        }
+        final Set<String> written = new HashSet<>();
+        for (final EndpointParameter parameter : restEndpoint.queryParameters) {
+            if (parameter.name != null && written.add(parameter.name)) {
+                any = beginParameters(emitter, any);
+                writeParameter(emitter, parameter.name, "query", parameter.javaType, parameter.pattern,
+                        parameter.defaultValue);
+            }
+        }
+        if (any) {
+            emitter.endArray();
+        }
+    }
+
+    private static EndpointParameter getParameter(final List<EndpointParameter> parameters, final String name) {
+        for (final EndpointParameter parameter : parameters) {
+            if (name.equals(parameter.name)) {
+                return parameter;
+            }
+        }
+        return null;
+    }
+
+    private static boolean beginParameters(final Emitter emitter, final boolean begun) throws IOException {
+        if (begun == false) {
+            emitter.name("parameters").beginArray();
+        }
+        return true;
+    }
+
+    private static void writeParameter(final Emitter emitter, final String name, final String in,
+            final String javaType, final String pattern, final String defaultValue) throws IOException {
+        emitter.beginObject();
+        emitter.name("name").value(name);
+        emitter.name("in").value(in);
+        if ("path".equals(in)) {
+            emitter.name("required").value(true);
+        }
+        emitter.name("schema");
+        writeSchema(emitter, javaType, pattern, defaultValue);
+        emitter.endObject();
+    }
+
+    private static void writeRequestBody(final Emitter emitter, final RestEndpoint restEndpoint)
+            throws IOException {
+        final List<EndpointParameter> fields = new ArrayList<>();
+        EndpointParameter entity = null;
+        for (final EndpointParameter parameter : restEndpoint.payloadParameters) {
+            if (parameter.name != null) {
+                fields.add(parameter);
+            }
+            else if (entity == null) {
+                entity = parameter;
+            }
+        }
+        if (fields.isEmpty() && entity == null) {
+            return;
+        }
+
+        emitter.name("requestBody").beginObject();
+        emitter.name("content").beginObject();
+        for (final String mediaType : getMediaTypes(restEndpoint.consumes,
+                fields.isEmpty() ? "*/*" : "multipart/form-data")) {
+            emitter.name(mediaType).beginObject();
+            emitter.name("schema");
+            if (fields.isEmpty()) {
+                writeSchema(emitter, entity.javaType, null, null);
+            }
+            else {
+                emitter.beginObject();
+                emitter.name("type").value("object");
+                emitter.name("properties").beginObject();
+                for (final EndpointParameter field : fields) {
+                    emitter.name(field.name);
+                    writeSchema(emitter, field.javaType, field.pattern, field.defaultValue);
+                }
+                emitter.endObject();
+                emitter.endObject();
+            }
+            emitter.endObject();
+        }
+        emitter.endObject();
+        emitter.endObject();
+    }
+
+    private static void writeResponses(final Emitter emitter, final RestEndpoint restEndpoint) throws IOException {
+        emitter.name("responses").beginObject();
+        if (restEndpoint.responses.isEmpty()) {
+            if ("void".equals(restEndpoint.javaMethodReturnType)) {
+                writeResponse(emitter, 204, "No Content", null, restEndpoint);
+            }
+            else {
+                writeResponse(emitter, 200, "OK", restEndpoint.javaMethodReturnType, restEndpoint);
+            }
+        }
+        else {
+            final Set<Integer> codes = new HashSet<>();
+            for (final EndpointResponse response : restEndpoint.responses) {
+                if (codes.add(response.code)) {
+                    writeResponse(emitter, response.code, response.message, response.javaType, restEndpoint);
+                }
+            }
+        }
+        emitter.endObject();
+    }
+
+    private static void writeResponse(final Emitter emitter, final int code, final String description,
+            final String javaType, final RestEndpoint restEndpoint) throws IOException {
+        emitter.name(Integer.toString(code)).beginObject();
+        emitter.name("description").value(description != null ? description : "");
+        if (javaType != null && NO_CONTENT_TYPES.contains(javaType) == false) {
+            emitter.name("content").beginObject();
+            for (final String mediaType : getMediaTypes(restEndpoint.produces, "*/*")) {
+                emitter.name(mediaType).beginObject();
+                emitter.name("schema");
+                writeSchema(emitter, javaType, null, null);
+                emitter.endObject();
+            }
+            emitter.endObject();
+        }
+        emitter.endObject();
+    }
+
+    /**
+     * Writes the schema of a Java type, as named by {@link Class#getName()}.
+     * Element types of collections are not known, so their items may be
+     * anything.
+     */
+    private static void writeSchema(final Emitter emitter, final String javaType, final String pattern,
+            final String defaultValue) throws IOException {
+        emitter.beginObject();
+        final String type;
+        switch (javaType != null ? javaType : "java.lang.Object") {
+            case "int":
+            case "short":
+            case "byte":
+            case "java.lang.Integer":
+            case "java.lang.Short":
+            case "java.lang.Byte":
+                type = "integer";
+                emitter.name("type").value(type);
+                emitter.name("format").value("int32");
+                break;
+            case "long":
+            case "java.lang.Long":
+                type = "integer";
+                emitter.name("type").value(type);
+                emitter.name("format").value("int64");
+                break;
+            case "java.math.BigInteger":
+                type = "integer";
+                emitter.name("type").value(type);
+                break;
+            case "float":
+            case "java.lang.Float":
+                type = "number";
+                emitter.name("type").value(type);
+                emitter.name("format").value("float");
+                break;
+            case "double":
+            case "java.lang.Double":
+                type = "number";
+                emitter.name("type").value(type);
+                emitter.name("format").value("double");
+                break;
+            case "java.math.BigDecimal":
+                type = "number";
+                emitter.name("type").value(type);
+                break;
+            case "boolean":
+            case "java.lang.Boolean":
+                type = "boolean";
+                emitter.name("type").value(type);
+                break;
+            case "char":
+            case "java.lang.Character":
+            case "java.lang.String":
+                type = "string";
+                emitter.name("type").value(type);
+                break;
+            case "java.util.UUID":
+                type = "string";
+                emitter.name("type").value(type);
+                emitter.name("format").value("uuid");
+                break;
+            case "java.time.LocalDate":
+                type = "string";
+                emitter.name("type").value(type);
+                emitter.name("format").value("date");
+                break;
+            case "java.util.Date":
+            case "java.time.Instant":
+            case "java.time.OffsetDateTime":
+            case "java.time.ZonedDateTime":
+                type = "string";
+                emitter.name("type").value(type);
+                emitter.name("format").value("date-time");
+                break;
+            case "[B":
+            case "java.io.File":
+            case "java.io.InputStream":
+            case "java.io.Reader":
+                type = "string";
+                emitter.name("type").value(type);
+                emitter.name("format").value("binary");
+                break;
+            case "java.util.Collection":
+            case "java.util.List":
+            case "java.util.Set":
+            case "java.util.SortedSet":
+                type = "array";
+                emitter.name("type").value(type);
+                if (javaType.endsWith("Set")) {
+                    emitter.name("uniqueItems").value(true);
+                }
+                emitter.name("items").beginObject().endObject();
+                break;
+            case "java.util.Map":
+                type = "object";
+                emitter.name("type").value(type);
+                emitter.name("additionalProperties").value(true);
+                break;
+            case "java.lang.Object":
+                type = null;
+                break;
+            default:
+                if (javaType.startsWith("[")) {
+                    type = "array";
+                    emitter.name("type").value(type);
+                    emitter.name("items");
+                    writeSchema(emitter, getComponentType(javaType), null, null);
+                }
+                else {
+                    type = "object";
+                    emitter.name("type").value(type);
+                    emitter.name("x-java-type").value(javaType);
+                }
+                break;
+        }
+        if (pattern != null && "string".equals(type)) {
+            emitter.name("pattern").value(pattern);
+        }
+        if (defaultValue != null) {
+            emitter.name("default");
+            writeDefault(emitter, type, defaultValue);
+        }
+        emitter.endObject();
+    }
+
+    /**
+     * Writes a default value as the JSON type of the schema, or as a string if
+     * it is no valid value of it.
+     */
+    private static void writeDefault(final Emitter emitter, final String type, final String defaultValue)
+            throws IOException {
+        if ("integer".equals(type) || "number".equals(type)) {
+            try {
+                // re-formatted, since Java accepts literals that JSON does not, such as "+1"
+                if ("integer".equals(type)) {
+                    emitter.value(Long.parseLong(defaultValue.trim()));
+                    return;
+                }
+                final double number = Double.parseDouble(defaultValue.trim());
+                // NaN and the infinities have no JSON literal, so they are documented as written
+                if (Double.isFinite(number)) {
+                    emitter.number(Double.toString(number));
+                    return;
+                }
+            }
+            catch (final NumberFormatException e) {
+                // documented as written
+            }
+        }
+        else if ("boolean".equals(type)) {
+            emitter.value(Boolean.parseBoolean(defaultValue.trim()));
+            return;
+        }
+        emitter.value(defaultValue);
+    }
+
+    /**
+     * Returns the component type of an array type named by
+     * {@link Class#getName()}, e.g. {@code int} for {@code [I}.
+     */
+    private static String getComponentType(final String arrayType) {
+        switch (arrayType.charAt(1)) {
+            case 'Z':
+                return "boolean";
+            case 'B':
+                return "byte";
+            case 'C':
+                return "char";
+            case 'S':
+                return "short";
+            case 'I':
+                return "int";
+            case 'J':
+                return "long";
+            case 'F':
+                return "float";
+            case 'D':
+                return "double";
+            case 'L':
+                return arrayType.substring(2, arrayType.length() - 1);
+            default:
+                return arrayType.substring(1);
+        }
+    }
+
+    /**
+     * Returns the given media types each once, or the fallback if there are
+     * none.
+     */
+    private static Collection<String> getMediaTypes(final List<String> mediaTypes, final String fallback) {
+        if (mediaTypes == null || mediaTypes.isEmpty()) {
+            return Collections.singleton(fallback);
+        }
+        return new LinkedHashSet<>(mediaTypes);
+    }
+
+    private static Collection<String> getTags(final RestEndpoint restEndpoint) {
+        if (restEndpoint.tags == null || restEndpoint.tags.isEmpty()) {
+            return Collections.emptyList();
+        }
+        final Set<String> tags = new LinkedHashSet<>();
+        for (final String tag : restEndpoint.tags) {
+            if (isBlank(tag) == false) {
+                tags.add(tag);
+            }
+        }
+        return tags;
+    }
+
+    /**
+     * Returns the OpenAPI path of a URI template: rooted, without empty
+     * segments and with the expressions left out of the variables, e.g.
+     * {@code /Server/api/orders/{id}} for {@code Server/api/orders//{id: [0-9]+}}.
+     */
+    static String toOpenApiPath(final String uri) {
+        final StringBuilder path = new StringBuilder(uri.length() + 1);
+        for (final String segment : RouteIndex.split(uri)) {
+            path.append('/');
+            int depth = 0;
+            boolean expression = false;
+            for (int i = 0; i < segment.length(); i++) {
+                final char c = segment.charAt(i);
+                if (c == '{') {
+                    depth++;
+                }
+                else if (c == '}') {
+                    depth--;
+                    if (depth == 0) {
+                        expression = false;
+                    }
+                }
+                else if (c == ':' && depth == 1) {
+                    expression = true;
+                }
+                if (expression == false && (Character.isWhitespace(c) == false || depth == 0)) {
+                    path.append(c);
+                }
+            }
+        }
+        return path.length() == 0 ? "/" : path.toString();
+    }
+
+    /**
+     * Returns the variables of a URI template in order, mapped to their
+     * expressions or to null.
+     */
+    static Map<String, String> getTemplateVariables(final String uri) {
+        final Map<String, String> variables = new LinkedHashMap<>();
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i < uri.length(); i++) {
+            final char c = uri.charAt(i);
+            if (c == '{') {
+                if (depth++ == 0) {
+                    start = i + 1;
+                }
+            }
+            else if (c == '}' && --depth == 0) {
+                final String variable = uri.substring(start, i);
+                final int colon = variable.indexOf(':');
+                if (colon < 0) {
+                    variables.putIfAbsent(variable.trim(), null);
+                }
+                else {
+                    variables.putIfAbsent(variable.substring(0, colon).trim(), variable.substring(colon + 1).trim());
+                }
+            }
+        }
+        return variables;
+    }
+
+    private static String getSimpleName(final String className) {
+        return className.substring(Math.max(className.lastIndexOf('.'), className.lastIndexOf('$')) + 1);
+    }
+
+    private static boolean isBlank(final String value) {
+        return value == null || value.trim().length() == 0;
+    }
+
+    /**
+     * Writes the operations of endpoints as they are accepted. The tags are
+     * written after the paths, as they are only known then.
+     */
+    private final class OperationSink extends FileEndpointSink {
+        private final Emitter emitter;
+
+        private final Set<String> tags = new TreeSet<>();
+
+        private final StringHashSet operationIds = new StringHashSet();
+
+        // the paths written, the open one included
+        private final StringHashSet writtenPaths = new StringHashSet();
+
+        // per path closed, in the order written: the hash of the path, where
+        // its last operation ends and the HTTP methods of its operations
+        private long[] closedHashes = new long[64];
+
+        private long[] closedEnds = new long[64];
+
+        private int[] closedMethods = new int[64];
+
+        private int closedCount;
+
+        private String path;
+
+        // the HTTP methods of the open path
+        private final Set<MethodEnum> methods = EnumSet.noneOf(MethodEnum.class);
+
+        // the endpoints of paths closed before them, by path
+        private final Map<String, List<RestEndpoint>> reopened = new LinkedHashMap<>();
+
+        OperationSink(final Path target) throws IOException {
+            super(target);
+            out.open(channel);
+            emitter = format == Format.JSON ? new JsonEmitter(out) : new YamlEmitter(out);
+            writeDocumentStart(emitter);
+            emitter.name("paths").beginObject();
+            out.flush();
+        }
+
+        @Override
+        public void accept(final RestEndpoint restEndpoint) throws IOException {
+            final String endpointPath = toOpenApiPath(restEndpoint.uri);
+            if (endpointPath.equals(path) == false) {
+                if (writtenPaths.add(endpointPath) == false) {
+                    reopened.computeIfAbsent(endpointPath, key -> new ArrayList<>()).add(restEndpoint);
+                    return;
+                }
+                closePath();
+                path = endpointPath;
+                methods.clear();
+                emitter.name(path).beginObject();
+            }
+            if (methods.add(restEndpoint.method) == false) {
+                logRepeated(restEndpoint, endpointPath);
+                return;
+            }
+            tags.addAll(getTags(restEndpoint));
+            emitter.name(restEndpoint.method.name().toLowerCase()).beginObject();
+            writeOperation(emitter, restEndpoint, operationIds::add);
+            emitter.endObject();
+        }
+
+        @Override
+        long complete() throws IOException {
+            closePath();
+            final List<Insertion> insertions = getInsertions();
+            emitter.endObject();
+            writeTags(emitter, tags);
+            emitter.endObject();
+            emitter.end();
+            out.flush();
+            if (insertions.isEmpty()) {
+                return out.getBytesWritten();
+            }
+            insert(insertions);
+            return channel.size();
+        }
+
+        private void closePath() throws IOException {
+            if (path == null) {
+                return;
+            }
+            if (closedCount == closedHashes.length) {
+                closedHashes = Arrays.copyOf(closedHashes, closedCount * 2);
+                closedEnds = Arrays.copyOf(closedEnds, closedCount * 2);
+                closedMethods = Arrays.copyOf(closedMethods, closedCount * 2);
+            }
+            int methodBits = 0;
+            for (final MethodEnum method : methods) {
+                methodBits |= 1 << method.ordinal();
+            }
+            closedHashes[closedCount] = StringHashSet.hash(path);
+            closedEnds[closedCount] = out.getPosition();
+            closedMethods[closedCount] = methodBits;
+            closedCount++;
+            emitter.endObject();
+        }
+
+        /**
+         * Returns the operations of the reopened paths, each path and method
+         * once, in the order of the places they go in the document.
+         */
+        private List<Insertion> getInsertions() {
+            final Map<Long, String> reopenedPaths = new HashMap<>();
+            for (final String reopenedPath : reopened.keySet()) {
+                reopenedPaths.put(StringHashSet.hash(reopenedPath), reopenedPath);
+            }
+            final List<Insertion> insertions = new ArrayList<>(reopened.size());
+            for (int i = 0; i < closedCount && reopenedPaths.isEmpty() == false; i++) {
+                final String reopenedPath = reopenedPaths.remove(closedHashes[i]);
+                if (reopenedPath == null) {
+                    continue;
+                }
+                int methodBits = closedMethods[i];
+                final List<RestEndpoint> endpoints = new ArrayList<>();
+                for (final RestEndpoint restEndpoint : reopened.get(reopenedPath)) {
+                    final int methodBit = 1 << restEndpoint.method.ordinal();
+                    if ((methodBits & methodBit) != 0) {
+                        logRepeated(restEndpoint, reopenedPath);
+                        continue;
+                    }
+                    methodBits |= methodBit;
+                    tags.addAll(getTags(restEndpoint));
+                    endpoints.add(restEndpoint);
+                }
+                if (endpoints.isEmpty() == false) {
+                    insertions.add(new Insertion(closedEnds[i], endpoints));
+                }
+            }
+            reopened.clear();
+            return insertions;
+        }
+
+        /**
+         * Inserts the operations into the written document, each after the
+         * last operation of its path: the document from the first place on is
+         * moved to a temporary file and copied back around them.
+         */
+        private void insert(final List<Insertion> insertions) throws IOException {
+            final long start = insertions.get(0).position;
+            final long size = channel.size();
+            final Path directory = target.toAbsolutePath().getParent();
+            final Path tail = Files.createTempFile(directory, target.getFileName().toString(), ".tail.tmp");
+            try (FileChannel tailChannel = FileChannel.open(tail, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE)) {
+                for (long position = start; position < size;) {
+                    position += channel.transferTo(position, size - position, tailChannel);
+                }
+                channel.truncate(start);
+                channel.position(start);
+                out.open(channel);
+                final Emitter operationEmitter = format == Format.JSON ? new JsonEmitter(out) : new YamlEmitter(out);
+                for (int i = 0; i < insertions.size(); i++) {
+                    // inside the document, its paths and the path
+                    operationEmitter.resume(3);
+                    for (final RestEndpoint restEndpoint : insertions.get(i).endpoints) {
+                        operationEmitter.name(restEndpoint.method.name().toLowerCase()).beginObject();
+                        writeOperation(operationEmitter, restEndpoint, operationIds::add);
+                        operationEmitter.endObject();
+                    }
+                    out.flush();
+                    final long end = i + 1 < insertions.size() ? insertions.get(i + 1).position : size;
+                    for (long position = insertions.get(i).position - start; position < end - start;) {
+                        position += tailChannel.transferTo(position, end - start - position, channel);
+                    }
+                }
+            }
+            finally {
+                Files.deleteIfExists(tail);
+            }
+        }
+
+        private void logRepeated(final RestEndpoint restEndpoint, final String endpointPath) {
+            LOG.fine(() -> "Leaving " + restEndpoint.javaClass + "." + restEndpoint.javaMethodName
+                    + " out of the OpenAPI document, " + restEndpoint.method + " " + endpointPath
+                    + " is documented already");
+        }
+    }
+
+    /**
+     * Operations of a path written before them and the place in the document
+     * they go.
+     */
+    private static final class Insertion {
+        final long position;
+
+        final List<RestEndpoint> endpoints;
+
+        Insertion(final long position, final List<RestEndpoint> endpoints) {
+            this.position = position;
+            this.endpoints = endpoints;
+        }
+    }
+
+    /**
+     * An endpoint with its OpenAPI path.
+     */
+    private static final class Operation {
+        final String path;
+
+        final RestEndpoint endpoint;
+
+        Operation(final String path, final RestEndpoint endpoint) {
+            this.path = path;
+            this.endpoint = endpoint;
+        }
+    }
+
+    /**
+     * Writes a document as a sequence of events, the way a JSON generator
+     * does: a value follows each {@link #name}, objects and arrays are closed
+     * in reverse order.
+     */
+    private abstract static class Emitter {
+        final Utf8ChannelWriter out;
+
+        Emitter(final Utf8ChannelWriter out) {
+            this.out = out;
+        }
+
+        abstract Emitter beginObject() throws IOException;
+
+        abstract Emitter endObject() throws IOException;
+
+        abstract Emitter beginArray() throws IOException;
+
+        abstract Emitter endArray() throws IOException;
+
+        abstract Emitter name(String name) throws IOException;
+
+        abstract Emitter value(String value) throws IOException;
+
+        /**
+         * Writes a number literal or {@code true} or {@code false} as is.
+         */
+        abstract Emitter number(String literal) throws IOException;
+
+        Emitter value(final long value) throws IOException {
+            return number(Long.toString(value));
+        }
+
+        Emitter value(final boolean value) throws IOException {
+            return number(Boolean.toString(value));
+        }
+
+        /**
+         * Finishes the document after the outermost object.
+         */
+        abstract void end() throws IOException;
+
+        /**
+         * Continues a document written before, inside the given number of
+         * objects that have members already.
+         */
+        abstract void resume(int objects);
+
+        Emitter string(final String value) throws IOException {
+            out.beginJsonString().write(value).endJsonString();
+            return this;
+        }
+    }
+
+    /**
+     * Writes compact JSON.
+     */
+    private static final class JsonEmitter extends Emitter {
+        // whether the open object or array at each depth has a member yet
+        private boolean[] started = new boolean[16];
+
+        private int depth;
+
+        private boolean afterName;
+
+        JsonEmitter(final Utf8ChannelWriter out) {
+            super(out);
+        }
+
+        @Override
+        Emitter beginObject() throws IOException {
+            separate();
+            out.write('{');
+            push();
+            return this;
+        }
+
+        @Override
+        Emitter endObject() throws IOException {
+            depth--;
+            out.write('}');
+            return this;
+        }
+
+        @Override
+        Emitter beginArray() throws IOException {
+            separate();
+            out.write('[');
+            push();
+            return this;
+        }
+
+        @Override
+        Emitter endArray() throws IOException {
+            depth--;
+            out.write(']');
+            return this;
+        }
+
+        @Override
+        Emitter name(final String name) throws IOException {
+            separate();
+            string(name);
+            out.write(':');
+            afterName = true;
+            return this;
+        }
+
+        @Override
+        Emitter value(final String value) throws IOException {
+            separate();
+            return string(value);
+        }
+
+        @Override
+        Emitter number(final String literal) throws IOException {
+            separate();
+            out.write(literal);
+            return this;
+        }
+
+        @Override
+        void end() throws IOException {
+            out.write('\n');
+        }
+
+        @Override
+        void resume(final int objects) {
+            Arrays.fill(started, 0, objects, true);
+            depth = objects;
+            afterName = false;
+        }
+
+        private void separate() throws IOException {
+            if (afterName) {
+                afterName = false;
+            }
+            else if (depth > 0) {
+                if (started[depth - 1]) {
+                    out.write(',');
+                }
+                started[depth - 1] = true;
+            }
+        }
+
+        private void push() {
+            if (depth == started.length) {
+                started = Arrays.copyOf(started, depth * 2);
+            }
+            started[depth++] = false;
+        }
+    }
+
+    /**
+     * Writes block-style YAML with two spaces of indentation. Strings are
+     * double-quoted, with the escapes YAML shares with JSON; names are plain
+     * where that is unambiguous. Empty objects and arrays are written in flow
+     * style.
+     */
+    private static final class YamlEmitter extends Emitter {
+        // plain scalars that YAML 1.1 readers take for booleans or null
+        private static final Set<String> RESERVED_NAMES = new HashSet<>(Arrays.asList(
+                "y", "n", "yes", "no", "true", "false", "on", "off", "null"));
+
+        // per open object or array: whether it is an array, its indentation and whether it has members
+        private boolean[] arrays = new boolean[16];
+
+        private int[] indents = new int[16];
+
+        private boolean[] started = new boolean[16];
+
+        private int depth;
+
+        // a value is expected after "name:" or "-" on the current line
+        private boolean afterIndicator;
+
+        // the first name of an object in an array goes on the line of its "-"
+        private boolean afterDash;
+
+        private boolean lineStarted;
+
+        YamlEmitter(final Utf8ChannelWriter out) {
+            super(out);
+        }
+
+        @Override
+        Emitter beginObject() throws IOException {
+            return begin(false);
+        }
+
+        @Override
+        Emitter endObject() throws IOException {
+            return end("{}");
+        }
+
+        @Override
+        Emitter beginArray() throws IOException {
+            return begin(true);
+        }
+
+        @Override
+        Emitter endArray() throws IOException {
+            return end("[]");
+        }
+
+        @Override
+        Emitter name(final String name) throws IOException {
+            if (afterDash) {
+                out.write(' ');
+                afterDash = false;
+            }
+            else {
+                newLine(indents[depth - 1]);
+            }
+            started[depth - 1] = true;
+            if (isPlain(name)) {
+                out.write(name);
+            }
+            else {
+                string(name);
+            }
+            out.write(':');
+            afterIndicator = true;
+            return this;
+        }
+
+        @Override
+        Emitter value(final String value) throws IOException {
+            scalar();
+            return string(value);
+        }
+
+        @Override
+        Emitter number(final String literal) throws IOException {
+            scalar();
+            out.write(literal);
+            return this;
+        }
+
+        @Override
+        void end() throws IOException {
+            out.write('\n');
+        }
+
+        @Override
+        void resume(final int objects) {
+            for (int i = 0; i < objects; i++) {
+                arrays[i] = false;
+                indents[i] = i * 2;
+                started[i] = true;
+            }
+            depth = objects;
+            afterIndicator = false;
+            afterDash = false;
+            lineStarted = true;
+        }
+
+        private Emitter begin(final boolean array) throws IOException {
+            final boolean inArray = item();
+            if (depth == arrays.length) {
+                arrays = Arrays.copyOf(arrays, depth * 2);
+                indents = Arrays.copyOf(indents, depth * 2);
+                started = Arrays.copyOf(started, depth * 2);
+            }
+            arrays[depth] = array;
+            indents[depth] = depth == 0 ? 0 : indents[depth - 1] + 2;
+            started[depth] = false;
+            depth++;
+            afterIndicator = false;
+            afterDash = inArray && array == false;
+            return this;
+        }
+
+        private Emitter end(final String empty) throws IOException {
+            depth--;
+            if (started[depth] == false) {
+                // nothing was written after the "name:" or "-" of the empty value
+                if (depth > 0) {
+                    out.write(' ');
+                }
+                out.write(empty);
+                lineStarted = true;
+            }
+            afterIndicator = false;
+            afterDash = false;
+            return this;
+        }
+
+        private void scalar() throws IOException {
+            item();
+            if (afterIndicator) {
+                out.write(' ');
+            }
+            afterIndicator = false;
+            afterDash = false;
+        }
+
+        /**
+         * Starts an item when the value is a member of an array; returns
+         * whether it is.
+         */
+        private boolean item() throws IOException {
+            if (depth == 0 || arrays[depth - 1] == false) {
+                return false;
+            }
+            newLine(indents[depth - 1]);
+            out.write('-');
+            started[depth - 1] = true;
+            afterIndicator = true;
+            return true;
+        }
+
+        /**
+         * Returns whether a name can be written unquoted: it starts with a
+         * letter, underscore or slash, has no characters YAML reads specially
+         * and is no boolean or null.
+         */
+        private static boolean isPlain(final String name) {
+            if (name.isEmpty() || RESERVED_NAMES.contains(name.toLowerCase())) {
+                return false;
+            }
+            for (int i = 0; i < name.length(); i++) {
+                final char c = name.charAt(i);
+                final boolean letter = c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c == '_' || c == '/';
+                if (letter == false && (i == 0 || (c >= '0' && c <= '9' || c == '.' || c == '-' || c == '{'
+                        || c == '}') == false)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void newLine(final int indent) throws IOException {
+            if (lineStarted) {
+                out.write('\n');
+            }
+            for (int i = 0; i < indent; i++) {
+                out.write(' ');
+            }
+            lineStarted = true;
+            afterIndicator = false;
+        }
+    }
+}
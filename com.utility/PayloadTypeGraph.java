@@ -0,0 +1,791 @@
+package com.utility;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.utility.ClassFileInfo.AnnotationInfo;
+import com.utility.ClassFileInfo.TypeConstant;
+
+/**
+ * The payload types of the endpoints as a graph of bean types, with the
+ * bean-validation constraints declared on them.
+ * <p>
+ * One graph is shared by all endpoints of a scan. Each bean type is described
+ * once, by reflection or from its class file, and the constraints reachable
+ * from a type are collected once and shared by every endpoint whose payload
+ * uses it, so a DTO used by a thousand endpoints is walked once. A constraint
+ * is listed once per property declaring it, e.g. {@code LineDto.sku @NotNull},
+ * however many paths lead to the property.
+ * <p>
+ * The properties of a type are the instance fields of the type and its
+ * superclasses, and the getters carrying constraints. Types of the JDK are not
+ * walked, but their type arguments are, so the elements of collections and the
+ * values of maps are. Type variables are bound to the type arguments of the
+ * type using them. A reference leading back to a type being walked ends there,
+ * so recursive types are walked once.
+ * <p>
+ * A graph is thread-safe.
+ */
+final class PayloadTypeGraph {
+
+    static final String CONSTRAINTS_PACKAGE = "javax.validation.constraints.";
+
+    /** The meta-annotation of custom constraints. */
+    static final String CONSTRAINT = "javax.validation.Constraint";
+
+    // elements every constraint has, which say nothing about what it checks
+    private static final Set<String> COMMON_ELEMENTS = new HashSet<>(Arrays.asList("message", "groups", "payload"));
+
+    private static final PayloadConstraints NONE = new PayloadConstraints(Collections.emptyList(),
+            Collections.emptySet(), Integer.MAX_VALUE);
+
+    private final TypeSource source;
+
+    // bean types by binary name
+    private final Map<String, Bean> beans = new ConcurrentHashMap<>();
+
+    // the constraints reachable from a type, by its name with type arguments
+    private final Map<String, PayloadConstraints> reachable = new ConcurrentHashMap<>();
+
+    PayloadTypeGraph(final TypeSource source) {
+        this.source = source;
+    }
+
+    /**
+     * Returns the constraints reachable from a payload type, and the classes
+     * they were read from.
+     */
+    PayloadConstraints getConstraints(final TypeRef type) {
+        return walk(type, new HashMap<>(), 0);
+    }
+
+    /**
+     * Forgets the given classes and everything reached through them.
+     */
+    void invalidate(final Collection<String> classNames) {
+        beans.keySet().removeAll(classNames);
+        reachable.clear();
+    }
+
+    void clear() {
+        beans.clear();
+        reachable.clear();
+    }
+
+    /**
+     * Walks a type. {@code walking} holds the types being walked with their
+     * depths; the result is only kept when it does not depend on any of them,
+     * i.e. when no reference below the type led back above it.
+     */
+    private PayloadConstraints walk(final TypeRef type, final Map<String, Integer> walking, final int depth) {
+        if (type.dimensions > 0) {
+            return walk(type.component(), walking, depth);
+        }
+        if (type.kind == TypeRef.Kind.WILDCARD) {
+            return type.arguments.isEmpty() || type.name.equals(TypeRef.SUPER) ? NONE
+                    : walk(type.arguments.get(0), walking, depth);
+        }
+        if (type.kind == TypeRef.Kind.VARIABLE || type.isPrimitive()) {
+            return NONE;
+        }
+        final String key = type.toString();
+        final PayloadConstraints known = reachable.get(key);
+        if (known != null) {
+            return known;
+        }
+        final Integer walkingDepth = walking.get(key);
+        if (walkingDepth != null) {
+            return new PayloadConstraints(Collections.emptyList(), Collections.emptySet(), walkingDepth);
+        }
+
+        walking.put(key, depth);
+        final Set<String> constraints = new LinkedHashSet<>();
+        final Set<String> classNames = new LinkedHashSet<>();
+        int low = Integer.MAX_VALUE;
+        try {
+            if (isJdkType(type.name)) {
+                // collections, maps and optionals hold their payload in their type arguments
+                for (final TypeRef argument : type.arguments) {
+                    low = Math.min(low, add(walk(argument, walking, depth + 1), constraints, classNames));
+                }
+            }
+            else {
+                // superclasses first, in the order Class#getDeclaredFields of each lists the fields
+                final List<TypeRef> hierarchy = new ArrayList<>();
+                final List<Bean> beanHierarchy = new ArrayList<>();
+                for (TypeRef current = type; current != null && isJdkType(current.name) == false;) {
+                    classNames.add(current.name);
+                    final Bean bean = getBean(current);
+                    hierarchy.add(current);
+                    beanHierarchy.add(bean);
+                    current = bean.superclass != null ? bean.superclass.resolve(bean.bind(current)) : null;
+                }
+                for (int i = hierarchy.size() - 1; i >= 0; i--) {
+                    final TypeRef owner = hierarchy.get(i);
+                    final Bean bean = beanHierarchy.get(i);
+                    final Map<String, TypeRef> bindings = bean.bind(owner);
+                    for (final Property property : bean.properties) {
+                        if (property.constraints.isEmpty() == false) {
+                            constraints.add(getSimpleName(owner.name) + "." + property.name + " "
+                                    + String.join(" ", property.constraints));
+                        }
+                        low = Math.min(low, add(walk(property.type.resolve(bindings), walking, depth + 1),
+                                constraints, classNames));
+                    }
+                }
+            }
+        }
+        finally {
+            walking.remove(key);
+        }
+
+        final PayloadConstraints walked = new PayloadConstraints(
+                Collections.unmodifiableList(new ArrayList<>(constraints)), Collections.unmodifiableSet(classNames),
+                low >= depth ? Integer.MAX_VALUE : low);
+        if (low >= depth) {
+            reachable.putIfAbsent(key, walked);
+        }
+        return walked;
+    }
+
+    private static int add(final PayloadConstraints walked, final Set<String> constraints,
+            final Set<String> classNames) {
+        constraints.addAll(walked.constraints);
+        classNames.addAll(walked.classNames);
+        return walked.low;
+    }
+
+    private Bean getBean(final TypeRef type) {
+        final Bean known = beans.get(type.name);
+        if (known != null) {
+            return known;
+        }
+        final Bean bean = source.describe(type);
+        // racing threads describe equal beans, so either may win
+        final Bean raced = beans.putIfAbsent(type.name, bean != null ? bean : Bean.NONE);
+        return raced != null ? raced : bean != null ? bean : Bean.NONE;
+    }
+
+    static boolean isJdkType(final String className) {
+        return className.startsWith("java.") || className.startsWith("javax.") || className.startsWith("jdk.");
+    }
+
+    /**
+     * Returns the name of a class without its package, with nested classes
+     * after their outer classes, e.g. {@code Order.Line}.
+     */
+    static String getSimpleName(final String className) {
+        return className.substring(className.lastIndexOf('.') + 1).replace('$', '.');
+    }
+
+    /**
+     * Adds the constraints of a payload parameter and of its type to the
+     * validations of an endpoint, returning the list to keep. When there is
+     * nothing else to add, the shared list of the type is returned as is.
+     */
+    static List<String> addValidations(final List<String> validations, final String parameterName,
+            final List<String> parameterConstraints, final List<String> typeConstraints) {
+        if (validations == null && parameterConstraints.isEmpty()) {
+            return typeConstraints;
+        }
+        final List<String> combined = validations != null ? new ArrayList<>(validations) : new ArrayList<>();
+        if (parameterConstraints.isEmpty() == false) {
+            combined.add((parameterName != null ? parameterName : "body") + " "
+                    + String.join(" ", parameterConstraints));
+        }
+        for (final String constraint : typeConstraints) {
+            if (combined.contains(constraint) == false) {
+                combined.add(constraint);
+            }
+        }
+        return combined;
+    }
+
+    /**
+     * Formats a constraint as it would be written in Java, with the elements
+     * that differ from their defaults, e.g. {@code @Size(max=20, min=1)}.
+     * Class files give enum constants by name, so {@code enumElements} names
+     * the elements whose strings are enum constants rather than text.
+     */
+    static String formatConstraint(final String annotationType, final SortedMap<String, Object> elements,
+            final Set<String> enumElements) {
+        final StringBuilder text = new StringBuilder("@").append(getSimpleName(annotationType));
+        elements.keySet().removeAll(COMMON_ELEMENTS);
+        if (elements.isEmpty()) {
+            return text.toString();
+        }
+        text.append('(');
+        if (elements.size() == 1 && elements.containsKey("value")) {
+            appendValue(text, elements.get("value"), enumElements.contains("value"));
+        }
+        else {
+            boolean first = true;
+            for (final Map.Entry<String, Object> element : elements.entrySet()) {
+                if (first == false) {
+                    text.append(", ");
+                }
+                text.append(element.getKey()).append('=');
+                appendValue(text, element.getValue(), enumElements.contains(element.getKey()));
+                first = false;
+            }
+        }
+        return text.append(')').toString();
+    }
+
+    private static void appendValue(final StringBuilder text, final Object value, final boolean enumConstant) {
+        if (value instanceof String && enumConstant == false) {
+            text.append('"').append(value).append('"');
+        }
+        else if (value instanceof Character) {
+            text.append('\'').append(value).append('\'');
+        }
+        else if (value instanceof Class) {
+            text.append(((Class<?>) value).getName()).append(".class");
+        }
+        else if (value instanceof TypeConstant) {
+            text.append(((TypeConstant) value).name).append(".class");
+        }
+        else if (value instanceof Enum) {
+            text.append(((Enum<?>) value).name());
+        }
+        else if (value instanceof Annotation) {
+            text.append('@').append(getSimpleName(((Annotation) value).annotationType().getName()));
+        }
+        else if (value instanceof AnnotationInfo) {
+            text.append('@').append(getSimpleName(((AnnotationInfo) value).type));
+        }
+        else if (value != null && value.getClass().isArray()) {
+            text.append('{');
+            for (int i = 0; i < Array.getLength(value); i++) {
+                if (i > 0) {
+                    text.append(", ");
+                }
+                appendValue(text, Array.get(value, i), enumConstant);
+            }
+            text.append('}');
+        }
+        else {
+            text.append(value);
+        }
+    }
+
+    /**
+     * Describes a class by reflection.
+     */
+    static Bean describe(final Class<?> type) {
+        if (type.isPrimitive() || type.isArray()) {
+            return Bean.NONE;
+        }
+        final List<String> typeParameters = new ArrayList<>();
+        for (final TypeVariable<?> typeParameter : type.getTypeParameters()) {
+            typeParameters.add(typeParameter.getName());
+        }
+        final Type superclass = type.getGenericSuperclass();
+
+        final List<Property> properties = new ArrayList<>();
+        for (final Field field : type.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers()) == false && field.isSynthetic() == false) {
+                properties.add(new Property(field.getName(), TypeRef.of(field.getGenericType()),
+                        getConstraints(field.getDeclaredAnnotations())));
+            }
+        }
+        final Method[] methods = type.getDeclaredMethods();
+        Arrays.sort(methods, Comparator.comparing(Method::getName));
+        for (final Method method : methods) {
+            final String property = getPropertyName(method.getName(), method.getReturnType().getName());
+            if (property != null && method.getParameterCount() == 0 && Modifier.isStatic(method.getModifiers()) == false
+                    && method.isSynthetic() == false && method.isBridge() == false) {
+                final List<String> constraints = getConstraints(method.getDeclaredAnnotations());
+                if (constraints.isEmpty() == false) {
+                    properties.add(new Property(property, TypeRef.of(method.getGenericReturnType()), constraints));
+                }
+            }
+        }
+        return new Bean(typeParameters, superclass != null && superclass != Object.class ? TypeRef.of(superclass)
+                : null, properties);
+    }
+
+    /**
+     * Returns the constraints among the given annotations, formatted.
+     */
+    static List<String> getConstraints(final Annotation[] annotations) {
+        List<String> constraints = Collections.emptyList();
+        for (final Annotation annotation : annotations) {
+            if (isConstraint(annotation.annotationType())) {
+                if (constraints.isEmpty()) {
+                    constraints = new ArrayList<>();
+                }
+                constraints.add(formatConstraint(annotation.annotationType().getName(), getElements(annotation),
+                        Collections.emptySet()));
+            }
+        }
+        return constraints;
+    }
+
+    private static boolean isConstraint(final Class<? extends Annotation> annotationType) {
+        if (annotationType.getName().startsWith(CONSTRAINTS_PACKAGE)) {
+            return true;
+        }
+        for (final Annotation meta : annotationType.getDeclaredAnnotations()) {
+            if (meta.annotationType().getName().equals(CONSTRAINT)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static SortedMap<String, Object> getElements(final Annotation annotation) {
+        final SortedMap<String, Object> elements = new TreeMap<>();
+        for (final Method element : annotation.annotationType().getDeclaredMethods()) {
+            if (COMMON_ELEMENTS.contains(element.getName()) || element.getParameterCount() > 0) {
+                continue;
+            }
+            try {
+                final Object value = element.invoke(annotation);
+                if (Objects.deepEquals(value, element.getDefaultValue()) == false) {
+                    elements.put(element.getName(), value);
+                }
+            }
+            catch (final IllegalAccessException | InvocationTargetException e) {
+                // an element that cannot be read is left out
+            }
+        }
+        return elements;
+    }
+
+    /**
+     * Returns the property a getter reads, or null when the method is no
+     * getter: {@code getName} reads {@code name} and {@code isActive} of a
+     * {@code boolean} reads {@code active}.
+     */
+    static String getPropertyName(final String methodName, final String returnType) {
+        final String name;
+        if (methodName.startsWith("get") && methodName.length() > 3 && "void".equals(returnType) == false) {
+            name = methodName.substring(3);
+        }
+        else if (methodName.startsWith("is") && methodName.length() > 2 && "boolean".equals(returnType)) {
+            name = methodName.substring(2);
+        }
+        else {
+            return null;
+        }
+        // as java.beans.Introspector#decapitalize: URL stays URL
+        if (name.length() > 1 && Character.isUpperCase(name.charAt(0)) && Character.isUpperCase(name.charAt(1))) {
+            return name;
+        }
+        return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+    }
+
+    /**
+     * Describes bean types, by reflection or from class files.
+     */
+    interface TypeSource {
+        /**
+         * Returns the bean type of a class, or null when it cannot be found.
+         */
+        Bean describe(TypeRef type);
+    }
+
+    /**
+     * The constraints reachable from a type and the classes they were read
+     * from.
+     */
+    static final class PayloadConstraints {
+        final List<String> constraints;
+
+        final Set<String> classNames;
+
+        // the depth of the shallowest type being walked that this result depends on
+        private final int low;
+
+        PayloadConstraints(final List<String> constraints, final Set<String> classNames, final int low) {
+            this.constraints = constraints;
+            this.classNames = classNames;
+            this.low = low;
+        }
+    }
+
+    /**
+     * A class as far as its payload is concerned: its type parameters, its
+     * generic superclass and its properties.
+     */
+    static final class Bean {
+        static final Bean NONE = new Bean(Collections.emptyList(), null, Collections.emptyList());
+
+        final List<String> typeParameters;
+
+        final TypeRef superclass;
+
+        final List<Property> properties;
+
+        Bean(final List<String> typeParameters, final TypeRef superclass, final List<Property> properties) {
+            this.typeParameters = typeParameters;
+            this.superclass = superclass;
+            this.properties = properties;
+        }
+
+        /**
+         * Returns the type parameters bound to the type arguments of a use of
+         * this class. A raw use binds nothing.
+         */
+        Map<String, TypeRef> bind(final TypeRef use) {
+            if (typeParameters.isEmpty() || typeParameters.size() != use.arguments.size()) {
+                return Collections.emptyMap();
+            }
+            final Map<String, TypeRef> bindings = new HashMap<>();
+            for (int i = 0; i < typeParameters.size(); i++) {
+                bindings.put(typeParameters.get(i), use.arguments.get(i));
+            }
+            return bindings;
+        }
+    }
+
+    /**
+     * A field, or a getter carrying constraints.
+     */
+    static final class Property {
+        final String name;
+
+        final TypeRef type;
+
+        final List<String> constraints;
+
+        Property(final String name, final TypeRef type, final List<String> constraints) {
+            this.name = name;
+            this.type = type;
+            this.constraints = constraints;
+        }
+    }
+
+    /**
+     * A generic type as written in a field or method signature, e.g.
+     * {@code java.util.Map<java.lang.String, com.server.api.LineDto>[]}.
+     */
+    static final class TypeRef {
+        enum Kind {
+            CLASS, VARIABLE, WILDCARD
+        }
+
+        static final String UNBOUNDED = "?";
+
+        static final String EXTENDS = "? extends";
+
+        static final String SUPER = "? super";
+
+        private static final Set<String> PRIMITIVES = new HashSet<>(Arrays.asList("boolean", "byte", "char",
+                "short", "int", "long", "float", "double", "void"));
+
+        final Kind kind;
+
+        /** The binary name of a class, the name of a type variable or the form of a wildcard. */
+        final String name;
+
+        /** The type arguments of a class, or the bound of a wildcard. */
+        final List<TypeRef> arguments;
+
+        final int dimensions;
+
+        // the class of a type obtained by reflection, which reflection describes it by
+        final Class<?> origin;
+
+        private TypeRef(final Kind kind, final String name, final List<TypeRef> arguments, final int dimensions,
+                final Class<?> origin) {
+            this.kind = kind;
+            this.name = name;
+            this.arguments = arguments;
+            this.dimensions = dimensions;
+            this.origin = origin;
+        }
+
+        static TypeRef ofClass(final String className) {
+            return new TypeRef(Kind.CLASS, className, Collections.emptyList(), 0, null);
+        }
+
+        /**
+         * Returns the type of a reflected field, parameter or return type.
+         */
+        static TypeRef of(final Type type) {
+            if (type instanceof Class) {
+                Class<?> component = (Class<?>) type;
+                int dimensions = 0;
+                while (component.isArray()) {
+                    component = component.getComponentType();
+                    dimensions++;
+                }
+                return new TypeRef(Kind.CLASS, component.getName(), Collections.emptyList(), dimensions, component);
+            }
+            if (type instanceof ParameterizedType) {
+                final ParameterizedType parameterized = (ParameterizedType) type;
+                final List<TypeRef> arguments = new ArrayList<>();
+                for (final Type argument : parameterized.getActualTypeArguments()) {
+                    arguments.add(of(argument));
+                }
+                final Class<?> raw = (Class<?>) parameterized.getRawType();
+                return new TypeRef(Kind.CLASS, raw.getName(), arguments, 0, raw);
+            }
+            if (type instanceof GenericArrayType) {
+                return of(((GenericArrayType) type).getGenericComponentType()).withDimensions(1);
+            }
+            if (type instanceof TypeVariable) {
+                return new TypeRef(Kind.VARIABLE, ((TypeVariable<?>) type).getName(), Collections.emptyList(), 0,
+                        null);
+            }
+            final WildcardType wildcard = (WildcardType) type;
+            if (wildcard.getLowerBounds().length > 0) {
+                return wildcard(SUPER, of(wildcard.getLowerBounds()[0]));
+            }
+            final Type[] upperBounds = wildcard.getUpperBounds();
+            if (upperBounds.length == 0 || upperBounds[0] == Object.class) {
+                return wildcard(UNBOUNDED, null);
+            }
+            return wildcard(EXTENDS, of(upperBounds[0]));
+        }
+
+        /**
+         * Parses a type signature of a class file, e.g.
+         * {@code Ljava/util/List<Lcom/server/api/LineDto;>;}. Field
+         * descriptors are type signatures as well.
+         */
+        static TypeRef parse(final String signature) {
+            return new SignatureParser(signature).type();
+        }
+
+        /**
+         * Parses the parameter types of a method signature or descriptor.
+         */
+        static List<TypeRef> parseParameters(final String methodSignature) {
+            final SignatureParser parser = new SignatureParser(methodSignature);
+            parser.typeParameters();
+            return parser.parameters();
+        }
+
+        /**
+         * Parses the return type of a method signature or descriptor.
+         */
+        static TypeRef parseReturnType(final String methodSignature) {
+            return parse(methodSignature.substring(methodSignature.lastIndexOf(')') + 1));
+        }
+
+        /**
+         * Parses the type parameters and superclass of a class signature into
+         * a bean without properties.
+         */
+        static Bean parseClassSignature(final String classSignature) {
+            final SignatureParser parser = new SignatureParser(classSignature);
+            final List<String> typeParameters = parser.typeParameters();
+            final TypeRef superclass = parser.type();
+            return new Bean(typeParameters, "java.lang.Object".equals(superclass.name) ? null : superclass,
+                    Collections.emptyList());
+        }
+
+        private static TypeRef wildcard(final String form, final TypeRef bound) {
+            return new TypeRef(Kind.WILDCARD, form, bound != null ? Collections.singletonList(bound)
+                    : Collections.emptyList(), 0, null);
+        }
+
+        boolean isPrimitive() {
+            return kind == Kind.CLASS && dimensions == 0 && PRIMITIVES.contains(name);
+        }
+
+        /**
+         * Returns whether this type says more than its erasure does.
+         */
+        boolean isGeneric() {
+            return kind != Kind.CLASS || arguments.isEmpty() == false;
+        }
+
+        TypeRef component() {
+            return new TypeRef(kind, name, arguments, dimensions - 1, origin);
+        }
+
+        TypeRef withDimensions(final int more) {
+            return new TypeRef(kind, name, arguments, dimensions + more, origin);
+        }
+
+        /**
+         * Returns this type with the given type variables replaced.
+         */
+        TypeRef resolve(final Map<String, TypeRef> bindings) {
+            if (bindings.isEmpty()) {
+                return this;
+            }
+            if (kind == Kind.VARIABLE) {
+                final TypeRef bound = bindings.get(name);
+                return bound == null ? this : dimensions == 0 ? bound : bound.withDimensions(dimensions);
+            }
+            if (arguments.isEmpty()) {
+                return this;
+            }
+            final List<TypeRef> resolved = new ArrayList<>(arguments.size());
+            for (final TypeRef argument : arguments) {
+                resolved.add(argument.resolve(bindings));
+            }
+            return new TypeRef(kind, name, resolved, dimensions, origin);
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder text = new StringBuilder();
+            appendTo(text);
+            return text.toString();
+        }
+
+        private void appendTo(final StringBuilder text) {
+            text.append(name);
+            if (kind == Kind.WILDCARD) {
+                if (arguments.isEmpty() == false) {
+                    text.append(' ');
+                    arguments.get(0).appendTo(text);
+                }
+                return;
+            }
+            if (arguments.isEmpty() == false) {
+                text.append('<');
+                for (int i = 0; i < arguments.size(); i++) {
+                    if (i > 0) {
+                        text.append(", ");
+                    }
+                    arguments.get(i).appendTo(text);
+                }
+                text.append('>');
+            }
+            for (int i = 0; i < dimensions; i++) {
+                text.append("[]");
+            }
+        }
+    }
+
+    /**
+     * Reads the signatures of the JVM specification, section 4.7.9.1.
+     */
+    private static final class SignatureParser {
+        private final String signature;
+
+        private int position;
+
+        SignatureParser(final String signature) {
+            this.signature = signature;
+        }
+
+        List<String> typeParameters() {
+            final List<String> names = new ArrayList<>();
+            if (signature.charAt(position) != '<') {
+                return names;
+            }
+            position++;
+            while (signature.charAt(position) != '>') {
+                final int colon = signature.indexOf(':', position);
+                names.add(signature.substring(position, colon));
+                position = colon;
+                // a class bound, which is empty when interface bounds follow, and the interface bounds
+                while (signature.charAt(position) == ':') {
+                    position++;
+                    if (signature.charAt(position) != ':') {
+                        type();
+                    }
+                }
+            }
+            position++;
+            return names;
+        }
+
+        List<TypeRef> parameters() {
+            final List<TypeRef> parameters = new ArrayList<>();
+            position++; // (
+            while (signature.charAt(position) != ')') {
+                parameters.add(type());
+            }
+            position++;
+            return parameters;
+        }
+
+        TypeRef type() {
+            final char c = signature.charAt(position++);
+            switch (c) {
+                case '[':
+                    return type().withDimensions(1);
+                case 'T': {
+                    final int end = signature.indexOf(';', position);
+                    final String name = signature.substring(position, end);
+                    position = end + 1;
+                    return new TypeRef(TypeRef.Kind.VARIABLE, name, Collections.emptyList(), 0, null);
+                }
+                case 'L':
+                    return classType();
+                default:
+                    return TypeRef.ofClass(ClassFileReader.toClassName(String.valueOf(c)));
+            }
+        }
+
+        private TypeRef classType() {
+            final StringBuilder name = new StringBuilder();
+            List<TypeRef> arguments = Collections.emptyList();
+            while (true) {
+                final char c = signature.charAt(position++);
+                if (c == ';') {
+                    break;
+                }
+                if (c == '<') {
+                    arguments = typeArguments();
+                }
+                else if (c == '.') {
+                    // an inner class of a parameterized outer class, whose arguments are not kept
+                    name.append('$');
+                    arguments = Collections.emptyList();
+                }
+                else {
+                    name.append(c == '/' ? '.' : c);
+                }
+            }
+            return new TypeRef(TypeRef.Kind.CLASS, name.toString(), arguments, 0, null);
+        }
+
+        private List<TypeRef> typeArguments() {
+            final List<TypeRef> arguments = new ArrayList<>();
+            while (signature.charAt(position) != '>') {
+                final char c = signature.charAt(position);
+                if (c == '*') {
+                    position++;
+                    arguments.add(TypeRef.wildcard(TypeRef.UNBOUNDED, null));
+                }
+                else if (c == '+') {
+                    position++;
+                    arguments.add(TypeRef.wildcard(TypeRef.EXTENDS, type()));
+                }
+                else if (c == '-') {
+                    position++;
+                    arguments.add(TypeRef.wildcard(TypeRef.SUPER, type()));
+                }
+                else {
+                    arguments.add(type());
+                }
+            }
+            position++;
+            return arguments;
+        }
+    }
+}
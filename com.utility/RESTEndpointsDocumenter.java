@@ -1,18 +1,30 @@
 package com.utility;
 
-import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
+import java.lang.reflect.Type;
 import java.net.URL;
+import java.net.URLClassLoader;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.logging.Logger;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import javax.validation.constraints.Pattern;
 import javax.ws.rs.Consumes;
@@ -25,22 +37,44 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Application;
+import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Request;
 
 import org.glassfish.jersey.media.multipart.FormDataParam;
+import org.glassfish.jersey.server.ApplicationHandler;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.server.model.Invocable;
+import org.glassfish.jersey.server.model.Parameter;
+import org.glassfish.jersey.server.model.Resource;
+import org.glassfish.jersey.server.model.ResourceMethod;
+import org.glassfish.jersey.server.model.ResourceModel;
+import org.glassfish.jersey.server.monitoring.ApplicationEvent;
+import org.glassfish.jersey.server.monitoring.ApplicationEventListener;
+import org.glassfish.jersey.server.monitoring.RequestEvent;
+import org.glassfish.jersey.server.monitoring.RequestEventListener;
 
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 
+import com.utility.DocumenterMetrics.Counter;
+import com.utility.DocumenterMetrics.Phase;
+import com.utility.PayloadTypeGraph.TypeRef;
+
 /**
  * Explores the Java classes in a given package, looking for annotations
  * indicating REST endpoints. These are written to an HTML table, documenting
  * basic information about all the known endpoints.
+ * <p>
+ * Each endpoint found is logged at {@code FINE}. Timings and counts of a run
+ * are collected in {@link #getMetrics()}.
  */
 public class RESTEndpointsDocumenter {
 
+    private static final Logger LOG = Logger.getLogger(RESTEndpointsDocumenter.class.getName());
+
     // used to store the collection of attributes for a web services endpoint
     public static final String NEWLINE = System.getProperty("line.separator");
 
@@ -48,10 +82,52 @@ public class RESTEndpointsDocumenter {
 
     public static final String BASE_URI = "Server/api";
 
+    /**
+     * System property making the documenter write the documents of a single
+     * package while it is scanned, e.g. {@code -Dapiindex.streaming=true}; see
+     * {@link #outputDocuments(Stream, String)}.
+     */
+    public static final String STREAMING_PROPERTY = "apiindex.streaming";
+
+    static final String JAX_RS_PACKAGE = "javax.ws.rs.";
+
     enum MethodEnum {GET, POST, PUT, DELETE}
 
     enum ParameterType {PATH, QUERY, PAYLOAD}
 
+    /**
+     * The order endpoints are documented in: by URI, then method, then Java
+     * class and method name. Keeps the generated page identical between runs.
+     */
+    public static final Comparator<RestEndpoint> ENDPOINT_ORDER = Comparator
+            .comparing((RestEndpoint endpoint) -> endpoint.uri)
+            .thenComparing(endpoint -> endpoint.method)
+            .thenComparing(endpoint -> endpoint.javaClass)
+            .thenComparing(endpoint -> endpoint.javaMethodName);
+
+    // reuses its output buffer across pages
+    private final HtmlEndpointRenderer htmlRenderer = new HtmlEndpointRenderer();
+
+    private final DocumenterMetrics metrics = new DocumenterMetrics();
+
+    // shared by the endpoints of every scan, so a merged index holds each type name and media type once
+    private final EndpointSymbols symbols = new EndpointSymbols();
+
+    private String baseUri = BASE_URI;
+
+    // metadata of the classes seen by the running scan
+    private final Map<Class<?>, ClassMetadata> classMetadata = new HashMap<>();
+
+    // endpoints of the sub-resource classes seen by the running scan, relative to their locators
+    private final SubResourceExpansions<Class<?>, List<RestEndpoint>> subResources = new SubResourceExpansions<>();
+
+    // the resource classes being expanded below the running root, to cut locator cycles
+    private SubResourceExpansions.Expanding<Class<?>> expanding;
+
+    // payload types of the running scan, described by reflection
+    private final PayloadTypeGraph payloadTypes = new PayloadTypeGraph(
+            type -> type.origin != null ? PayloadTypeGraph.describe(type.origin) : null);
+
     public static void main(String[] args) {
         try {
             // the root package where Java classes implementing web services
@@ -63,13 +139,44 @@ public class RESTEndpointsDocumenter {
             // this should be in a directory that already exists, and contains
             //  the unzipped contents of
             //  http://dalelane.co.uk/files/120114-datatables-assets.zip
-            final String destinationHtmlPath = UserDirectory + "/docs/jersey-api-index.html";
+            String destinationHtmlPath = UserDirectory + "/docs/jersey-api-index.html";
 
-            final RESTEndpointsDocumenter endpointsDocumenter = new RESTEndpointsDocumenter();
-            final List<RestEndpoint> restEndpoints = endpointsDocumenter.findRESTEndpoints(packageName);
-            final File endpointsDoc = endpointsDocumenter.outputEndpointsTable(restEndpoints, destinationHtmlPath);
+            // endpoints extracted from unchanged class files are reused from here on the next run
+            final File cacheFile = new File(UserDirectory + "/docs/.jersey-api-index.cache");
 
-            System.out.println("Api-Index is complete. HTML file written to " + endpointsDoc.getAbsolutePath());
+            final RESTEndpointsDocumenter endpointsDocumenter = new RESTEndpointsDocumenter();
+            if (args.length == 0 && Boolean.getBoolean(STREAMING_PROPERTY)) {
+                // the endpoints go to the documents class by class and are never held together
+                endpointsDocumenter.outputDocuments(endpointsDocumenter.streamRESTEndpoints(packageName),
+                        destinationHtmlPath);
+                return;
+            }
+            final List<RestEndpoint> restEndpoints;
+            if (args.length > 0) {
+                // a configuration listing several roots, e.g. the services of a monorepo, indexed in one run
+                final IndexConfiguration configuration = IndexConfiguration.load(new File(args[0]).toPath());
+                destinationHtmlPath = configuration.getOutput().toString();
+                restEndpoints = endpointsDocumenter.scanRESTEndpoints(configuration.getRoots(),
+                        configuration.getParallelism());
+            }
+            else {
+                restEndpoints = endpointsDocumenter.scanRESTEndpoints(packageName, cacheFile);
+            }
+            final List<EndpointStatistics> statistics = new ArrayList<>();
+            // -Dapiindex.probe=http://localhost:8080/ measures the GET endpoints of a running server first
+            final EndpointProbe probe = EndpointProbe.fromSystemProperties();
+            if (probe != null) {
+                statistics.add(probe.probe(restEndpoints));
+            }
+            // -Dapiindex.accessLogs=access.log shows the production traffic of the endpoints
+            final List<java.nio.file.Path> accessLogs = AccessLogIngester.getLogsFromSystemProperties();
+            if (accessLogs != null) {
+                final TrafficReport traffic = new AccessLogIngester(restEndpoints).ingest(accessLogs);
+                traffic.print(System.out);
+                statistics.add(traffic);
+            }
+            endpointsDocumenter.setStatistics(EndpointStatistics.concat(statistics));
+            endpointsDocumenter.outputDocuments(restEndpoints, destinationHtmlPath);
         }
         catch (Exception e) {
             e.printStackTrace();
@@ -77,259 +184,647 @@ public class RESTEndpointsDocumenter {
     }
 
     /**
-     * Writes the provided REST endpoints to an HTML file.
+     * Writes the page of the endpoints, or a page per shard with
+     * {@code -Dapiindex.shardBy}, and next to it the OpenAPI document, the
+     * snapshot and the metrics of this documenter, reporting where they went.
+     */
+    public void outputDocuments(final List<RestEndpoint> restEndpoints, final String htmlPath) throws IOException {
+        // the other documents are written next to the page
+        final String docsDirectory = new File(htmlPath).getAbsoluteFile().getParent();
+
+        // colliding routes are worth a look before publishing the page
+        for (final RouteIndex.Conflict conflict : RouteIndex.build(restEndpoints).getConflicts()) {
+            if (conflict.getKind() == RouteIndex.Conflict.Kind.SHADOWED) {
+                LOG.info(conflict::toString);
+            }
+            else {
+                LOG.warning(conflict::toString);
+            }
+        }
+        // -Dapiindex.shardBy=tag, class or prefix writes a page per shard and a landing page listing them
+        final String shardBy = System.getProperty(ShardedPageWriter.SHARD_BY_PROPERTY);
+        final File endpointsDoc = shardBy == null
+                ? outputEndpointsTable(restEndpoints, htmlPath)
+                : outputShardedEndpointTables(restEndpoints, htmlPath,
+                        ShardedPageWriter.ShardBy.valueOf(shardBy.toUpperCase()));
+
+        // the same endpoints for OpenAPI tooling, split by tag with -Dapiindex.openApiByTag=true
+        final OpenApiWriter openApiWriter = new OpenApiWriter();
+        final String openApiPath = docsDirectory + "/openapi" + openApiWriter.getFormat().getExtension();
+        final File openApiDoc = outputOpenApi(restEndpoints, openApiWriter, openApiPath,
+                Boolean.getBoolean(OpenApiWriter.BY_TAG_PROPERTY));
+
+        // compared with the snapshot of an earlier build by EndpointSnapshotDiff to gate a build
+        final File snapshotFile = new File(docsDirectory, "jersey-api-index.snapshot");
+        EndpointSnapshot.of(restEndpoints).write(snapshotFile.toPath());
+
+        // a machine-readable summary of where the time went, for build tooling
+        final File metricsFile = new File(docsDirectory, "jersey-api-index.metrics.json");
+        metrics.writeJson(metricsFile.toPath());
+
+        LOG.info("Api-Index is complete. HTML file written to " + endpointsDoc.getAbsolutePath());
+        LOG.info("OpenAPI document written to " + openApiDoc.getAbsolutePath());
+        LOG.info("Endpoint snapshot written to " + snapshotFile.getAbsolutePath());
+        LOG.info("Metrics written to " + metricsFile.getAbsolutePath());
+    }
+
+    /**
+     * Writes the page, the OpenAPI document and the snapshot of the endpoints
+     * in a single pass over the stream, through the {@link EndpointSink}s of
+     * their writers, and the metrics of this documenter beside them. With a
+     * stream from {@link #streamRESTEndpoints(String)}, the start of the page
+     * is written before the first class is scanned and memory does not grow
+     * with the endpoints. Unlike {@link #outputDocuments(List, String)}, routes
+     * are not checked for collisions, pages are not sharded and the OpenAPI
+     * document is not split by tag, as each needs all the endpoints at once.
+     * The stream is closed.
      */
+    public void outputDocuments(final Stream<RestEndpoint> restEndpoints, final String htmlPath)
+            throws IOException {
+        final File docFile = new File(htmlPath);
+        final String docsDirectory = docFile.getAbsoluteFile().getParent();
+        final OpenApiWriter openApiWriter = new OpenApiWriter();
+        final File openApiDoc = new File(docsDirectory, "openapi" + openApiWriter.getFormat().getExtension());
+        final File snapshotFile = new File(docsDirectory, "jersey-api-index.snapshot");
+
+        final List<EndpointSink> sinks = new ArrayList<>();
+        try {
+            checkHtmlAssetFiles(docFile.getAbsoluteFile().getParentFile());
+            sinks.add(htmlRenderer.sink(docFile.toPath()));
+            sinks.add(openApiWriter.sink(openApiDoc.toPath()));
+            sinks.add(EndpointSnapshot.sink(snapshotFile.toPath()));
+        }
+        catch (final IOException e) {
+            for (final EndpointSink sink : sinks) {
+                sink.close();
+            }
+            restEndpoints.close();
+            throw e;
+        }
+        final long count = EndpointSink.writeAll(restEndpoints, sinks);
+
+        final File metricsFile = new File(docsDirectory, "jersey-api-index.metrics.json");
+        metrics.writeJson(metricsFile.toPath());
+
+        LOG.info("Api-Index is complete, " + count + " endpoints. HTML file written to "
+                + docFile.getAbsolutePath());
+        LOG.info("OpenAPI document written to " + openApiDoc.getAbsolutePath());
+        LOG.info("Endpoint snapshot written to " + snapshotFile.getAbsolutePath());
+        LOG.info("Metrics written to " + metricsFile.getAbsolutePath());
+    }
+
+    /**
+     * Writes the provided REST endpoints to an HTML file. The file is replaced
+     * atomically, so a page being viewed is never seen half written.
+     */
+    @SuppressWarnings("try")
     public File outputEndpointsTable(final List<RestEndpoint> restEndpoints, final String htmlPath) throws IOException {
         final File docFile = new File(htmlPath);
 
         checkHtmlAssetFiles(docFile.getAbsoluteFile().getParentFile());
 
-        final FileWriter fStream = new FileWriter(docFile);
-        final BufferedWriter out = new BufferedWriter(fStream);
-
-        out.write("<!DOCTYPE HTML PUBLIC \"-//W3C//DTD HTML 4.01//EN\" \"http://www.w3.org/TR/html4/strict.dtd\">"
-                + NEWLINE);
-        out.write("<html>");
-        out.write("<head>");
-
-        out.write("<style type=\"text/css\">" + NEWLINE);
-        out.write("@import \"api_page.css\";" + NEWLINE);
-        out.write("@import \"header.css\";" + NEWLINE);
-        out.write("@import \"api_table.css\";" + NEWLINE);
-        out.write("</style>" + NEWLINE);
-
-        out.write("<script type=\"text/javascript\" charset=\"utf-8\" src=\"jquery.js\"></script>" + NEWLINE);
-        out.write(
-                "<script type=\"text/javascript\" charset=\"utf-8\" src=\"jquery.dataTables.js\"></script>" + NEWLINE);
-        out.write("<script type=\"text/javascript\" charset=\"utf-8\" src=\"FixedColumns.js\"></script>" + NEWLINE);
-        out.write("<script type=\"text/javascript\" charset=\"utf-8\" src=\"RowGroupingWithFixedColumn.js\"></script>"
-                + NEWLINE);
-
-        out.write("</head>" + NEWLINE);
-
-        out.write("<body id=\"dt_example\">" + NEWLINE);
-        out.write("<table cellpadding=\"0\" cellspacing=\"0\" border=\"0\" class=\"display\" id=\"endpoints\">"
-                + NEWLINE);
-        out.write("<thead><tr>");
-        out.write("<th>REST URI</th>");
-        out.write("<th>Method</th>");
-        out.write("<th>Java REST Class</th>");
-        out.write("<th>Java Class Method</th>");
-        out.write("<th>API REST Parameters</th>");
-        out.write("<th>REST Data Format</th>");
-        out.write("<th>REST Responses</th>");
-        out.write("<th>API-Tags</th>");
-        out.write("<th>Annotations</th>");
-        out.write("<th>Descriptions</th>");
-        out.write("</tr>" + NEWLINE);
-        out.write("</head>" + NEWLINE);
-        out.write("<tbody>" + NEWLINE);
+        try (DocumenterMetrics.Timer timer = metrics.time(Phase.RENDERING)) {
+            metrics.add(Counter.BYTES_WRITTEN, htmlRenderer.render(restEndpoints, docFile.toPath()));
+        }
 
-        for (final RestEndpoint restEndpoint : restEndpoints) {
-            switch (restEndpoint.method) {
-                case GET:
-                    out.write("<tr class='gradeA'>");
-                    break;
-                case POST:
-                    out.write("<tr class='gradeU'>");
-                    break;
-                case PUT:
-                    out.write("<tr class='gradeC'>");
-                    break;
-                case DELETE:
-                    out.write("<tr class='gradeX'>");
-                    break;
-                default:
-                    out.write("<tr>");
-            }
-
-            out.write("<td>" + restEndpoint.uri + "</td>");
-            out.write("<td>" + restEndpoint.method + "</td>");
-            out.write("<td>" + restEndpoint.javaClass + "</td>");
-            out.write("<td>" + restEndpoint.javaMethodName + "</td>");
-
-            // Parameters Column
-            out.write("<td class='column-content-small'>");
-            for (EndpointParameter parameter : restEndpoint.pathParameters) {
-                out.write("Path: {" + parameter.name + "} (" + parameter.javaType + ")");
-                if (parameter.defaultValue != null && parameter.defaultValue.trim().length() > 0) {
-                    out.write(" Default = \"" + parameter.defaultValue + "\"");
-                }
-                out.write("<br/>");
+        return docFile;
+    }
+
+    /**
+     * Writes the provided REST endpoints to one HTML file per shard and a
+     * landing page listing the shards at the given path. Files whose content
+     * did not change are left alone.
+     */
+    @SuppressWarnings("try")
+    public File outputShardedEndpointTables(final List<RestEndpoint> restEndpoints, final String htmlPath,
+            final ShardedPageWriter.ShardBy shardBy) throws IOException {
+        final File docFile = new File(htmlPath);
+
+        checkHtmlAssetFiles(docFile.getAbsoluteFile().getParentFile());
+
+        try (DocumenterMetrics.Timer timer = metrics.time(Phase.RENDERING)) {
+            final ShardedPageWriter writer = new ShardedPageWriter(shardBy);
+            writer.setStatistics(htmlRenderer.getStatistics());
+            final List<ShardedPageWriter.Shard> shards = writer.write(restEndpoints, docFile.toPath());
+            final long rewritten = shards.stream().filter(ShardedPageWriter.Shard::isRewritten).count();
+            LOG.info(shards.size() + " shards by " + shardBy.name().toLowerCase() + ", " + rewritten
+                    + " of them rewritten");
+        }
+
+        return docFile;
+    }
+
+    /**
+     * Writes the provided REST endpoints to an OpenAPI document, and if asked
+     * to one document per tag beside it, named after it.
+     */
+    @SuppressWarnings("try")
+    public File outputOpenApi(final List<RestEndpoint> restEndpoints, final OpenApiWriter openApiWriter,
+            final String openApiPath, final boolean byTag) throws IOException {
+        final File docFile = new File(openApiPath);
+
+        try (DocumenterMetrics.Timer timer = metrics.time(Phase.RENDERING)) {
+            metrics.add(Counter.BYTES_WRITTEN, openApiWriter.write(restEndpoints, docFile.toPath()));
+            if (byTag) {
+                final String name = docFile.getName();
+                final String baseName = name.substring(0, name.length()
+                        - openApiWriter.getFormat().getExtension().length());
+                metrics.add(Counter.BYTES_WRITTEN, openApiWriter.writeByTag(restEndpoints,
+                        docFile.getAbsoluteFile().getParentFile().toPath(), baseName).values().stream()
+                        .mapToLong(file -> file.toFile().length()).sum());
             }
-            for (EndpointParameter parameter : restEndpoint.queryParameters) {
-                out.write("Query: {" + parameter.name + "} (" + parameter.javaType + ") ");
-                if (parameter.defaultValue != null && parameter.defaultValue.trim().length() > 0) {
-                    out.write(" Default = \"" + parameter.defaultValue + "\"");
-                }
-                out.write("<br/>");
+        }
+
+        return docFile;
+    }
+
+    /**
+     * Returns the timings and counts of the endpoint scans and pages of this
+     * documenter.
+     */
+    public DocumenterMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Sets the statistics, e.g. measured by an {@link EndpointProbe}, whose
+     * columns the pages of this documenter show after the documented ones, or
+     * null for none.
+     */
+    public void setStatistics(final EndpointStatistics statistics) {
+        htmlRenderer.setStatistics(statistics);
+    }
+
+    public String getBaseUri() {
+        return baseUri;
+    }
+
+    /**
+     * Sets the URI the endpoint paths of the following scans of a single
+     * package start with, {@link #BASE_URI} by default.
+     */
+    public void setBaseUri(final String baseUri) {
+        this.baseUri = baseUri;
+    }
+
+    /**
+     * Verifies that the JS and CSS files required by the HTML table are
+     * present, and warns about missing optional ones.
+     */
+    private void checkHtmlAssetFiles(final File directory) throws FileNotFoundException {
+        if (directory.exists() == false) {
+            throw new FileNotFoundException(directory.getAbsolutePath());
+        }
+
+        for (final String file : HtmlEndpointRenderer.ASSET_FILES) {
+            final File asset = new File(directory, file);
+            if (asset.exists() == false) {
+                throw new FileNotFoundException(asset.getAbsolutePath());
             }
-            for (EndpointParameter parameter : restEndpoint.payloadParameters) {
-                if (parameter.name != null && parameter.name.trim().length() > 0) {
-                    out.write("Payload: {" + parameter.name + "} (" + parameter.javaType + ") ");
-                }
-                else {
-                    out.write("Payload: " + parameter.javaType);
-                }
-                out.write("<br/>");
-            }
-            out.write("</td>");
-
-            // Data Format Column
-            out.write("<td>");
-            if (restEndpoint.consumes.size() > 0) {
-                out.write("Consumes: ");
-                for (String consume : restEndpoint.consumes) {
-                    out.write(consume);
-                    if (restEndpoint.consumes.indexOf(consume) != restEndpoint.consumes.size() - 1) {
-                        out.write(", ");
-                    }
-                }
-                out.write("<br/>");
-            }
-            if (restEndpoint.produces.size() > 0) {
-                out.write("Produces: ");
-                for (String produce : restEndpoint.produces) {
-                    out.write(produce);
-                    if (restEndpoint.produces.indexOf(produce) != restEndpoint.produces.size() - 1) {
-                        out.write(", ");
-                    }
-                }
+        }
+        for (final String file : HtmlEndpointRenderer.OPTIONAL_ASSET_FILES) {
+            final File asset = new File(directory, file);
+            if (asset.exists() == false) {
+                LOG.warning("Missing " + asset.getAbsolutePath() + ", the page searches without its index");
             }
-            out.write("</td>");
-
-            // Return Response Column
-            out.write("<td>" + restEndpoint.javaMethodReturnType + "<br/>");
-            if (restEndpoint.successResponseTypes.size() > 0) {
-                out.write("Success: ");
-                for (String returnType : restEndpoint.successResponseTypes) {
-                    out.write(returnType);
-                    if (restEndpoint.successResponseTypes.indexOf(returnType)
-                            != restEndpoint.successResponseTypes.size() - 1) {
-                        out.write(", ");
-                    }
-                }
-                out.write("<br/>");
-            }
-            if (restEndpoint.failureResponseTypes.size() > 0) {
-                out.write("Failure: ");
-                for (String returnType : restEndpoint.failureResponseTypes) {
-                    out.write(returnType);
-                    if (restEndpoint.failureResponseTypes.indexOf(returnType)
-                            != restEndpoint.failureResponseTypes.size() - 1) {
-                        out.write(", ");
-                    }
+        }
+    }
+
+    /**
+     * Returns REST endpoints defined in Java classes in the specified package,
+     * in {@link #ENDPOINT_ORDER}. Like those of the scans, the endpoints share
+     * their strings and lists through the {@link EndpointSymbols} of this
+     * documenter, and their lists cannot be modified.
+     */
+    @SuppressWarnings({ "rawtypes", "try" })
+    public List<RestEndpoint> findRESTEndpoints(final String basePackage) throws IOException, ClassNotFoundException {
+        final List<RestEndpoint> restEndpoints = new ArrayList<RestEndpoint>();
+        final List<Class> classes;
+        try (DocumenterMetrics.Timer timer = metrics.time(Phase.DISCOVERY)) {
+            classes = getClasses(basePackage);
+        }
+        try {
+            for (final Class<?> clazz : classes) {
+                final Annotation annotation = clazz.getAnnotation(Path.class);
+                if (annotation != null) {
+                    metrics.increment(Counter.RESOURCE_CLASSES);
+                    final long start = System.nanoTime();
+                    final int endpointsBefore = restEndpoints.size();
+                    expanding = new SubResourceExpansions.Expanding<>(Collections.singleton(clazz));
+                    restEndpoints.addAll(getEndpoints(clazz, getClassMetadata(clazz).basePath));
+                    metrics.recordClass(clazz.getName(), System.nanoTime() - start,
+                            restEndpoints.size() - endpointsBefore);
                 }
             }
-            out.write("</td>");
+        }
+        finally {
+            // the classes may belong to a class loader that is about to go away
+            classMetadata.clear();
+            subResources.clear();
+            expanding = null;
+            payloadTypes.clear();
+        }
+        return complete(restEndpoints);
+    }
+
+    /**
+     * Returns the REST endpoints of an application as Jersey routes them, in
+     * {@link #ENDPOINT_ORDER}, from the resource model of an
+     * {@link ApplicationHandler} built in-process, without a server. See
+     * {@link #findRESTEndpoints(ResourceModel)}.
+     *
+     * @throws org.glassfish.jersey.server.model.ModelValidationException if
+     *             the application's resources are not valid
+     */
+    public List<RestEndpoint> findRESTEndpoints(final Application application) {
+        return findRESTEndpoints(buildResourceModel(application));
+    }
+
+    /**
+     * Returns the REST endpoints of a Jersey resource model, in
+     * {@link #ENDPOINT_ORDER}. The model has every resource the application
+     * serves, including those registered programmatically, with the
+     * {@code ResourceConfig} or outside any one package, and Jersey has
+     * already resolved and validated their paths, media types and
+     * parameters. Only the Swagger documentation and the payload constraints
+     * are read from the resource methods. Sub-resources returned by locators
+     * are modelled as Jersey models them when a request reaches them.
+     */
+    public List<RestEndpoint> findRESTEndpoints(final ResourceModel resourceModel) {
+        final List<RestEndpoint> restEndpoints = new ArrayList<RestEndpoint>();
+        try {
+            for (final Resource resource : resourceModel.getRootResources()) {
+                metrics.increment(Counter.RESOURCE_CLASSES);
+                final long start = System.nanoTime();
+                final int endpointsBefore = restEndpoints.size();
+                expanding = new SubResourceExpansions.Expanding<>(resource.getHandlerClasses());
+                restEndpoints.addAll(getEndpoints(resource, toEndpointPath(baseUri, resource.getPath())));
+                metrics.recordClass(resource.getName(), System.nanoTime() - start,
+                        restEndpoints.size() - endpointsBefore);
+            }
+        }
+        finally {
+            classMetadata.clear();
+            subResources.clear();
+            expanding = null;
+            payloadTypes.clear();
+        }
+        return complete(restEndpoints);
+    }
+
+    /**
+     * Builds the resource model of an application in an
+     * {@link ApplicationHandler}, which validates it as a deployment would. A
+     * {@code ResourceConfig} is copied, not modified.
+     */
+    @SuppressWarnings("try")
+    public ResourceModel buildResourceModel(final Application application) {
+        final ResourceConfig resourceConfig = application instanceof ResourceConfig
+                ? new ResourceConfig((ResourceConfig) application) : ResourceConfig.forApplication(application);
+        final ResourceModelListener listener = new ResourceModelListener();
+        resourceConfig.register(listener);
+        try (DocumenterMetrics.Timer timer = metrics.time(Phase.MODEL)) {
+            new ApplicationHandler(resourceConfig);
+        }
+        return listener.resourceModel;
+    }
+
+    /**
+     * Sorts and compacts the endpoints of a scan, and counts them.
+     */
+    private List<RestEndpoint> complete(final List<RestEndpoint> restEndpoints) {
+        restEndpoints.sort(ENDPOINT_ORDER);
+        symbols.compact(restEndpoints);
+        metrics.add(Counter.ENDPOINTS, restEndpoints.size());
+        for (final RestEndpoint restEndpoint : restEndpoints) {
+            metrics.add(Counter.PARAMETERS, restEndpoint.pathParameters.size()
+                    + restEndpoint.queryParameters.size() + restEndpoint.payloadParameters.size());
+        }
+        return restEndpoints;
+    }
 
-            // Tags Column
-            out.write("<td>");
-            for (String tag : restEndpoint.tags) {
-                if (tag != null && tag.trim().length() > 0) {
-                    out.write("@" + tag);
+
+    /**
+     * Returns REST endpoints defined in the specified package by reading the
+     * class files directly, without loading any of the classes.
+     */
+    public List<RestEndpoint> scanRESTEndpoints(final String basePackage) throws IOException {
+        final BytecodeEndpointScanner scanner = new BytecodeEndpointScanner(
+                Thread.currentThread().getContextClassLoader());
+        scanner.setBaseUri(baseUri);
+        scanner.setMetrics(metrics);
+        scanner.setSymbols(symbols);
+        return scanner.findRESTEndpoints(basePackage);
+    }
+
+    /**
+     * Returns REST endpoints defined in the specified package lazily, class by
+     * class as their class files are read, for
+     * {@link #outputDocuments(Stream, String)} or any other consumer that
+     * takes them one at a time; see
+     * {@link BytecodeEndpointScanner#streamRESTEndpoints(String)}. The
+     * endpoints are not compacted. Close the stream when done with it.
+     */
+    public Stream<RestEndpoint> streamRESTEndpoints(final String basePackage) throws IOException {
+        final BytecodeEndpointScanner scanner = new BytecodeEndpointScanner(
+                Thread.currentThread().getContextClassLoader());
+        scanner.setBaseUri(baseUri);
+        scanner.setMetrics(metrics);
+        scanner.setSymbols(null);
+        return scanner.streamRESTEndpoints(basePackage);
+    }
+
+    /**
+     * Same as {@link #scanRESTEndpoints(String)}, but only analyzes the class
+     * files that changed since the run that wrote the given cache file, and
+     * updates it.
+     */
+    public List<RestEndpoint> scanRESTEndpoints(final String basePackage, final File cacheFile) throws IOException {
+        final EndpointIndexCache cache = EndpointIndexCache.open(cacheFile.toPath(), baseUri);
+        final BytecodeEndpointScanner scanner = new BytecodeEndpointScanner(
+                Thread.currentThread().getContextClassLoader());
+        scanner.setBaseUri(baseUri);
+        scanner.setCache(cache);
+        scanner.setMetrics(metrics);
+        scanner.setSymbols(symbols);
+        final List<RestEndpoint> restEndpoints = scanner.findRESTEndpoints(basePackage);
+        LOG.info("Index cache: " + cache.getReusedCount() + " class files reused, " + cache.getAnalyzedCount()
+                + " analyzed, " + cache.getPrunedCount() + " pruned");
+        cache.save();
+        return restEndpoints;
+    }
+
+    /**
+     * Returns the REST endpoints of several roots, such as the services of a
+     * monorepo, merged in {@link #ENDPOINT_ORDER}. Each root is scanned from
+     * its own classpath in a class loader of its own, below its own base URI,
+     * with its own cache if it has one. Up to {@code parallelism} threads
+     * scan at once; with fewer roots than that, the roots scan their class
+     * files in parallel as well.
+     *
+     * @throws IOException if any root fails to scan
+     */
+    public List<RestEndpoint> scanRESTEndpoints(final List<IndexRoot> roots, final int parallelism)
+            throws IOException {
+        if (roots.isEmpty()) {
+            return new ArrayList<>();
+        }
+        final int rootThreads = Math.min(parallelism, roots.size());
+        final int rootParallelism = Math.max(1, parallelism / rootThreads);
+        final ExecutorService executor = Executors.newFixedThreadPool(rootThreads);
+        final List<RestEndpoint> restEndpoints = new ArrayList<>();
+        try {
+            final List<Future<List<RestEndpoint>>> results = new ArrayList<>(roots.size());
+            for (final IndexRoot root : roots) {
+                results.add(executor.submit(() -> scanRoot(root, rootParallelism)));
+            }
+            for (int i = 0; i < roots.size(); i++) {
+                try {
+                    restEndpoints.addAll(results.get(i).get());
+                }
+                catch (final ExecutionException e) {
+                    throw new IOException("Failed to scan root " + roots.get(i).getName(), e.getCause());
                 }
-                out.write("<br/>");
             }
-            out.write("</td>");
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while scanning " + roots.size() + " roots", e);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+        restEndpoints.sort(ENDPOINT_ORDER);
+        return restEndpoints;
+    }
 
-            // Annotations Column
-            out.write("<td class='column-content-small'>");
-            for (String annotation : restEndpoint.annotations) {
-                out.write(annotation);
-                out.write("<br/>");
+    private List<RestEndpoint> scanRoot(final IndexRoot root, final int parallelism) throws IOException {
+        final long start = System.nanoTime();
+        // only the platform classes are shared, so roots see their own versions of every library
+        try (URLClassLoader classLoader = new URLClassLoader(root.getClassLoaderUrls(),
+                ClassLoader.getPlatformClassLoader())) {
+            final BytecodeEndpointScanner scanner = new BytecodeEndpointScanner(classLoader, parallelism);
+            scanner.setBaseUri(root.getBaseUri());
+            scanner.setMetrics(metrics);
+            scanner.setSymbols(symbols);
+            final EndpointIndexCache cache = root.getCacheFile() != null
+                    ? EndpointIndexCache.open(root.getCacheFile(), root.getBaseUri()) : null;
+            scanner.setCache(cache);
+            final List<RestEndpoint> restEndpoints = scanner.findRESTEndpoints(root.getClasspath(),
+                    root.getBasePackage());
+            if (cache != null) {
+                cache.save();
             }
-            out.write("</td>");
+            LOG.info(() -> "Root " + root.getName() + ": " + restEndpoints.size() + " endpoints in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms"
+                    + (cache != null ? ", " + cache.getReusedCount() + " class files reused from the cache" : ""));
+            return restEndpoints;
+        }
+    }
 
-            // Description Column
-            out.write("<td>");
-            if (restEndpoint.description != null) {
-                out.write(restEndpoint.description);
+    /**
+     * Returns the endpoints of the resource methods of a class below the given
+     * path, and those of the sub-resources returned by its locator methods.
+     */
+    private List<RestEndpoint> getEndpoints(final Class<?> clazz, final String classUri) {
+        final List<RestEndpoint> restEndpoints = new ArrayList<>();
+        final ClassMetadata classMetadata = getClassMetadata(clazz);
+        for (final Method method : clazz.getMethods()) {
+            final Method annotated = getAnnotatedMethod(method);
+            if (annotated.isAnnotationPresent(GET.class)) {
+                restEndpoints.add(createEndpoint(annotated, MethodEnum.GET, clazz, classMetadata, classUri));
+            }
+            else if (annotated.isAnnotationPresent(PUT.class)) {
+                restEndpoints.add(createEndpoint(annotated, MethodEnum.PUT, clazz, classMetadata, classUri));
+            }
+            else if (annotated.isAnnotationPresent(POST.class)) {
+                restEndpoints.add(createEndpoint(annotated, MethodEnum.POST, clazz, classMetadata, classUri));
             }
-            if (restEndpoint.notes != null && restEndpoint.notes.trim().length() > 0) {
-                out.write("<br/>");
-                out.write("Note:" + restEndpoint.notes);
+            else if (annotated.isAnnotationPresent(DELETE.class)) {
+                restEndpoints.add(createEndpoint(annotated, MethodEnum.DELETE, clazz, classMetadata, classUri));
             }
-            out.write("</td>");
+            else if (annotated.isAnnotationPresent(Path.class)) {
+                restEndpoints.addAll(getLocatorEndpoints(annotated, clazz, classUri));
+            }
+        }
+        return restEndpoints;
+    }
 
-            // Row End
-            out.write("</tr>" + NEWLINE);
+    /**
+     * Returns the endpoints of the sub-resource a locator method returns,
+     * mounted below the locator.
+     */
+    @SuppressWarnings("try")
+    private List<RestEndpoint> getLocatorEndpoints(final Method locator, final Class<?> clazz,
+            final String classUri) {
+        final List<RestEndpoint> relative = getSubResourceEndpoints(locator.getReturnType(),
+                clazz.getName() + "." + locator.getName(), subResource -> getEndpoints(subResource, ""));
+        if (relative == null) {
+            return Collections.emptyList();
         }
 
-        out.write("</tbody>" + NEWLINE);
-        out.write("</table>" + NEWLINE);
-        out.write("</body></html>");
+        final RestEndpoint mount = new RestEndpoint();
+        mount.uri = classUri + locator.getAnnotation(Path.class).value();
+        try (DocumenterMetrics.Timer timer = metrics.time(Phase.PARAMETERS)) {
+            discoverParameters(locator, mount);
+        }
+        return mount(relative, mount);
+    }
 
-        out.close();
-        fStream.close();
+    /**
+     * Returns the endpoints of the sub-resource a locator returns relative to
+     * the locator, or null if they cannot be documented: the type must be
+     * known before runtime, and must not lead back to a class being expanded.
+     * The endpoints of each sub-resource class are worked out once per scan
+     * however many locators return it, unless a locator cycle makes them
+     * differ.
+     */
+    private List<RestEndpoint> getSubResourceEndpoints(final Class<?> subResource, final String locator,
+            final Function<Class<?>, List<RestEndpoint>> expand) {
+        if (subResource.isPrimitive() || subResource.isArray() || subResource == Object.class
+                || subResource == Class.class || subResource.getName().startsWith("java.")) {
+            LOG.fine(() -> "Skipping sub-resource locator " + locator
+                    + ", whose sub-resource type is only known at runtime");
+            return null;
+        }
+        final List<RestEndpoint> relative = subResources.get(subResource, expanding, expand);
+        if (relative == null) {
+            LOG.warning("Skipping sub-resource locator " + locator + ", which leads back to "
+                    + subResource.getName() + " in " + expanding.getClasses().stream().map(Class::getName)
+                            .collect(Collectors.toList()));
+        }
+        return relative;
+    }
 
-        return docFile;
+    private static List<RestEndpoint> mount(final List<RestEndpoint> relative, final RestEndpoint mount) {
+        final List<RestEndpoint> mounted = new ArrayList<>(relative.size());
+        for (final RestEndpoint restEndpoint : relative) {
+            mounted.add(restEndpoint.mountedAt(mount));
+        }
+        return mounted;
     }
 
     /**
-     * Verifies that the JS and CSS files required by the HTML table are present.
+     * Returns the endpoints of the resource methods of a model resource at the
+     * given path, those of its child resources, and those of the sub-resource
+     * its locator returns.
      */
-    private void checkHtmlAssetFiles(final File directory) throws FileNotFoundException {
-        if (directory.exists() == false) {
-            throw new FileNotFoundException(directory.getAbsolutePath());
+    private List<RestEndpoint> getEndpoints(final Resource resource, final String uri) {
+        final List<RestEndpoint> restEndpoints = new ArrayList<>();
+        for (final ResourceMethod resourceMethod : resource.getResourceMethods()) {
+            final MethodEnum restMethod = toMethodEnum(resourceMethod.getHttpMethod());
+            if (restMethod != null) {
+                restEndpoints.add(createEndpoint(resourceMethod, restMethod, uri));
+            }
+            else {
+                // e.g. the HEAD and OPTIONS methods Jersey adds to every resource
+                LOG.fine(() -> "Skipping " + resourceMethod.getHttpMethod() + " " + uri);
+            }
         }
+        final ResourceMethod locator = resource.getResourceLocator();
+        if (locator != null) {
+            restEndpoints.addAll(getLocatorEndpoints(locator, uri));
+        }
+        for (final Resource child : resource.getChildResources()) {
+            restEndpoints.addAll(getEndpoints(child, uri + child.getPath()));
+        }
+        return restEndpoints;
+    }
 
-        final List<String> assetFiles = new ArrayList<>();
-        assetFiles.add("RowGroupingWithFixedColumn.js");
-        assetFiles.add("FixedColumns.js");
-        assetFiles.add("api_page.css");
-        assetFiles.add("api_table.css");
-        assetFiles.add("header.css");
-        assetFiles.add("jquery.dataTables.js");
-        assetFiles.add("jquery.js");
-
-        for (final String file : assetFiles) {
-            final File asset = new File(directory, file);
-            if (asset.exists() == false) {
-                throw new FileNotFoundException(asset.getAbsolutePath());
+    private static MethodEnum toMethodEnum(final String httpMethod) {
+        for (final MethodEnum method : MethodEnum.values()) {
+            if (method.name().equals(httpMethod)) {
+                return method;
             }
         }
+        return null;
     }
 
     /**
-     * Returns REST endpoints defined in Java classes in the specified package.
+     * Returns the endpoints of the sub-resource a model locator returns,
+     * mounted below the locator. Like Jersey, the sub-resource is modelled
+     * from its class.
      */
-    @SuppressWarnings("rawtypes")
-    public List<RestEndpoint> findRESTEndpoints(final String basePackage) throws IOException, ClassNotFoundException {
-        final List<RestEndpoint> restEndpoints = new ArrayList<RestEndpoint>();
-        final List<Class> classes = getClasses(basePackage);
-        for (final Class<?> clazz : classes) {
-            final Annotation annotation = clazz.getAnnotation(Path.class);
-            if (annotation != null) {
-                final String basePath = getRESTEndpointPath(clazz);
-                final Method[] methods = clazz.getMethods();
-                for (final Method method : methods) {
-                    if (method.isAnnotationPresent(GET.class)) {
-                        restEndpoints.add(createEndpoint(method, MethodEnum.GET, clazz, basePath));
-                    }
-                    else if (method.isAnnotationPresent(PUT.class)) {
-                        restEndpoints.add(createEndpoint(method, MethodEnum.PUT, clazz, basePath));
-                    }
-                    else if (method.isAnnotationPresent(POST.class)) {
-                        restEndpoints.add(createEndpoint(method, MethodEnum.POST, clazz, basePath));
-                        // TODO: Payload validations can be listed and find out the possible failure here
-                    }
-                    else if (method.isAnnotationPresent(DELETE.class)) {
-                        restEndpoints.add(createEndpoint(method, MethodEnum.DELETE, clazz, basePath));
-                    }
+    @SuppressWarnings("try")
+    private List<RestEndpoint> getLocatorEndpoints(final ResourceMethod locator, final String uri) {
+        final Invocable invocable = locator.getInvocable();
+        final List<RestEndpoint> relative = getSubResourceEndpoints(invocable.getRawResponseType(),
+                invocable.getHandler().getHandlerClass().getName() + "." + invocable.getDefinitionMethod().getName(),
+                subResource -> getEndpoints(Resource.from(subResource), ""));
+        if (relative == null) {
+            return Collections.emptyList();
+        }
+
+        final RestEndpoint mount = new RestEndpoint();
+        mount.uri = uri;
+        try (DocumenterMetrics.Timer timer = metrics.time(Phase.PARAMETERS)) {
+            discoverParameters(invocable, mount);
+        }
+        return mount(relative, mount);
+    }
+
+    /**
+     * Returns the method carrying the JAX-RS annotations of a method: the
+     * method itself if it has any, otherwise the first method it overrides or
+     * implements that does, looking at the superclasses before the
+     * interfaces.
+     */
+    static Method getAnnotatedMethod(final Method method) {
+        if (hasJaxRsAnnotations(method)) {
+            return method;
+        }
+        final List<Class<?>> interfaces = new ArrayList<>();
+        for (Class<?> type = method.getDeclaringClass(); type != null; type = type.getSuperclass()) {
+            if (type != method.getDeclaringClass()) {
+                final Method overridden = findDeclaredMethod(type, method);
+                if (overridden != null && hasJaxRsAnnotations(overridden)) {
+                    return overridden;
                 }
             }
+            interfaces.addAll(Arrays.asList(type.getInterfaces()));
+        }
+        for (int i = 0; i < interfaces.size(); i++) {
+            final Method implemented = findDeclaredMethod(interfaces.get(i), method);
+            if (implemented != null && hasJaxRsAnnotations(implemented)) {
+                return implemented;
+            }
+            interfaces.addAll(Arrays.asList(interfaces.get(i).getInterfaces()));
+        }
+        return method;
+    }
+
+    private static Method findDeclaredMethod(final Class<?> type, final Method method) {
+        try {
+            return type.getDeclaredMethod(method.getName(), method.getParameterTypes());
+        }
+        catch (final NoSuchMethodException e) {
+            return null;
         }
-        return restEndpoints;
     }
 
+    private static boolean hasJaxRsAnnotations(final Method method) {
+        for (final Annotation annotation : method.getDeclaredAnnotations()) {
+            if (annotation.annotationType().getName().startsWith(JAX_RS_PACKAGE)) {
+                return true;
+            }
+        }
+        for (final Annotation[] parameterAnnotations : method.getParameterAnnotations()) {
+            for (final Annotation annotation : parameterAnnotations) {
+                if (annotation.annotationType().getName().startsWith(JAX_RS_PACKAGE)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
 
     /**
      * Create an endpoint object to represent the REST endpoint defined in the
      * specified Java method.
      */
+    @SuppressWarnings("try")
     private RestEndpoint createEndpoint(final Method javaMethod, final MethodEnum restMethod, final Class<?> clazz,
-            final String classUri) {
+            final ClassMetadata classMetadata, final String classUri) {
         final RestEndpoint newRestEndpoint = new RestEndpoint();
         newRestEndpoint.method = restMethod;
         newRestEndpoint.javaMethodName = javaMethod.getName();
@@ -344,56 +839,116 @@ public class RESTEndpointsDocumenter {
             newRestEndpoint.uri = classUri;
         }
 
-        discoverParameters(javaMethod, newRestEndpoint);
+        try (DocumenterMetrics.Timer timer = metrics.time(Phase.PARAMETERS)) {
+            discoverParameters(javaMethod, newRestEndpoint);
+        }
 
-        discoverSwaggerDocInfos(javaMethod, clazz, newRestEndpoint);
+        try (DocumenterMetrics.Timer timer = metrics.time(Phase.SWAGGER)) {
+            discoverSwaggerDocInfos(javaMethod, classMetadata, newRestEndpoint);
+        }
 
-        newRestEndpoint.annotations = discoverAnnotations(javaMethod);
+        try (DocumenterMetrics.Timer timer = metrics.time(Phase.ANNOTATIONS)) {
+            newRestEndpoint.annotations = getEndpointAnnotations(javaMethod);
+        }
 
-        // NOTE: Ignoring unwanted annotationsremoveAnnotations
-        final List<String> removeAnnotations = new ArrayList<>();
-        removeAnnotations.add(Path.class.getName());
-        removeAnnotations.add(GET.class.getName());
-        removeAnnotations.add(POST.class.getName());
-        removeAnnotations.add(PUT.class.getName());
-        removeAnnotations.add(DELETE.class.getName());
-        //        removeAnnotations.add(Consumes.class.getName());
-        //        removeAnnotations.add(Produces.class.getName());
-        //        removeAnnotations.add(Api.class.getName());
-        //        removeAnnotations.add(ApiOperation.class.getName());
-        //        removeAnnotations.add(ApiResponses.class.getName());
-        newRestEndpoint.annotations.removeAll(removeAnnotations);
+        LOG.fine(newRestEndpoint::toString);
+
+        return newRestEndpoint;
+    }
 
-        System.out.println(newRestEndpoint.toString());
+    /**
+     * Returns the annotations documented for an endpoint method: those of the
+     * class declaring it, which may be a superclass, and its own.
+     */
+    private List<String> getEndpointAnnotations(final Method javaMethod) {
+        final Annotation[] declared = javaMethod.getDeclaredAnnotations();
+        final List<String> methodAnnotations = new ArrayList<>(declared.length);
+        for (final Annotation annotation : declared) {
+            methodAnnotations.add(annotation.annotationType().getName());
+        }
+        return getClassMetadata(javaMethod.getDeclaringClass()).getEndpointAnnotations(methodAnnotations);
+    }
+
+    /**
+     * Create an endpoint object to represent a method of a model resource at
+     * the given path. The method may be a Java method or, for resources built
+     * programmatically, an {@link org.glassfish.jersey.process.Inflector}.
+     */
+    @SuppressWarnings("try")
+    private RestEndpoint createEndpoint(final ResourceMethod resourceMethod, final MethodEnum restMethod,
+            final String uri) {
+        final Invocable invocable = resourceMethod.getInvocable();
+        final Class<?> handlerClass = invocable.getHandler().getHandlerClass();
+        final Method javaMethod = invocable.getDefinitionMethod();
+        final RestEndpoint newRestEndpoint = new RestEndpoint();
+        newRestEndpoint.uri = uri;
+        newRestEndpoint.method = restMethod;
+        newRestEndpoint.javaMethodName = javaMethod.getName();
+        newRestEndpoint.javaClass = handlerClass.getName();
+        newRestEndpoint.javaMethodReturnType = javaMethod.getReturnType().getName();
+
+        try (DocumenterMetrics.Timer timer = metrics.time(Phase.PARAMETERS)) {
+            discoverParameters(invocable, newRestEndpoint);
+        }
+
+        try (DocumenterMetrics.Timer timer = metrics.time(Phase.SWAGGER)) {
+            discoverSwaggerDocInfos(javaMethod, getClassMetadata(handlerClass), newRestEndpoint);
+            // as Jersey resolved them, with the defaults of the class and each type of a list on its own
+            newRestEndpoint.consumes = toStrings(resourceMethod.getConsumedTypes());
+            newRestEndpoint.produces = toStrings(resourceMethod.getProducedTypes());
+        }
+
+        try (DocumenterMetrics.Timer timer = metrics.time(Phase.ANNOTATIONS)) {
+            newRestEndpoint.annotations = getEndpointAnnotations(javaMethod);
+        }
+
+        LOG.fine(newRestEndpoint::toString);
 
         return newRestEndpoint;
     }
 
-    private List<String> discoverAnnotations(final Method invokedMethod) {
-        Class<?> type = invokedMethod.getDeclaringClass();
-        final List<String> annotations = new ArrayList<>();
-        while (type != null) {
-            for (final Annotation annotation : type.getAnnotations()) {
-                if (!annotations.contains(annotation.annotationType().getName())) {
-                    annotations.add(annotation.annotationType().getName());
-                }
-            }
-            type = type.getSuperclass();
+    private static List<String> toStrings(final List<MediaType> mediaTypes) {
+        final List<String> values = new ArrayList<>(mediaTypes.size());
+        for (final MediaType mediaType : mediaTypes) {
+            values.add(mediaType.toString());
         }
-        for (final Annotation annotation : invokedMethod.getDeclaredAnnotations()) {
-            if (!annotations.contains(annotation.annotationType().getName())) {
-                annotations.add(annotation.annotationType().getName());
-            }
+        return values;
+    }
+
+    /**
+     * Returns the metadata of a class, working it out on first use during a
+     * scan. Superclasses are shared, so a deep hierarchy is walked only once.
+     */
+    private ClassMetadata getClassMetadata(final Class<?> clazz) {
+        final ClassMetadata cached = classMetadata.get(clazz);
+        if (cached != null) {
+            return cached;
+        }
+
+        final Annotation[] annotations = clazz.getAnnotations();
+        final List<String> annotationTypes = new ArrayList<>(annotations.length);
+        for (final Annotation annotation : annotations) {
+            annotationTypes.add(annotation.annotationType().getName());
         }
-        return annotations;
+        final Class<?> superclass = clazz.getSuperclass();
+        final Api api = clazz.getAnnotation(Api.class);
+        final Consumes consume = clazz.getAnnotation(Consumes.class);
+        final Produces produce = clazz.getAnnotation(Produces.class);
+        final ClassMetadata metadata = new ClassMetadata(
+                clazz.isAnnotationPresent(Path.class) ? getRESTEndpointPath(clazz) : null, annotationTypes,
+                superclass != null ? getClassMetadata(superclass) : null,
+                api != null ? api.value() : null, api != null ? Arrays.asList(api.tags()) : null,
+                consume != null ? Arrays.asList(consume.value()) : null,
+                produce != null ? Arrays.asList(produce.value()) : null);
+        classMetadata.put(clazz, metadata);
+        return metadata;
     }
 
-    private void discoverSwaggerDocInfos(final Method javaMethod, final Class<?> clazz,
+    private void discoverSwaggerDocInfos(final Method javaMethod, final ClassMetadata classMetadata,
             final RestEndpoint newRestEndpoint) {
-        final Api api = clazz.getAnnotation(Api.class);
-        if (api != null) {
-            newRestEndpoint.description = api.value();
-            newRestEndpoint.tags = Arrays.stream(api.tags()).collect(Collectors.toList());
+        if (classMetadata.tags != null) {
+            newRestEndpoint.description = classMetadata.description;
+            newRestEndpoint.tags = new ArrayList<>(classMetadata.tags);
         }
 
         final ApiOperation apiOperations = javaMethod.getAnnotation(ApiOperation.class);
@@ -412,26 +967,28 @@ public class RESTEndpointsDocumenter {
             newRestEndpoint.notes = apiOperations.notes();
         }
 
-        Consumes consume = javaMethod.getAnnotation(Consumes.class);
-        if (consume == null) {
-            consume = clazz.getAnnotation(Consumes.class);
-        }
+        final Consumes consume = javaMethod.getAnnotation(Consumes.class);
         if (consume != null) {
             newRestEndpoint.consumes = Arrays.asList(consume.value());
         }
-
-        Produces produce = javaMethod.getAnnotation(Produces.class);
-        if (produce == null) {
-            produce = clazz.getAnnotation(Produces.class);
+        else if (classMetadata.consumes != null) {
+            newRestEndpoint.consumes = classMetadata.consumes;
         }
+
+        final Produces produce = javaMethod.getAnnotation(Produces.class);
         if (produce != null) {
             newRestEndpoint.produces = Arrays.asList(produce.value());
         }
+        else if (classMetadata.produces != null) {
+            newRestEndpoint.produces = classMetadata.produces;
+        }
 
         ApiResponses apiResponses = javaMethod.getAnnotation(ApiResponses.class);
         if (apiResponses != null && apiResponses.value() != null) {
             for (final ApiResponse apiRes : apiResponses.value()) {
                 // Success Response Check
+                newRestEndpoint.responses.add(new EndpointResponse(apiRes.code(), apiRes.message(),
+                        apiRes.response().getName()));
                 if (apiRes.code() == 200) {
                     newRestEndpoint.successResponseTypes.add(apiRes.response().getName());
                 }
@@ -451,6 +1008,7 @@ public class RESTEndpointsDocumenter {
 
         final Annotation[][] annotations = method.getParameterAnnotations();
         final Class[] parameterTypes = method.getParameterTypes();
+        Type[] genericTypes = null;
 
         for (int i = 0; i < parameterTypes.length; i++) {
             final Class parameter = parameterTypes[i];
@@ -491,46 +1049,102 @@ public class RESTEndpointsDocumenter {
                 }
             }
 
-            switch (nextParameter.parameterType) {
-                case PATH:
-                    restEndpoint.pathParameters.add(nextParameter);
-                    break;
-                case QUERY:
-                    restEndpoint.queryParameters.add(nextParameter);
-                    break;
-                case PAYLOAD:
-                    restEndpoint.payloadParameters.add(nextParameter);
-                    break;
+            if (nextParameter.parameterType == ParameterType.PAYLOAD && genericTypes == null) {
+                genericTypes = method.getGenericParameterTypes();
+                // generic types may leave out synthetic parameters; the erased ones never do
+                if (genericTypes.length != parameterTypes.length) {
+                    genericTypes = parameterTypes;
+                }
             }
+            addParameter(restEndpoint, nextParameter, genericTypes != null ? genericTypes[i] : null,
+                    parameterAnnotations);
         }
     }
 
     /**
-     * Get the REST endpoint path for the specified class. This involves
-     * (recursively) looking for @Parent annotations and getting the path for
-     * that class before appending the location in the @Path annotation.
+     * Get the parameters for the specified endpoint from those Jersey resolved
+     * for its method. Parameters from the request context, headers, cookies,
+     * matrix parameters and beans are not documented.
      */
-    private String getRESTEndpointPath(Class<?> clazz) {
-        String path = "";
-        while (clazz != null) {
-            final Annotation annotation = clazz.getAnnotation(Path.class);
-            if (annotation != null) {
-                path = ((Path) annotation).value() + path;
+    private void discoverParameters(final Invocable invocable, final RestEndpoint restEndpoint) {
+        // an inflector is handed the whole request, not parameters
+        if (invocable.isInflector()) {
+            return;
+        }
+        for (final Parameter parameter : invocable.getParameters()) {
+            final EndpointParameter nextParameter = new EndpointParameter();
+            nextParameter.javaType = parameter.getRawType().getName();
+            nextParameter.defaultValue = parameter.getDefaultValue();
+
+            final Pattern pattern = parameter.getAnnotation(Pattern.class);
+            if (pattern != null) {
+                nextParameter.pattern = pattern.regexp();
+            }
+
+            // For Multi-Form payload, whatever source the multipart support gives it
+            final FormDataParam formDataParam = parameter.getAnnotation(FormDataParam.class);
+            if (formDataParam != null) {
+                nextParameter.name = formDataParam.value();
             }
+            else if (parameter.getSource() == Parameter.Source.PATH) {
+                nextParameter.parameterType = ParameterType.PATH;
+                nextParameter.name = parameter.getSourceName();
+            }
+            else if (parameter.getSource() == Parameter.Source.QUERY) {
+                nextParameter.parameterType = ParameterType.QUERY;
+                nextParameter.name = parameter.getSourceName();
+            }
+            else if (parameter.getSource() != Parameter.Source.ENTITY) {
+                continue;
+            }
+            addParameter(restEndpoint, nextParameter, parameter.getType(), parameter.getAnnotations());
+        }
+    }
 
-            // TODO: FIX THIS
-            //            Annotation parent = clazz.getAnnotation(Parent.class);
-            //            if (parent != null) {
-            //                clazz = ((Parent) parent).value();
-            //            }
-            //            else {
-            //                clazz = null;
-            //            }
+    /**
+     * Adds a parameter to the endpoint, with the constraints of a payload of
+     * the given declared type.
+     */
+    private void addParameter(final RestEndpoint restEndpoint, final EndpointParameter nextParameter,
+            final Type genericType, final Annotation[] parameterAnnotations) {
+        if (nextParameter.parameterType == ParameterType.PAYLOAD) {
+            final TypeRef type = TypeRef.of(genericType);
+            if (type.isGeneric()) {
+                nextParameter.genericType = type.toString();
+            }
+            restEndpoint.payloadValidations = PayloadTypeGraph.addValidations(restEndpoint.payloadValidations,
+                    nextParameter.name, PayloadTypeGraph.getConstraints(parameterAnnotations),
+                    payloadTypes.getConstraints(type).constraints);
+        }
 
-            /*TEMP FIX*/
-            clazz = null;
+        switch (nextParameter.parameterType) {
+            case PATH:
+                restEndpoint.pathParameters.add(nextParameter);
+                break;
+            case QUERY:
+                restEndpoint.queryParameters.add(nextParameter);
+                break;
+            case PAYLOAD:
+                restEndpoint.payloadParameters.add(nextParameter);
+                break;
         }
+    }
+
+    /**
+     * Get the REST endpoint path for the specified root resource class. The
+     * paths of sub-resources depend on the locators returning them and are
+     * resolved while the endpoints are collected, see
+     * {@link #getLocatorEndpoints(Method, Class, String)}.
+     */
+    private String getRESTEndpointPath(final Class<?> clazz) {
+        return toEndpointPath(baseUri, clazz.getAnnotation(Path.class).value());
+    }
 
+    /**
+     * Turns a class-level @Path value into the endpoint base path, prefixed
+     * with the given base URI.
+     */
+    static String toEndpointPath(final String baseUri, String path) {
         if (path.startsWith("/") == false) {
             path = "/" + path;
         }
@@ -540,7 +1154,7 @@ public class RESTEndpointsDocumenter {
         }
 
         // NOTE: Append the base URI
-        return BASE_URI + path;
+        return baseUri + path;
     }
 
 
@@ -560,17 +1174,19 @@ public class RESTEndpointsDocumenter {
         }
         final ArrayList<Class> classes = new ArrayList<Class>();
         for (final File directory : dirs) {
-            classes.addAll(getClasses(directory, pkg));
+            classes.addAll(getClasses(directory, pkg, classloader));
         }
         return classes;
     }
 
     /**
      * Returns a list of all the classes from the package in the specified
-     * directory. Calls itself recursively until no more directories are found.
+     * directory, loaded by the class loader the directory was found through.
+     * Calls itself recursively until no more directories are found.
      */
-    @SuppressWarnings("rawtypes")
-    private List<Class> getClasses(final File dir, final String pkg) throws ClassNotFoundException {
+    @SuppressWarnings({ "rawtypes", "try" })
+    private List<Class> getClasses(final File dir, final String pkg, final ClassLoader classloader)
+            throws ClassNotFoundException {
         final List<Class> classes = new ArrayList<Class>();
         if (!dir.exists()) {
             return classes;
@@ -578,55 +1194,141 @@ public class RESTEndpointsDocumenter {
         final File[] files = dir.listFiles();
         for (final File file : files) {
             if (file.isDirectory()) {
-                classes.addAll(getClasses(file, pkg + "." + file.getName()));
+                classes.addAll(getClasses(file, pkg + "." + file.getName(), classloader));
             }
             else if (file.getName().endsWith(".class")) {
-                classes.add(Class.forName(pkg + '.' + file.getName().substring(0, file.getName().length() - 6)));
+                metrics.increment(Counter.CLASSES_SCANNED);
+                try (DocumenterMetrics.Timer timer = metrics.time(Phase.CLASS_LOADING)) {
+                    classes.add(Class.forName(pkg + '.' + file.getName().substring(0, file.getName().length() - 6),
+                            true, classloader));
+                }
+                metrics.increment(Counter.CLASSES_LOADED);
             }
         }
         return classes;
     }
 
-    public class RestEndpoint {
-        private String uri;
+    /**
+     * Keeps the resource model of the application it is registered with, once
+     * the application is initialized.
+     */
+    private static final class ResourceModelListener implements ApplicationEventListener {
+
+        private volatile ResourceModel resourceModel;
+
+        @Override
+        public void onEvent(final ApplicationEvent event) {
+            if (event.getType() == ApplicationEvent.Type.INITIALIZATION_APP_FINISHED) {
+                resourceModel = event.getResourceModel();
+            }
+        }
+
+        @Override
+        public RequestEventListener onRequest(final RequestEvent requestEvent) {
+            return null;
+        }
+    }
+
+    public static class RestEndpoint {
+        String uri;
+
+        MethodEnum method;
 
-        private MethodEnum method;
+        String javaClass;
 
-        private String javaClass;
+        String javaMethodName;
 
-        private String javaMethodName;
+        List<EndpointParameter> pathParameters = new ArrayList<EndpointParameter>();
 
-        private List<EndpointParameter> pathParameters = new ArrayList<EndpointParameter>();
+        List<EndpointParameter> queryParameters = new ArrayList<RESTEndpointsDocumenter.EndpointParameter>();
 
-        private List<EndpointParameter> queryParameters = new ArrayList<RESTEndpointsDocumenter.EndpointParameter>();
+        List<EndpointParameter> payloadParameters = new ArrayList<RESTEndpointsDocumenter.EndpointParameter>();
 
-        private List<EndpointParameter> payloadParameters = new ArrayList<RESTEndpointsDocumenter.EndpointParameter>();
+        String javaMethodReturnType;
 
-        private String javaMethodReturnType;
+        String description;
 
-        private String description;
+        List<String> tags = new ArrayList<>();
 
-        private List<String> tags = new ArrayList<>();
+        String notes;
 
-        private String notes;
+        List<String> consumes = new ArrayList<>();
 
-        private List<String> consumes = new ArrayList<>();
+        List<String> produces = new ArrayList<>();
 
-        private List<String> produces = new ArrayList<>();
+        List<String> successResponseTypes = new ArrayList<>();
 
-        private List<String> successResponseTypes = new ArrayList<>();
+        List<String> failureResponseTypes = new ArrayList<>();
 
-        private List<String> failureResponseTypes = new ArrayList<>();
+        // the @ApiResponses of the method, in the order declared
+        List<EndpointResponse> responses = new ArrayList<>();
 
-        private List<String> annotations = new ArrayList<>();
+        List<String> annotations = new ArrayList<>();
 
         // TODO: Enable this
-        private List<String> requestHeaders;
+        List<String> requestHeaders;
+
+        List<String> responseHeaders;
+
+        // the bean-validation constraints of the payload parameters and of the properties reachable from their
+        // types, e.g. "OrderDto.name @NotNull"; null when there is no payload
+        List<String> payloadValidations;
+
+        /**
+         * Returns a copy of this endpoint of a sub-resource, mounted below a
+         * locator: the URI is the locator's followed by this one, and the
+         * parameters of the locator come first. Lists not extended are shared.
+         */
+        RestEndpoint mountedAt(final RestEndpoint locator) {
+            final RestEndpoint mounted = new RestEndpoint();
+            mounted.uri = joinPath(locator.uri, uri);
+            mounted.method = method;
+            mounted.javaClass = javaClass;
+            mounted.javaMethodName = javaMethodName;
+            mounted.pathParameters = concat(locator.pathParameters, pathParameters);
+            mounted.queryParameters = concat(locator.queryParameters, queryParameters);
+            mounted.payloadParameters = payloadParameters;
+            mounted.javaMethodReturnType = javaMethodReturnType;
+            mounted.description = description;
+            mounted.tags = tags;
+            mounted.notes = notes;
+            mounted.consumes = consumes;
+            mounted.produces = produces;
+            mounted.successResponseTypes = successResponseTypes;
+            mounted.failureResponseTypes = failureResponseTypes;
+            mounted.responses = responses;
+            mounted.annotations = annotations;
+            mounted.requestHeaders = requestHeaders;
+            mounted.responseHeaders = responseHeaders;
+            mounted.payloadValidations = payloadValidations;
+            return mounted;
+        }
 
-        private List<String> responseHeaders;
+        private static <T> List<T> concat(final List<T> first, final List<T> second) {
+            if (first.isEmpty()) {
+                return second;
+            }
+            final List<T> joined = new ArrayList<>(first.size() + second.size());
+            joined.addAll(first);
+            joined.addAll(second);
+            return joined;
+        }
 
-        // TODO: Split the validation into diff data structure
-        private List<String> payloadValidations;
+        /**
+         * Joins two URI templates with exactly one slash between them, unless
+         * the second one is empty.
+         */
+        static String joinPath(final String prefix, final String path) {
+            if (path.isEmpty()) {
+                return prefix;
+            }
+            final boolean slashBefore = prefix.endsWith("/");
+            final boolean slashAfter = path.startsWith("/");
+            if (slashBefore && slashAfter) {
+                return prefix + path.substring(1);
+            }
+            return slashBefore || slashAfter ? prefix + path : prefix + "/" + path;
+        }
 
         @Override
         public String toString() {
@@ -634,16 +1336,33 @@ public class RESTEndpointsDocumenter {
         }
     }
 
-    public class EndpointParameter {
-        private ParameterType parameterType = ParameterType.PAYLOAD;
+    public static class EndpointResponse {
+        int code;
+
+        String message;
+
+        String javaType;
+
+        EndpointResponse(final int code, final String message, final String javaType) {
+            this.code = code;
+            this.message = message;
+            this.javaType = javaType;
+        }
+    }
+
+    public static class EndpointParameter {
+        ParameterType parameterType = ParameterType.PAYLOAD;
+
+        String javaType;
 
-        private String javaType;
+        String defaultValue;
 
-        private String defaultValue;
+        String name;
 
-        private String name;
+        String pattern;
 
-        private String pattern;
+        /** The type of a payload as declared, when it has type arguments, e.g. {@code java.util.List<Item>}. */
+        String genericType;
     }
 
 }
@@ -0,0 +1,671 @@
+package com.utility;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import com.utility.RESTEndpointsDocumenter.EndpointParameter;
+import com.utility.RESTEndpointsDocumenter.MethodEnum;
+import com.utility.RESTEndpointsDocumenter.ParameterType;
+import com.utility.RESTEndpointsDocumenter.RestEndpoint;
+
+/**
+ * The URI templates of a list of endpoints compiled into a segment trie, to
+ * find routes that collide and to resolve request paths to their endpoints.
+ * <p>
+ * A template segment is either literal text, or text with variables such as
+ * {@code {id}}, {@code {id: [0-9]+}} or {@code v{version}.json}. A variable
+ * without a regular expression is constrained by the {@code @Pattern} of its
+ * path parameter, if any. A variable whose expression can match a slash,
+ * like {@code {path: .+}}, takes the rest of the path, which is then matched
+ * as a whole. Empty segments are ignored, so {@code Server/api/orders//{id}}
+ * and {@code /Server/api/orders/{id}} are the same route.
+ * <p>
+ * Building the index reports, per HTTP method, routes whose templates are
+ * the same ({@link Conflict.Kind#DUPLICATE}) or the same but for variable
+ * names ({@link Conflict.Kind#AMBIGUOUS}), and literal routes that take
+ * requests a template route would otherwise match
+ * ({@link Conflict.Kind#SHADOWED}). Endpoints that share a template but
+ * consume or produce disjoint media types are told apart by content
+ * negotiation and are not reported. Both the build and the checks take time
+ * linear in the total number of segments, times the few template siblings a
+ * segment has.
+ * <p>
+ * {@link #resolve(String, String)} walks the trie once per segment, trying
+ * literal segments before templates with more literal text and constrained
+ * variables, and backtracks only where a literal and a template route
+ * overlap. An index is immutable once built and can be shared by threads.
+ */
+public final class RouteIndex {
+
+    // matches a variable expression that can also match a slash
+    private static final String MULTI_SEGMENT_PROBE = "a/b";
+
+    private static final String DEFAULT_VARIABLE = "[^/]+";
+
+    // template siblings in the order they are tried, as JAX-RS orders templates
+    private static final Comparator<TemplateEdge> PRECEDENCE = Comparator
+            .comparingInt((TemplateEdge edge) -> -edge.literalCharacters)
+            .thenComparingInt(edge -> -edge.variables)
+            .thenComparingInt(edge -> -edge.constrainedVariables)
+            .thenComparing(edge -> edge.key);
+
+    private final Node root = new Node();
+
+    private final List<Route> routes = new ArrayList<>();
+
+    private final List<Conflict> conflicts = new ArrayList<>();
+
+    private RouteIndex() {
+    }
+
+    /**
+     * Compiles the URI templates of the given endpoints and checks them for
+     * conflicts.
+     */
+    public static RouteIndex build(final List<RestEndpoint> restEndpoints) {
+        final RouteIndex index = new RouteIndex();
+        final List<RestEndpoint> ordered = new ArrayList<>(restEndpoints);
+        // the first endpoint of a route is the one it resolves to, the same on every run
+        ordered.sort(RESTEndpointsDocumenter.ENDPOINT_ORDER);
+        for (final RestEndpoint restEndpoint : ordered) {
+            index.add(restEndpoint);
+        }
+        index.freeze(index.root);
+        index.findShadowed(index.root);
+        return index;
+    }
+
+    /**
+     * Returns every route, one per template and HTTP method.
+     */
+    public List<Route> getRoutes() {
+        return Collections.unmodifiableList(routes);
+    }
+
+    public List<Conflict> getConflicts() {
+        return Collections.unmodifiableList(conflicts);
+    }
+
+    /**
+     * Returns the route a request resolves to, or null when no route of the
+     * given method matches. The path may be absolute and may carry a query
+     * string, e.g. {@code /Server/api/orders/42?expand=true}; it is matched
+     * as it is, without decoding.
+     */
+    public Route resolve(final String httpMethod, final String path) {
+        final MethodEnum method = toMethod(httpMethod);
+        if (method == null) {
+            return null;
+        }
+
+        int end = path.length();
+        for (int i = 0; i < end; i++) {
+            final char c = path.charAt(i);
+            if (c == '?' || c == '#') {
+                end = i;
+            }
+        }
+        // start and end offsets of the non-empty segments
+        int[] bounds = new int[16];
+        int count = 0;
+        int start = 0;
+        for (int i = 0; i <= end; i++) {
+            if (i == end || path.charAt(i) == '/') {
+                if (i > start) {
+                    if (2 * count + 2 > bounds.length) {
+                        bounds = Arrays.copyOf(bounds, bounds.length * 2);
+                    }
+                    bounds[2 * count] = start;
+                    bounds[2 * count + 1] = i;
+                    count++;
+                }
+                start = i + 1;
+            }
+        }
+        return resolve(root, method, path, bounds, count, 0);
+    }
+
+    private static Route resolve(final Node node, final MethodEnum method, final String path, final int[] bounds,
+            final int count, final int index) {
+        if (index == count) {
+            final Route route = node.routes.get(method);
+            if (route != null) {
+                return route;
+            }
+            // a rest-of-path variable may also match nothing
+            return resolveTail(node, method, "");
+        }
+
+        final String segment = path.substring(bounds[2 * index], bounds[2 * index + 1]);
+        final Node literal = node.literals.get(segment);
+        if (literal != null) {
+            final Route route = resolve(literal, method, path, bounds, count, index + 1);
+            if (route != null) {
+                return route;
+            }
+        }
+        for (final TemplateEdge edge : node.templates) {
+            if (edge.pattern.matcher(segment).matches()) {
+                final Route route = resolve(edge.node, method, path, bounds, count, index + 1);
+                if (route != null) {
+                    return route;
+                }
+            }
+        }
+        return node.tails.isEmpty() ? null
+                : resolveTail(node, method, path.substring(bounds[2 * index], bounds[2 * count - 1]));
+    }
+
+    private static Route resolveTail(final Node node, final MethodEnum method, final String rest) {
+        for (final TemplateEdge tail : node.tails) {
+            final Route route = tail.node.routes.get(method);
+            if (route != null && tail.pattern.matcher(rest).matches()) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    private void add(final RestEndpoint restEndpoint) {
+        final Map<String, String> patterns = new HashMap<>();
+        for (final EndpointParameter parameter : restEndpoint.pathParameters) {
+            if (parameter.parameterType == ParameterType.PATH && parameter.name != null
+                    && parameter.pattern != null) {
+                patterns.put(parameter.name, parameter.pattern);
+            }
+        }
+
+        final List<String> segments = split(restEndpoint.uri);
+        Node node = root;
+        for (int i = 0; i < segments.size(); i++) {
+            final Segment segment = Segment.parse(segments.get(i), patterns);
+            if (segment.variables == 0) {
+                node = node.literals.computeIfAbsent(segment.text, text -> new Node());
+            }
+            else if (segment.multiSegment) {
+                // the rest of the template is matched at once against the rest of the path
+                final List<Segment> rest = new ArrayList<>();
+                for (int j = i; j < segments.size(); j++) {
+                    rest.add(Segment.parse(segments.get(j), patterns));
+                }
+                node = node.edge(node.tails, Segment.join(rest)).node;
+                break;
+            }
+            else {
+                node = node.edge(node.templates, segment).node;
+            }
+        }
+        node.endpoints.computeIfAbsent(restEndpoint.method, method -> new ArrayList<>()).add(restEndpoint);
+    }
+
+    /**
+     * Orders the template siblings of every node and turns the endpoints
+     * collected at each node into routes, recording the endpoints that
+     * collide.
+     */
+    private void freeze(final Node node) {
+        node.templates.sort(PRECEDENCE);
+        node.tails.sort(PRECEDENCE);
+        for (final Map.Entry<MethodEnum, List<RestEndpoint>> entry : node.endpoints.entrySet()) {
+            final List<RestEndpoint> endpoints = entry.getValue();
+            final Route route = new Route(endpoints.get(0).uri, entry.getKey(), endpoints);
+            node.routes.put(entry.getKey(), route);
+            routes.add(route);
+            if (endpoints.size() > 1) {
+                findCollisions(entry.getKey(), endpoints);
+            }
+        }
+        for (final Node child : node.literals.values()) {
+            freeze(child);
+        }
+        for (final TemplateEdge edge : node.templates) {
+            freeze(edge.node);
+        }
+        for (final TemplateEdge tail : node.tails) {
+            freeze(tail.node);
+        }
+    }
+
+    private void findCollisions(final MethodEnum method, final List<RestEndpoint> endpoints) {
+        final List<RestEndpoint> colliding = new ArrayList<>();
+        for (final RestEndpoint restEndpoint : endpoints) {
+            for (final RestEndpoint other : endpoints) {
+                if (other != restEndpoint && mediaTypesOverlap(restEndpoint.consumes, other.consumes)
+                        && mediaTypesOverlap(restEndpoint.produces, other.produces)) {
+                    colliding.add(restEndpoint);
+                    break;
+                }
+            }
+        }
+        if (colliding.size() < 2) {
+            return;
+        }
+
+        final List<String> first = split(colliding.get(0).uri);
+        boolean sameNames = true;
+        for (final RestEndpoint restEndpoint : colliding) {
+            sameNames &= split(restEndpoint.uri).equals(first);
+        }
+        conflicts.add(new Conflict(sameNames ? Conflict.Kind.DUPLICATE : Conflict.Kind.AMBIGUOUS, method,
+                colliding));
+    }
+
+    /**
+     * Reports the routes of literal segments whose text also matches a
+     * template sibling with a route of the same method at the same place
+     * below it, or a rest-of-path sibling with a route of the same method.
+     */
+    private void findShadowed(final Node node) {
+        for (final Map.Entry<String, Node> literal : node.literals.entrySet()) {
+            for (final TemplateEdge edge : node.templates) {
+                if (edge.pattern.matcher(literal.getKey()).matches()) {
+                    findShadowed(literal.getValue(), edge.node);
+                }
+            }
+            for (final TemplateEdge tail : node.tails) {
+                if (tail.pattern.matcher(literal.getKey()).matches()) {
+                    findShadowed(literal.getValue(), tail.node);
+                }
+            }
+            findShadowed(literal.getValue());
+        }
+        for (final TemplateEdge edge : node.templates) {
+            findShadowed(edge.node);
+        }
+    }
+
+    /**
+     * Walks two subtrees side by side along equal segments and reports the
+     * routes both have for a method. A rest-of-path template has no subtree,
+     * so only the routes at the literal segment itself are compared with it.
+     */
+    private void findShadowed(final Node literal, final Node template) {
+        for (final Map.Entry<MethodEnum, Route> entry : literal.routes.entrySet()) {
+            final Route shadowed = template.routes.get(entry.getKey());
+            if (shadowed != null) {
+                final List<RestEndpoint> endpoints = new ArrayList<>();
+                endpoints.add(entry.getValue().getEndpoint());
+                endpoints.add(shadowed.getEndpoint());
+                conflicts.add(new Conflict(Conflict.Kind.SHADOWED, entry.getKey(), endpoints));
+            }
+        }
+        for (final Map.Entry<String, Node> child : literal.literals.entrySet()) {
+            final Node other = template.literals.get(child.getKey());
+            if (other != null) {
+                findShadowed(child.getValue(), other);
+            }
+        }
+        for (final TemplateEdge edge : literal.templates) {
+            final TemplateEdge other = Node.find(template.templates, edge.key);
+            if (other != null) {
+                findShadowed(edge.node, other.node);
+            }
+        }
+    }
+
+    /**
+     * Tells whether two lists of media types have one in common; an empty list
+     * stands for any media type.
+     */
+    static boolean mediaTypesOverlap(final List<String> first, final List<String> second) {
+        if (first == null || first.isEmpty() || second == null || second.isEmpty()) {
+            return true;
+        }
+        for (final String a : first) {
+            for (final String b : second) {
+                if (mediaTypeMatches(a, b)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean mediaTypeMatches(final String first, final String second) {
+        final String a = stripParameters(first);
+        final String b = stripParameters(second);
+        if (a.equals("*/*") || b.equals("*/*") || a.equalsIgnoreCase(b)) {
+            return true;
+        }
+        final int slashA = a.indexOf('/');
+        final int slashB = b.indexOf('/');
+        if (slashA < 0 || slashB < 0 || a.regionMatches(true, 0, b, 0, Math.max(slashA, slashB)) == false) {
+            return false;
+        }
+        return a.endsWith("/*") || b.endsWith("/*");
+    }
+
+    private static String stripParameters(final String mediaType) {
+        final int semicolon = mediaType.indexOf(';');
+        return (semicolon < 0 ? mediaType : mediaType.substring(0, semicolon)).trim();
+    }
+
+    private static MethodEnum toMethod(final String httpMethod) {
+        for (final MethodEnum method : MethodEnum.values()) {
+            if (method.name().equalsIgnoreCase(httpMethod)) {
+                return method;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Splits a URI template into its non-empty segments. Slashes inside a
+     * variable belong to its expression.
+     */
+    static List<String> split(final String template) {
+        final List<String> segments = new ArrayList<>();
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i <= template.length(); i++) {
+            final char c = i < template.length() ? template.charAt(i) : '/';
+            if (c == '{') {
+                depth++;
+            }
+            else if (c == '}') {
+                depth--;
+            }
+            else if (c == '/' && depth <= 0) {
+                if (i > start) {
+                    segments.add(template.substring(start, i));
+                }
+                start = i + 1;
+            }
+        }
+        return segments;
+    }
+
+    /**
+     * One segment, or the rest of a template, with its variables replaced by
+     * their expressions.
+     */
+    private static final class Segment {
+        final String text;
+
+        // the text with variable names left out, equal for templates that match alike
+        final String key;
+
+        final String regex;
+
+        final int literalCharacters;
+
+        final int variables;
+
+        final int constrainedVariables;
+
+        final boolean multiSegment;
+
+        private Segment(final String text, final String key, final String regex, final int literalCharacters,
+                final int variables, final int constrainedVariables, final boolean multiSegment) {
+            this.text = text;
+            this.key = key;
+            this.regex = regex;
+            this.literalCharacters = literalCharacters;
+            this.variables = variables;
+            this.constrainedVariables = constrainedVariables;
+            this.multiSegment = multiSegment;
+        }
+
+        static Segment parse(final String text, final Map<String, String> patterns) {
+            final StringBuilder key = new StringBuilder();
+            final StringBuilder regex = new StringBuilder();
+            int literalCharacters = 0;
+            int variables = 0;
+            int constrainedVariables = 0;
+            boolean multiSegment = false;
+            int literalStart = 0;
+            int i = 0;
+            while (i < text.length()) {
+                if (text.charAt(i) != '{') {
+                    i++;
+                    continue;
+                }
+                // a variable, whose expression may contain braces of its own
+                int depth = 1;
+                int end = i + 1;
+                while (end < text.length() && depth > 0) {
+                    final char c = text.charAt(end);
+                    depth += c == '{' ? 1 : c == '}' ? -1 : 0;
+                    end++;
+                }
+                final String literal = text.substring(literalStart, i);
+                key.append(literal);
+                regex.append(literal.isEmpty() ? "" : Pattern.quote(literal));
+                literalCharacters += literal.length();
+
+                final String variable = text.substring(i + 1, depth == 0 ? end - 1 : end);
+                final int colon = variable.indexOf(':');
+                final String name = (colon < 0 ? variable : variable.substring(0, colon)).trim();
+                String expression = colon < 0 ? null : variable.substring(colon + 1).trim();
+                if (expression == null || expression.isEmpty()) {
+                    expression = patterns.get(name);
+                }
+                Pattern compiled = null;
+                if (expression != null) {
+                    try {
+                        compiled = Pattern.compile(expression);
+                    }
+                    catch (final PatternSyntaxException e) {
+                        // Jersey rejects such a template, so it never matches anything more specific
+                        expression = null;
+                    }
+                }
+                variables++;
+                if (expression == null) {
+                    key.append("{}");
+                    regex.append(DEFAULT_VARIABLE);
+                }
+                else {
+                    constrainedVariables++;
+                    key.append("{:").append(expression).append('}');
+                    regex.append("(?:").append(expression).append(')');
+                    multiSegment |= expression.indexOf('/') >= 0
+                            || compiled.matcher(MULTI_SEGMENT_PROBE).matches();
+                }
+                i = end;
+                literalStart = end;
+            }
+            final String literal = text.substring(literalStart);
+            key.append(literal);
+            regex.append(literal.isEmpty() ? "" : Pattern.quote(literal));
+            literalCharacters += literal.length();
+            return new Segment(text, key.toString(), regex.toString(), literalCharacters, variables,
+                    constrainedVariables, multiSegment);
+        }
+
+        /**
+         * Joins the segments at the end of a template into one, matched
+         * against the rest of a path.
+         */
+        static Segment join(final List<Segment> segments) {
+            final StringBuilder text = new StringBuilder();
+            final StringBuilder key = new StringBuilder();
+            final StringBuilder regex = new StringBuilder();
+            int literalCharacters = 0;
+            int variables = 0;
+            int constrainedVariables = 0;
+            for (final Segment segment : segments) {
+                if (text.length() > 0) {
+                    text.append('/');
+                    key.append('/');
+                    regex.append("/+");
+                }
+                text.append(segment.text);
+                key.append(segment.key);
+                regex.append(segment.regex);
+                literalCharacters += segment.literalCharacters;
+                variables += segment.variables;
+                constrainedVariables += segment.constrainedVariables;
+            }
+            return new Segment(text.toString(), key.toString(), regex.toString(), literalCharacters, variables,
+                    constrainedVariables, true);
+        }
+    }
+
+    private static final class Node {
+        final Map<String, Node> literals = new HashMap<>();
+
+        final List<TemplateEdge> templates = new ArrayList<>(0);
+
+        // rest-of-path templates, e.g. {path: .+}
+        final List<TemplateEdge> tails = new ArrayList<>(0);
+
+        // the endpoints whose templates end here, collected while building
+        final Map<MethodEnum, List<RestEndpoint>> endpoints = new EnumMap<>(MethodEnum.class);
+
+        final Map<MethodEnum, Route> routes = new EnumMap<>(MethodEnum.class);
+
+        TemplateEdge edge(final List<TemplateEdge> edges, final Segment segment) {
+            TemplateEdge edge = find(edges, segment.key);
+            if (edge == null) {
+                edge = new TemplateEdge(segment);
+                edges.add(edge);
+            }
+            return edge;
+        }
+
+        static TemplateEdge find(final List<TemplateEdge> edges, final String key) {
+            for (final TemplateEdge edge : edges) {
+                if (edge.key.equals(key)) {
+                    return edge;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final class TemplateEdge {
+        final String key;
+
+        final Pattern pattern;
+
+        final int literalCharacters;
+
+        final int variables;
+
+        final int constrainedVariables;
+
+        final Node node = new Node();
+
+        TemplateEdge(final Segment segment) {
+            this.key = segment.key;
+            this.pattern = Pattern.compile(segment.regex);
+            this.literalCharacters = segment.literalCharacters;
+            this.variables = segment.variables;
+            this.constrainedVariables = segment.constrainedVariables;
+        }
+    }
+
+    /**
+     * The endpoints of one URI template and HTTP method. More than one means
+     * they are told apart by media types, or collide.
+     */
+    public static final class Route {
+        private final String template;
+
+        private final MethodEnum method;
+
+        private final List<RestEndpoint> endpoints;
+
+        Route(final String template, final MethodEnum method, final List<RestEndpoint> endpoints) {
+            this.template = template;
+            this.method = method;
+            this.endpoints = Collections.unmodifiableList(endpoints);
+        }
+
+        /**
+         * Returns the URI template of the route's first endpoint.
+         */
+        public String getTemplate() {
+            return template;
+        }
+
+        public String getMethod() {
+            return method.name();
+        }
+
+        /**
+         * Returns the endpoint requests of this route are resolved to.
+         */
+        public RestEndpoint getEndpoint() {
+            return endpoints.get(0);
+        }
+
+        public List<RestEndpoint> getEndpoints() {
+            return endpoints;
+        }
+
+        @Override
+        public String toString() {
+            return method + " " + template;
+        }
+    }
+
+    /**
+     * Endpoints whose routes collide.
+     */
+    public static final class Conflict {
+        public enum Kind {
+            /** The same template and method, so all but the first endpoint are unreachable. */
+            DUPLICATE,
+            /** The same template but for variable names, so all but the first endpoint are unreachable. */
+            AMBIGUOUS,
+            /** A literal route takes requests that also match a template route. */
+            SHADOWED
+        }
+
+        private final Kind kind;
+
+        private final MethodEnum method;
+
+        private final List<RestEndpoint> endpoints;
+
+        Conflict(final Kind kind, final MethodEnum method, final List<RestEndpoint> endpoints) {
+            this.kind = kind;
+            this.method = method;
+            this.endpoints = Collections.unmodifiableList(endpoints);
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public String getMethod() {
+            return method.name();
+        }
+
+        /**
+         * Returns the colliding endpoints, the one that takes the requests
+         * first.
+         */
+        public List<RestEndpoint> getEndpoints() {
+            return endpoints;
+        }
+
+        /**
+         * Returns the endpoints no request resolves to.
+         */
+        public List<RestEndpoint> getUnreachable() {
+            return kind == Kind.SHADOWED ? Collections.<RestEndpoint>emptyList()
+                    : endpoints.subList(1, endpoints.size());
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder description = new StringBuilder(kind.name()).append(' ').append(method);
+            for (final RestEndpoint restEndpoint : endpoints) {
+                description.append(' ').append(restEndpoint.uri).append(" (").append(restEndpoint.javaClass)
+                        .append('.').append(restEndpoint.javaMethodName).append(')');
+            }
+            return description.toString();
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package com.utility;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.utility.RESTEndpointsDocumenter.EndpointParameter;
+import com.utility.RESTEndpointsDocumenter.RestEndpoint;
+
+/**
+ * Writes the search index of the endpoints table as a script defining
+ * {@code apiSearchIndex}, which {@code ApiSearchIndex.js} uses to answer the
+ * search box without scanning the table.
+ * <p>
+ * The index maps every token of an endpoint's URI segments, HTTP method, Java
+ * class and method names, parameter names, tags, media types and descriptions
+ * to the rows containing it. Tokens are lower-cased runs of ASCII letters and
+ * digits; camel-case words are indexed whole and by their parts, so that both
+ * {@code orderresource} and {@code resource} find {@code OrderResource}.
+ * <p>
+ * Rows are numbered in the order of the table. The script holds
+ * <ul>
+ * <li>{@code rows}, the number of rows,</li>
+ * <li>{@code tokens}, the sorted tokens separated by spaces, and</li>
+ * <li>{@code postings}, the row lists of the tokens in the same order,
+ * separated by {@code ;}. Each list is ascending and delta-encoded: the first
+ * row and the gaps to the following ones, in base 36 separated by commas.</li>
+ * </ul>
+ */
+final class SearchIndexWriter {
+
+    private final Utf8ChannelWriter out;
+
+    // digits of a base 36 number, least significant first
+    private final char[] digits = new char[8];
+
+    SearchIndexWriter(final Utf8ChannelWriter out) {
+        this.out = out;
+    }
+
+    /**
+     * Writes the index script for the endpoints to the writer, which must
+     * already be open.
+     */
+    void write(final List<RestEndpoint> restEndpoints) throws IOException {
+        write(restEndpoints.size(), build(restEndpoints));
+    }
+
+    /**
+     * Writes the index script for the given number of rows from the postings
+     * of their tokens, e.g. added row by row with {@link #add(Map, int,
+     * RestEndpoint, List)}. The writer must already be open.
+     */
+    void write(final int rows, final Map<String, Postings> index) throws IOException {
+        final String[] tokens = index.keySet().toArray(new String[0]);
+        Arrays.sort(tokens);
+        final Postings[] postings = new Postings[tokens.length];
+        for (int i = 0; i < tokens.length; i++) {
+            postings[i] = index.get(tokens[i]);
+        }
+        write(rows, tokens, postings);
+    }
+
+    /**
+     * Writes the index script for the endpoints from the numbered tokens of a
+     * {@link TokenSource} rather than tokenizing the endpoints. The script is
+     * the same as that of {@link #write(List)}.
+     */
+    void write(final List<RestEndpoint> restEndpoints, final TokenSource source) throws IOException {
+        final Postings[] byId = new Postings[source.getTokenCount()];
+        for (int row = 0; row < restEndpoints.size(); row++) {
+            for (final int tokenId : source.getTokenIds(restEndpoints.get(row))) {
+                Postings postings = byId[tokenId];
+                if (postings == null) {
+                    postings = new Postings();
+                    byId[tokenId] = postings;
+                }
+                postings.add(row);
+            }
+        }
+
+        // tokens no longer found in any row are left out
+        int count = 0;
+        for (final Postings postings : byId) {
+            if (postings != null) {
+                count++;
+            }
+        }
+        final String[] tokens = new String[count];
+        final Postings[] postings = new Postings[count];
+        int i = 0;
+        for (final int tokenId : source.getSortedTokenIds()) {
+            if (byId[tokenId] != null) {
+                tokens[i] = source.getToken(tokenId);
+                postings[i++] = byId[tokenId];
+            }
+        }
+        write(restEndpoints.size(), tokens, postings);
+    }
+
+    private void write(final int rows, final String[] tokens, final Postings[] postings) throws IOException {
+        out.write("var apiSearchIndex = {\"rows\":").write(rows);
+        out.write(",\"tokens\":").beginJsonString();
+        for (int i = 0; i < tokens.length; i++) {
+            if (i > 0) {
+                out.write(' ');
+            }
+            out.write(tokens[i]);
+        }
+        out.endJsonString();
+
+        out.write(",\"postings\":\"");
+        for (int i = 0; i < tokens.length; i++) {
+            if (i > 0) {
+                out.write(';');
+            }
+            final Postings tokenPostings = postings[i];
+            int previous = 0;
+            for (int p = 0; p < tokenPostings.size; p++) {
+                if (p > 0) {
+                    out.write(',');
+                }
+                writeBase36(tokenPostings.rows[p] - previous);
+                previous = tokenPostings.rows[p];
+            }
+        }
+        out.write("\"};").write(RESTEndpointsDocumenter.NEWLINE);
+    }
+
+    static Map<String, Postings> build(final List<RestEndpoint> restEndpoints) {
+        final Map<String, Postings> index = new HashMap<>();
+        final List<String> tokens = new ArrayList<>();
+        for (int row = 0; row < restEndpoints.size(); row++) {
+            add(index, row, restEndpoints.get(row), tokens);
+        }
+        return index;
+    }
+
+    /**
+     * Adds the tokens of the endpoint of a row to the index, using the given
+     * list. Rows must be added in ascending order.
+     */
+    static void add(final Map<String, Postings> index, final int row, final RestEndpoint restEndpoint,
+            final List<String> tokens) {
+        tokens.clear();
+        tokenize(restEndpoint, tokens);
+        for (final String token : tokens) {
+            index.computeIfAbsent(token, key -> new Postings()).add(row);
+        }
+    }
+
+    /**
+     * Adds the tokens of the searchable texts of an endpoint, repeats
+     * included.
+     */
+    static void tokenize(final RestEndpoint restEndpoint, final List<String> tokens) {
+        tokenize(restEndpoint.uri, tokens);
+        tokenize(restEndpoint.method.name(), tokens);
+        tokenize(restEndpoint.javaClass, tokens);
+        tokenize(restEndpoint.javaMethodName, tokens);
+        tokenizeParameters(restEndpoint.pathParameters, tokens);
+        tokenizeParameters(restEndpoint.queryParameters, tokens);
+        tokenizeParameters(restEndpoint.payloadParameters, tokens);
+        tokenize(restEndpoint.tags, tokens);
+        tokenize(restEndpoint.consumes, tokens);
+        tokenize(restEndpoint.produces, tokens);
+        tokenize(restEndpoint.description, tokens);
+        tokenize(restEndpoint.notes, tokens);
+    }
+
+    private static void tokenizeParameters(final List<EndpointParameter> parameters, final List<String> tokens) {
+        for (final EndpointParameter parameter : parameters) {
+            tokenize(parameter.name, tokens);
+            tokenize(parameter.javaType, tokens);
+        }
+    }
+
+    private static void tokenize(final List<String> values, final List<String> tokens) {
+        if (values != null) {
+            for (final String value : values) {
+                tokenize(value, tokens);
+            }
+        }
+    }
+
+    /**
+     * Adds the tokens of a text: each run of letters and digits, and the
+     * camel-case parts of runs that have any.
+     */
+    static void tokenize(final String text, final List<String> tokens) {
+        if (text == null) {
+            return;
+        }
+        final int length = text.length();
+        int start = 0;
+        while (start < length) {
+            while (start < length && isWordChar(text.charAt(start)) == false) {
+                start++;
+            }
+            int end = start;
+            while (end < length && isWordChar(text.charAt(end))) {
+                end++;
+            }
+            if (end > start) {
+                tokens.add(text.substring(start, end).toLowerCase());
+                addCamelCaseParts(text, start, end, tokens);
+            }
+            start = end;
+        }
+    }
+
+    /**
+     * Splits a word before each upper-case letter that follows a lower-case
+     * one or starts a capitalized word after an acronym, e.g. {@code HTTPServerTimeout}
+     * into {@code http}, {@code server} and {@code timeout}.
+     */
+    private static void addCamelCaseParts(final String text, final int start, final int end,
+            final List<String> tokens) {
+        int partStart = start;
+        for (int i = start + 1; i < end; i++) {
+            final char c = text.charAt(i);
+            final char previous = text.charAt(i - 1);
+            final boolean boundary = isUpperCase(c) && (isUpperCase(previous) == false
+                    || (i + 1 < end && isLowerCase(text.charAt(i + 1))));
+            if (boundary) {
+                tokens.add(text.substring(partStart, i).toLowerCase());
+                partStart = i;
+            }
+        }
+        if (partStart > start) {
+            tokens.add(text.substring(partStart, end).toLowerCase());
+        }
+    }
+
+    private static boolean isWordChar(final char c) {
+        return (c >= 'a' && c <= 'z') || isUpperCase(c) || (c >= '0' && c <= '9');
+    }
+
+    private static boolean isUpperCase(final char c) {
+        return c >= 'A' && c <= 'Z';
+    }
+
+    private static boolean isLowerCase(final char c) {
+        return c >= 'a' && c <= 'z';
+    }
+
+    private void writeBase36(int value) throws IOException {
+        int count = 0;
+        do {
+            digits[count++] = Character.forDigit(value % 36, 36);
+            value /= 36;
+        } while (value != 0);
+        while (count > 0) {
+            out.write(digits[--count]);
+        }
+    }
+
+    /**
+     * Tokens numbered once and the token numbers of each endpoint, kept
+     * between renders so that unchanged endpoints are not tokenized again.
+     */
+    interface TokenSource {
+        /** Returns the distinct token numbers of an endpoint. */
+        int[] getTokenIds(RestEndpoint restEndpoint);
+
+        int getTokenCount();
+
+        String getToken(int tokenId);
+
+        /** Returns all token numbers, ordered by their tokens. */
+        int[] getSortedTokenIds();
+    }
+
+    /**
+     * The ascending rows a token occurs in.
+     */
+    static final class Postings {
+        int[] rows = new int[4];
+
+        int size;
+
+        void add(final int row) {
+            // rows are added in order, so a repeat can only be the last one
+            if (size > 0 && rows[size - 1] == row) {
+                return;
+            }
+            if (size == rows.length) {
+                rows = Arrays.copyOf(rows, size * 2);
+            }
+            rows[size++] = row;
+        }
+    }
+}
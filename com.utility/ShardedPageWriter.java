@@ -0,0 +1,340 @@
+package com.utility;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.regex.Pattern;
+
+import com.utility.HtmlEndpointRenderer.ChannelRenderer;
+import com.utility.HtmlEndpointRenderer.RowData;
+import com.utility.RESTEndpointsDocumenter.RestEndpoint;
+
+/**
+ * Splits the endpoints into shards by tag, resource class or URI prefix and
+ * writes an endpoints page per shard, plus a landing page that lists the
+ * shards with their endpoint counts and only loads a shard page when it is
+ * opened.
+ * <p>
+ * Shard pages are rendered concurrently, each with the search index and data
+ * file of {@link HtmlEndpointRenderer}, and named after their shard, e.g.
+ * {@code jersey-api-index-orders.html} beside {@code jersey-api-index.html}. A
+ * file whose content did not change is not rewritten, so its modification
+ * time, and with it the validators of HTTP caches, stay as they were. Shards
+ * that no longer exist keep their files.
+ */
+public final class ShardedPageWriter {
+
+    /**
+     * System property making the documenter write shards, e.g.
+     * {@code -Dapiindex.shardBy=tag}.
+     */
+    public static final String SHARD_BY_PROPERTY = "apiindex.shardBy";
+
+    /** The shard of the endpoints without tags when sharding by tag. */
+    public static final String UNTAGGED = "untagged";
+
+    /**
+     * What endpoints are grouped by.
+     */
+    public enum ShardBy {
+        /** The Swagger tags; an endpoint with several tags is in each of their shards. */
+        TAG,
+        /** The resource class implementing the endpoint. */
+        CLASS,
+        /** The leading segments of the URI template, see {@link #setPrefixSegments(int)}. */
+        PREFIX
+    }
+
+    private static final String NEWLINE = RESTEndpointsDocumenter.NEWLINE;
+
+    private static final Pattern FILE_NAME_UNSAFE = Pattern.compile("[^A-Za-z0-9._-]+");
+
+    private final ShardBy shardBy;
+
+    private final RowData rowData;
+
+    private final int parallelism;
+
+    private EndpointStatistics statistics;
+
+    // the base URI and the segment below it, e.g. Server/api/orders
+    private int prefixSegments = RouteIndex.split(RESTEndpointsDocumenter.BASE_URI).size() + 1;
+
+    /**
+     * Creates a writer with the row data of {@link HtmlEndpointRenderer#ROW_DATA_PROPERTY}
+     * and the parallelism of {@link BytecodeEndpointScanner#PARALLELISM_PROPERTY}.
+     */
+    public ShardedPageWriter(final ShardBy shardBy) {
+        this(shardBy, RowData.valueOf(System.getProperty(HtmlEndpointRenderer.ROW_DATA_PROPERTY,
+                RowData.MARKUP.name()).toUpperCase()), Integer.getInteger(
+                        BytecodeEndpointScanner.PARALLELISM_PROPERTY, Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * @param parallelism the number of shards rendered at once
+     */
+    public ShardedPageWriter(final ShardBy shardBy, final RowData rowData, final int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+        }
+        this.shardBy = shardBy;
+        this.rowData = rowData;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Sets the number of leading URI segments that make up a shard when
+     * sharding by {@link ShardBy#PREFIX}; by default the segments of the base
+     * URI and the one below it.
+     */
+    public void setPrefixSegments(final int prefixSegments) {
+        if (prefixSegments < 1) {
+            throw new IllegalArgumentException("At least one prefix segment is needed: " + prefixSegments);
+        }
+        this.prefixSegments = prefixSegments;
+    }
+
+    /**
+     * Sets the statistics whose columns the shard pages show after the
+     * documented ones, or null for none.
+     */
+    public void setStatistics(final EndpointStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    /**
+     * Writes the shard pages beside the landing page and then the landing
+     * page. Returns the shards in the order listed.
+     */
+    public List<Shard> write(final List<RestEndpoint> restEndpoints, final Path landingPage) throws IOException {
+        final Map<String, List<RestEndpoint>> endpointsByShard = new TreeMap<>();
+        for (final RestEndpoint restEndpoint : restEndpoints) {
+            for (final String name : getShardNames(restEndpoint)) {
+                endpointsByShard.computeIfAbsent(name, key -> new ArrayList<>()).add(restEndpoint);
+            }
+        }
+
+        final String landingName = landingPage.getFileName().toString();
+        final int dot = landingName.lastIndexOf('.');
+        final String baseName = dot > 0 ? landingName.substring(0, dot) : landingName;
+        final String extension = dot > 0 ? landingName.substring(dot) : ".html";
+        final List<Shard> shards = new ArrayList<>(endpointsByShard.size());
+        // lower case, as a case-insensitive file system takes names differing only in case for one
+        final Set<String> fileNames = new HashSet<>();
+        fileNames.add(landingName.toLowerCase(Locale.ROOT));
+        for (final Map.Entry<String, List<RestEndpoint>> entry : endpointsByShard.entrySet()) {
+            // names differing only in case or in characters unsafe in file names get numbered, in shard order
+            final String name = baseName + "-" + FILE_NAME_UNSAFE.matcher(entry.getKey()).replaceAll("_");
+            String fileName = name + extension;
+            for (int i = 2; fileNames.add(fileName.toLowerCase(Locale.ROOT)) == false; i++) {
+                fileName = name + "-" + i + extension;
+            }
+            shards.add(new Shard(entry.getKey(), landingPage.resolveSibling(fileName), entry.getValue()));
+        }
+
+        writeShards(shards);
+        writeIfChanged(landingPage, render(channel -> writeLandingPage(shards, channel)));
+        return Collections.unmodifiableList(shards);
+    }
+
+    private Collection<String> getShardNames(final RestEndpoint restEndpoint) {
+        switch (shardBy) {
+            case TAG:
+                final Set<String> tags = new LinkedHashSet<>();
+                if (restEndpoint.tags != null) {
+                    for (final String tag : restEndpoint.tags) {
+                        if (tag != null && tag.trim().isEmpty() == false) {
+                            tags.add(tag);
+                        }
+                    }
+                }
+                return tags.isEmpty() ? Collections.singleton(UNTAGGED) : tags;
+            case CLASS:
+                return Collections.singleton(restEndpoint.javaClass);
+            default:
+                final List<String> segments = RouteIndex.split(restEndpoint.uri);
+                return Collections.singleton(String.join("/",
+                        segments.subList(0, Math.min(prefixSegments, segments.size()))));
+        }
+    }
+
+    private void writeShards(final List<Shard> shards) throws IOException {
+        // a renderer per thread, since renderers are not thread-safe
+        final ThreadLocal<HtmlEndpointRenderer> renderers = ThreadLocal.withInitial(() -> {
+            final HtmlEndpointRenderer renderer = new HtmlEndpointRenderer(Utf8ChannelWriter.DEFAULT_CAPACITY,
+                    rowData);
+            renderer.setStatistics(statistics);
+            return renderer;
+        });
+        if (parallelism == 1) {
+            for (final Shard shard : shards) {
+                writeShard(shard, renderers.get());
+            }
+            return;
+        }
+
+        final ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.submit(() -> shards.parallelStream().forEach(shard -> {
+                try {
+                    writeShard(shard, renderers.get());
+                }
+                catch (final IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            })).get();
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing shards", e);
+        }
+        catch (final ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw new IOException("Failed to write shards", e.getCause());
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Writes the files of a shard that changed, the page last, so the page
+     * never refers to missing rows.
+     */
+    private static void writeShard(final Shard shard, final HtmlEndpointRenderer renderer) throws IOException {
+        final List<RestEndpoint> endpoints = shard.endpoints;
+        boolean rewritten = false;
+        if (renderer.getRowData() == RowData.BESIDE) {
+            rewritten |= writeIfChanged(HtmlEndpointRenderer.getDataFile(shard.page),
+                    render(channel -> renderer.renderData(endpoints, channel)));
+        }
+        rewritten |= writeIfChanged(HtmlEndpointRenderer.getSearchIndexFile(shard.page),
+                render(channel -> renderer.renderSearchIndex(endpoints, channel)));
+        final String pageName = shard.page.getFileName().toString();
+        rewritten |= writeIfChanged(shard.page, render(channel -> renderer.render(endpoints, channel, pageName)));
+        shard.rewritten = rewritten;
+    }
+
+    private static long writeLandingPage(final List<Shard> shards, final WritableByteChannel channel)
+            throws IOException {
+        final Utf8ChannelWriter out = new Utf8ChannelWriter(1 << 16);
+        out.open(channel);
+        out.write("<!DOCTYPE HTML PUBLIC \"-//W3C//DTD HTML 4.01 Transitional//EN\" "
+                + "\"http://www.w3.org/TR/html4/loose.dtd\">").write(NEWLINE);
+        out.write("<html>");
+        out.write("<head>");
+        out.write("<meta http-equiv=\"Content-Type\" content=\"text/html; charset=utf-8\">").write(NEWLINE);
+        out.write("<style type=\"text/css\">").write(NEWLINE);
+        out.write("@import \"api_page.css\";").write(NEWLINE);
+        out.write("body { margin: 0; }").write(NEWLINE);
+        out.write("#shards { position: fixed; top: 0; bottom: 0; left: 0; width: 20em; overflow: auto; }")
+                .write(NEWLINE);
+        out.write("#shards td { padding: 2px 6px; }").write(NEWLINE);
+        out.write("#shard { position: fixed; top: 0; bottom: 0; left: 20em; right: 0; width: calc(100% - 20em); "
+                + "height: 100%; border: 0; }").write(NEWLINE);
+        out.write("</style>").write(NEWLINE);
+        out.write("</head>").write(NEWLINE);
+
+        // the frame has no source, so a shard page is only loaded once its link is followed
+        out.write("<body>").write(NEWLINE);
+        out.write("<div id=\"shards\"><table>").write(NEWLINE);
+        out.write("<thead><tr><th>Shard</th><th>Endpoints</th></tr></thead>").write(NEWLINE);
+        out.write("<tbody>").write(NEWLINE);
+        for (final Shard shard : shards) {
+            out.write("<tr><td><a target=\"shard\" href=\"").writeEscaped(shard.page.getFileName().toString())
+                    .write("\">").writeEscaped(shard.name).write("</a></td><td>").write(shard.endpoints.size())
+                    .write("</td></tr>").write(NEWLINE);
+        }
+        out.write("</tbody>").write(NEWLINE);
+        out.write("</table></div>").write(NEWLINE);
+        out.write("<iframe id=\"shard\" name=\"shard\" title=\"Endpoints\"></iframe>").write(NEWLINE);
+        out.write("</body></html>");
+        out.flush();
+        return out.getBytesWritten();
+    }
+
+    private static byte[] render(final ChannelRenderer renderer) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (WritableByteChannel channel = Channels.newChannel(bytes)) {
+            renderer.render(channel);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Replaces a file atomically unless it already has the given content.
+     * Returns whether it was written.
+     */
+    private static boolean writeIfChanged(final Path file, final byte[] content) throws IOException {
+        if (Files.isRegularFile(file) && Files.size(file) == content.length
+                && Arrays.equals(Files.readAllBytes(file), content)) {
+            return false;
+        }
+        HtmlEndpointRenderer.writeAtomically(file, channel -> {
+            final ByteBuffer buffer = ByteBuffer.wrap(content);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            return content.length;
+        });
+        return true;
+    }
+
+    /**
+     * The endpoints of one shard and the page they are written to.
+     */
+    public static final class Shard {
+        private final String name;
+
+        private final Path page;
+
+        private final List<RestEndpoint> endpoints;
+
+        private volatile boolean rewritten;
+
+        Shard(final String name, final Path page, final List<RestEndpoint> endpoints) {
+            this.name = name;
+            this.page = page;
+            this.endpoints = endpoints;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Path getPage() {
+            return page;
+        }
+
+        public int getEndpointCount() {
+            return endpoints.size();
+        }
+
+        /**
+         * Returns whether a file of the shard changed and was written.
+         */
+        public boolean isRewritten() {
+            return rewritten;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.utility;
+
+/**
+ * A set of strings that holds a 64-bit hash of each instead of the string,
+ * eight bytes per member in an open-addressed array, for sinks that must tell
+ * whether they wrote a path or an id before without keeping every one of them.
+ * Two strings with the same hash are taken for one; with a hundred thousand
+ * members, that happens to about one set in a few billion. Not thread-safe.
+ */
+final class StringHashSet {
+
+    // FNV-1a, 64 bit
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    // 0 marks a free slot, so a string hashing to it is stored as this instead
+    private static final long ZERO_HASH = 1;
+
+    private long[] hashes = new long[64];
+
+    private int size;
+
+    /**
+     * Adds a string, returning false if it, or a string with the same hash,
+     * was added before.
+     */
+    boolean add(final String value) {
+        long hash = hash(value);
+        if (hash == 0) {
+            hash = ZERO_HASH;
+        }
+        if (size * 2 >= hashes.length) {
+            grow();
+        }
+        final int mask = hashes.length - 1;
+        for (int slot = spread(hash) & mask;; slot = slot + 1 & mask) {
+            if (hashes[slot] == hash) {
+                return false;
+            }
+            if (hashes[slot] == 0) {
+                hashes[slot] = hash;
+                size++;
+                return true;
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void grow() {
+        final long[] old = hashes;
+        hashes = new long[old.length * 2];
+        final int mask = hashes.length - 1;
+        for (final long hash : old) {
+            if (hash != 0) {
+                int slot = spread(hash) & mask;
+                while (hashes[slot] != 0) {
+                    slot = slot + 1 & mask;
+                }
+                hashes[slot] = hash;
+            }
+        }
+    }
+
+    private static int spread(final long hash) {
+        return (int) (hash ^ hash >>> 32);
+    }
+
+    static long hash(final String value) {
+        long hash = FNV_OFFSET_BASIS;
+        final int length = value.length();
+        for (int i = 0; i < length; i++) {
+            final char c = value.charAt(i);
+            hash = (hash ^ (c & 0xFF)) * FNV_PRIME;
+            hash = (hash ^ (c >>> 8)) * FNV_PRIME;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,155 @@
+package com.utility;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * What the sub-resource classes returned by locators expand to, worked out
+ * once per class wherever that gives the same result. A locator leading back
+ * to a class being expanded is cut, so an expansion depends on the classes
+ * around it: it is reused only where each class it cut is being expanded
+ * again and none of the classes it expanded is. Thread-safe; an
+ * {@link Expanding} belongs to one thread.
+ *
+ * @param <K> the class, or its name
+ * @param <V> what a class expands to
+ */
+final class SubResourceExpansions<K, V> {
+
+    private final Map<K, Expansion<K, V>> expansions = new ConcurrentHashMap<>();
+
+    /**
+     * Returns what a sub-resource class expands to below the classes being
+     * expanded, worked out by {@code expand} unless an earlier expansion fits,
+     * or null if the class is being expanded already, which cuts it.
+     */
+    V get(final K subResource, final Expanding<K> expanding, final Function<? super K, ? extends V> expand) {
+        if (expanding.cut(subResource)) {
+            return null;
+        }
+        final Expansion<K, V> known = expansions.get(subResource);
+        if (known != null && known.fits(expanding)) {
+            expanding.reached(known);
+            return known.value;
+        }
+
+        final V value;
+        final Frame<K> frame = expanding.push(subResource);
+        try {
+            value = expand.apply(subResource);
+        }
+        finally {
+            expanding.pop();
+        }
+        // the classes cut inside the expansion are cut wherever it happens
+        frame.cut.removeAll(frame.expanded);
+        final Expansion<K, V> expansion = new Expansion<>(value, frame.expanded, frame.cut);
+        if (expansion.cut.isEmpty()) {
+            expansions.put(subResource, expansion);
+        }
+        else {
+            expansions.putIfAbsent(subResource, expansion);
+        }
+        expanding.reached(expansion);
+        return value;
+    }
+
+    void removeIf(final Predicate<? super V> filter) {
+        expansions.values().removeIf(expansion -> filter.test(expansion.value));
+    }
+
+    void clear() {
+        expansions.clear();
+    }
+
+    /**
+     * The classes being expanded below one or more root resource classes,
+     * outermost first.
+     */
+    static final class Expanding<K> {
+        private final Set<K> classes = new LinkedHashSet<>();
+
+        // per class being expanded, the roots first: what its expansion has reached so far
+        private final Deque<Frame<K>> frames = new ArrayDeque<>();
+
+        Expanding(final Collection<? extends K> roots) {
+            classes.addAll(roots);
+            frames.push(new Frame<>());
+        }
+
+        Set<K> getClasses() {
+            return Collections.unmodifiableSet(classes);
+        }
+
+        private boolean cut(final K subResource) {
+            if (classes.contains(subResource) == false) {
+                return false;
+            }
+            frames.peek().cut.add(subResource);
+            return true;
+        }
+
+        private void reached(final Expansion<K, ?> expansion) {
+            frames.peek().expanded.addAll(expansion.expanded);
+            frames.peek().cut.addAll(expansion.cut);
+        }
+
+        private Frame<K> push(final K subResource) {
+            final Frame<K> frame = new Frame<>();
+            frame.expanded.add(subResource);
+            classes.add(subResource);
+            frames.push(frame);
+            return frame;
+        }
+
+        private void pop() {
+            final Frame<K> frame = frames.pop();
+            classes.remove(frame.expanded.iterator().next());
+        }
+    }
+
+    /**
+     * The classes an expansion has expanded, itself first, and those it cut.
+     */
+    private static final class Frame<K> {
+        final Set<K> expanded = new LinkedHashSet<>();
+
+        final Set<K> cut = new HashSet<>();
+    }
+
+    private static final class Expansion<K, V> {
+        final V value;
+
+        final Set<K> expanded;
+
+        // classes outside the expansion that it cut
+        final Set<K> cut;
+
+        Expansion(final V value, final Set<K> expanded, final Set<K> cut) {
+            this.value = value;
+            this.expanded = expanded;
+            this.cut = cut;
+        }
+
+        boolean fits(final Expanding<K> expanding) {
+            if (expanding.classes.containsAll(cut) == false) {
+                return false;
+            }
+            for (final K subResource : expanded) {
+                if (expanding.classes.contains(subResource)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
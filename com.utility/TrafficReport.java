@@ -0,0 +1,233 @@
+package com.utility;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.utility.RESTEndpointsDocumenter.RestEndpoint;
+
+/**
+ * The traffic of the documented endpoints in access logs, as
+ * {@link AccessLogIngester} aggregated it: per endpoint the requests, their
+ * latencies and their status classes, shown as extra columns of the index;
+ * the endpoints no request reached; and the requests that matched no
+ * endpoint, most frequent first.
+ */
+public final class TrafficReport implements EndpointStatistics {
+
+    /**
+     * The key requests matching no endpoint are counted under once
+     * {@link AccessLogIngester} stops telling their paths apart.
+     */
+    public static final String OTHER_PATHS = "(other paths)";
+
+    private static final List<String> COLUMNS = Collections.unmodifiableList(Arrays.asList("Requests",
+            "p50 (ms)", "p99 (ms)", "Status"));
+
+    private static final List<String> NO_TRAFFIC = Collections.unmodifiableList(Arrays.asList("none", "", "",
+            ""));
+
+    // the unmatched requests listed by print(PrintStream)
+    private static final int PRINTED_UNMATCHED = 20;
+
+    private final Map<String, EndpointTraffic> traffic;
+
+    private final List<RestEndpoint> unusedEndpoints;
+
+    private final Map<String, Long> unmatchedRequests;
+
+    private final long lines;
+
+    private final long malformedLines;
+
+    TrafficReport(final Map<String, EndpointTraffic> traffic, final List<RestEndpoint> unusedEndpoints,
+            final Map<String, Long> unmatchedRequests, final long lines, final long malformedLines) {
+        this.traffic = Collections.unmodifiableMap(traffic);
+        this.unusedEndpoints = Collections.unmodifiableList(unusedEndpoints);
+        this.unmatchedRequests = Collections.unmodifiableMap(unmatchedRequests);
+        this.lines = lines;
+        this.malformedLines = malformedLines;
+    }
+
+    /**
+     * Returns the traffic of an endpoint, or null if no request reached it.
+     */
+    public EndpointTraffic get(final RestEndpoint restEndpoint) {
+        return traffic.get(EndpointSnapshot.getIdentity(restEndpoint));
+    }
+
+    /**
+     * Returns the documented endpoints no request reached, in
+     * {@link RESTEndpointsDocumenter#ENDPOINT_ORDER}.
+     */
+    public List<RestEndpoint> getUnusedEndpoints() {
+        return unusedEndpoints;
+    }
+
+    /**
+     * Returns the number of requests matching no endpoint by method and path,
+     * without the query string, most frequent first.
+     */
+    public Map<String, Long> getUnmatchedRequests() {
+        return unmatchedRequests;
+    }
+
+    public long getLines() {
+        return lines;
+    }
+
+    /**
+     * Returns the number of lines no request could be read from.
+     */
+    public long getMalformedLines() {
+        return malformedLines;
+    }
+
+    @Override
+    public List<String> getColumns() {
+        return COLUMNS;
+    }
+
+    @Override
+    public List<String> getCells(final RestEndpoint restEndpoint) {
+        final EndpointTraffic endpointTraffic = get(restEndpoint);
+        if (endpointTraffic == null) {
+            return NO_TRAFFIC;
+        }
+        final LatencyHistogram histogram = endpointTraffic.histogram;
+        final StringBuilder status = new StringBuilder();
+        for (int statusClass = 1; statusClass < endpointTraffic.statusClasses.length; statusClass++) {
+            final long count = endpointTraffic.statusClasses[statusClass];
+            if (count > 0) {
+                if (status.length() > 0) {
+                    status.append(", ");
+                }
+                status.append(statusClass).append("xx ").append(String.format(Locale.ROOT, "%.1f%%",
+                        100.0 * count / endpointTraffic.requests));
+            }
+        }
+        return Arrays.asList(String.valueOf(endpointTraffic.requests),
+                histogram.getCount() > 0 ? String.format(Locale.ROOT, "%.1f",
+                        histogram.getValueAtPercentile(50) / 1000.0) : "",
+                histogram.getCount() > 0 ? String.format(Locale.ROOT, "%.1f",
+                        histogram.getValueAtPercentile(99) / 1000.0) : "",
+                status.toString());
+    }
+
+    /**
+     * Prints how many lines were read and matched, the endpoints without
+     * traffic and the most frequent requests matching no endpoint.
+     */
+    public void print(final PrintStream out) {
+        long matched = 0;
+        for (final EndpointTraffic endpointTraffic : traffic.values()) {
+            matched += endpointTraffic.requests;
+        }
+        long unmatched = 0;
+        for (final long count : unmatchedRequests.values()) {
+            unmatched += count;
+        }
+        out.println(lines + " lines, " + matched + " requests to " + traffic.size() + " endpoints, " + unmatched
+                + " requests matching no endpoint, " + malformedLines + " malformed lines");
+        if (unusedEndpoints.isEmpty() == false) {
+            out.println(unusedEndpoints.size() + " endpoints without traffic:");
+            for (final RestEndpoint restEndpoint : unusedEndpoints) {
+                out.println("  " + EndpointSnapshot.getKey(restEndpoint));
+            }
+        }
+        if (unmatchedRequests.isEmpty() == false) {
+            out.println("Requests matching no endpoint:");
+            int printed = 0;
+            for (final Map.Entry<String, Long> entry : unmatchedRequests.entrySet()) {
+                if (printed++ == PRINTED_UNMATCHED) {
+                    out.println("  ... " + (unmatchedRequests.size() - PRINTED_UNMATCHED) + " more");
+                    break;
+                }
+                out.println("  " + entry.getValue() + " " + entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * Returns the unmatched requests ordered most frequent first.
+     */
+    static Map<String, Long> byFrequency(final Map<String, Long> counts) {
+        final List<Map.Entry<String, Long>> entries = new ArrayList<>(counts.entrySet());
+        entries.sort(Map.Entry.<String, Long> comparingByValue().reversed()
+                .thenComparing(Map.Entry.comparingByKey()));
+        final Map<String, Long> ordered = new LinkedHashMap<>();
+        for (final Map.Entry<String, Long> entry : entries) {
+            ordered.put(entry.getKey(), entry.getValue());
+        }
+        return ordered;
+    }
+
+    /**
+     * Returns a map of traffic keyed as {@link #get(RestEndpoint)} looks it
+     * up, by the identity of the endpoint, as routes whose templates differ
+     * only in their regular expressions share a key.
+     */
+    static Map<String, EndpointTraffic> byIdentity(final Map<RouteIndex.Route, EndpointTraffic> traffic) {
+        final Map<String, EndpointTraffic> keyed = new HashMap<>();
+        for (final Map.Entry<RouteIndex.Route, EndpointTraffic> entry : traffic.entrySet()) {
+            keyed.put(EndpointSnapshot.getIdentity(entry.getKey().getEndpoint()), entry.getValue());
+        }
+        return keyed;
+    }
+
+    /**
+     * The requests to an endpoint. Partial counts of several chunks of a log
+     * {@link #add(EndpointTraffic) merge} exactly.
+     */
+    public static final class EndpointTraffic {
+        private final LatencyHistogram histogram = new LatencyHistogram();
+
+        // by the first digit of the status, 0 for a status that is not one
+        private final long[] statusClasses = new long[6];
+
+        private long requests;
+
+        void record(final int status, final long micros) {
+            requests++;
+            statusClasses[status >= 100 && status < 600 ? status / 100 : 0]++;
+            if (micros >= 0) {
+                histogram.record(micros);
+            }
+        }
+
+        void add(final EndpointTraffic other) {
+            histogram.add(other.histogram);
+            for (int i = 0; i < statusClasses.length; i++) {
+                statusClasses[i] += other.statusClasses[i];
+            }
+            requests += other.requests;
+        }
+
+        public long getRequests() {
+            return requests;
+        }
+
+        /**
+         * Returns the latencies of the requests that logged one, in
+         * microseconds.
+         */
+        public LatencyHistogram getHistogram() {
+            return histogram;
+        }
+
+        /**
+         * Returns the number of requests with a status of the given class,
+         * e.g. 5 for 5xx.
+         */
+        public long getStatusCount(final int statusClass) {
+            return statusClasses[statusClass];
+        }
+    }
+
+}
@@ -0,0 +1,267 @@
+package com.utility;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Encodes text as UTF-8 straight into a reusable direct buffer that is drained
+ * to a channel whenever it fills up. Nothing is allocated per write, so large
+ * documents are produced without intermediate strings.
+ * <p>
+ * Between {@link #beginJsonString()} and {@link #endJsonString()} everything
+ * written, markup included, is additionally escaped as the content of a JSON
+ * string. {@code <} is escaped as well, so the JSON can be embedded in a
+ * {@code <script>} element.
+ * <p>
+ * A writer is reused across documents by calling {@link #open} for each one,
+ * and is not thread-safe.
+ */
+final class Utf8ChannelWriter {
+
+    static final int DEFAULT_CAPACITY = 1 << 20;
+
+    private final ByteBuffer buffer;
+
+    private WritableByteChannel channel;
+
+    private long bytesWritten;
+
+    private boolean jsonString;
+
+    Utf8ChannelWriter() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    Utf8ChannelWriter(final int capacity) {
+        this.buffer = ByteBuffer.allocateDirect(capacity);
+    }
+
+    /**
+     * Starts writing to a new channel, discarding anything not yet flushed.
+     */
+    void open(final WritableByteChannel channel) {
+        this.channel = channel;
+        this.buffer.clear();
+        this.bytesWritten = 0;
+        this.jsonString = false;
+    }
+
+    /**
+     * Writes markup or any other text that must not be escaped.
+     */
+    Utf8ChannelWriter write(final String text) throws IOException {
+        final int length = text.length();
+        for (int i = 0; i < length; i++) {
+            i = put(text, i);
+        }
+        return this;
+    }
+
+    Utf8ChannelWriter write(final char c) throws IOException {
+        ensure(6);
+        putChar(c);
+        return this;
+    }
+
+    Utf8ChannelWriter write(final long value) throws IOException {
+        if (value < 0) {
+            write('-');
+        }
+        ensure(20);
+        // digits are generated backwards into the buffer and then reversed in place
+        final int start = buffer.position();
+        long remaining = value;
+        do {
+            buffer.put((byte) ('0' + Math.abs(remaining % 10)));
+            remaining /= 10;
+        } while (remaining != 0);
+        for (int i = start, j = buffer.position() - 1; i < j; i++, j--) {
+            final byte b = buffer.get(i);
+            buffer.put(i, buffer.get(j));
+            buffer.put(j, b);
+        }
+        return this;
+    }
+
+    /**
+     * Writes bytes that are already encoded, such as a row rendered earlier.
+     * They are not escaped, even inside a JSON string.
+     */
+    Utf8ChannelWriter write(final byte[] bytes) throws IOException {
+        if (bytes.length > buffer.capacity()) {
+            flush();
+            final ByteBuffer wrapped = ByteBuffer.wrap(bytes);
+            while (wrapped.hasRemaining()) {
+                bytesWritten += channel.write(wrapped);
+            }
+            return this;
+        }
+        ensure(bytes.length);
+        buffer.put(bytes);
+        return this;
+    }
+
+    /**
+     * Writes text as HTML character data, escaping the characters that would
+     * otherwise be read as markup. Null writes nothing.
+     */
+    Utf8ChannelWriter writeEscaped(final String text) throws IOException {
+        if (text == null) {
+            return this;
+        }
+        final int length = text.length();
+        for (int i = 0; i < length; i++) {
+            final char c = text.charAt(i);
+            switch (c) {
+                case '&':
+                    write("&amp;");
+                    break;
+                case '<':
+                    write("&lt;");
+                    break;
+                case '>':
+                    write("&gt;");
+                    break;
+                case '"':
+                    write("&quot;");
+                    break;
+                case '\'':
+                    write("&#39;");
+                    break;
+                default:
+                    i = put(text, i);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Opens a JSON string; until {@link #endJsonString()} all text is written
+     * as its content.
+     */
+    Utf8ChannelWriter beginJsonString() throws IOException {
+        write('"');
+        jsonString = true;
+        return this;
+    }
+
+    Utf8ChannelWriter endJsonString() throws IOException {
+        jsonString = false;
+        write('"');
+        return this;
+    }
+
+    /**
+     * Drains the buffer to the channel.
+     */
+    void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            bytesWritten += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Returns the number of bytes flushed to the current channel so far.
+     */
+    long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * Returns the number of bytes written to the current channel so far,
+     * flushed or still buffered.
+     */
+    long getPosition() {
+        return bytesWritten + buffer.position();
+    }
+
+    /**
+     * Encodes the character at the given index and returns the index of the
+     * last character consumed, which is the next one for a surrogate pair.
+     */
+    private int put(final String text, final int index) throws IOException {
+        final char c = text.charAt(index);
+        if (c < 0x80 && (jsonString == false || isJsonSafe(c))) {
+            if (buffer.hasRemaining() == false) {
+                flush();
+            }
+            buffer.put((byte) c);
+            return index;
+        }
+        ensure(6);
+        if (Character.isHighSurrogate(c) && index + 1 < text.length()
+                && Character.isLowSurrogate(text.charAt(index + 1))) {
+            final int codePoint = Character.toCodePoint(c, text.charAt(index + 1));
+            buffer.put((byte) (0xF0 | (codePoint >> 18)));
+            buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+            buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+            buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+            return index + 1;
+        }
+        putChar(c);
+        return index;
+    }
+
+    private void putChar(final char c) {
+        if (jsonString && (c < 0x80 ? isJsonSafe(c) == false : c == '\u2028' || c == '\u2029')) {
+            putJsonEscape(c);
+        }
+        else if (c < 0x80) {
+            buffer.put((byte) c);
+        }
+        else if (c < 0x800) {
+            buffer.put((byte) (0xC0 | (c >> 6)));
+            buffer.put((byte) (0x80 | (c & 0x3F)));
+        }
+        else if (Character.isSurrogate(c)) {
+            // an unpaired surrogate has no UTF-8 encoding
+            buffer.put((byte) '?');
+        }
+        else {
+            buffer.put((byte) (0xE0 | (c >> 12)));
+            buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+            buffer.put((byte) (0x80 | (c & 0x3F)));
+        }
+    }
+
+    private static boolean isJsonSafe(final char c) {
+        return c >= 0x20 && c != '"' && c != '\\' && c != '<';
+    }
+
+    /**
+     * Writes a JSON escape sequence; line and paragraph separators are escaped
+     * too, since JavaScript does not allow them in string literals.
+     */
+    private void putJsonEscape(final char c) {
+        buffer.put((byte) '\\');
+        switch (c) {
+            case '"':
+            case '\\':
+                buffer.put((byte) c);
+                break;
+            case '\n':
+                buffer.put((byte) 'n');
+                break;
+            case '\r':
+                buffer.put((byte) 'r');
+                break;
+            case '\t':
+                buffer.put((byte) 't');
+                break;
+            default:
+                buffer.put((byte) 'u');
+                for (int shift = 12; shift >= 0; shift -= 4) {
+                    buffer.put((byte) Character.forDigit((c >> shift) & 0xF, 16));
+                }
+        }
+    }
+
+    private void ensure(final int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,367 @@
+package com.utility;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+
+/**
+ * Random access to the entries of a zip archive through its central directory.
+ * The archive is memory-mapped once and the central directory is walked in
+ * place; entry names are only decoded when they match the requested prefix and
+ * entry data is only inflated when asked for. Stored (uncompressed) nested
+ * archives, as Spring Boot writes them to {@code BOOT-INF/lib}, are opened as
+ * slices of the outer mapping without copying.
+ * <p>
+ * Archives with a prepended launch script and ZIP64 archives are supported.
+ * Archives larger than 2 GB cannot be mapped and are rejected. Instances only
+ * use absolute reads of their buffer and are safe for concurrent use.
+ */
+final class ZipCentralDirectory {
+
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR = 0x07064b50;
+
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY = 0x06064b50;
+
+    private static final int CENTRAL_DIRECTORY_HEADER = 0x02014b50;
+
+    private static final int LOCAL_FILE_HEADER = 0x04034b50;
+
+    private static final int ZIP64_EXTRA_FIELD = 0x0001;
+
+    private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+
+    private final String name;
+
+    private final ByteBuffer buffer;
+
+    // where the archive starts in the buffer; non-zero when a launch script is prepended
+    private final int baseOffset;
+
+    private final int centralDirectoryOffset;
+
+    private final int entryCount;
+
+    // all entries by name, built on the first lookup by name
+    private volatile Map<String, Entry> index;
+
+    /**
+     * Maps the given archive file.
+     */
+    static ZipCentralDirectory open(final Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Archive larger than 2 GB cannot be mapped: " + file);
+            }
+            // the mapping stays valid after the channel is closed
+            return new ZipCentralDirectory(file.toString(), channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    ZipCentralDirectory(final String name, final ByteBuffer archive) throws IOException {
+        this.name = name;
+        this.buffer = archive.slice().order(ByteOrder.LITTLE_ENDIAN);
+
+        final int end = findEndOfCentralDirectory();
+        long entries = buffer.getShort(end + 10) & 0xFFFF;
+        long size = buffer.getInt(end + 12) & ZIP64_MAGIC;
+        long offset = buffer.getInt(end + 16) & ZIP64_MAGIC;
+        int directoryEnd = end;
+
+        final int locator = end - 20;
+        if (locator >= 0 && buffer.getInt(locator) == ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR) {
+            final int zip64End = findZip64EndOfCentralDirectory(locator);
+            entries = buffer.getLong(zip64End + 32);
+            size = buffer.getLong(zip64End + 40);
+            offset = buffer.getLong(zip64End + 48);
+            directoryEnd = zip64End;
+        }
+
+        final long directoryStart = directoryEnd - size;
+        if (directoryStart < 0 || directoryStart < offset || entries > Integer.MAX_VALUE) {
+            throw new IOException("Invalid central directory in " + name);
+        }
+        this.centralDirectoryOffset = (int) directoryStart;
+        this.baseOffset = (int) (directoryStart - offset);
+        this.entryCount = (int) entries;
+    }
+
+    /**
+     * Returns the position of the ZIP64 end of central directory record the
+     * locator points to. The locator holds its offset from the start of the
+     * archive, so with a launch script prepended the record is looked for
+     * right before the locator instead, the record's own size telling where
+     * it starts.
+     */
+    private int findZip64EndOfCentralDirectory(final int locator) throws IOException {
+        final long recordOffset = buffer.getLong(locator + 8);
+        if (recordOffset >= 0 && recordOffset <= locator - 56
+                && buffer.getInt((int) recordOffset) == ZIP64_END_OF_CENTRAL_DIRECTORY) {
+            return (int) recordOffset;
+        }
+        // a prepended script shifts the record by its length, so the record ending at the locator is at or after the offset
+        for (int position = locator - 56; position >= 0 && position >= recordOffset; position--) {
+            if (buffer.getInt(position) == ZIP64_END_OF_CENTRAL_DIRECTORY
+                    && position + 12 + buffer.getLong(position + 4) == locator) {
+                return position;
+            }
+        }
+        throw new IOException("Invalid ZIP64 end of central directory in " + name);
+    }
+
+    String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the entries whose names start with the given prefix, in central
+     * directory order. Names of other entries are compared as bytes and never
+     * decoded.
+     */
+    List<Entry> entries(final String prefix) throws IOException {
+        final byte[] prefixBytes = prefix.getBytes(StandardCharsets.UTF_8);
+        final List<Entry> entries = new ArrayList<>();
+        int position = centralDirectoryOffset;
+        for (int i = 0; i < entryCount; i++) {
+            checkSignature(position, CENTRAL_DIRECTORY_HEADER);
+            final int nameLength = buffer.getShort(position + 28) & 0xFFFF;
+            final int extraLength = buffer.getShort(position + 30) & 0xFFFF;
+            final int commentLength = buffer.getShort(position + 32) & 0xFFFF;
+            if (startsWith(position + 46, nameLength, prefixBytes)) {
+                entries.add(readEntry(position, nameLength, extraLength));
+            }
+            position += 46 + nameLength + extraLength + commentLength;
+        }
+        return entries;
+    }
+
+    /**
+     * Returns the entry with the given name, or null when there is none.
+     */
+    Entry find(final String entryName) throws IOException {
+        Map<String, Entry> entries = index;
+        if (entries == null) {
+            entries = new HashMap<>();
+            for (final Entry entry : entries("")) {
+                entries.put(entry.name, entry);
+            }
+            index = entries;
+        }
+        return entries.get(entryName);
+    }
+
+    /**
+     * Returns the uncompressed data of an entry. Stored entries are returned as
+     * a read-only view of the archive; deflated ones are inflated into a new
+     * heap buffer.
+     */
+    ByteBuffer read(final Entry entry) throws IOException {
+        if (entry.size > Integer.MAX_VALUE || entry.compressedSize > Integer.MAX_VALUE) {
+            throw new IOException("Entry larger than 2 GB: " + name + "!/" + entry.name);
+        }
+        final long header = baseOffset + entry.localHeaderOffset;
+        if (header > buffer.limit() - 30) {
+            throw new IOException("Invalid local header offset for " + name + "!/" + entry.name);
+        }
+        checkSignature((int) header, LOCAL_FILE_HEADER);
+        final int nameLength = buffer.getShort((int) header + 26) & 0xFFFF;
+        final int extraLength = buffer.getShort((int) header + 28) & 0xFFFF;
+        final int dataOffset = (int) header + 30 + nameLength + extraLength;
+        final ByteBuffer data = slice(dataOffset, (int) entry.compressedSize);
+
+        switch (entry.method) {
+            case ZipEntry.STORED:
+                return data;
+            case ZipEntry.DEFLATED:
+                return ByteBuffer.wrap(inflate(entry, data));
+            default:
+                throw new IOException("Unsupported compression method " + entry.method + " for " + name + "!/"
+                        + entry.name);
+        }
+    }
+
+    /**
+     * Returns the uncompressed data of an entry as a byte array.
+     */
+    byte[] readBytes(final Entry entry) throws IOException {
+        final ByteBuffer data = read(entry);
+        if (data.hasArray() && data.arrayOffset() == 0 && data.remaining() == data.array().length) {
+            return data.array();
+        }
+        final byte[] bytes = new byte[data.remaining()];
+        data.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Opens an archive nested in this one, such as a jar in {@code BOOT-INF/lib}.
+     */
+    ZipCentralDirectory openNested(final Entry entry) throws IOException {
+        return new ZipCentralDirectory(name + "!/" + entry.name, read(entry));
+    }
+
+    private byte[] inflate(final Entry entry, final ByteBuffer compressed) throws IOException {
+        final byte[] bytes = new byte[(int) entry.size];
+        final Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressed);
+            int length = 0;
+            while (length < bytes.length) {
+                final int count = inflater.inflate(bytes, length, bytes.length - length);
+                if (count == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Truncated entry " + name + "!/" + entry.name);
+                }
+                length += count;
+            }
+            return bytes;
+        }
+        catch (final DataFormatException e) {
+            throw new IOException("Corrupt entry " + name + "!/" + entry.name, e);
+        }
+        finally {
+            inflater.end();
+        }
+    }
+
+    private Entry readEntry(final int position, final int nameLength, final int extraLength) {
+        final int method = buffer.getShort(position + 10) & 0xFFFF;
+        final long dosTime = ((buffer.getShort(position + 14) & 0xFFFFL) << 16) | (buffer.getShort(position + 12)
+                & 0xFFFFL);
+        final long crc = buffer.getInt(position + 16) & ZIP64_MAGIC;
+        long compressedSize = buffer.getInt(position + 20) & ZIP64_MAGIC;
+        long size = buffer.getInt(position + 24) & ZIP64_MAGIC;
+        long localHeaderOffset = buffer.getInt(position + 42) & ZIP64_MAGIC;
+
+        if (size == ZIP64_MAGIC || compressedSize == ZIP64_MAGIC || localHeaderOffset == ZIP64_MAGIC) {
+            // the real values follow in the ZIP64 extra field, in this order, for the fields that overflowed
+            int extra = position + 46 + nameLength;
+            final int extraEnd = extra + extraLength;
+            while (extra + 4 <= extraEnd) {
+                final int id = buffer.getShort(extra) & 0xFFFF;
+                final int length = buffer.getShort(extra + 2) & 0xFFFF;
+                if (id == ZIP64_EXTRA_FIELD) {
+                    int field = extra + 4;
+                    if (size == ZIP64_MAGIC) {
+                        size = buffer.getLong(field);
+                        field += 8;
+                    }
+                    if (compressedSize == ZIP64_MAGIC) {
+                        compressedSize = buffer.getLong(field);
+                        field += 8;
+                    }
+                    if (localHeaderOffset == ZIP64_MAGIC) {
+                        localHeaderOffset = buffer.getLong(field);
+                    }
+                    break;
+                }
+                extra += 4 + length;
+            }
+        }
+
+        final byte[] nameBytes = new byte[nameLength];
+        buffer.duplicate().position(position + 46).get(nameBytes);
+        return new Entry(new String(nameBytes, StandardCharsets.UTF_8), method, crc, compressedSize, size,
+                localHeaderOffset, dosTime);
+    }
+
+    private int findEndOfCentralDirectory() throws IOException {
+        final int last = buffer.limit() - END_OF_CENTRAL_DIRECTORY_SIZE;
+        // the record is followed by a comment of at most 64 KB
+        final int first = Math.max(0, last - 0xFFFF);
+        for (int position = last; position >= first; position--) {
+            if (buffer.getInt(position) == END_OF_CENTRAL_DIRECTORY
+                    && position + END_OF_CENTRAL_DIRECTORY_SIZE + (buffer.getShort(position + 20) & 0xFFFF)
+                    == buffer.limit()) {
+                return position;
+            }
+        }
+        throw new IOException("Not a zip archive: " + name);
+    }
+
+    private boolean startsWith(final int position, final int length, final byte[] prefix) {
+        if (length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (buffer.get(position + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private ByteBuffer slice(final int offset, final int length) throws IOException {
+        if (offset < 0 || offset > buffer.limit() - length) {
+            throw new IOException("Entry data out of bounds in " + name);
+        }
+        final ByteBuffer view = buffer.duplicate();
+        view.position(offset).limit(offset + length);
+        return view.slice().asReadOnlyBuffer();
+    }
+
+    private void checkSignature(final int position, final int signature) throws IOException {
+        if (buffer.getInt(position) != signature) {
+            throw new IOException("Corrupt zip archive " + name + " at offset " + position);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ZipCentralDirectory {" + "name='" + name + '\'' + ", entries=" + entryCount + '}';
+    }
+
+    /**
+     * A central directory record.
+     */
+    static final class Entry {
+        final String name;
+
+        final int method;
+
+        final long crc;
+
+        final long compressedSize;
+
+        final long size;
+
+        final long localHeaderOffset;
+
+        /** Modification time in MS-DOS format, date in the high 16 bits. */
+        final long dosTime;
+
+        Entry(final String name, final int method, final long crc, final long compressedSize, final long size,
+                final long localHeaderOffset, final long dosTime) {
+            this.name = name;
+            this.method = method;
+            this.crc = crc;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.localHeaderOffset = localHeaderOffset;
+            this.dosTime = dosTime;
+        }
+
+        boolean isDirectory() {
+            return name.endsWith("/");
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}